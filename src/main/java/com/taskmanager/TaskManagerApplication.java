@@ -4,6 +4,7 @@ import com.taskmanager.account.model.Role;
 import com.taskmanager.account.model.User;
 import com.taskmanager.account.adapter.out.repository.RoleRepository;
 import com.taskmanager.account.adapter.out.repository.UserRepository;
+import com.taskmanager.process.cache.ProcessDefinitionCache;
 import com.taskmanager.process.model.ProcessDef;
 import com.taskmanager.process.repository.ProcessDefRepository;
 import org.activiti.engine.RepositoryService;
@@ -31,7 +32,8 @@ public class TaskManagerApplication {
 								 RoleRepository roleRepository,
 								 PasswordEncoder passwordEncoder,
 								 RepositoryService repositoryService,
-								 ProcessDefRepository processDefRepository) {
+								 ProcessDefRepository processDefRepository,
+								 ProcessDefinitionCache definitionCache) {
 		return args -> {
 			// -------------------------------------------------
 			// 1. 初始化使用者與權限資料
@@ -99,13 +101,13 @@ public class TaskManagerApplication {
 			// -------------------------------------------------
 			System.out.println("---------- 開始自動部署 Demo 流程 ----------");
 
-			deployProcessIfNeeded(repositoryService, processDefRepository, "leaveProcess", "請假流程", "processes/leaveProcess.bpmn20.xml");
-			deployProcessIfNeeded(repositoryService, processDefRepository, "purchaseProcess", "採購流程", "processes/purchaseProcess.bpmn20.xml");
-			deployProcessIfNeeded(repositoryService, processDefRepository, "todoProcess", "待辦事項流程", "processes/todoProcess.bpmn20.xml");
-			deployProcessIfNeeded(repositoryService, processDefRepository, "countersignProcess", "聯合會簽流程", "processes/countersignProcess.bpmn20.xml");
+			deployProcessIfNeeded(repositoryService, processDefRepository, definitionCache, "leaveProcess", "請假流程", "processes/leaveProcess.bpmn20.xml");
+			deployProcessIfNeeded(repositoryService, processDefRepository, definitionCache, "purchaseProcess", "採購流程", "processes/purchaseProcess.bpmn20.xml");
+			deployProcessIfNeeded(repositoryService, processDefRepository, definitionCache, "todoProcess", "待辦事項流程", "processes/todoProcess.bpmn20.xml");
+			deployProcessIfNeeded(repositoryService, processDefRepository, definitionCache, "countersignProcess", "聯合會簽流程", "processes/countersignProcess.bpmn20.xml");
 
 			// ★★★ 部署 IT 報修流程 ★★★
-			deployProcessIfNeeded(repositoryService, processDefRepository, "itRepairProcess", "IT 報修流程", "processes/itRepairProcess.bpmn20.xml");
+			deployProcessIfNeeded(repositoryService, processDefRepository, definitionCache, "itRepairProcess", "IT 報修流程", "processes/itRepairProcess.bpmn20.xml");
 
 			System.out.println("---------- Demo 流程部署檢查完成 ----------");
 		};
@@ -113,6 +115,7 @@ public class TaskManagerApplication {
 
 	private void deployProcessIfNeeded(RepositoryService repositoryService,
 									   ProcessDefRepository processDefRepository,
+									   ProcessDefinitionCache definitionCache,
 									   String processKey,
 									   String deploymentName,
 									   String resourcePath) {
@@ -134,6 +137,7 @@ public class TaskManagerApplication {
 				targetDefinition = repositoryService.createProcessDefinitionQuery()
 						.deploymentId(deployment.getId())
 						.singleResult();
+				definitionCache.warmDeployment(deployment.getId());
 			} else {
 				targetDefinition = list.get(0);
 				System.out.println("ℹ️ 流程已存在: " + deploymentName);
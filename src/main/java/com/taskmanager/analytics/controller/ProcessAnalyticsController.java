@@ -0,0 +1,114 @@
+package com.taskmanager.analytics.controller;
+
+import com.taskmanager.analytics.dto.BackfillStatus;
+import com.taskmanager.analytics.dto.DurationStats;
+import com.taskmanager.analytics.model.UserDailyThroughput;
+import com.taskmanager.analytics.service.ProcessAnalyticsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/process/analytics")
+@Tag(name = "Process Analytics API", description = "Cycle times, bottleneck nodes and user throughput")
+public class ProcessAnalyticsController {
+
+    private final ProcessAnalyticsService analyticsService;
+
+    public ProcessAnalyticsController(ProcessAnalyticsService analyticsService) {
+        this.analyticsService = analyticsService;
+    }
+
+    @GetMapping("/definitions")
+    @Operation(summary = "Get cycle time per process", description = "Returns count, average and p50/p90/p99 of start-to-end duration for every process key")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Success",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = DurationStats.class)))
+    })
+    public ResponseEntity<List<DurationStats>> getDefinitionStats() {
+        return ResponseEntity.ok(analyticsService.getDefinitionStats());
+    }
+
+    @GetMapping("/definitions/{definitionKey}/nodes")
+    @Operation(summary = "Get task node durations", description = "Returns per-node duration percentiles of a process, slowest p90 first")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Success",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = DurationStats.class)))
+    })
+    public ResponseEntity<List<DurationStats>> getNodeStats(
+            @Parameter(description = "Process definition key") @PathVariable String definitionKey) {
+        return ResponseEntity.ok(analyticsService.getNodeStats(definitionKey));
+    }
+
+    @GetMapping("/throughput")
+    @Operation(summary = "Get completed tasks per user per day", description = "Defaults to the last 30 days; the range may not exceed 366 days")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Success",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserDailyThroughput.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid date range", content = @Content)
+    })
+    public ResponseEntity<List<UserDailyThroughput>> getThroughput(
+            @Parameter(description = "Only this user; omit for everyone") @RequestParam(required = false) String userId,
+            @Parameter(description = "From day, inclusive (yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "To day, inclusive (yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(analyticsService.getThroughput(userId, from, to));
+    }
+
+    @PostMapping("/backfill")
+    @Operation(summary = "Rebuild analytics from history", description = "Recomputes all rollups from finished tasks and processes in the background")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Accepted",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = BackfillStatus.class))),
+            @ApiResponse(responseCode = "409", description = "A backfill is already running", content = @Content)
+    })
+    public ResponseEntity<BackfillStatus> startBackfill() {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/process/analytics/backfill"))
+                .body(analyticsService.startBackfill());
+    }
+
+    @GetMapping("/backfill")
+    @Operation(summary = "Get backfill status", description = "Returns the state and progress of the last backfill")
+    public ResponseEntity<BackfillStatus> getBackfillStatus() {
+        return ResponseEntity.ok(analyticsService.getBackfillStatus());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleIllegalArgumentException(IllegalArgumentException ex) {
+        Map<String, String> errorResponse = new HashMap<>();
+        errorResponse.put("message", ex.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<Map<String, String>> handleIllegalStateException(IllegalStateException ex) {
+        Map<String, String> errorResponse = new HashMap<>();
+        errorResponse.put("message", ex.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, String>> handleRejectedExecutionException(RejectedExecutionException ex) {
+        Map<String, String> errorResponse = new HashMap<>();
+        errorResponse.put("message", "系統忙碌中，請稍後重試");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(errorResponse);
+    }
+}
@@ -0,0 +1,92 @@
+package com.taskmanager.analytics.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+
+@Schema(description = "統計回填作業的狀態")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BackfillStatus {
+
+    public static final String STATUS_IDLE = "IDLE";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_SUCCEEDED = "SUCCEEDED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private String status;          // IDLE, RUNNING, SUCCEEDED, FAILED
+    private Instant cutoff;         // 只回填此時間之前完成的歷史，之後的由即時事件累加
+    private Instant startedAt;
+    private Instant finishedAt;
+    private long tasks;             // 已處理的已完成任務數
+    private long processes;         // 已處理的已結束流程數
+    private String error;
+
+    public BackfillStatus() {
+    }
+
+    public BackfillStatus(String status) {
+        this.status = status;
+    }
+
+    public boolean isRunning() {
+        return STATUS_RUNNING.equals(status);
+    }
+
+    // Getters and Setters
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Instant getCutoff() {
+        return cutoff;
+    }
+
+    public void setCutoff(Instant cutoff) {
+        this.cutoff = cutoff;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Instant startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(Instant finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public long getTasks() {
+        return tasks;
+    }
+
+    public void setTasks(long tasks) {
+        this.tasks = tasks;
+    }
+
+    public long getProcesses() {
+        return processes;
+    }
+
+    public void setProcesses(long processes) {
+        this.processes = processes;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,115 @@
+package com.taskmanager.analytics.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.taskmanager.analytics.model.DurationHistogram;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "流程或節點的耗時統計 (毫秒)")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DurationStats {
+    private String definitionKey;
+    private String definitionName;
+    private String nodeKey;       // 流程層級統計時為 null
+    private String nodeName;
+    private long count;
+    private long avgMillis;
+    private Long p50Millis;
+    private Long p90Millis;
+    private Long p99Millis;
+    private long maxMillis;
+
+    public static DurationStats of(DurationHistogram row) {
+        DurationStats stats = new DurationStats();
+        stats.definitionKey = row.getDefinitionKey();
+        stats.nodeKey = row.getNodeKey();
+        stats.nodeName = row.getNodeName();
+        stats.count = row.getSampleCount();
+        stats.avgMillis = row.getSampleCount() == 0 ? 0 : row.getSumMillis() / row.getSampleCount();
+        stats.p50Millis = row.percentile(0.50);
+        stats.p90Millis = row.percentile(0.90);
+        stats.p99Millis = row.percentile(0.99);
+        stats.maxMillis = row.getMaxMillis();
+        return stats;
+    }
+
+    // Getters and Setters
+    public String getDefinitionKey() {
+        return definitionKey;
+    }
+
+    public void setDefinitionKey(String definitionKey) {
+        this.definitionKey = definitionKey;
+    }
+
+    public String getDefinitionName() {
+        return definitionName;
+    }
+
+    public void setDefinitionName(String definitionName) {
+        this.definitionName = definitionName;
+    }
+
+    public String getNodeKey() {
+        return nodeKey;
+    }
+
+    public void setNodeKey(String nodeKey) {
+        this.nodeKey = nodeKey;
+    }
+
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    public void setNodeName(String nodeName) {
+        this.nodeName = nodeName;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getAvgMillis() {
+        return avgMillis;
+    }
+
+    public void setAvgMillis(long avgMillis) {
+        this.avgMillis = avgMillis;
+    }
+
+    public Long getP50Millis() {
+        return p50Millis;
+    }
+
+    public void setP50Millis(Long p50Millis) {
+        this.p50Millis = p50Millis;
+    }
+
+    public Long getP90Millis() {
+        return p90Millis;
+    }
+
+    public void setP90Millis(Long p90Millis) {
+        this.p90Millis = p90Millis;
+    }
+
+    public Long getP99Millis() {
+        return p99Millis;
+    }
+
+    public void setP99Millis(Long p99Millis) {
+        this.p99Millis = p99Millis;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    public void setMaxMillis(long maxMillis) {
+        this.maxMillis = maxMillis;
+    }
+}
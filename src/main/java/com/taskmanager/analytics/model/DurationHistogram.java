@@ -0,0 +1,132 @@
+package com.taskmanager.analytics.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * 耗時彙總 — 每個流程 (scope=PROCESS) 或每個使用者任務節點 (scope=NODE) 一列，
+ * 由完成事件逐筆累加，查詢分位數時不必掃描引擎歷史表。
+ */
+@Entity
+@Table(name = "analytics_duration_histogram",
+        indexes = @Index(name = "idx_duration_histogram_scope_key", columnList = "scope, definition_key"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class DurationHistogram {
+
+    public static final String SCOPE_PROCESS = "PROCESS";
+    public static final String SCOPE_NODE = "NODE";
+
+    // PROCESS|definitionKey 或 NODE|definitionKey|taskDefinitionKey
+    @Id
+    private String id;
+
+    @Column(name = "scope", nullable = false, length = 16)
+    private String scope;
+
+    @Column(name = "definition_key", nullable = false)
+    private String definitionKey;
+
+    @Column(name = "node_key")
+    private String nodeKey;
+
+    @Column(name = "node_name")
+    private String nodeName;
+
+    @Column(name = "sample_count", nullable = false)
+    private long sampleCount;
+
+    @Column(name = "sum_millis", nullable = false)
+    private long sumMillis;
+
+    @Column(name = "max_millis", nullable = false)
+    private long maxMillis;
+
+    // LogHistogram 的稀疏編碼
+    @Lob
+    @Column(name = "buckets")
+    @JsonIgnore
+    private String buckets;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    @Transient
+    @JsonIgnore
+    private LogHistogram histogram;
+
+    public static DurationHistogram forProcess(String definitionKey) {
+        DurationHistogram row = new DurationHistogram();
+        row.setId(SCOPE_PROCESS + "|" + definitionKey);
+        row.setScope(SCOPE_PROCESS);
+        row.setDefinitionKey(definitionKey);
+        return row;
+    }
+
+    public static DurationHistogram forNode(String definitionKey, String nodeKey, String nodeName) {
+        DurationHistogram row = new DurationHistogram();
+        row.setId(SCOPE_NODE + "|" + definitionKey + "|" + nodeKey);
+        row.setScope(SCOPE_NODE);
+        row.setDefinitionKey(definitionKey);
+        row.setNodeKey(nodeKey);
+        row.setNodeName(nodeName);
+        return row;
+    }
+
+    // 複製識別欄位，計數從零開始
+    public DurationHistogram emptyCopy() {
+        DurationHistogram row = new DurationHistogram();
+        row.setId(id);
+        row.setScope(scope);
+        row.setDefinitionKey(definitionKey);
+        row.setNodeKey(nodeKey);
+        row.setNodeName(nodeName);
+        return row;
+    }
+
+    public void record(long millis) {
+        long value = Math.max(0, millis);
+        sampleCount++;
+        sumMillis += value;
+        maxMillis = Math.max(maxMillis, value);
+        histogram().record(value);
+    }
+
+    public void merge(DurationHistogram other) {
+        sampleCount += other.sampleCount;
+        sumMillis += other.sumMillis;
+        maxMillis = Math.max(maxMillis, other.maxMillis);
+        histogram().merge(other.histogram());
+        // 節點改名時以最新的名稱為準
+        if (other.nodeName != null) {
+            nodeName = other.nodeName;
+        }
+    }
+
+    public LogHistogram histogram() {
+        if (histogram == null) {
+            histogram = LogHistogram.decode(buckets);
+        }
+        return histogram;
+    }
+
+    // 分位數不超過實際最大值 (避免最後一桶的中點大於真實值)
+    public Long percentile(double quantile) {
+        Long value = histogram().percentile(quantile);
+        return value == null ? null : Math.min(value, maxMillis);
+    }
+
+    // 寫入前把記憶體中的直方圖編碼回欄位
+    public void syncBuckets() {
+        if (histogram != null) {
+            buckets = histogram.encode();
+        }
+        updatedAt = Instant.now();
+    }
+}
@@ -0,0 +1,97 @@
+package com.taskmanager.analytics.model;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 對數分桶的耗時直方圖：第 i 桶涵蓋 [GAMMA^i, GAMMA^(i+1)) 毫秒，只記錄計數，可直接相加合併。
+ * 從一秒到數年只需數百個桶，分位數以桶的幾何中點回報。
+ */
+public final class LogHistogram {
+
+    // 相鄰桶的邊界比值 1.1，回報值的相對誤差約在 ±5% 以內
+    static final double GAMMA = 1.1;
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private final TreeMap<Integer, Long> counts = new TreeMap<>();
+    private long total;
+
+    public void record(long millis) {
+        add(bucketOf(millis), 1);
+    }
+
+    public void merge(LogHistogram other) {
+        for (Map.Entry<Integer, Long> entry : other.counts.entrySet()) {
+            add(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * 取第 quantile (0~1) 分位的耗時 (毫秒)；沒有樣本時回傳 null。
+     */
+    public Long percentile(double quantile) {
+        if (total == 0) {
+            return null;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+            seen += entry.getValue();
+            if (seen >= rank) {
+                return valueOf(entry.getKey());
+            }
+        }
+        return valueOf(counts.lastKey());
+    }
+
+    // 稀疏格式 "桶:計數,桶:計數"，空直方圖為空字串
+    public String encode() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(entry.getKey()).append(':').append(entry.getValue());
+        }
+        return sb.toString();
+    }
+
+    public static LogHistogram decode(String encoded) {
+        LogHistogram histogram = new LogHistogram();
+        if (encoded == null || encoded.isBlank()) {
+            return histogram;
+        }
+        for (String pair : encoded.split(",")) {
+            int colon = pair.indexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("直方圖格式錯誤：" + pair);
+            }
+            histogram.add(Integer.parseInt(pair.substring(0, colon).trim()), Long.parseLong(pair.substring(colon + 1).trim()));
+        }
+        return histogram;
+    }
+
+    static int bucketOf(long millis) {
+        if (millis <= 1) {
+            return 0;
+        }
+        return (int) Math.floor(Math.log(millis) / LOG_GAMMA);
+    }
+
+    // 桶的幾何中點
+    static long valueOf(int bucket) {
+        return Math.round(Math.pow(GAMMA, bucket + 0.5));
+    }
+
+    private void add(int bucket, long count) {
+        if (count <= 0) {
+            return;
+        }
+        counts.merge(bucket, count, Long::sum);
+        total += count;
+    }
+}
@@ -0,0 +1,65 @@
+package com.taskmanager.analytics.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * 每人每日完成的任務數與處理總耗時，由任務完成事件累加。
+ */
+@Entity
+@Table(name = "analytics_user_daily",
+        indexes = {
+                @Index(name = "idx_user_daily_day_user", columnList = "day, user_id"),
+                @Index(name = "idx_user_daily_user_day", columnList = "user_id, day")
+        })
+@Getter
+@Setter
+@NoArgsConstructor
+public class UserDailyThroughput {
+
+    // userId|yyyy-MM-dd
+    @Id
+    private String id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "day", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "completed", nullable = false)
+    private long completed;
+
+    @Column(name = "total_millis", nullable = false)
+    private long totalMillis;
+
+    public static UserDailyThroughput of(String userId, LocalDate day) {
+        UserDailyThroughput row = new UserDailyThroughput();
+        row.setId(userId + "|" + day);
+        row.setUserId(userId);
+        row.setDay(day);
+        return row;
+    }
+
+    public UserDailyThroughput emptyCopy() {
+        return of(userId, day);
+    }
+
+    public void record(long millis) {
+        completed++;
+        totalMillis += Math.max(0, millis);
+    }
+
+    public void merge(UserDailyThroughput other) {
+        completed += other.completed;
+        totalMillis += other.totalMillis;
+    }
+
+    public long getAvgMillis() {
+        return completed == 0 ? 0 : totalMillis / completed;
+    }
+}
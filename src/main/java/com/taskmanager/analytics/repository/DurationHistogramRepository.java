@@ -0,0 +1,13 @@
+package com.taskmanager.analytics.repository;
+
+import com.taskmanager.analytics.model.DurationHistogram;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface DurationHistogramRepository extends JpaRepository<DurationHistogram, String> {
+
+    List<DurationHistogram> findByScopeOrderByDefinitionKeyAsc(String scope);
+
+    List<DurationHistogram> findByScopeAndDefinitionKey(String scope, String definitionKey);
+}
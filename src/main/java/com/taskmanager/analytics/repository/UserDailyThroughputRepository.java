@@ -0,0 +1,14 @@
+package com.taskmanager.analytics.repository;
+
+import com.taskmanager.analytics.model.UserDailyThroughput;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface UserDailyThroughputRepository extends JpaRepository<UserDailyThroughput, String> {
+
+    List<UserDailyThroughput> findByDayBetweenOrderByDayAscUserIdAsc(LocalDate from, LocalDate to);
+
+    List<UserDailyThroughput> findByUserIdAndDayBetweenOrderByDayAsc(String userId, LocalDate from, LocalDate to);
+}
@@ -0,0 +1,45 @@
+package com.taskmanager.analytics.service;
+
+import com.taskmanager.analytics.model.DurationHistogram;
+import com.taskmanager.analytics.model.UserDailyThroughput;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一批完成事件 (或回填結果) 在記憶體中的增量，最後一次合併進資料表。
+ */
+final class AnalyticsDelta {
+
+    final Map<String, DurationHistogram> histograms = new LinkedHashMap<>();
+    final Map<String, UserDailyThroughput> throughput = new LinkedHashMap<>();
+
+    void recordProcess(String definitionKey, long millis) {
+        DurationHistogram row = DurationHistogram.forProcess(definitionKey);
+        histograms.computeIfAbsent(row.getId(), id -> row).record(millis);
+    }
+
+    void recordNode(String definitionKey, String nodeKey, String nodeName, long millis) {
+        DurationHistogram row = DurationHistogram.forNode(definitionKey, nodeKey, nodeName);
+        histograms.computeIfAbsent(row.getId(), id -> row).record(millis);
+    }
+
+    void recordCompletion(String userId, LocalDate day, long millis) {
+        UserDailyThroughput row = UserDailyThroughput.of(userId, day);
+        throughput.computeIfAbsent(row.getId(), id -> row).record(millis);
+    }
+
+    void merge(AnalyticsDelta other) {
+        for (DurationHistogram row : other.histograms.values()) {
+            histograms.computeIfAbsent(row.getId(), id -> row.emptyCopy()).merge(row);
+        }
+        for (UserDailyThroughput row : other.throughput.values()) {
+            throughput.computeIfAbsent(row.getId(), id -> row.emptyCopy()).merge(row);
+        }
+    }
+
+    boolean isEmpty() {
+        return histograms.isEmpty() && throughput.isEmpty();
+    }
+}
@@ -0,0 +1,341 @@
+package com.taskmanager.analytics.service;
+
+import com.taskmanager.analytics.dto.BackfillStatus;
+import com.taskmanager.analytics.model.DurationHistogram;
+import com.taskmanager.analytics.model.UserDailyThroughput;
+import com.taskmanager.analytics.repository.DurationHistogramRepository;
+import com.taskmanager.analytics.repository.UserDailyThroughputRepository;
+import com.taskmanager.process.cache.CachedProcessDefinition;
+import com.taskmanager.process.cache.ProcessDefinitionCache;
+import com.taskmanager.process.dto.ArchivedProcess;
+import com.taskmanager.process.model.ProcessArchive;
+import com.taskmanager.process.repository.ProcessArchiveRepository;
+import com.taskmanager.process.service.ProcessArchiveStore;
+import com.taskmanager.workflow.listener.ProcessChange;
+import com.taskmanager.workflow.listener.ProcessChangeHandler;
+import com.taskmanager.workflow.listener.TaskChange;
+import com.taskmanager.workflow.listener.TaskChangeHandler;
+import org.activiti.engine.HistoryService;
+import org.activiti.engine.history.HistoricProcessInstance;
+import org.activiti.engine.history.HistoricTaskInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 流程統計的寫入端：任務 / 流程完成事件逐筆累加進耗時直方圖與每人每日完成數。
+ * 既有歷史由回填作業從 ACT_HI_TASKINST / ACT_HI_PROCINST 一次算出，引擎歷史已被封存清除的實例改讀快照，查詢端只讀彙總表。
+ */
+@Service
+@Order(20)
+public class ProcessAnalyticsProjection implements TaskChangeHandler, ProcessChangeHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessAnalyticsProjection.class);
+
+    private static final int BACKFILL_CHUNK_SIZE = 500;
+
+    private final DurationHistogramRepository histogramRepository;
+    private final UserDailyThroughputRepository throughputRepository;
+    private final HistoryService historyService;
+    private final ProcessArchiveRepository archiveRepository;
+    private final ProcessArchiveStore archiveStore;
+    private final ProcessDefinitionCache definitionCache;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor executor;
+
+    // 回填進行中時，cutoff 之後的即時增量另存一份，回填結果寫入時再疊加上去
+    private AnalyticsDelta sinceCutoff;
+    private volatile BackfillStatus backfillStatus = new BackfillStatus(BackfillStatus.STATUS_IDLE);
+
+    public ProcessAnalyticsProjection(DurationHistogramRepository histogramRepository,
+                                      UserDailyThroughputRepository throughputRepository,
+                                      HistoryService historyService,
+                                      ProcessArchiveRepository archiveRepository,
+                                      ProcessArchiveStore archiveStore,
+                                      ProcessDefinitionCache definitionCache,
+                                      TransactionTemplate transactionTemplate,
+                                      @Qualifier("analyticsExecutor") TaskExecutor executor) {
+        this.histogramRepository = histogramRepository;
+        this.throughputRepository = throughputRepository;
+        this.historyService = historyService;
+        this.archiveRepository = archiveRepository;
+        this.archiveStore = archiveStore;
+        this.definitionCache = definitionCache;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = executor;
+    }
+
+    @Override
+    public void onTaskChanges(List<TaskChange> changes) {
+        // 交易提交後才分送，此時間即為完成時間
+        Date now = new Date();
+        LocalDate today = dayOf(now);
+        AnalyticsDelta delta = new AnalyticsDelta();
+        for (TaskChange change : changes) {
+            if (change.getType() != TaskChange.Type.COMPLETED || change.getCreateTime() == null) {
+                continue;
+            }
+            long millis = now.getTime() - change.getCreateTime().getTime();
+            if (change.getProcessDefinitionId() != null && change.getTaskDefinitionKey() != null) {
+                delta.recordNode(definitionKeyOf(change.getProcessDefinitionId()),
+                        change.getTaskDefinitionKey(), change.getName(), millis);
+            }
+            if (change.getAssignee() != null) {
+                delta.recordCompletion(change.getAssignee(), today, millis);
+            }
+        }
+        apply(delta);
+    }
+
+    @Override
+    public void onProcessChanges(List<ProcessChange> changes) {
+        AnalyticsDelta delta = new AnalyticsDelta();
+        for (ProcessChange change : changes) {
+            // 取消的流程不算週期時間
+            if (change.getType() != ProcessChange.Type.COMPLETED || change.getStartTime() == null) {
+                continue;
+            }
+            delta.recordProcess(definitionKeyOf(change.getProcessDefinitionId()),
+                    change.getTime().getTime() - change.getStartTime().getTime());
+        }
+        apply(delta);
+    }
+
+    // 記憶體資料庫每次啟動都是空表，自動回填一次
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(20)
+    public void backfillOnStartup() {
+        try {
+            if (histogramRepository.count() == 0 && throughputRepository.count() == 0) {
+                startBackfill();
+            }
+        } catch (Exception e) {
+            logger.error("流程統計回填啟動失敗: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 以背景執行緒重算所有統計；已有回填在跑時拒絕。
+     */
+    public BackfillStatus startBackfill() {
+        Date cutoff = new Date();
+        BackfillStatus status = new BackfillStatus(BackfillStatus.STATUS_RUNNING);
+        status.setCutoff(cutoff.toInstant());
+        status.setStartedAt(cutoff.toInstant());
+        synchronized (this) {
+            if (backfillStatus.isRunning()) {
+                throw new IllegalStateException("統計回填作業進行中，請稍後再試");
+            }
+            sinceCutoff = new AnalyticsDelta();
+            backfillStatus = status;
+        }
+        try {
+            executor.execute(() -> runBackfill(cutoff, status));
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                sinceCutoff = null;
+                backfillStatus = new BackfillStatus(BackfillStatus.STATUS_IDLE);
+            }
+            throw e;
+        }
+        return status;
+    }
+
+    public BackfillStatus getBackfillStatus() {
+        return backfillStatus;
+    }
+
+    void runBackfill(Date cutoff, BackfillStatus status) {
+        try {
+            AnalyticsDelta delta = new AnalyticsDelta();
+
+            // 封存作業已清除引擎歷史的實例只剩快照：先由快照計算並記下 ID，掃描 ACT_HI 時略過，不會重複計算。
+            // 掃描期間才被清除的實例可能漏算，下次回填會補上
+            Set<String> purged = new HashSet<>();
+            String afterId = "";
+            while (true) {
+                List<ProcessArchive> chunk = archiveRepository.findByPurgedTrueAndIdGreaterThanOrderByIdAsc(afterId,
+                        PageRequest.of(0, BACKFILL_CHUNK_SIZE));
+                for (ProcessArchive archive : chunk) {
+                    purged.add(archive.getId());
+                    recordArchived(delta, archiveStore.decode(archive), cutoff, status);
+                }
+                if (chunk.size() < BACKFILL_CHUNK_SIZE) {
+                    break;
+                }
+                afterId = chunk.get(chunk.size() - 1).getId();
+            }
+
+            for (int first = 0; ; first += BACKFILL_CHUNK_SIZE) {
+                List<HistoricTaskInstance> chunk = historyService.createHistoricTaskInstanceQuery()
+                        .finished()
+                        .taskCompletedBefore(cutoff)
+                        .orderByTaskId().asc()
+                        .listPage(first, BACKFILL_CHUNK_SIZE);
+                for (HistoricTaskInstance task : chunk) {
+                    if (!purged.contains(task.getProcessInstanceId())) {
+                        recordHistoricTask(delta, task);
+                    }
+                }
+                status.setTasks(status.getTasks() + chunk.size());
+                if (chunk.size() < BACKFILL_CHUNK_SIZE) {
+                    break;
+                }
+            }
+            for (int first = 0; ; first += BACKFILL_CHUNK_SIZE) {
+                List<HistoricProcessInstance> chunk = historyService.createHistoricProcessInstanceQuery()
+                        .finished()
+                        .finishedBefore(cutoff)
+                        .orderByProcessInstanceId().asc()
+                        .listPage(first, BACKFILL_CHUNK_SIZE);
+                for (HistoricProcessInstance hPi : chunk) {
+                    if (!purged.contains(hPi.getId())) {
+                        recordHistoricProcess(delta, hPi);
+                    }
+                }
+                status.setProcesses(status.getProcesses() + chunk.size());
+                if (chunk.size() < BACKFILL_CHUNK_SIZE) {
+                    break;
+                }
+            }
+
+            replace(delta);
+            status.setFinishedAt(Instant.now());
+            status.setStatus(BackfillStatus.STATUS_SUCCEEDED);
+            logger.info("流程統計回填完成：任務 {} 筆，流程 {} 筆", status.getTasks(), status.getProcesses());
+        } catch (Exception e) {
+            synchronized (this) {
+                sinceCutoff = null;
+            }
+            status.setFinishedAt(Instant.now());
+            status.setError(e.getMessage());
+            status.setStatus(BackfillStatus.STATUS_FAILED);
+            logger.error("流程統計回填失敗: {}", e.getMessage(), e);
+        }
+    }
+
+    // 與即時事件同一套規則：只算正常完成的任務 (刪除原因為空)
+    private void recordHistoricTask(AnalyticsDelta delta, HistoricTaskInstance task) {
+        if (task.getDeleteReason() != null || task.getEndTime() == null || task.getCreateTime() == null) {
+            return;
+        }
+        long millis = task.getEndTime().getTime() - task.getCreateTime().getTime();
+        if (task.getProcessDefinitionId() != null && task.getTaskDefinitionKey() != null) {
+            delta.recordNode(definitionKeyOf(task.getProcessDefinitionId()), task.getTaskDefinitionKey(), task.getName(), millis);
+        }
+        if (task.getAssignee() != null) {
+            delta.recordCompletion(task.getAssignee(), dayOf(task.getEndTime()), millis);
+        }
+    }
+
+    private void recordHistoricProcess(AnalyticsDelta delta, HistoricProcessInstance hPi) {
+        if (hPi.getDeleteReason() != null || hPi.getEndTime() == null || hPi.getStartTime() == null) {
+            return;
+        }
+        String key = hPi.getProcessDefinitionKey() != null
+                ? hPi.getProcessDefinitionKey()
+                : definitionKeyOf(hPi.getProcessDefinitionId());
+        delta.recordProcess(key, hPi.getEndTime().getTime() - hPi.getStartTime().getTime());
+    }
+
+    // 與 ACT_HI 相同的規則，時間改用快照內容
+    private void recordArchived(AnalyticsDelta delta, ArchivedProcess archived, Date cutoff, BackfillStatus status) {
+        Instant before = cutoff.toInstant();
+        for (ArchivedProcess.ArchivedTask task : archived.getTasks()) {
+            if (task.getDeleteReason() != null || task.getEndTime() == null || task.getCreateTime() == null
+                    || !task.getEndTime().isBefore(before)) {
+                continue;
+            }
+            long millis = Duration.between(task.getCreateTime(), task.getEndTime()).toMillis();
+            if (archived.getProcessDefinitionId() != null && task.getTaskDefinitionKey() != null) {
+                delta.recordNode(definitionKeyOf(archived.getProcessDefinitionId()), task.getTaskDefinitionKey(), task.getName(), millis);
+            }
+            if (task.getAssignee() != null) {
+                delta.recordCompletion(task.getAssignee(), task.getEndTime().atZone(ZoneId.systemDefault()).toLocalDate(), millis);
+            }
+        }
+        status.setTasks(status.getTasks() + archived.getTasks().size());
+
+        if (archived.getDeleteReason() == null && archived.getStartTime() != null && archived.getEndTime() != null
+                && archived.getEndTime().isBefore(before)) {
+            String key = archived.getProcessDefinitionKey() != null
+                    ? archived.getProcessDefinitionKey()
+                    : definitionKeyOf(archived.getProcessDefinitionId());
+            delta.recordProcess(key, Duration.between(archived.getStartTime(), archived.getEndTime()).toMillis());
+        }
+        status.setProcesses(status.getProcesses() + 1);
+    }
+
+    private synchronized void apply(AnalyticsDelta delta) {
+        if (delta.isEmpty()) {
+            return;
+        }
+        if (sinceCutoff != null) {
+            sinceCutoff.merge(delta);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<String, DurationHistogram> histograms = new HashMap<>();
+            histogramRepository.findAllById(delta.histograms.keySet()).forEach(row -> histograms.put(row.getId(), row));
+            for (DurationHistogram increment : delta.histograms.values()) {
+                histograms.computeIfAbsent(increment.getId(), id -> increment.emptyCopy()).merge(increment);
+            }
+            histograms.values().forEach(DurationHistogram::syncBuckets);
+            histogramRepository.saveAll(histograms.values());
+
+            Map<String, UserDailyThroughput> throughput = new HashMap<>();
+            throughputRepository.findAllById(delta.throughput.keySet()).forEach(row -> throughput.put(row.getId(), row));
+            for (UserDailyThroughput increment : delta.throughput.values()) {
+                throughput.computeIfAbsent(increment.getId(), id -> increment.emptyCopy()).merge(increment);
+            }
+            throughputRepository.saveAll(throughput.values());
+        });
+    }
+
+    // 回填結果 + 回填期間的即時增量，整批取代舊資料
+    private synchronized void replace(AnalyticsDelta backfilled) {
+        if (sinceCutoff != null) {
+            backfilled.merge(sinceCutoff);
+            sinceCutoff = null;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            histogramRepository.deleteAllInBatch();
+            throughputRepository.deleteAllInBatch();
+            backfilled.histograms.values().forEach(DurationHistogram::syncBuckets);
+            histogramRepository.saveAll(backfilled.histograms.values());
+            throughputRepository.saveAll(backfilled.throughput.values());
+        });
+    }
+
+    // 統計以流程 key 彙總 (跨版本)
+    private String definitionKeyOf(String processDefinitionId) {
+        CachedProcessDefinition definition = definitionCache.get(processDefinitionId);
+        if (definition != null) {
+            return definition.getKey();
+        }
+        int colon = processDefinitionId.indexOf(':');
+        return colon > 0 ? processDefinitionId.substring(0, colon) : processDefinitionId;
+    }
+
+    private static LocalDate dayOf(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
@@ -0,0 +1,95 @@
+package com.taskmanager.analytics.service;
+
+import com.taskmanager.analytics.dto.BackfillStatus;
+import com.taskmanager.analytics.dto.DurationStats;
+import com.taskmanager.analytics.model.DurationHistogram;
+import com.taskmanager.analytics.model.UserDailyThroughput;
+import com.taskmanager.analytics.repository.DurationHistogramRepository;
+import com.taskmanager.analytics.repository.UserDailyThroughputRepository;
+import com.taskmanager.process.cache.CachedProcessDefinition;
+import com.taskmanager.process.cache.ProcessDefinitionCache;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 流程統計的查詢端：只讀 {@link ProcessAnalyticsProjection} 維護的彙總表。
+ */
+@Service
+public class ProcessAnalyticsService {
+
+    private static final int DEFAULT_THROUGHPUT_DAYS = 30;
+    private static final int MAX_THROUGHPUT_DAYS = 366;
+
+    private final DurationHistogramRepository histogramRepository;
+    private final UserDailyThroughputRepository throughputRepository;
+    private final ProcessDefinitionCache definitionCache;
+    private final ProcessAnalyticsProjection projection;
+
+    public ProcessAnalyticsService(DurationHistogramRepository histogramRepository,
+                                   UserDailyThroughputRepository throughputRepository,
+                                   ProcessDefinitionCache definitionCache,
+                                   ProcessAnalyticsProjection projection) {
+        this.histogramRepository = histogramRepository;
+        this.throughputRepository = throughputRepository;
+        this.definitionCache = definitionCache;
+        this.projection = projection;
+    }
+
+    // 各流程的週期時間 (啟動到結束)
+    public List<DurationStats> getDefinitionStats() {
+        return histogramRepository.findByScopeOrderByDefinitionKeyAsc(DurationHistogram.SCOPE_PROCESS).stream()
+                .map(this::toStats)
+                .collect(Collectors.toList());
+    }
+
+    // 流程內各任務節點的停留時間，依 p90 由大到小排序，排在前面的就是瓶頸
+    public List<DurationStats> getNodeStats(String definitionKey) {
+        if (definitionKey == null || definitionKey.isBlank()) {
+            throw new IllegalArgumentException("流程 key 不能為空");
+        }
+        return histogramRepository.findByScopeAndDefinitionKey(DurationHistogram.SCOPE_NODE, definitionKey).stream()
+                .map(this::toStats)
+                .sorted(Comparator.comparing(DurationStats::getP90Millis, Comparator.nullsLast(Comparator.reverseOrder())))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 每人每日完成數；未指定區間時為最近 30 天。
+     */
+    public List<UserDailyThroughput> getThroughput(String userId, LocalDate from, LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_THROUGHPUT_DAYS - 1);
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("起始日期不可晚於結束日期");
+        }
+        if (ChronoUnit.DAYS.between(start, end) >= MAX_THROUGHPUT_DAYS) {
+            throw new IllegalArgumentException("查詢區間不可超過 " + MAX_THROUGHPUT_DAYS + " 天");
+        }
+        if (userId != null && !userId.isBlank()) {
+            return throughputRepository.findByUserIdAndDayBetweenOrderByDayAsc(userId, start, end);
+        }
+        return throughputRepository.findByDayBetweenOrderByDayAscUserIdAsc(start, end);
+    }
+
+    public BackfillStatus startBackfill() {
+        return projection.startBackfill();
+    }
+
+    public BackfillStatus getBackfillStatus() {
+        return projection.getBackfillStatus();
+    }
+
+    private DurationStats toStats(DurationHistogram row) {
+        DurationStats stats = DurationStats.of(row);
+        CachedProcessDefinition definition = definitionCache.getLatestByKey(row.getDefinitionKey());
+        if (definition != null) {
+            stats.setDefinitionName(definition.getName());
+        }
+        return stats;
+    }
+}
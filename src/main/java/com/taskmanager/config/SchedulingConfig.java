@@ -0,0 +1,10 @@
+package com.taskmanager.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// 排程工作 (歷史封存等)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
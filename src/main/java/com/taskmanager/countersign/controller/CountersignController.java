@@ -0,0 +1,56 @@
+package com.taskmanager.countersign.controller;
+
+import com.taskmanager.countersign.dto.CountersignApproveRequest;
+import com.taskmanager.countersign.dto.CountersignTally;
+import com.taskmanager.countersign.service.CountersignApprovalService;
+import com.taskmanager.task.dto.BulkTaskResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/countersign")
+@Tag(name = "Countersign API", description = "Countersign vote tallies and bulk approval for signers")
+public class CountersignController {
+
+    private final CountersignApprovalService approvalService;
+
+    public CountersignController(CountersignApprovalService approvalService) {
+        this.approvalService = approvalService;
+    }
+
+    @PostMapping("/approve")
+    @Operation(summary = "Approve my countersign tasks", description = "Completes the caller's countersign tasks with auditResult=pass through the bulk task path, one engine transaction per chunk")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Processed; check each result for success",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkTaskResponse.class))),
+            @ApiResponse(responseCode = "400", description = "No countersign task to approve", content = @Content)
+    })
+    public ResponseEntity<BulkTaskResponse> approve(@RequestBody(required = false) CountersignApproveRequest request) {
+        return ResponseEntity.ok(approvalService.approveAll(request != null ? request : new CountersignApproveRequest()));
+    }
+
+    @GetMapping("/{processInstanceId}/votes")
+    @Operation(summary = "Get countersign tally", description = "Returns approvals, rejections and every recorded vote of a process instance")
+    public ResponseEntity<CountersignTally> getTally(
+            @Parameter(description = "Process instance ID") @PathVariable String processInstanceId) {
+        return ResponseEntity.ok(approvalService.getTally(processInstanceId));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleIllegalArgumentException(IllegalArgumentException ex) {
+        Map<String, String> errorResponse = new HashMap<>();
+        errorResponse.put("message", ex.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+}
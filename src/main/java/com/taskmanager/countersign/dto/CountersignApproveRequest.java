@@ -0,0 +1,27 @@
+package com.taskmanager.countersign.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "委員一次同意多筆會簽任務")
+public class CountersignApproveRequest {
+
+    @Schema(description = "Only tasks of these process instances; omit for every countersign task assigned to the caller")
+    private List<String> processInstanceIds;
+
+    @Schema(description = "Only these task IDs")
+    private List<String> taskIds;
+
+    @Schema(description = "Comment recorded on every approved task; defaults to 同意", example = "同意")
+    private String comment;
+
+    public List<String> getProcessInstanceIds() { return processInstanceIds; }
+    public void setProcessInstanceIds(List<String> processInstanceIds) { this.processInstanceIds = processInstanceIds; }
+
+    public List<String> getTaskIds() { return taskIds; }
+    public void setTaskIds(List<String> taskIds) { this.taskIds = taskIds; }
+
+    public String getComment() { return comment; }
+    public void setComment(String comment) { this.comment = comment; }
+}
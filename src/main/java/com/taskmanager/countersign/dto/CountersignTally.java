@@ -0,0 +1,26 @@
+package com.taskmanager.countersign.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Schema(description = "會簽目前的計票結果")
+public class CountersignTally {
+    private String processInstanceId;
+    private long approvals;
+    private long rejections;
+    private List<CountersignVote> votes = new ArrayList<>(); // 依投票時間排序
+
+    public String getProcessInstanceId() { return processInstanceId; }
+    public void setProcessInstanceId(String processInstanceId) { this.processInstanceId = processInstanceId; }
+
+    public long getApprovals() { return approvals; }
+    public void setApprovals(long approvals) { this.approvals = approvals; }
+
+    public long getRejections() { return rejections; }
+    public void setRejections(long rejections) { this.rejections = rejections; }
+
+    public List<CountersignVote> getVotes() { return votes; }
+    public void setVotes(List<CountersignVote> votes) { this.votes = votes; }
+}
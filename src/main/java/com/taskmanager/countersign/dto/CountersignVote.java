@@ -0,0 +1,29 @@
+package com.taskmanager.countersign.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+
+@Schema(description = "會簽的一票")
+public class CountersignVote {
+    private String taskId;
+    private String activityId;
+    private String voter;
+    private boolean approved;
+    private Instant votedAt;
+
+    public String getTaskId() { return taskId; }
+    public void setTaskId(String taskId) { this.taskId = taskId; }
+
+    public String getActivityId() { return activityId; }
+    public void setActivityId(String activityId) { this.activityId = activityId; }
+
+    public String getVoter() { return voter; }
+    public void setVoter(String voter) { this.voter = voter; }
+
+    public boolean isApproved() { return approved; }
+    public void setApproved(boolean approved) { this.approved = approved; }
+
+    public Instant getVotedAt() { return votedAt; }
+    public void setVotedAt(Instant votedAt) { this.votedAt = votedAt; }
+}
@@ -0,0 +1,151 @@
+package com.taskmanager.countersign.service;
+
+import com.taskmanager.countersign.dto.CountersignApproveRequest;
+import com.taskmanager.countersign.dto.CountersignTally;
+import com.taskmanager.countersign.dto.CountersignVote;
+import com.taskmanager.task.dto.BulkTaskItem;
+import com.taskmanager.task.dto.BulkTaskResponse;
+import com.taskmanager.task.dto.BulkTaskResult;
+import com.taskmanager.task.service.TaskManagerService;
+import org.activiti.engine.HistoryService;
+import org.activiti.engine.TaskService;
+import org.activiti.engine.history.HistoricTaskInstance;
+import org.activiti.engine.history.HistoricVariableInstance;
+import org.activiti.engine.task.Task;
+import org.activiti.engine.task.TaskQuery;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 委員批次同意：找出目前使用者的會簽任務，交給批次任務操作 (每批一個引擎交易) 一次完成；另提供計票查詢。
+ * 開啟 countersign.early-completion 時，前面的票可能已讓會簽結束，後面的任務被引擎移除，這些任務回報為略過而非失敗。
+ */
+@Service
+public class CountersignApprovalService {
+
+    public static final String COUNTERSIGN_TASK = "countersignTask";
+
+    private final TaskService taskService;
+    private final HistoryService historyService;
+    private final TaskManagerService taskManagerService;
+
+    public CountersignApprovalService(TaskService taskService, HistoryService historyService, TaskManagerService taskManagerService) {
+        this.taskService = taskService;
+        this.historyService = historyService;
+        this.taskManagerService = taskManagerService;
+    }
+
+    public BulkTaskResponse approveAll(CountersignApproveRequest request) {
+        TaskQuery query = taskService.createTaskQuery()
+                .taskAssignee(getCurrentUserId())
+                .taskDefinitionKey(COUNTERSIGN_TASK)
+                .active();
+        if (request.getProcessInstanceIds() != null && !request.getProcessInstanceIds().isEmpty()) {
+            query.processInstanceIdIn(request.getProcessInstanceIds());
+        }
+        Set<String> taskIds = request.getTaskIds() != null && !request.getTaskIds().isEmpty()
+                ? new HashSet<>(request.getTaskIds()) : null;
+
+        // 與會簽表單相同的欄位，由批次操作依表單驗證
+        Map<String, Object> formData = new LinkedHashMap<>();
+        formData.put("auditResult", CountersignVoteService.PASS);
+        formData.put("comment", request.getComment() != null && !request.getComment().isBlank() ? request.getComment() : "同意");
+
+        List<BulkTaskItem> items = new ArrayList<>();
+        Set<String> processInstanceIds = new HashSet<>();
+        for (Task task : query.orderByTaskCreateTime().asc().list()) {
+            if (taskIds == null || taskIds.contains(task.getId())) {
+                items.add(new BulkTaskItem(task.getId(), "complete", null, new LinkedHashMap<>(formData)));
+                processInstanceIds.add(task.getProcessInstanceId());
+            }
+        }
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("沒有待簽核的會簽任務");
+        }
+        BulkTaskResponse response = taskManagerService.executeBulk(items);
+        if (response.getFailed() == 0) {
+            return response;
+        }
+        return markRemovedAsSkipped(response, processInstanceIds);
+    }
+
+    // 失敗的任務若已由引擎以刪除原因結束 (會簽提前結束)，而非由委員完成，改為略過
+    private BulkTaskResponse markRemovedAsSkipped(BulkTaskResponse response, Set<String> processInstanceIds) {
+        Set<String> removed = historyService.createHistoricTaskInstanceQuery()
+                .processInstanceIdIn(new ArrayList<>(processInstanceIds))
+                .taskDefinitionKey(COUNTERSIGN_TASK)
+                .taskAssignee(getCurrentUserId())
+                .finished()
+                .list().stream()
+                .filter(task -> task.getDeleteReason() != null)
+                .map(HistoricTaskInstance::getId)
+                .collect(Collectors.toSet());
+        if (removed.isEmpty()) {
+            return response;
+        }
+        List<BulkTaskResult> results = response.getResults().stream()
+                .map(result -> !result.isSuccess() && removed.contains(result.getTaskId())
+                        ? BulkTaskResult.skipped(result, "會簽已結束，任務已移除") : result)
+                .collect(Collectors.toList());
+        return new BulkTaskResponse(results, response.getTransactions());
+    }
+
+    /**
+     * 計票結果，讀歷史變數中的票 (流程結束後仍可查)，投票人取自對應的歷史任務。
+     */
+    public CountersignTally getTally(String processInstanceId) {
+        Map<String, String> voters = historyService.createHistoricTaskInstanceQuery()
+                .processInstanceId(processInstanceId)
+                .taskDefinitionKey(COUNTERSIGN_TASK)
+                .list().stream()
+                .filter(task -> task.getAssignee() != null)
+                .collect(Collectors.toMap(HistoricTaskInstance::getId, HistoricTaskInstance::getAssignee));
+
+        List<CountersignVote> votes = new ArrayList<>();
+        for (HistoricVariableInstance variable : historyService.createHistoricVariableInstanceQuery()
+                .processInstanceId(processInstanceId)
+                .variableNameLike(CountersignVoteService.VOTE_PREFIX + "%")
+                .list()) {
+            // countersignVote:<activityId>:<taskId>
+            String[] parts = variable.getVariableName().split(":", 3);
+            if (parts.length < 3) {
+                continue;
+            }
+            CountersignVote vote = new CountersignVote();
+            vote.setActivityId(parts[1]);
+            vote.setTaskId(parts[2]);
+            vote.setVoter(voters.get(parts[2]));
+            vote.setApproved(Boolean.TRUE.equals(variable.getValue()));
+            vote.setVotedAt(variable.getCreateTime() != null ? variable.getCreateTime().toInstant() : null);
+            votes.add(vote);
+        }
+        votes.sort(Comparator.comparing(CountersignVote::getVotedAt, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        CountersignTally tally = new CountersignTally();
+        tally.setProcessInstanceId(processInstanceId);
+        tally.setApprovals(votes.stream().filter(CountersignVote::isApproved).count());
+        tally.setRejections(votes.size() - tally.getApprovals());
+        tally.setVotes(votes);
+        return tally;
+    }
+
+    private String getCurrentUserId() {
+        try {
+            if (SecurityContextHolder.getContext().getAuthentication() != null) {
+                return SecurityContextHolder.getContext().getAuthentication().getName();
+            }
+        } catch (Exception e) {
+            // ignore
+        }
+        return "user";
+    }
+}
@@ -0,0 +1,87 @@
+package com.taskmanager.countersign.service;
+
+import org.activiti.engine.delegate.DelegateExecution;
+import org.activiti.engine.delegate.DelegateTask;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+/**
+ * 會簽計票。由 ActivitiConfig 以 countersignVotes 註冊給引擎，在 BPMN 中以 ${countersignVotes...} 使用：
+ * 每位委員完成任務時在流程實例上新增自己的一個票變數 (名稱含任務 ID)，不再更新同一個 approveCount 變數；
+ * 完成條件與閘道在同一個引擎交易中讀這些票變數計票。
+ * 票與任務完成同在引擎交易內，任務完成回滾時票一併回滾；同一會簽的完成由引擎鎖多實例根執行緒逐一提交，
+ * 因此計票看得到所有已提交的票加上自己這一票，不會漏算。
+ */
+@Service
+public class CountersignVoteService {
+
+    public static final String BEAN_NAME = "countersignVotes";
+    public static final String PASS = "pass";
+
+    // 票變數名稱：countersignVote:<activityId>:<taskId>，值為是否同意
+    public static final String VOTE_PREFIX = "countersignVote:";
+
+    // countersign.early-completion，見 completed()
+    private final boolean earlyCompletion;
+
+    public CountersignVoteService(@Value("${countersign.early-completion:false}") boolean earlyCompletion) {
+        this.earlyCompletion = earlyCompletion;
+    }
+
+    public static String voteVariable(String activityId, String taskId) {
+        return VOTE_PREFIX + activityId + ":" + taskId;
+    }
+
+    /**
+     * 任務完成監聽器呼叫：${countersignVotes.record(task, auditResult)}。
+     * 名稱在流程實例中不存在，變數會新增在流程實例上，多實例結束後閘道仍讀得到；不先載入其他變數。
+     */
+    public void record(DelegateTask task, String auditResult) {
+        task.setVariable(voteVariable(task.getTaskDefinitionKey(), task.getId()), PASS.equals(auditResult), false);
+    }
+
+    public long approvals(DelegateExecution execution, String activityId) {
+        return count(execution, activityId, true);
+    }
+
+    public long rejections(DelegateExecution execution, String activityId) {
+        return count(execution, activityId, false);
+    }
+
+    // 過半數同意
+    public boolean passed(DelegateExecution execution, String activityId, int total) {
+        return approvals(execution, activityId) * 2 > total;
+    }
+
+    /**
+     * 結果已確定：已過半數同意，或剩下的票全投同意也無法過半。
+     */
+    public boolean decided(DelegateExecution execution, String activityId, int total) {
+        if (passed(execution, activityId, total)) {
+            return true;
+        }
+        return (total - rejections(execution, activityId)) * 2 <= total;
+    }
+
+    /**
+     * 多實例完成條件：${countersignVotes.completed(execution, 'countersignTask', nrOfInstances)}。
+     * 只有開啟 countersign.early-completion 時才在結果確定後提前結束，其餘委員的任務會被引擎移除；
+     * 預設關閉，所有委員都完成才結束。
+     */
+    public boolean completed(DelegateExecution execution, String activityId, int total) {
+        return earlyCompletion && decided(execution, activityId, total);
+    }
+
+    private long count(DelegateExecution execution, String activityId, boolean approved) {
+        String prefix = VOTE_PREFIX + activityId + ":";
+        long count = 0;
+        for (Map.Entry<String, Object> variable : execution.getVariables().entrySet()) {
+            if (variable.getKey().startsWith(prefix) && Boolean.valueOf(approved).equals(variable.getValue())) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
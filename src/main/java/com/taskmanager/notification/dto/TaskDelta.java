@@ -0,0 +1,19 @@
+package com.taskmanager.notification.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// 待辦清單增量訊息：前端先載入一次清單，之後依此增刪
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskDelta {
+    private String type; // CREATED, ASSIGNED, COMPLETED, DELETED
+    private String taskId;
+    private String name;
+    private String processName;
+    private String assignee; // null 表示回到群組待認領
+    private String createTime;
+    private String processInstanceId;
+}
@@ -0,0 +1,69 @@
+package com.taskmanager.notification.service;
+
+import com.taskmanager.notification.dto.TaskDelta;
+import com.taskmanager.process.cache.ProcessDefinitionCache;
+import com.taskmanager.workflow.listener.TaskChange;
+import com.taskmanager.workflow.listener.TaskChangeHandler;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 將引擎任務異動推送給相關使用者 (/user/{name}/queue/tasks) 與候選群組 (/topic/tasks.group.{role})。
+ */
+@Service
+public class TaskPushService implements TaskChangeHandler {
+
+    public static final String USER_QUEUE = "/queue/tasks";
+    public static final String GROUP_TOPIC_PREFIX = "/topic/tasks.group.";
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ProcessDefinitionCache definitionCache;
+
+    public TaskPushService(SimpMessagingTemplate messagingTemplate, ProcessDefinitionCache definitionCache) {
+        this.messagingTemplate = messagingTemplate;
+        this.definitionCache = definitionCache;
+    }
+
+    @Override
+    public void onTaskChanges(List<TaskChange> changes) {
+        for (TaskChange change : changes) {
+            TaskDelta delta = toDelta(change);
+
+            // 目前處理人、候選人，以及曾經持有此任務的人 (被轉派走時需要移除)
+            Set<String> users = new LinkedHashSet<>();
+            if (change.getAssignee() != null) {
+                users.add(change.getAssignee());
+            }
+            users.addAll(change.getCandidateUsers());
+            users.addAll(change.getParticipants());
+
+            for (String user : users) {
+                messagingTemplate.convertAndSendToUser(user, USER_QUEUE, delta);
+            }
+            for (String group : change.getCandidateGroups()) {
+                messagingTemplate.convertAndSend(GROUP_TOPIC_PREFIX + group, delta);
+            }
+        }
+    }
+
+    private TaskDelta toDelta(TaskChange change) {
+        return new TaskDelta(
+                change.getType().name(),
+                change.getTaskId(),
+                change.getName(),
+                definitionCache.getProcessName(change.getProcessDefinitionId()),
+                change.getAssignee(),
+                change.getCreateTime() != null
+                        ? change.getCreateTime().toInstant().atZone(ZoneId.systemDefault()).format(DATE_FORMATTER)
+                        : null,
+                change.getProcessInstanceId());
+    }
+}
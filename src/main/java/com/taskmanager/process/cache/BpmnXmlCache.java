@@ -0,0 +1,52 @@
+package com.taskmanager.process.cache;
+
+import org.activiti.engine.ActivitiObjectNotFoundException;
+import org.activiti.engine.RepositoryService;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 以 processDefinitionId 為鍵的 BPMN XML 快取。
+ * 部署後 XML 不會變動 (新版本會是新的 ID)，所以不需要失效，只有第一次讀取會查 ACT_GE_BYTEARRAY。
+ */
+@Component
+public class BpmnXmlCache {
+
+    private final RepositoryService repositoryService;
+
+    private final Map<String, BpmnXmlResource> resources = new ConcurrentHashMap<>();
+
+    public BpmnXmlCache(RepositoryService repositoryService) {
+        this.repositoryService = repositoryService;
+    }
+
+    public BpmnXmlResource get(String processDefinitionId) {
+        if (processDefinitionId == null) {
+            throw new IllegalArgumentException("流程定義 ID 不能為空");
+        }
+        return resources.computeIfAbsent(processDefinitionId, this::load);
+    }
+
+    public String getXml(String processDefinitionId) {
+        return get(processDefinitionId).getXml();
+    }
+
+    public int size() {
+        return resources.size();
+    }
+
+    private BpmnXmlResource load(String processDefinitionId) {
+        try (InputStream inputStream = repositoryService.getProcessModel(processDefinitionId)) {
+            return new BpmnXmlResource(processDefinitionId, inputStream.readAllBytes());
+        } catch (ActivitiObjectNotFoundException e) {
+            throw new IllegalArgumentException("流程定義不存在：" + processDefinitionId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("無法讀取 BPMN XML：" + processDefinitionId, e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.taskmanager.process.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 已部署的 BPMN XML — 內容不會再變動，原文、gzip 壓縮版與強 ETag 在載入時一次算好。
+ */
+public class BpmnXmlResource {
+
+    private final String processDefinitionId;
+    private final byte[] bytes;
+    private final byte[] gzipBytes;
+    private final String digest;
+    private final String etag;
+    private final String gzipEtag;
+
+    public BpmnXmlResource(String processDefinitionId, byte[] bytes) {
+        this.processDefinitionId = processDefinitionId;
+        this.bytes = bytes;
+        this.gzipBytes = gzip(bytes);
+        this.digest = sha256(bytes);
+        this.etag = "\"" + digest + "\"";
+        // 不同 Content-Encoding 是不同的表示，強 ETag 也必須不同
+        this.gzipEtag = "\"" + digest + "-gz\"";
+    }
+
+    public String getProcessDefinitionId() {
+        return processDefinitionId;
+    }
+
+    // 呼叫端不可修改回傳的陣列
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public byte[] getGzipBytes() {
+        return gzipBytes;
+    }
+
+    // 內容的 SHA-256 (hex)，部署時用來判斷內容是否有變動
+    public String getDigest() {
+        return digest;
+    }
+
+    // 強 ETag：同一份 XML 的位元組完全相同
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getGzipEtag() {
+        return gzipEtag;
+    }
+
+    public String getXml() {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
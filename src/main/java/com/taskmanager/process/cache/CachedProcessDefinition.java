@@ -0,0 +1,173 @@
+package com.taskmanager.process.cache;
+
+import com.taskmanager.process.form.FormSchema;
+import org.activiti.bpmn.model.BpmnModel;
+import org.activiti.bpmn.model.FlowElement;
+import org.activiti.bpmn.model.FormProperty;
+import org.activiti.bpmn.model.ServiceTask;
+import org.activiti.bpmn.model.StartEvent;
+import org.activiti.bpmn.model.UserTask;
+import org.activiti.engine.repository.ProcessDefinition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 流程定義的唯讀快照 — 部署後內容不會再變動，可安全地在各 Service 間共用。
+ */
+public class CachedProcessDefinition {
+
+    private final String id;
+    private final String key;
+    private final String name;
+    private final int version;
+    private final String deploymentId;
+    private final String resourceName;
+    private final boolean suspended;
+    private final BpmnModel bpmnModel;
+    private final org.activiti.bpmn.model.Process mainProcess;
+    private final StartEvent startEvent;
+    private final Map<String, UserTask> userTasks;
+    private final Set<String> multiInstanceCollections;
+    private final List<Map<String, String>> flowNodes;
+    private final FormSchema startForm;
+    private final Map<String, FormSchema> taskForms;
+    private final Map<String, FormSchema> nodeForms;
+
+    public CachedProcessDefinition(ProcessDefinition definition, BpmnModel bpmnModel) {
+        this.id = definition.getId();
+        this.key = definition.getKey();
+        this.name = definition.getName();
+        this.version = definition.getVersion();
+        this.deploymentId = definition.getDeploymentId();
+        this.resourceName = definition.getResourceName();
+        this.suspended = definition.isSuspended();
+        this.bpmnModel = bpmnModel;
+        this.mainProcess = bpmnModel.getMainProcess() != null
+                ? bpmnModel.getMainProcess()
+                : bpmnModel.getProcesses().get(0);
+
+        StartEvent start = null;
+        Map<String, UserTask> tasks = new HashMap<>();
+        Set<String> collections = new HashSet<>();
+        List<Map<String, String>> nodes = new ArrayList<>();
+
+        for (FlowElement element : mainProcess.getFlowElements()) {
+            if (element instanceof StartEvent && start == null) {
+                start = (StartEvent) element;
+            }
+            if (element instanceof UserTask) {
+                UserTask task = (UserTask) element;
+                tasks.put(task.getId(), task);
+                if (task.getLoopCharacteristics() != null && task.getLoopCharacteristics().getInputDataItem() != null) {
+                    collections.add(task.getLoopCharacteristics().getInputDataItem());
+                }
+            }
+            if (element instanceof UserTask || element instanceof ServiceTask) {
+                Map<String, String> node = new LinkedHashMap<>();
+                node.put("id", element.getId());
+                node.put("name", element.getName() != null ? element.getName() : element.getId());
+                nodes.add(Collections.unmodifiableMap(node));
+            }
+        }
+
+        this.startEvent = start;
+        this.userTasks = Collections.unmodifiableMap(tasks);
+        this.multiInstanceCollections = Collections.unmodifiableSet(collections);
+        this.flowNodes = Collections.unmodifiableList(nodes);
+
+        // 表單結構在載入定義時一次編譯完成，之後只需合併執行期的變數值
+        this.startForm = start != null
+                ? FormSchema.forStart(start.getFormProperties(), this.multiInstanceCollections)
+                : FormSchema.EMPTY;
+        Map<String, FormSchema> compiledTaskForms = new HashMap<>();
+        Map<String, FormSchema> compiledNodeForms = new HashMap<>();
+        for (UserTask task : tasks.values()) {
+            compiledTaskForms.put(task.getId(), FormSchema.forTask(task.getFormProperties()));
+            compiledNodeForms.put(task.getId(), FormSchema.forStart(task.getFormProperties(), Collections.emptySet()));
+        }
+        this.taskForms = Collections.unmodifiableMap(compiledTaskForms);
+        this.nodeForms = Collections.unmodifiableMap(compiledNodeForms);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getDeploymentId() {
+        return deploymentId;
+    }
+
+    public String getResourceName() {
+        return resourceName;
+    }
+
+    public boolean isSuspended() {
+        return suspended;
+    }
+
+    public BpmnModel getBpmnModel() {
+        return bpmnModel;
+    }
+
+    public org.activiti.bpmn.model.Process getMainProcess() {
+        return mainProcess;
+    }
+
+    public FlowElement getFlowElement(String elementId) {
+        return mainProcess.getFlowElement(elementId);
+    }
+
+    public StartEvent getStartEvent() {
+        return startEvent;
+    }
+
+    public UserTask getUserTask(String taskDefinitionKey) {
+        return userTasks.get(taskDefinitionKey);
+    }
+
+    public List<FormProperty> getStartFormProperties() {
+        return startEvent != null ? startEvent.getFormProperties() : Collections.emptyList();
+    }
+
+    public Set<String> getMultiInstanceCollections() {
+        return multiInstanceCollections;
+    }
+
+    // 可跳關 / 可指派的節點 (UserTask、ServiceTask)
+    public List<Map<String, String>> getFlowNodes() {
+        return flowNodes;
+    }
+
+    public FormSchema getStartForm() {
+        return startForm;
+    }
+
+    // 任務辦理表單；非 UserTask 節點回傳 null
+    public FormSchema getTaskForm(String taskDefinitionKey) {
+        return taskForms.get(taskDefinitionKey);
+    }
+
+    // 跳關 / 指派時使用的節點表單 (帶預設值)
+    public FormSchema getNodeForm(String taskDefinitionKey) {
+        return nodeForms.get(taskDefinitionKey);
+    }
+}
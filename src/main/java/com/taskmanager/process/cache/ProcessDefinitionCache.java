@@ -0,0 +1,133 @@
+package com.taskmanager.process.cache;
+
+import org.activiti.engine.RepositoryService;
+import org.activiti.engine.repository.ProcessDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 以 processDefinitionId 為鍵的流程定義快取。
+ * 部署時預先載入，部署 / 暫停 / 啟用時失效，避免每一列任務都去查 ACT_RE_PROCDEF。
+ */
+@Component
+public class ProcessDefinitionCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessDefinitionCache.class);
+
+    private final RepositoryService repositoryService;
+
+    private final Map<String, CachedProcessDefinition> definitions = new ConcurrentHashMap<>();
+    private final Map<String, String> latestIdByKey = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ProcessDefinitionCache(RepositoryService repositoryService) {
+        this.repositoryService = repositoryService;
+    }
+
+    public CachedProcessDefinition get(String processDefinitionId) {
+        if (processDefinitionId == null) {
+            return null;
+        }
+        CachedProcessDefinition cached = definitions.get(processDefinitionId);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        misses.incrementAndGet();
+        ProcessDefinition definition = repositoryService.createProcessDefinitionQuery()
+                .processDefinitionId(processDefinitionId)
+                .singleResult();
+        if (definition == null) {
+            return null;
+        }
+        return put(definition);
+    }
+
+    public CachedProcessDefinition getLatestByKey(String processDefinitionKey) {
+        String id = latestIdByKey.get(processDefinitionKey);
+        if (id != null) {
+            return get(id);
+        }
+
+        misses.incrementAndGet();
+        ProcessDefinition definition = repositoryService.createProcessDefinitionQuery()
+                .processDefinitionKey(processDefinitionKey)
+                .latestVersion()
+                .singleResult();
+        if (definition == null) {
+            return null;
+        }
+        latestIdByKey.put(processDefinitionKey, definition.getId());
+        return put(definition);
+    }
+
+    // 列表頁只需要名稱：找不到時維持原本 "Unknown Process" 的行為
+    public String getProcessName(String processDefinitionId) {
+        try {
+            CachedProcessDefinition definition = get(processDefinitionId);
+            return definition != null ? definition.getName() : "Unknown Process";
+        } catch (Exception e) {
+            return "Unknown Process";
+        }
+    }
+
+    // 部署完成後呼叫：同一個 deployment 底下的定義一次載入，並更新 key -> 最新版本
+    public List<CachedProcessDefinition> warmDeployment(String deploymentId) {
+        List<CachedProcessDefinition> loaded = new ArrayList<>();
+        for (ProcessDefinition definition : repositoryService.createProcessDefinitionQuery()
+                .deploymentId(deploymentId)
+                .list()) {
+            loaded.add(put(definition));
+            latestIdByKey.put(definition.getKey(), definition.getId());
+        }
+        logger.info("流程定義快取已載入 deployment {} ({} 筆)", deploymentId, loaded.size());
+        return loaded;
+    }
+
+    public void invalidate(String processDefinitionId) {
+        CachedProcessDefinition removed = definitions.remove(processDefinitionId);
+        if (removed != null) {
+            latestIdByKey.remove(removed.getKey());
+            invalidations.incrementAndGet();
+        }
+    }
+
+    public void invalidateAll() {
+        definitions.clear();
+        latestIdByKey.clear();
+        invalidations.incrementAndGet();
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", definitions.size());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("invalidations", invalidations.get());
+        stats.put("hitRatio", total == 0 ? 0.0 : (double) hitCount / total);
+        return stats;
+    }
+
+    private CachedProcessDefinition put(ProcessDefinition definition) {
+        CachedProcessDefinition cached = new CachedProcessDefinition(
+                definition, repositoryService.getBpmnModel(definition.getId()));
+        definitions.put(definition.getId(), cached);
+        return cached;
+    }
+}
@@ -1,30 +1,57 @@
 package com.taskmanager.process.controller;
 
+import com.taskmanager.process.cache.BpmnXmlResource;
 import com.taskmanager.process.dto.ProcessRequest;
+import com.taskmanager.process.dto.ProcessStartStatus;
+import com.taskmanager.process.dto.ArchiveRunResult;
+import com.taskmanager.process.dto.ArchivedProcess;
+import com.taskmanager.process.dto.BulkStartRequest;
+import com.taskmanager.process.dto.BulkStartResponse;
+import com.taskmanager.process.dto.DeployReport;
 import com.taskmanager.process.dto.HistoryLog;
+import com.taskmanager.process.dto.HistoryTimeline;
+import com.taskmanager.process.dto.InstanceFilter;
+import com.taskmanager.process.diagram.DiagramImage;
 import com.taskmanager.process.model.ProcessDef;
 import com.taskmanager.process.model.ProcessIns;
+import com.taskmanager.process.service.HistoryExportService;
+import com.taskmanager.process.service.ProcessArchiveService;
+import com.taskmanager.process.service.ProcessDeployService;
+import com.taskmanager.process.service.ProcessDiagramService;
 import com.taskmanager.process.service.ProcessService;
+import com.taskmanager.process.service.ProcessStartService;
+import com.taskmanager.task.dto.CursorPage;
 import com.taskmanager.task.dto.TaskJumpRequest; // 引用 DTO
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/process")
@@ -32,9 +59,21 @@ import java.util.Map;
 public class ProcessController {
 
     private final ProcessService processService;
+    private final HistoryExportService historyExportService;
+    private final ProcessStartService processStartService;
+    private final ProcessDeployService processDeployService;
+    private final ProcessArchiveService processArchiveService;
+    private final ProcessDiagramService processDiagramService;
 
-    public ProcessController(ProcessService processService) {
+    public ProcessController(ProcessService processService, HistoryExportService historyExportService,
+                             ProcessStartService processStartService, ProcessDeployService processDeployService,
+                             ProcessArchiveService processArchiveService, ProcessDiagramService processDiagramService) {
         this.processService = processService;
+        this.historyExportService = historyExportService;
+        this.processStartService = processStartService;
+        this.processDeployService = processDeployService;
+        this.processArchiveService = processArchiveService;
+        this.processDiagramService = processDiagramService;
     }
 
     @GetMapping("/definitions")
@@ -48,6 +87,12 @@ public class ProcessController {
         return ResponseEntity.ok(processService.getAllDefinitions());
     }
 
+    @GetMapping("/definitions/cache-stats")
+    @Operation(summary = "Get definition cache stats", description = "Retrieves hit/miss counters of the process definition cache")
+    public ResponseEntity<Map<String, Object>> getDefinitionCacheStats() {
+        return ResponseEntity.ok(processService.getDefinitionCacheStats());
+    }
+
     @PostMapping("/deploy")
     @Operation(summary = "Deploy a process", description = "Deploys a new process with BPMN file")
     @ApiResponses(value = {
@@ -57,7 +102,19 @@ public class ProcessController {
             @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
     })
     public ResponseEntity<ProcessDef> deployProcess(@ModelAttribute ProcessRequest request) {
-        return ResponseEntity.ok(processService.deployProcess(request.getName(), request.getFile()));
+        return ResponseEntity.ok(processDeployService.deployProcess(request.getName(), request.getFile()));
+    }
+
+    // ★★★ zip 套件部署：多個 BPMN 一個 deployment，內容未變動的檔案略過 ★★★
+    @PostMapping("/deploy/bundle")
+    @Operation(summary = "Deploy a process bundle", description = "Deploys every BPMN file of a zip in one deployment, skipping files whose content hash matches the latest deployed version")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Deploy report",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = DeployReport.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid or oversized bundle", content = @Content)
+    })
+    public ResponseEntity<DeployReport> deployBundle(@ModelAttribute ProcessRequest request) {
+        return ResponseEntity.ok(processDeployService.deployBundle(request.getName(), request.getFile()));
     }
 
     @PostMapping("/definitions/{id}/toggle")
@@ -85,15 +142,161 @@ public class ProcessController {
         return ResponseEntity.ok(processService.startProcess(request.getProcessDefinitionId(), request.getVariables()));
     }
 
+    // ★★★ 非同步啟動：立即回 202 與查詢用的 handle，重送相同 Idempotency-Key 不會重複建立流程 ★★★
+    @PostMapping("/start-async")
+    @Operation(summary = "Start a process asynchronously", description = "Queues a process start and returns 202 with a status handle; repeated Idempotency-Key values return the original request")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Accepted",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProcessStartStatus.class))),
+            @ApiResponse(responseCode = "400", description = "Missing key, or key reused with a different request", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Start queue is full, retry later with the same key", content = @Content)
+    })
+    public ResponseEntity<ProcessStartStatus> startProcessAsync(
+            @Parameter(description = "Client-generated key identifying this start request") @RequestHeader("Idempotency-Key") String idempotencyKey,
+            @RequestBody ProcessRequest request) {
+        ProcessStartStatus status = processStartService.submit(idempotencyKey, request.getProcessDefinitionId(), request.getVariables());
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/process/start-requests/" + status.getRequestId()))
+                .body(status);
+    }
+
+    // ★★★ 批次啟動：一次送出多筆啟動變數，每 50 筆一個引擎交易 ★★★
+    @PostMapping("/bulk-start")
+    @Operation(summary = "Bulk start processes", description = "Starts one instance per row of variables, validated against the start form, in chunked engine transactions")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Processed; check each result for success",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkStartResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Unknown or suspended definition, empty or oversized request", content = @Content)
+    })
+    public ResponseEntity<BulkStartResponse> bulkStart(@RequestBody BulkStartRequest request) {
+        return ResponseEntity.ok(processService.startBulk(request.getProcessDefinitionId(), request.getRows()));
+    }
+
+    @PostMapping(value = "/bulk-start/csv", consumes = "text/csv")
+    @Operation(summary = "Bulk start processes from CSV", description = "Same as /bulk-start; the UTF-8 CSV body has variable names in the first row and one instance per following row")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Processed; check each result for success",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkStartResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Malformed CSV, unknown definition or oversized request", content = @Content)
+    })
+    public ResponseEntity<BulkStartResponse> bulkStartCsv(
+            @Parameter(description = "Process definition ID") @RequestParam String processDefinitionId,
+            InputStream body) {
+        return ResponseEntity.ok(processService.startBulkCsv(processDefinitionId,
+                new InputStreamReader(body, StandardCharsets.UTF_8)));
+    }
+
+    @GetMapping("/start-requests/{requestId}")
+    @Operation(summary = "Get async start status", description = "Reports the state of an asynchronous start, and the instance and its first tasks once started")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Success",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProcessStartStatus.class))),
+            @ApiResponse(responseCode = "400", description = "Request not found", content = @Content)
+    })
+    public ResponseEntity<ProcessStartStatus> getStartStatus(@PathVariable String requestId) {
+        return ResponseEntity.ok(processStartService.getStatus(requestId));
+    }
+
     @GetMapping("/instances")
     @Operation(summary = "Get all instances", description = "Retrieves all running process instances")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Success",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProcessIns.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified since the given ETag", content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
     })
-    public ResponseEntity<List<ProcessIns>> getAllInstances() {
-        return ResponseEntity.ok(processService.getAllInstances());
+    public ResponseEntity<List<ProcessIns>> getAllInstances(
+            @Parameter(description = "Zero-based page index; omit page and size to get every instance") @RequestParam(required = false) Integer page,
+            @Parameter(description = "Page size (max 100)") @RequestParam(required = false) Integer size,
+            WebRequest webRequest) {
+        String etag = processService.getInstancesEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(processService.getAllInstances(page, size));
+    }
+
+    // ★★★ 條件篩選 + Keyset 分頁版本：條件下推到資料庫，不再整批載入後於前端過濾 ★★★
+    @GetMapping("/instances/page")
+    @Operation(summary = "Search instances (paged)", description = "Filters process instances in the database and returns a keyset-paginated page, newest first")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "304", description = "Not modified since the given ETag", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or date range", content = @Content)
+    })
+    public ResponseEntity<CursorPage<ProcessIns>> searchInstances(
+            @Parameter(description = "Running or Completed") @RequestParam(required = false) String status,
+            @Parameter(description = "Process definition key") @RequestParam(required = false) String definitionKey,
+            @Parameter(description = "Starter user ID") @RequestParam(required = false) String startedBy,
+            @Parameter(description = "User currently holding a task of the instance") @RequestParam(required = false) String assignee,
+            @Parameter(description = "Started on or after (yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Started on or before (yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "Opaque cursor from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (max 100)") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Also return the total count") @RequestParam(defaultValue = "false") boolean withTotal,
+            WebRequest webRequest) {
+        String etag = processService.getInstancesEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        InstanceFilter filter = InstanceFilter.of(status, definitionKey, startedBy, assignee, from, to);
+        return ResponseEntity.ok().eTag(etag).body(processService.getInstancesPage(filter, cursor, size, withTotal));
+    }
+
+    @GetMapping("/my-instances/page")
+    @Operation(summary = "Search my instances (paged)", description = "Same as /instances/page, restricted to instances started by the current user")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "304", description = "Not modified since the given ETag", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or date range", content = @Content)
+    })
+    public ResponseEntity<CursorPage<ProcessIns>> searchMyInstances(
+            @Parameter(description = "Running or Completed") @RequestParam(required = false) String status,
+            @Parameter(description = "Process definition key") @RequestParam(required = false) String definitionKey,
+            @Parameter(description = "User currently holding a task of the instance") @RequestParam(required = false) String assignee,
+            @Parameter(description = "Started on or after (yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Started on or before (yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "Opaque cursor from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (max 100)") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Also return the total count") @RequestParam(defaultValue = "false") boolean withTotal,
+            WebRequest webRequest) {
+        String etag = processService.getMyInstancesEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        InstanceFilter filter = InstanceFilter.of(status, definitionKey, null, assignee, from, to);
+        return ResponseEntity.ok().eTag(etag).body(processService.getMyInstancesPage(filter, cursor, size, withTotal));
+    }
+
+    @PostMapping("/instances/rebuild")
+    @Operation(summary = "Rebuild instance projection", description = "Backfills the process instance list from engine history")
+    public ResponseEntity<Map<String, Object>> rebuildInstances() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("rebuilt", processService.rebuildInstances());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/archive/{id}")
+    @Operation(summary = "Get archived process instance", description = "Returns the archived history, tasks and final variables of an instance whose engine history was purged")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Success",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ArchivedProcess.class))),
+            @ApiResponse(responseCode = "400", description = "Instance is not archived", content = @Content)
+    })
+    public ResponseEntity<ArchivedProcess> getArchivedInstance(@PathVariable String id) {
+        return ResponseEntity.ok(processArchiveService.getArchived(id));
+    }
+
+    @PostMapping("/archive/run")
+    @Operation(summary = "Run history archiving now", description = "Archives instances that ended more than retentionDays ago and purges their engine history, in small chunks")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Success",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ArchiveRunResult.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid retention days", content = @Content)
+    })
+    public ResponseEntity<ArchiveRunResult> runArchive(
+            @Parameter(description = "Keep history for this many days; defaults to process.archive.retention-days") @RequestParam(required = false) Integer retentionDays) {
+        return ResponseEntity.ok(processArchiveService.archive(retentionDays));
     }
 
     @GetMapping("/my-instances")
@@ -101,10 +304,18 @@ public class ProcessController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Success",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProcessIns.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified since the given ETag", content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
     })
-    public ResponseEntity<List<ProcessIns>> getMyProcessInstances() {
-        return ResponseEntity.ok(processService.getMyProcessInstances());
+    public ResponseEntity<List<ProcessIns>> getMyProcessInstances(
+            @Parameter(description = "Zero-based page index; omit page and size to get every instance") @RequestParam(required = false) Integer page,
+            @Parameter(description = "Page size (max 100)") @RequestParam(required = false) Integer size,
+            WebRequest webRequest) {
+        String etag = processService.getMyInstancesEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(processService.getMyProcessInstances(page, size));
     }
 
     @GetMapping("/instances/{id}/diagram")
@@ -220,6 +431,98 @@ public class ProcessController {
         return ResponseEntity.ok(processService.getProcessDefinitionDiagram(id));
     }
 
+    // ★★★ 原始 BPMN XML：部署後內容不變，以強 ETag + immutable 讓瀏覽器長期快取 ★★★
+    @GetMapping("/definitions/{id}/bpmn")
+    @Operation(summary = "Get process definition BPMN XML", description = "Returns the deployed BPMN XML, gzip-encoded when accepted, with a strong ETag")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Success", content = @Content(mediaType = "application/xml")),
+            @ApiResponse(responseCode = "304", description = "Not modified since the given ETag", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Definition not found", content = @Content)
+    })
+    public ResponseEntity<byte[]> getProcessDefinitionBpmn(@PathVariable String id, WebRequest webRequest) {
+        BpmnXmlResource resource = processService.getBpmnXml(id);
+        String acceptEncoding = webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        String etag = gzip ? resource.getGzipEtag() : resource.getEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_XML);
+        if (gzip) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(resource.getGzipBytes());
+        }
+        return builder.body(resource.getBytes());
+    }
+
+    // ★★★ 只取流程圖標示用的節點 ID，輪詢時不必重傳整份 XML ★★★
+    @GetMapping("/instances/{id}/highlights")
+    @Operation(summary = "Get instance diagram highlights", description = "Returns only the active and completed node ids of an instance; fetch the XML from /definitions/{id}/bpmn")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "304", description = "Not modified since the given ETag", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Instance not found", content = @Content)
+    })
+    public ResponseEntity<Map<String, Object>> getInstanceHighlights(@PathVariable String id, WebRequest webRequest) {
+        String etag = processService.getInstanceHighlightsEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(processService.getInstanceHighlights(id));
+    }
+
+    // ★★★ 伺服器端畫好的流程圖：底圖依定義版本快取，與 XML 一樣可長期快取 ★★★
+    @GetMapping("/definitions/{id}/image")
+    @Operation(summary = "Get process definition image", description = "Renders the definition diagram as SVG or PNG from the BPMN layout, with a strong ETag")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Success", content = {
+                    @Content(mediaType = "image/svg+xml"), @Content(mediaType = "image/png")}),
+            @ApiResponse(responseCode = "304", description = "Not modified since the given ETag", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Definition not found, no layout information or unsupported format", content = @Content)
+    })
+    public ResponseEntity<byte[]> getProcessDefinitionImage(
+            @PathVariable String id,
+            @Parameter(description = "svg (default) or png") @RequestParam(defaultValue = "svg") String format,
+            WebRequest webRequest) {
+        DiagramImage image = processDiagramService.renderDefinition(id, format);
+        if (webRequest.checkNotModified(image.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(image.getEtag())
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .contentType(MediaType.parseMediaType(image.getContentType()))
+                .body(image.getBytes());
+    }
+
+    // ★★★ 實例流程圖：快取的底圖 + 進行中 / 已完成的節點與連線標示 ★★★
+    @GetMapping("/instances/{id}/image")
+    @Operation(summary = "Get process instance image", description = "Renders the definition diagram with active and completed nodes and flows of the instance highlighted")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Success", content = {
+                    @Content(mediaType = "image/svg+xml"), @Content(mediaType = "image/png")}),
+            @ApiResponse(responseCode = "304", description = "Not modified since the given ETag", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Instance not found or unsupported format", content = @Content)
+    })
+    public ResponseEntity<byte[]> getProcessInstanceImage(
+            @PathVariable String id,
+            @Parameter(description = "svg (default) or png") @RequestParam(defaultValue = "svg") String format,
+            WebRequest webRequest) {
+        String etag = processDiagramService.getInstanceEtag(format);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        DiagramImage image = processDiagramService.renderInstance(id, format);
+        return ResponseEntity.ok()
+                .eTag(image.getEtag())
+                .contentType(MediaType.parseMediaType(image.getContentType()))
+                .body(image.getBytes());
+    }
+
     @GetMapping("/template/{filename}")
     @Operation(summary = "Download process template", description = "Downloads a BPMN process template file")
     @ApiResponses(value = {
@@ -237,8 +540,31 @@ public class ProcessController {
                 .body(resource);
     }
 
+    // ★★★ 稽核匯出：逐批讀取歷史並直接寫入回應串流，不在記憶體中組出整份清單 ★★★
+    @GetMapping("/history/export")
+    @Operation(summary = "Export process history", description = "Streams activity and variable history of every instance of a definition started within the date range, as NDJSON or CSV")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Streaming export"),
+            @ApiResponse(responseCode = "400", description = "Unsupported format or invalid date range", content = @Content)
+    })
+    public ResponseEntity<StreamingResponseBody> exportHistory(
+            @Parameter(description = "Process definition key; omit to export every definition") @RequestParam(required = false) String definitionKey,
+            @Parameter(description = "Started on or after (yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Started on or before (yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "ndjson or csv") @RequestParam(defaultValue = HistoryExportService.FORMAT_NDJSON) String format) {
+        historyExportService.validate(format, from, to);
+
+        boolean csv = HistoryExportService.FORMAT_CSV.equals(format);
+        String filename = "process-history" + (definitionKey != null ? "-" + definitionKey : "") + (csv ? ".csv" : ".ndjson");
+        StreamingResponseBody body = out -> historyExportService.export(definitionKey, from, to, format, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename*=UTF-8''" + URLEncoder.encode(filename, StandardCharsets.UTF_8))
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
     @GetMapping("/instances/{id}/history")
-    @Operation(summary = "Get process history", description = "Retrieves execution history for a process instance")
+    @Operation(summary = "Get process history", description = "Retrieves execution history for a process instance. Each step carries the variables it changed in changes; userTask steps still carry the full variable map in variables for existing clients. Prefer /history/changes, which sends each value once")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Success",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = List.class))),
@@ -249,6 +575,18 @@ public class ProcessController {
         return ResponseEntity.ok(processService.getProcessHistory(id));
     }
 
+    // ★★★ 精簡版歷史：變數值去重後只傳一次，各節點以索引引用自己的異動 ★★★
+    @GetMapping("/instances/{id}/history/changes")
+    @Operation(summary = "Get process history with variable changes", description = "Returns each step with the variables it changed; values are deduplicated into one list and referenced by index")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Success",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = HistoryTimeline.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
+    })
+    public ResponseEntity<HistoryTimeline> getProcessHistoryTimeline(@PathVariable String id) {
+        return ResponseEntity.ok(processService.getProcessHistoryTimeline(id));
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<Map<String, String>> handleIllegalArgumentException(IllegalArgumentException ex) {
         Map<String, String> errorResponse = new HashMap<>();
@@ -256,6 +594,15 @@ public class ProcessController {
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, String>> handleRejectedExecutionException(RejectedExecutionException ex) {
+        Map<String, String> errorResponse = new HashMap<>();
+        errorResponse.put("message", "系統忙碌中，請稍後重試");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(errorResponse);
+    }
+
     @ExceptionHandler(IllegalStateException.class)
     public ResponseEntity<Map<String, String>> handleIllegalStateException(IllegalStateException ex) {
         Map<String, String> errorResponse = new HashMap<>();
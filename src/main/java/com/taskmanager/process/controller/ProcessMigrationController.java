@@ -0,0 +1,86 @@
+package com.taskmanager.process.controller;
+
+import com.taskmanager.process.dto.MigrationRequest;
+import com.taskmanager.process.dto.MigrationStatus;
+import com.taskmanager.process.service.ProcessMigrationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/process/migrations")
+@Tag(name = "Process Migration API", description = "Move running instances between versions of a process definition")
+public class ProcessMigrationController {
+
+    private final ProcessMigrationService migrationService;
+
+    public ProcessMigrationController(ProcessMigrationService migrationService) {
+        this.migrationService = migrationService;
+    }
+
+    @PostMapping
+    @Operation(summary = "Migrate running instances", description = "Validates the node mapping against every node the selected instances are waiting in, then migrates them in chunked engine transactions in the background; dryRun only validates")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Validated (dryRun)",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = MigrationStatus.class))),
+            @ApiResponse(responseCode = "202", description = "Accepted; poll the Location for progress",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = MigrationStatus.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid versions, filter or node mapping", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Too many migrations queued", content = @Content)
+    })
+    public ResponseEntity<MigrationStatus> migrate(@RequestBody MigrationRequest request) {
+        MigrationStatus status = migrationService.submit(request);
+        if (MigrationStatus.STATUS_VALIDATED.equals(status.getStatus())) {
+            return ResponseEntity.ok(status);
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/process/migrations/" + status.getJobId()))
+                .body(status);
+    }
+
+    @GetMapping("/{jobId}")
+    @Operation(summary = "Get migration progress", description = "Returns counts of migrated and failed instances and the first errors")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Success",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = MigrationStatus.class))),
+            @ApiResponse(responseCode = "400", description = "Job not found", content = @Content)
+    })
+    public ResponseEntity<MigrationStatus> getMigration(@PathVariable String jobId) {
+        return ResponseEntity.ok(migrationService.getStatus(jobId));
+    }
+
+    @GetMapping
+    @Operation(summary = "List recent migrations", description = "Returns the most recent migration jobs since startup, newest first")
+    public ResponseEntity<List<MigrationStatus>> listMigrations() {
+        return ResponseEntity.ok(migrationService.listJobs());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleIllegalArgumentException(IllegalArgumentException ex) {
+        Map<String, String> errorResponse = new HashMap<>();
+        errorResponse.put("message", ex.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, String>> handleRejectedExecutionException(RejectedExecutionException ex) {
+        Map<String, String> errorResponse = new HashMap<>();
+        errorResponse.put("message", "系統忙碌中，請稍後重試");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(errorResponse);
+    }
+}
@@ -0,0 +1,34 @@
+package com.taskmanager.process.diagram;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 單一流程實例要疊在流程圖上的標示：進行中節點、已完成節點與已走過的連線。
+ */
+public class DiagramHighlight {
+
+    private final Set<String> activeNodeIds;
+    private final Set<String> completedNodeIds;
+    private final Set<String> completedFlowIds;
+
+    public DiagramHighlight(Collection<String> activeNodeIds, Collection<String> completedNodeIds,
+                            Collection<String> completedFlowIds) {
+        this.activeNodeIds = new LinkedHashSet<>(activeNodeIds);
+        this.completedNodeIds = new LinkedHashSet<>(completedNodeIds);
+        this.completedFlowIds = new LinkedHashSet<>(completedFlowIds);
+    }
+
+    public Set<String> getActiveNodeIds() {
+        return activeNodeIds;
+    }
+
+    public Set<String> getCompletedNodeIds() {
+        return completedNodeIds;
+    }
+
+    public Set<String> getCompletedFlowIds() {
+        return completedFlowIds;
+    }
+}
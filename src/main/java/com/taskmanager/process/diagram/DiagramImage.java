@@ -0,0 +1,29 @@
+package com.taskmanager.process.diagram;
+
+/**
+ * 回應用的流程圖：內容、MIME 類型與 ETag。
+ */
+public class DiagramImage {
+
+    private final byte[] bytes;
+    private final String contentType;
+    private final String etag;
+
+    public DiagramImage(byte[] bytes, String contentType, String etag) {
+        this.bytes = bytes;
+        this.contentType = contentType;
+        this.etag = etag;
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+}
@@ -0,0 +1,214 @@
+package com.taskmanager.process.diagram;
+
+import org.activiti.bpmn.model.Activity;
+import org.activiti.bpmn.model.BpmnModel;
+import org.activiti.bpmn.model.EndEvent;
+import org.activiti.bpmn.model.Event;
+import org.activiti.bpmn.model.ExclusiveGateway;
+import org.activiti.bpmn.model.FlowElement;
+import org.activiti.bpmn.model.Gateway;
+import org.activiti.bpmn.model.GraphicInfo;
+import org.activiti.bpmn.model.InclusiveGateway;
+import org.activiti.bpmn.model.ParallelGateway;
+import org.activiti.bpmn.model.SequenceFlow;
+import org.activiti.bpmn.model.StartEvent;
+import org.activiti.bpmn.model.SubProcess;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 由 BPMN DI (GraphicInfo) 取出的流程圖幾何資訊：節點外框與連線折點。
+ * 同一個流程定義版本不會變動，建立後只讀。
+ */
+public class DiagramLayout {
+
+    private static final double PADDING = 10;
+
+    public enum Kind { START, END, EVENT, TASK, GATEWAY, CONTAINER }
+
+    public static class Node {
+        private final String id;
+        private final String name;
+        private final Kind kind;
+        private final String marker;    // 閘道內的符號 (X / + / O)，其他節點為 null
+        private final double x;
+        private final double y;
+        private final double width;
+        private final double height;
+
+        Node(String id, String name, Kind kind, String marker, GraphicInfo info) {
+            this.id = id;
+            this.name = name;
+            this.kind = kind;
+            this.marker = marker;
+            this.x = info.getX();
+            this.y = info.getY();
+            this.width = info.getWidth();
+            this.height = info.getHeight();
+        }
+
+        public String getId() { return id; }
+        public String getName() { return name; }
+        public Kind getKind() { return kind; }
+        public String getMarker() { return marker; }
+        public double getX() { return x; }
+        public double getY() { return y; }
+        public double getWidth() { return width; }
+        public double getHeight() { return height; }
+        public double getCenterX() { return x + width / 2; }
+        public double getCenterY() { return y + height / 2; }
+    }
+
+    public static class Flow {
+        private final String id;
+        private final String name;
+        private final String sourceRef;
+        private final String targetRef;
+        private final double[] points;  // x0, y0, x1, y1, ...
+
+        Flow(String id, String name, String sourceRef, String targetRef, List<GraphicInfo> waypoints) {
+            this.id = id;
+            this.name = name;
+            this.sourceRef = sourceRef;
+            this.targetRef = targetRef;
+            this.points = new double[waypoints.size() * 2];
+            for (int i = 0; i < waypoints.size(); i++) {
+                points[i * 2] = waypoints.get(i).getX();
+                points[i * 2 + 1] = waypoints.get(i).getY();
+            }
+        }
+
+        public String getId() { return id; }
+        public String getName() { return name; }
+        public String getSourceRef() { return sourceRef; }
+        public String getTargetRef() { return targetRef; }
+        public int getPointCount() { return points.length / 2; }
+        public double getX(int i) { return points[i * 2]; }
+        public double getY(int i) { return points[i * 2 + 1]; }
+    }
+
+    private final List<Node> nodes;
+    private final List<Flow> flows;
+    private final double minX;
+    private final double minY;
+    private final double width;
+    private final double height;
+
+    private DiagramLayout(List<Node> nodes, List<Flow> flows) {
+        this.nodes = Collections.unmodifiableList(nodes);
+        this.flows = Collections.unmodifiableList(flows);
+
+        double left = Double.MAX_VALUE, top = Double.MAX_VALUE;
+        double right = -Double.MAX_VALUE, bottom = -Double.MAX_VALUE;
+        for (Node node : nodes) {
+            left = Math.min(left, node.x);
+            top = Math.min(top, node.y);
+            right = Math.max(right, node.x + node.width);
+            bottom = Math.max(bottom, node.y + node.height);
+        }
+        for (Flow flow : flows) {
+            for (int i = 0; i < flow.getPointCount(); i++) {
+                left = Math.min(left, flow.getX(i));
+                top = Math.min(top, flow.getY(i));
+                right = Math.max(right, flow.getX(i));
+                bottom = Math.max(bottom, flow.getY(i));
+            }
+        }
+        if (left > right) {
+            left = top = right = bottom = 0;
+        }
+        // 事件 / 閘道的名稱畫在圖形下方，底部多留一行
+        this.minX = left - PADDING;
+        this.minY = top - PADDING;
+        this.width = right - left + PADDING * 2;
+        this.height = bottom - top + PADDING * 2 + 16;
+    }
+
+    public static DiagramLayout from(BpmnModel model) {
+        if (model == null || model.getLocationMap().isEmpty()) {
+            throw new IllegalArgumentException("流程定義沒有圖形資訊 (BPMN DI)，無法產生流程圖");
+        }
+
+        List<Node> nodes = new ArrayList<>();
+        for (Map.Entry<String, GraphicInfo> entry : model.getLocationMap().entrySet()) {
+            FlowElement element = model.getFlowElement(entry.getKey());
+            if (element == null || element instanceof SequenceFlow) {
+                continue;   // pool / lane 等不屬於流程節點的圖形
+            }
+            nodes.add(new Node(element.getId(), element.getName(), kindOf(element), markerOf(element), entry.getValue()));
+        }
+        // 子流程先畫，內部節點才不會被蓋住
+        nodes.sort((a, b) -> Boolean.compare(b.kind == Kind.CONTAINER, a.kind == Kind.CONTAINER));
+
+        List<Flow> flows = new ArrayList<>();
+        for (Map.Entry<String, List<GraphicInfo>> entry : model.getFlowLocationMap().entrySet()) {
+            FlowElement element = model.getFlowElement(entry.getKey());
+            if (element instanceof SequenceFlow flow && entry.getValue().size() >= 2) {
+                flows.add(new Flow(flow.getId(), flow.getName(), flow.getSourceRef(), flow.getTargetRef(), entry.getValue()));
+            }
+        }
+        return new DiagramLayout(nodes, flows);
+    }
+
+    /**
+     * 引擎歷史不記錄走過的連線，以「起點已完成、終點已完成或進行中」推算。
+     */
+    public Set<String> completedFlows(Collection<String> completedNodeIds, Collection<String> activeNodeIds) {
+        Set<String> completed = new HashSet<>(completedNodeIds);
+        Set<String> reached = new HashSet<>(completedNodeIds);
+        reached.addAll(activeNodeIds);
+
+        Set<String> result = new HashSet<>();
+        for (Flow flow : flows) {
+            if (completed.contains(flow.sourceRef) && reached.contains(flow.targetRef)) {
+                result.add(flow.id);
+            }
+        }
+        return result;
+    }
+
+    public List<Node> getNodes() { return nodes; }
+    public List<Flow> getFlows() { return flows; }
+    public double getMinX() { return minX; }
+    public double getMinY() { return minY; }
+    public double getWidth() { return width; }
+    public double getHeight() { return height; }
+
+    private static Kind kindOf(FlowElement element) {
+        if (element instanceof StartEvent) {
+            return Kind.START;
+        }
+        if (element instanceof EndEvent) {
+            return Kind.END;
+        }
+        if (element instanceof Event) {
+            return Kind.EVENT;
+        }
+        if (element instanceof Gateway) {
+            return Kind.GATEWAY;
+        }
+        if (element instanceof SubProcess) {
+            return Kind.CONTAINER;
+        }
+        return element instanceof Activity ? Kind.TASK : Kind.EVENT;
+    }
+
+    private static String markerOf(FlowElement element) {
+        if (element instanceof ExclusiveGateway) {
+            return "X";
+        }
+        if (element instanceof ParallelGateway) {
+            return "+";
+        }
+        if (element instanceof InclusiveGateway) {
+            return "O";
+        }
+        return null;
+    }
+}
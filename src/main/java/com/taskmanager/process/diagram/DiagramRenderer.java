@@ -0,0 +1,410 @@
+package com.taskmanager.process.diagram;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import javax.imageio.ImageIO;
+
+/**
+ * 把 {@link DiagramLayout} 畫成 SVG 或 PNG。底圖 (節點、連線、名稱) 與實例標示分開畫，
+ * 底圖可以依流程定義版本快取，每次請求只需要疊上標示。
+ */
+final class DiagramRenderer {
+
+    private static final String STROKE = "#555555";
+    private static final String DONE = "#2e7d32";
+    private static final String ACTIVE = "#f57c00";
+
+    private static final Color STROKE_COLOR = Color.decode(STROKE);
+    private static final Color DONE_COLOR = Color.decode(DONE);
+    private static final Color ACTIVE_COLOR = Color.decode(ACTIVE);
+    private static final Color TEXT_COLOR = new Color(0x222222);
+
+    private static final Font LABEL_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+    private static final Font FLOW_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 11);
+    private static final Font MARKER_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 18);
+    private static final int LINE_HEIGHT = 14;
+
+    private DiagramRenderer() {}
+
+    // ---------------------------------------------------------------- SVG
+
+    /**
+     * 底圖 SVG，不含結尾的 &lt;/svg&gt;，實例標示直接接在後面。
+     */
+    static String svgBase(DiagramLayout layout) {
+        StringBuilder svg = new StringBuilder(8192);
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\"")
+                .append(" width=\"").append(num(layout.getWidth())).append('"')
+                .append(" height=\"").append(num(layout.getHeight())).append('"')
+                .append(" viewBox=\"").append(num(layout.getMinX())).append(' ').append(num(layout.getMinY()))
+                .append(' ').append(num(layout.getWidth())).append(' ').append(num(layout.getHeight())).append("\">\n");
+        svg.append("<defs>")
+                .append(arrowMarker("arrow", STROKE))
+                .append(arrowMarker("arrow-done", DONE))
+                .append("</defs>\n");
+        svg.append("<style>")
+                .append(".flow{fill:none;stroke:").append(STROKE).append(";stroke-width:1.5}")
+                .append(".node{fill:#fff;stroke:").append(STROKE).append(";stroke-width:1.5}")
+                .append(".end{stroke-width:3.5}")
+                .append(".label{font-family:sans-serif;font-size:12px;fill:#222;text-anchor:middle}")
+                .append(".flow-label{font-size:11px;fill:#555}")
+                .append(".marker{font-family:sans-serif;font-size:18px;font-weight:bold;fill:").append(STROKE)
+                .append(";text-anchor:middle;dominant-baseline:central}")
+                .append(".done{fill:").append(DONE).append(";fill-opacity:.12;stroke:").append(DONE).append(";stroke-width:2.5}")
+                .append(".done-flow{fill:none;stroke:").append(DONE).append(";stroke-width:2.5}")
+                .append(".active{fill:").append(ACTIVE).append(";fill-opacity:.15;stroke:").append(ACTIVE).append(";stroke-width:3}")
+                .append("</style>\n");
+        svg.append("<rect x=\"").append(num(layout.getMinX())).append("\" y=\"").append(num(layout.getMinY()))
+                .append("\" width=\"").append(num(layout.getWidth())).append("\" height=\"").append(num(layout.getHeight()))
+                .append("\" fill=\"#fff\"/>\n");
+
+        svg.append("<g class=\"flows\">\n");
+        for (DiagramLayout.Flow flow : layout.getFlows()) {
+            svgFlow(svg, flow, "flow", "arrow");
+        }
+        svg.append("</g>\n<g class=\"nodes\">\n");
+        for (DiagramLayout.Node node : layout.getNodes()) {
+            svgShape(svg, node, node.getKind() == DiagramLayout.Kind.END ? "node end" : "node");
+        }
+        svg.append("</g>\n<g class=\"labels\">\n");
+        for (DiagramLayout.Node node : layout.getNodes()) {
+            if (node.getMarker() != null) {
+                svgText(svg, "marker", node.getCenterX(), node.getCenterY(), node.getMarker());
+            }
+            for (Label label : nodeLabels(node)) {
+                svgText(svg, "label", label.x, label.y, label.text);
+            }
+        }
+        for (DiagramLayout.Flow flow : layout.getFlows()) {
+            Label label = flowLabel(flow);
+            if (label != null) {
+                svgText(svg, "label flow-label", label.x, label.y, label.text);
+            }
+        }
+        svg.append("</g>\n");
+        return svg.toString();
+    }
+
+    /**
+     * 實例標示：已走過的連線、已完成與進行中的節點 (半透明填色，不會蓋掉底圖的名稱)。
+     */
+    static String svgOverlay(DiagramLayout layout, DiagramHighlight highlight) {
+        StringBuilder svg = new StringBuilder(1024);
+        svg.append("<g class=\"overlay\">\n");
+        for (DiagramLayout.Flow flow : layout.getFlows()) {
+            if (highlight.getCompletedFlowIds().contains(flow.getId())) {
+                svgFlow(svg, flow, "done-flow", "arrow-done");
+            }
+        }
+        for (DiagramLayout.Node node : layout.getNodes()) {
+            if (highlight.getActiveNodeIds().contains(node.getId())) {
+                svgShape(svg, node, "active");
+            } else if (highlight.getCompletedNodeIds().contains(node.getId())) {
+                svgShape(svg, node, "done");
+            }
+        }
+        svg.append("</g>\n");
+        return svg.toString();
+    }
+
+    private static String arrowMarker(String id, String color) {
+        return "<marker id=\"" + id + "\" viewBox=\"0 0 10 10\" refX=\"10\" refY=\"5\" markerWidth=\"8\" markerHeight=\"8\""
+                + " orient=\"auto\"><path d=\"M0,0L10,5L0,10z\" fill=\"" + color + "\"/></marker>";
+    }
+
+    private static void svgFlow(StringBuilder svg, DiagramLayout.Flow flow, String cssClass, String marker) {
+        svg.append("<polyline class=\"").append(cssClass).append("\" data-id=\"").append(escape(flow.getId()))
+                .append("\" marker-end=\"url(#").append(marker).append(")\" points=\"");
+        for (int i = 0; i < flow.getPointCount(); i++) {
+            if (i > 0) {
+                svg.append(' ');
+            }
+            svg.append(num(flow.getX(i))).append(',').append(num(flow.getY(i)));
+        }
+        svg.append("\"/>\n");
+    }
+
+    private static void svgShape(StringBuilder svg, DiagramLayout.Node node, String cssClass) {
+        String attrs = " class=\"" + cssClass + "\" data-id=\"" + escape(node.getId()) + "\"";
+        switch (node.getKind()) {
+            case START, END, EVENT -> svg.append("<circle").append(attrs)
+                    .append(" cx=\"").append(num(node.getCenterX())).append('"')
+                    .append(" cy=\"").append(num(node.getCenterY())).append('"')
+                    .append(" r=\"").append(num(Math.min(node.getWidth(), node.getHeight()) / 2)).append("\"/>\n");
+            case GATEWAY -> svg.append("<polygon").append(attrs).append(" points=\"")
+                    .append(num(node.getCenterX())).append(',').append(num(node.getY())).append(' ')
+                    .append(num(node.getX() + node.getWidth())).append(',').append(num(node.getCenterY())).append(' ')
+                    .append(num(node.getCenterX())).append(',').append(num(node.getY() + node.getHeight())).append(' ')
+                    .append(num(node.getX())).append(',').append(num(node.getCenterY())).append("\"/>\n");
+            default -> svg.append("<rect").append(attrs)
+                    .append(" x=\"").append(num(node.getX())).append('"')
+                    .append(" y=\"").append(num(node.getY())).append('"')
+                    .append(" width=\"").append(num(node.getWidth())).append('"')
+                    .append(" height=\"").append(num(node.getHeight())).append('"')
+                    .append(" rx=\"10\"/>\n");
+        }
+    }
+
+    private static void svgText(StringBuilder svg, String cssClass, double x, double y, String text) {
+        svg.append("<text class=\"").append(cssClass).append("\" x=\"").append(num(x)).append("\" y=\"").append(num(y))
+                .append("\">").append(escape(text)).append("</text>\n");
+    }
+
+    // ---------------------------------------------------------------- PNG
+
+    static BufferedImage pngBase(DiagramLayout layout) {
+        BufferedImage image = new BufferedImage(
+                (int) Math.ceil(layout.getWidth()), (int) Math.ceil(layout.getHeight()), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = graphics(image, layout);
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect((int) Math.floor(layout.getMinX()), (int) Math.floor(layout.getMinY()), image.getWidth() + 1, image.getHeight() + 1);
+
+            g.setStroke(new BasicStroke(1.5f));
+            for (DiagramLayout.Flow flow : layout.getFlows()) {
+                paintFlow(g, flow, STROKE_COLOR);
+            }
+            for (DiagramLayout.Node node : layout.getNodes()) {
+                Shape shape = outline(node);
+                g.setColor(Color.WHITE);
+                g.fill(shape);
+                g.setColor(STROKE_COLOR);
+                g.setStroke(new BasicStroke(node.getKind() == DiagramLayout.Kind.END ? 3.5f : 1.5f));
+                g.draw(shape);
+            }
+
+            g.setColor(TEXT_COLOR);
+            for (DiagramLayout.Node node : layout.getNodes()) {
+                if (node.getMarker() != null) {
+                    g.setFont(MARKER_FONT);
+                    g.setColor(STROKE_COLOR);
+                    drawCentered(g, node.getMarker(), node.getCenterX(), node.getCenterY() + 6);
+                    g.setColor(TEXT_COLOR);
+                }
+                g.setFont(LABEL_FONT);
+                for (Label label : nodeLabels(node)) {
+                    drawCentered(g, label.text, label.x, label.y);
+                }
+            }
+            g.setFont(FLOW_FONT);
+            g.setColor(STROKE_COLOR);
+            for (DiagramLayout.Flow flow : layout.getFlows()) {
+                Label label = flowLabel(flow);
+                if (label != null) {
+                    drawCentered(g, label.text, label.x, label.y);
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * 複製底圖後疊上實例標示；底圖本身不會被修改。
+     */
+    static BufferedImage pngOverlay(BufferedImage base, DiagramLayout layout, DiagramHighlight highlight) {
+        BufferedImage image = new BufferedImage(base.getWidth(), base.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D copy = image.createGraphics();
+        copy.drawImage(base, 0, 0, null);
+        copy.dispose();
+
+        Graphics2D g = graphics(image, layout);
+        try {
+            g.setStroke(new BasicStroke(2.5f));
+            for (DiagramLayout.Flow flow : layout.getFlows()) {
+                if (highlight.getCompletedFlowIds().contains(flow.getId())) {
+                    paintFlow(g, flow, DONE_COLOR);
+                }
+            }
+            for (DiagramLayout.Node node : layout.getNodes()) {
+                boolean active = highlight.getActiveNodeIds().contains(node.getId());
+                if (!active && !highlight.getCompletedNodeIds().contains(node.getId())) {
+                    continue;
+                }
+                Color color = active ? ACTIVE_COLOR : DONE_COLOR;
+                Shape shape = outline(node);
+                g.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), active ? 38 : 31));
+                g.fill(shape);
+                g.setColor(color);
+                g.setStroke(new BasicStroke(active ? 3f : 2.5f));
+                g.draw(shape);
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    static byte[] encodePng(BufferedImage image) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(image.getWidth() * image.getHeight() / 8 + 256);
+        try {
+            ImageIO.write(image, "png", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException("流程圖 PNG 編碼失敗", e);
+        }
+        return out.toByteArray();
+    }
+
+    private static Graphics2D graphics(BufferedImage image, DiagramLayout layout) {
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.translate(-layout.getMinX(), -layout.getMinY());
+        return g;
+    }
+
+    private static Shape outline(DiagramLayout.Node node) {
+        switch (node.getKind()) {
+            case START, END, EVENT -> {
+                double r = Math.min(node.getWidth(), node.getHeight()) / 2;
+                return new Ellipse2D.Double(node.getCenterX() - r, node.getCenterY() - r, r * 2, r * 2);
+            }
+            case GATEWAY -> {
+                Path2D.Double diamond = new Path2D.Double();
+                diamond.moveTo(node.getCenterX(), node.getY());
+                diamond.lineTo(node.getX() + node.getWidth(), node.getCenterY());
+                diamond.lineTo(node.getCenterX(), node.getY() + node.getHeight());
+                diamond.lineTo(node.getX(), node.getCenterY());
+                diamond.closePath();
+                return diamond;
+            }
+            default -> {
+                return new RoundRectangle2D.Double(node.getX(), node.getY(), node.getWidth(), node.getHeight(), 20, 20);
+            }
+        }
+    }
+
+    private static void paintFlow(Graphics2D g, DiagramLayout.Flow flow, Color color) {
+        g.setColor(color);
+        Path2D.Double line = new Path2D.Double();
+        line.moveTo(flow.getX(0), flow.getY(0));
+        for (int i = 1; i < flow.getPointCount(); i++) {
+            line.lineTo(flow.getX(i), flow.getY(i));
+        }
+        g.draw(line);
+
+        // 箭頭沿最後一段的方向
+        int last = flow.getPointCount() - 1;
+        double tipX = flow.getX(last);
+        double tipY = flow.getY(last);
+        double angle = Math.atan2(tipY - flow.getY(last - 1), tipX - flow.getX(last - 1));
+        Path2D.Double arrow = new Path2D.Double();
+        arrow.moveTo(tipX, tipY);
+        arrow.lineTo(tipX - 10 * Math.cos(angle - Math.PI / 7), tipY - 10 * Math.sin(angle - Math.PI / 7));
+        arrow.lineTo(tipX - 10 * Math.cos(angle + Math.PI / 7), tipY - 10 * Math.sin(angle + Math.PI / 7));
+        arrow.closePath();
+        g.fill(arrow);
+    }
+
+    private static void drawCentered(Graphics2D g, String text, double x, double baseline) {
+        FontMetrics metrics = g.getFontMetrics();
+        g.drawString(text, (float) (x - metrics.stringWidth(text) / 2.0), (float) baseline);
+    }
+
+    // ---------------------------------------------------------------- 文字排版 (SVG 與 PNG 共用)
+
+    private static class Label {
+        final double x;
+        final double y;
+        final String text;
+
+        Label(double x, double y, String text) {
+            this.x = x;
+            this.y = y;
+            this.text = text;
+        }
+    }
+
+    private static List<Label> nodeLabels(DiagramLayout.Node node) {
+        List<Label> labels = new ArrayList<>();
+        String name = node.getName();
+        if (name == null || name.isBlank()) {
+            return labels;
+        }
+        switch (node.getKind()) {
+            case TASK -> {
+                List<String> lines = wrap(name.trim(), node.getWidth() - 8);
+                double first = node.getCenterY() - (lines.size() - 1) * LINE_HEIGHT / 2.0 + 4;
+                for (int i = 0; i < lines.size(); i++) {
+                    labels.add(new Label(node.getCenterX(), first + i * LINE_HEIGHT, lines.get(i)));
+                }
+            }
+            case CONTAINER -> labels.add(new Label(node.getCenterX(), node.getY() + 16, name.trim()));
+            // 事件與閘道的名稱放在圖形下方
+            default -> labels.add(new Label(node.getCenterX(), node.getY() + node.getHeight() + 14, name.trim()));
+        }
+        return labels;
+    }
+
+    private static Label flowLabel(DiagramLayout.Flow flow) {
+        String name = flow.getName();
+        if (name == null || name.isBlank()) {
+            return null;
+        }
+        // 中間那一段的中點，略往上避開線條
+        int segment = (flow.getPointCount() - 2) / 2;
+        double x = (flow.getX(segment) + flow.getX(segment + 1)) / 2;
+        double y = (flow.getY(segment) + flow.getY(segment + 1)) / 2 - 4;
+        return new Label(x, y, name.trim());
+    }
+
+    // 以字元估算寬度換行 (全形約 12px、半形約 7px)，SVG 端沒有字型度量可用
+    static List<String> wrap(String text, double maxWidth) {
+        List<String> lines = new ArrayList<>();
+        StringBuilder line = new StringBuilder();
+        double width = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            double charWidth = c < 0x2E80 ? 7 : 12;
+            if (width + charWidth > maxWidth && line.length() > 0) {
+                lines.add(line.toString().trim());
+                line.setLength(0);
+                width = 0;
+            }
+            line.append(c);
+            width += charWidth;
+        }
+        if (line.length() > 0) {
+            lines.add(line.toString().trim());
+        }
+        return lines;
+    }
+
+    private static String num(double value) {
+        if (value == Math.rint(value)) {
+            return Long.toString((long) value);
+        }
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    private static String escape(String text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<' -> escaped.append("&lt;");
+                case '>' -> escaped.append("&gt;");
+                case '&' -> escaped.append("&amp;");
+                case '"' -> escaped.append("&quot;");
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,43 @@
+package com.taskmanager.process.diagram;
+
+import com.taskmanager.process.cache.CachedProcessDefinition;
+import com.taskmanager.process.cache.ProcessDefinitionCache;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 以 processDefinitionId 為鍵的流程圖底圖快取。
+ * 與 BpmnXmlCache 相同，新版本部署會是新的 ID，已畫好的圖不需要失效。
+ */
+@Component
+public class ProcessDiagramCache {
+
+    private final ProcessDefinitionCache definitionCache;
+
+    private final Map<String, RenderedDiagram> diagrams = new ConcurrentHashMap<>();
+
+    public ProcessDiagramCache(ProcessDefinitionCache definitionCache) {
+        this.definitionCache = definitionCache;
+    }
+
+    public RenderedDiagram get(String processDefinitionId) {
+        if (processDefinitionId == null) {
+            throw new IllegalArgumentException("流程定義 ID 不能為空");
+        }
+        return diagrams.computeIfAbsent(processDefinitionId, this::render);
+    }
+
+    public int size() {
+        return diagrams.size();
+    }
+
+    private RenderedDiagram render(String processDefinitionId) {
+        CachedProcessDefinition definition = definitionCache.get(processDefinitionId);
+        if (definition == null) {
+            throw new IllegalArgumentException("流程定義不存在：" + processDefinitionId);
+        }
+        return new RenderedDiagram(processDefinitionId, DiagramLayout.from(definition.getBpmnModel()));
+    }
+}
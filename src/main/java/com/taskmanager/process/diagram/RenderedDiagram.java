@@ -0,0 +1,81 @@
+package com.taskmanager.process.diagram;
+
+import com.taskmanager.process.cache.BpmnXmlResource;
+
+import java.awt.image.BufferedImage;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 單一流程定義版本的流程圖底圖 — SVG 在建立時畫好，PNG 第一次被要求時才點陣化。
+ * 實例圖只在底圖上疊加標示，不重新排版。
+ */
+public class RenderedDiagram {
+
+    private final String processDefinitionId;
+    private final DiagramLayout layout;
+    private final String svgBase;
+    private final byte[] svgBytes;
+    private final String svgEtag;
+    private final String pngEtag;
+
+    private volatile BufferedImage pngBase;
+    private volatile byte[] pngBytes;
+
+    public RenderedDiagram(String processDefinitionId, DiagramLayout layout) {
+        this.processDefinitionId = processDefinitionId;
+        this.layout = layout;
+        this.svgBase = DiagramRenderer.svgBase(layout);
+        this.svgBytes = (svgBase + "</svg>\n").getBytes(StandardCharsets.UTF_8);
+        String digest = BpmnXmlResource.sha256(svgBytes);
+        this.svgEtag = "\"" + digest + "\"";
+        this.pngEtag = "\"" + digest + "-png\"";
+    }
+
+    public String getProcessDefinitionId() {
+        return processDefinitionId;
+    }
+
+    public DiagramLayout getLayout() {
+        return layout;
+    }
+
+    // 呼叫端不可修改回傳的陣列
+    public byte[] getSvgBytes() {
+        return svgBytes;
+    }
+
+    public String getSvgEtag() {
+        return svgEtag;
+    }
+
+    public byte[] getPngBytes() {
+        byte[] bytes = pngBytes;
+        if (bytes == null) {
+            bytes = DiagramRenderer.encodePng(pngBase());
+            pngBytes = bytes;
+        }
+        return bytes;
+    }
+
+    public String getPngEtag() {
+        return pngEtag;
+    }
+
+    public byte[] renderSvg(DiagramHighlight highlight) {
+        return (svgBase + DiagramRenderer.svgOverlay(layout, highlight) + "</svg>\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    public byte[] renderPng(DiagramHighlight highlight) {
+        return DiagramRenderer.encodePng(DiagramRenderer.pngOverlay(pngBase(), layout, highlight));
+    }
+
+    // 同時有兩個請求時可能各畫一次，結果相同，不需要加鎖
+    private BufferedImage pngBase() {
+        BufferedImage image = pngBase;
+        if (image == null) {
+            image = DiagramRenderer.pngBase(layout);
+            pngBase = image;
+        }
+        return image;
+    }
+}
@@ -0,0 +1,35 @@
+package com.taskmanager.process.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+
+@Schema(description = "一次歷史封存作業的結果")
+public class ArchiveRunResult {
+    private Instant cutoff;        // 結束時間早於此時間的流程實例才封存
+    private int archived;          // 已封存並清除歷史的實例數
+    private int failed;            // 封存失敗、留待下次重試的實例數
+    private int transactions;      // 清除歷史用掉的引擎交易數
+    private long elapsedMillis;
+
+    public ArchiveRunResult() {}
+
+    public ArchiveRunResult(Instant cutoff) {
+        this.cutoff = cutoff;
+    }
+
+    public Instant getCutoff() { return cutoff; }
+    public void setCutoff(Instant cutoff) { this.cutoff = cutoff; }
+
+    public int getArchived() { return archived; }
+    public void setArchived(int archived) { this.archived = archived; }
+
+    public int getFailed() { return failed; }
+    public void setFailed(int failed) { this.failed = failed; }
+
+    public int getTransactions() { return transactions; }
+    public void setTransactions(int transactions) { this.transactions = transactions; }
+
+    public long getElapsedMillis() { return elapsedMillis; }
+    public void setElapsedMillis(long elapsedMillis) { this.elapsedMillis = elapsedMillis; }
+}
@@ -0,0 +1,157 @@
+package com.taskmanager.process.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 已結束流程實例的快照 (存成 gzip JSON)：結束後內容不再變動，歷程與流程圖查詢直接讀這份資料，
+ * ACT_HI_* 被保留期限清除後也靠它回應。
+ */
+@Schema(description = "已結束流程實例的快照")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ArchivedProcess {
+    private String processInstanceId;
+    private String processDefinitionId;
+    private String processDefinitionKey;
+    private String processName;
+    private String businessKey;
+    private String startUserId;
+    private Instant startTime;
+    private Instant endTime;
+    private String deleteReason;
+    private String endActivityId;                                  // 流程圖上標示的結束節點
+    private Instant archivedAt;                                    // 快照建立時間
+    private List<String> completedNodeIds = new ArrayList<>();     // 依結束時間排序、去除重複的已完成節點
+    private Map<String, Object> variables = new LinkedHashMap<>(); // 結束時的流程變數
+    private List<ArchivedTask> tasks = new ArrayList<>();
+    private List<ArchivedActivity> activities = new ArrayList<>();  // 節點紀錄，引擎歷史清除後供稽核匯出
+    private List<HistoryLog> history = new ArrayList<>();           // 與 /instances/{id}/history 相同的內容
+
+    public ArchivedProcess() {}
+
+    public String getProcessInstanceId() { return processInstanceId; }
+    public void setProcessInstanceId(String processInstanceId) { this.processInstanceId = processInstanceId; }
+
+    public String getProcessDefinitionId() { return processDefinitionId; }
+    public void setProcessDefinitionId(String processDefinitionId) { this.processDefinitionId = processDefinitionId; }
+
+    public String getProcessDefinitionKey() { return processDefinitionKey; }
+    public void setProcessDefinitionKey(String processDefinitionKey) { this.processDefinitionKey = processDefinitionKey; }
+
+    public String getProcessName() { return processName; }
+    public void setProcessName(String processName) { this.processName = processName; }
+
+    public String getBusinessKey() { return businessKey; }
+    public void setBusinessKey(String businessKey) { this.businessKey = businessKey; }
+
+    public String getStartUserId() { return startUserId; }
+    public void setStartUserId(String startUserId) { this.startUserId = startUserId; }
+
+    public Instant getStartTime() { return startTime; }
+    public void setStartTime(Instant startTime) { this.startTime = startTime; }
+
+    public Instant getEndTime() { return endTime; }
+    public void setEndTime(Instant endTime) { this.endTime = endTime; }
+
+    public String getDeleteReason() { return deleteReason; }
+    public void setDeleteReason(String deleteReason) { this.deleteReason = deleteReason; }
+
+    public String getEndActivityId() { return endActivityId; }
+    public void setEndActivityId(String endActivityId) { this.endActivityId = endActivityId; }
+
+    public List<String> getCompletedNodeIds() { return completedNodeIds; }
+    public void setCompletedNodeIds(List<String> completedNodeIds) { this.completedNodeIds = completedNodeIds; }
+
+    public Instant getArchivedAt() { return archivedAt; }
+    public void setArchivedAt(Instant archivedAt) { this.archivedAt = archivedAt; }
+
+    public Map<String, Object> getVariables() { return variables; }
+    public void setVariables(Map<String, Object> variables) { this.variables = variables; }
+
+    public List<ArchivedTask> getTasks() { return tasks; }
+    public void setTasks(List<ArchivedTask> tasks) { this.tasks = tasks; }
+
+    public List<HistoryLog> getHistory() { return history; }
+    public void setHistory(List<HistoryLog> history) { this.history = history; }
+
+    public List<ArchivedActivity> getActivities() { return activities; }
+    public void setActivities(List<ArchivedActivity> activities) { this.activities = activities; }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ArchivedTask {
+        private String id;
+        private String name;
+        private String taskDefinitionKey;
+        private String assignee;
+        private Instant createTime;
+        private Instant endTime;
+        private String deleteReason;
+
+        public ArchivedTask() {}
+
+        public String getId() { return id; }
+        public void setId(String id) { this.id = id; }
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+
+        public String getTaskDefinitionKey() { return taskDefinitionKey; }
+        public void setTaskDefinitionKey(String taskDefinitionKey) { this.taskDefinitionKey = taskDefinitionKey; }
+
+        public String getAssignee() { return assignee; }
+        public void setAssignee(String assignee) { this.assignee = assignee; }
+
+        public Instant getCreateTime() { return createTime; }
+        public void setCreateTime(Instant createTime) { this.createTime = createTime; }
+
+        public Instant getEndTime() { return endTime; }
+        public void setEndTime(Instant endTime) { this.endTime = endTime; }
+
+        public String getDeleteReason() { return deleteReason; }
+        public void setDeleteReason(String deleteReason) { this.deleteReason = deleteReason; }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ArchivedActivity {
+        private String activityId;
+        private String activityName;
+        private String activityType;
+        private String assignee;
+        private Instant startTime;
+        private Instant endTime;
+        private Long durationMillis;
+        private String deleteReason;
+
+        public ArchivedActivity() {}
+
+        public String getActivityId() { return activityId; }
+        public void setActivityId(String activityId) { this.activityId = activityId; }
+
+        public String getActivityName() { return activityName; }
+        public void setActivityName(String activityName) { this.activityName = activityName; }
+
+        public String getActivityType() { return activityType; }
+        public void setActivityType(String activityType) { this.activityType = activityType; }
+
+        public String getAssignee() { return assignee; }
+        public void setAssignee(String assignee) { this.assignee = assignee; }
+
+        public Instant getStartTime() { return startTime; }
+        public void setStartTime(Instant startTime) { this.startTime = startTime; }
+
+        public Instant getEndTime() { return endTime; }
+        public void setEndTime(Instant endTime) { this.endTime = endTime; }
+
+        public Long getDurationMillis() { return durationMillis; }
+        public void setDurationMillis(Long durationMillis) { this.durationMillis = durationMillis; }
+
+        public String getDeleteReason() { return deleteReason; }
+        public void setDeleteReason(String deleteReason) { this.deleteReason = deleteReason; }
+    }
+}
@@ -0,0 +1,31 @@
+package com.taskmanager.process.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+import java.util.Map;
+
+@Schema(description = "Start many instances of one process definition")
+public class BulkStartRequest {
+    private String processDefinitionId;
+
+    // 每一筆為一個流程實例的啟動變數
+    private List<Map<String, Object>> rows;
+
+    // Getters and Setters
+    public String getProcessDefinitionId() {
+        return processDefinitionId;
+    }
+
+    public void setProcessDefinitionId(String processDefinitionId) {
+        this.processDefinitionId = processDefinitionId;
+    }
+
+    public List<Map<String, Object>> getRows() {
+        return rows;
+    }
+
+    public void setRows(List<Map<String, Object>> rows) {
+        this.rows = rows;
+    }
+}
@@ -0,0 +1,50 @@
+package com.taskmanager.process.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Per-row outcomes and throughput of a bulk start request")
+public class BulkStartResponse {
+
+    private int succeeded;
+    private int failed;
+
+    // 實際開啟的引擎交易數 (每個批次一個)
+    private int transactions;
+
+    private long elapsedMillis;
+    private double startsPerSecond;
+
+    private List<BulkStartResult> results;
+
+    public BulkStartResponse() {
+    }
+
+    public BulkStartResponse(List<BulkStartResult> results, int transactions, long elapsedMillis) {
+        this.results = results;
+        this.transactions = transactions;
+        this.elapsedMillis = elapsedMillis;
+        this.succeeded = (int) results.stream().filter(BulkStartResult::isSuccess).count();
+        this.failed = results.size() - succeeded;
+        this.startsPerSecond = elapsedMillis > 0 ? succeeded * 1000.0 / elapsedMillis : succeeded;
+    }
+
+    public int getSucceeded() { return succeeded; }
+    public void setSucceeded(int succeeded) { this.succeeded = succeeded; }
+
+    public int getFailed() { return failed; }
+    public void setFailed(int failed) { this.failed = failed; }
+
+    public int getTransactions() { return transactions; }
+    public void setTransactions(int transactions) { this.transactions = transactions; }
+
+    public long getElapsedMillis() { return elapsedMillis; }
+    public void setElapsedMillis(long elapsedMillis) { this.elapsedMillis = elapsedMillis; }
+
+    public double getStartsPerSecond() { return startsPerSecond; }
+    public void setStartsPerSecond(double startsPerSecond) { this.startsPerSecond = startsPerSecond; }
+
+    public List<BulkStartResult> getResults() { return results; }
+    public void setResults(List<BulkStartResult> results) { this.results = results; }
+}
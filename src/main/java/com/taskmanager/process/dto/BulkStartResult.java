@@ -0,0 +1,45 @@
+package com.taskmanager.process.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Outcome of one row in a bulk start request")
+public class BulkStartResult {
+
+    // 第幾筆 (由 1 開始，CSV 不含標題列)
+    private int row;
+    private boolean success;
+    private String processInstanceId;
+
+    // 失敗原因，成功時為 null
+    private String message;
+
+    public BulkStartResult() {
+    }
+
+    public BulkStartResult(int row, boolean success, String processInstanceId, String message) {
+        this.row = row;
+        this.success = success;
+        this.processInstanceId = processInstanceId;
+        this.message = message;
+    }
+
+    public static BulkStartResult ok(int row, String processInstanceId) {
+        return new BulkStartResult(row, true, processInstanceId, null);
+    }
+
+    public static BulkStartResult failed(int row, String message) {
+        return new BulkStartResult(row, false, null, message);
+    }
+
+    public int getRow() { return row; }
+    public void setRow(int row) { this.row = row; }
+
+    public boolean isSuccess() { return success; }
+    public void setSuccess(boolean success) { this.success = success; }
+
+    public String getProcessInstanceId() { return processInstanceId; }
+    public void setProcessInstanceId(String processInstanceId) { this.processInstanceId = processInstanceId; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+}
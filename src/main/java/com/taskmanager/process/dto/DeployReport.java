@@ -0,0 +1,71 @@
+package com.taskmanager.process.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Schema(description = "部署結果：哪些流程定義實際產生新版本、哪些內容未變動而略過")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DeployReport {
+
+    public static final String DEPLOYED = "DEPLOYED";
+    public static final String UNCHANGED = "UNCHANGED";
+
+    // 沒有任何變動時為 null (不建立新的 deployment)
+    private String deploymentId;
+    private List<Entry> resources = new ArrayList<>();
+
+    // zip 內非 BPMN 的檔案
+    private List<String> ignored = new ArrayList<>();
+
+    public String getDeploymentId() { return deploymentId; }
+    public void setDeploymentId(String deploymentId) { this.deploymentId = deploymentId; }
+
+    public List<Entry> getResources() { return resources; }
+    public void setResources(List<Entry> resources) { this.resources = resources; }
+
+    public List<String> getIgnored() { return ignored; }
+    public void setIgnored(List<String> ignored) { this.ignored = ignored; }
+
+    public long getChangedCount() {
+        return resources.stream().filter(e -> DEPLOYED.equals(e.getStatus())).count();
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Entry {
+        private String resourceName;
+        private String status;
+        private String sha256;
+        private String processDefinitionId;
+        private String processDefinitionKey;
+        private Integer version;
+
+        public Entry() {}
+
+        public Entry(String resourceName, String status, String sha256) {
+            this.resourceName = resourceName;
+            this.status = status;
+            this.sha256 = sha256;
+        }
+
+        public String getResourceName() { return resourceName; }
+        public void setResourceName(String resourceName) { this.resourceName = resourceName; }
+
+        public String getStatus() { return status; }
+        public void setStatus(String status) { this.status = status; }
+
+        public String getSha256() { return sha256; }
+        public void setSha256(String sha256) { this.sha256 = sha256; }
+
+        public String getProcessDefinitionId() { return processDefinitionId; }
+        public void setProcessDefinitionId(String processDefinitionId) { this.processDefinitionId = processDefinitionId; }
+
+        public String getProcessDefinitionKey() { return processDefinitionKey; }
+        public void setProcessDefinitionKey(String processDefinitionKey) { this.processDefinitionKey = processDefinitionKey; }
+
+        public Integer getVersion() { return version; }
+        public void setVersion(Integer version) { this.version = version; }
+    }
+}
@@ -1,7 +1,11 @@
 package com.taskmanager.process.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.Map;
 
+// 沒有值的欄位不輸出，避免每一列都帶空的 variables / changes
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class HistoryLog {
     private String activityName; // 節點名稱
     private String activityType; // 類型 (startEvent, userTask, endEvent)
@@ -10,7 +14,9 @@ public class HistoryLog {
     private String endTime;      // 結束時間
     private String duration;     // 耗時
     private String status;       // 狀態 (Completed, Running)
-    private Map<String, Object> variables; // 該節點相關變數 (如審核意見)
+    private Map<String, Object> variables; // 舊欄位：userTask 節點帶整份流程變數 (只有 /history 輸出)，新前端改用 changes
+    private Map<String, Object> changes;   // 該節點新增或修改的變數 (如審核意見)
+    private Map<String, Integer> changeRefs; // timeline 用：變數名稱 -> values 索引
 
     public HistoryLog() {}
 
@@ -37,4 +43,10 @@ public class HistoryLog {
 
     public Map<String, Object> getVariables() { return variables; }
     public void setVariables(Map<String, Object> variables) { this.variables = variables; }
+
+    public Map<String, Object> getChanges() { return changes; }
+    public void setChanges(Map<String, Object> changes) { this.changes = changes; }
+
+    public Map<String, Integer> getChangeRefs() { return changeRefs; }
+    public void setChangeRefs(Map<String, Integer> changeRefs) { this.changeRefs = changeRefs; }
 }
\ No newline at end of file
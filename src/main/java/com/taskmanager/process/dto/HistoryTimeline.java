@@ -0,0 +1,22 @@
+package com.taskmanager.process.dto;
+
+import java.util.List;
+
+// 流程歷史 + 變數異動：相同的變數值在 values 只出現一次，各節點以 changeRefs 的索引引用
+public class HistoryTimeline {
+    private List<HistoryLog> steps;
+    private List<Object> values;
+
+    public HistoryTimeline() {}
+
+    public HistoryTimeline(List<HistoryLog> steps, List<Object> values) {
+        this.steps = steps;
+        this.values = values;
+    }
+
+    public List<HistoryLog> getSteps() { return steps; }
+    public void setSteps(List<HistoryLog> steps) { this.steps = steps; }
+
+    public List<Object> getValues() { return values; }
+    public void setValues(List<Object> values) { this.values = values; }
+}
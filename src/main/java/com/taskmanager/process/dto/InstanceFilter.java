@@ -0,0 +1,87 @@
+package com.taskmanager.process.dto;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+// 流程實例清單的查詢條件，欄位為 null 表示不篩選
+public class InstanceFilter {
+    private String status;
+    private String definitionKey;
+    private String startedBy;
+    private String assignee;
+
+    // 啟動時間範圍 [startedFrom, startedTo)
+    private Instant startedFrom;
+    private Instant startedTo;
+
+    // 由查詢參數建立；日期以系統時區解讀，to 當天整天都包含在內
+    public static InstanceFilter of(String status, String definitionKey, String startedBy, String assignee,
+                                    LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("日期範圍錯誤：from 不可晚於 to");
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        InstanceFilter filter = new InstanceFilter();
+        filter.setStatus(blankToNull(status));
+        filter.setDefinitionKey(blankToNull(definitionKey));
+        filter.setStartedBy(blankToNull(startedBy));
+        filter.setAssignee(blankToNull(assignee));
+        filter.setStartedFrom(from != null ? from.atStartOfDay(zone).toInstant() : null);
+        filter.setStartedTo(to != null ? to.plusDays(1).atStartOfDay(zone).toInstant() : null);
+        return filter;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    // Getters and Setters
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getDefinitionKey() {
+        return definitionKey;
+    }
+
+    public void setDefinitionKey(String definitionKey) {
+        this.definitionKey = definitionKey;
+    }
+
+    public String getStartedBy() {
+        return startedBy;
+    }
+
+    public void setStartedBy(String startedBy) {
+        this.startedBy = startedBy;
+    }
+
+    public String getAssignee() {
+        return assignee;
+    }
+
+    public void setAssignee(String assignee) {
+        this.assignee = assignee;
+    }
+
+    public Instant getStartedFrom() {
+        return startedFrom;
+    }
+
+    public void setStartedFrom(Instant startedFrom) {
+        this.startedFrom = startedFrom;
+    }
+
+    public Instant getStartedTo() {
+        return startedTo;
+    }
+
+    public void setStartedTo(Instant startedTo) {
+        this.startedTo = startedTo;
+    }
+}
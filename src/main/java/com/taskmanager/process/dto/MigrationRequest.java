@@ -0,0 +1,40 @@
+package com.taskmanager.process.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Schema(description = "批次移轉執行中流程實例到另一個版本")
+public class MigrationRequest {
+    private String sourceProcessDefinitionId;
+    private String targetProcessDefinitionId;             // 未指定時移到同 key 的最新版本
+    private List<String> processInstanceIds;              // 只移轉這些實例；未指定時為來源版本的全部實例
+    private String startedBy;                             // 只移轉此人發起的實例
+    private Instant startedBefore;                         // 只移轉此時間之前發起的實例
+    private Map<String, String> nodeMapping = new LinkedHashMap<>(); // 舊節點 ID -> 新節點 ID (新版本改名或拆掉的使用者任務)
+    private boolean dryRun;                               // 只驗證並回報各節點的實例數，不實際移轉
+
+    public String getSourceProcessDefinitionId() { return sourceProcessDefinitionId; }
+    public void setSourceProcessDefinitionId(String sourceProcessDefinitionId) { this.sourceProcessDefinitionId = sourceProcessDefinitionId; }
+
+    public String getTargetProcessDefinitionId() { return targetProcessDefinitionId; }
+    public void setTargetProcessDefinitionId(String targetProcessDefinitionId) { this.targetProcessDefinitionId = targetProcessDefinitionId; }
+
+    public List<String> getProcessInstanceIds() { return processInstanceIds; }
+    public void setProcessInstanceIds(List<String> processInstanceIds) { this.processInstanceIds = processInstanceIds; }
+
+    public String getStartedBy() { return startedBy; }
+    public void setStartedBy(String startedBy) { this.startedBy = startedBy; }
+
+    public Instant getStartedBefore() { return startedBefore; }
+    public void setStartedBefore(Instant startedBefore) { this.startedBefore = startedBefore; }
+
+    public Map<String, String> getNodeMapping() { return nodeMapping; }
+    public void setNodeMapping(Map<String, String> nodeMapping) { this.nodeMapping = nodeMapping; }
+
+    public boolean isDryRun() { return dryRun; }
+    public void setDryRun(boolean dryRun) { this.dryRun = dryRun; }
+}
@@ -0,0 +1,86 @@
+package com.taskmanager.process.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@Schema(description = "流程實例移轉作業的狀態與進度")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MigrationStatus {
+
+    public static final String STATUS_VALIDATED = "VALIDATED";
+    public static final String STATUS_QUEUED = "QUEUED";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_SUCCEEDED = "SUCCEEDED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private String jobId;
+    private String status;          // VALIDATED (dryRun), QUEUED, RUNNING, SUCCEEDED, FAILED
+    private String sourceProcessDefinitionId;
+    private String targetProcessDefinitionId;
+    private Map<String, String> nodeMapping;
+    private Map<String, Long> activeNodes = new LinkedHashMap<>(); // 移轉前各節點停留的實例數
+    private int total;
+    private int migrated;
+    private int failed;
+    private int transactions;       // 使用的引擎交易數 (整批失敗時會逐筆重試)
+    private Long remaining;         // 結束後仍在來源版本的實例數
+    private List<String> errors = new CopyOnWriteArrayList<>(); // 背景執行緒寫入時仍可能被查詢
+    private String error;
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+
+    public String getJobId() { return jobId; }
+    public void setJobId(String jobId) { this.jobId = jobId; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getSourceProcessDefinitionId() { return sourceProcessDefinitionId; }
+    public void setSourceProcessDefinitionId(String sourceProcessDefinitionId) { this.sourceProcessDefinitionId = sourceProcessDefinitionId; }
+
+    public String getTargetProcessDefinitionId() { return targetProcessDefinitionId; }
+    public void setTargetProcessDefinitionId(String targetProcessDefinitionId) { this.targetProcessDefinitionId = targetProcessDefinitionId; }
+
+    public Map<String, String> getNodeMapping() { return nodeMapping; }
+    public void setNodeMapping(Map<String, String> nodeMapping) { this.nodeMapping = nodeMapping; }
+
+    public Map<String, Long> getActiveNodes() { return activeNodes; }
+    public void setActiveNodes(Map<String, Long> activeNodes) { this.activeNodes = activeNodes; }
+
+    public int getTotal() { return total; }
+    public void setTotal(int total) { this.total = total; }
+
+    public int getMigrated() { return migrated; }
+    public void setMigrated(int migrated) { this.migrated = migrated; }
+
+    public int getFailed() { return failed; }
+    public void setFailed(int failed) { this.failed = failed; }
+
+    public int getTransactions() { return transactions; }
+    public void setTransactions(int transactions) { this.transactions = transactions; }
+
+    public Long getRemaining() { return remaining; }
+    public void setRemaining(Long remaining) { this.remaining = remaining; }
+
+    public List<String> getErrors() { return errors; }
+    public void setErrors(List<String> errors) { this.errors = errors; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public Instant getStartedAt() { return startedAt; }
+    public void setStartedAt(Instant startedAt) { this.startedAt = startedAt; }
+
+    public Instant getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(Instant finishedAt) { this.finishedAt = finishedAt; }
+}
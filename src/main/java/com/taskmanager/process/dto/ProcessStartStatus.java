@@ -0,0 +1,105 @@
+package com.taskmanager.process.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.taskmanager.process.model.ProcessIns;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+@Schema(description = "非同步啟動流程的處理狀態")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProcessStartStatus {
+    private String requestId;
+    private String idempotencyKey;
+    private String status;          // QUEUED, RUNNING, SUCCEEDED, FAILED
+    private boolean duplicate;      // 是否為重送的 Idempotency-Key
+    private String processInstanceId;
+    private String error;
+    private Instant createdAt;
+    private Instant completedAt;
+    private ProcessIns instance;
+    private List<Map<String, Object>> tasks; // 啟動後的第一批待辦
+
+    // Getters and Setters
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public boolean isDuplicate() {
+        return duplicate;
+    }
+
+    public void setDuplicate(boolean duplicate) {
+        this.duplicate = duplicate;
+    }
+
+    public String getProcessInstanceId() {
+        return processInstanceId;
+    }
+
+    public void setProcessInstanceId(String processInstanceId) {
+        this.processInstanceId = processInstanceId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(Instant completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public ProcessIns getInstance() {
+        return instance;
+    }
+
+    public void setInstance(ProcessIns instance) {
+        this.instance = instance;
+    }
+
+    public List<Map<String, Object>> getTasks() {
+        return tasks;
+    }
+
+    public void setTasks(List<Map<String, Object>> tasks) {
+        this.tasks = tasks;
+    }
+}
@@ -0,0 +1,214 @@
+package com.taskmanager.process.form;
+
+import org.activiti.bpmn.model.FormProperty;
+import org.activiti.bpmn.model.FormValue;
+
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 單一表單欄位的編譯結果 (不可變)，前端需要的欄位描述在編譯時就組好。
+ */
+public final class FormFieldSchema {
+
+    private static final DateTimeFormatter DATE_ONLY = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private final String key;
+    private final String label;
+    private final String type;
+    private final String activitiType;
+    private final boolean required;
+    private final boolean writable;
+    private final List<FormOption> options;
+    private final Map<String, Object> view;
+
+    // default 屬性為固定值時才有 (運算式在引擎內求值，這裡不處理)
+    private final Object defaultValue;
+
+    private FormFieldSchema(FormProperty prop, boolean taskForm, Set<String> multiInstanceCollections) {
+        this.key = prop.getId();
+        this.label = prop.getName() != null ? prop.getName() : prop.getId();
+        this.activitiType = prop.getType() != null ? prop.getType() : "string";
+        this.required = prop.isRequired();
+        this.writable = prop.isWriteable();
+
+        boolean isEnum = "enum".equals(activitiType);
+        boolean checkboxGroup = !taskForm && isEnum && multiInstanceCollections.contains(key);
+        this.type = checkboxGroup ? "checkbox-group" : mapFormPropertyType(activitiType);
+
+        List<FormOption> opts = new ArrayList<>();
+        if (isEnum) {
+            for (FormValue val : prop.getFormValues()) {
+                opts.add(new FormOption(val.getName(), val.getId()));
+            }
+        }
+        this.options = Collections.unmodifiableList(opts);
+
+        Map<String, Object> field = new LinkedHashMap<>();
+        field.put("key", key);
+        field.put("label", label);
+        field.put("type", type);
+        field.put("required", required);
+        field.put("disabled", !writable); // 用於前端判斷唯讀欄位
+        // 發起表單 / 節點表單帶預設值；任務表單的值在執行期由流程變數帶入
+        if (!taskForm && prop.getDefaultExpression() != null) {
+            field.put("value", prop.getDefaultExpression());
+        }
+        if (isEnum) {
+            field.put("options", options);
+            if (taskForm && "action".equalsIgnoreCase(key)) {
+                field.put("uiComponent", "buttons");
+            }
+        }
+        this.view = Collections.unmodifiableMap(field);
+
+        String defaultExpression = prop.getDefaultExpression();
+        this.defaultValue = defaultExpression != null && !defaultExpression.contains("${") && !defaultExpression.contains("#{")
+                ? coerce(defaultExpression) : null;
+    }
+
+    static FormFieldSchema compile(FormProperty prop, boolean taskForm, Set<String> multiInstanceCollections) {
+        return new FormFieldSchema(prop, taskForm, multiInstanceCollections);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getActivitiType() {
+        return activitiType;
+    }
+
+    public boolean isRequired() {
+        return required;
+    }
+
+    public boolean isWritable() {
+        return writable;
+    }
+
+    public Object getDefaultValue() {
+        return defaultValue;
+    }
+
+    public List<FormOption> getOptions() {
+        return options;
+    }
+
+    // 沒有執行期值時直接回傳共用的不可變描述，不再逐欄位建立 HashMap
+    Map<String, Object> render(Map<String, Object> values) {
+        if (values == null || !values.containsKey(key)) {
+            return view;
+        }
+        Map<String, Object> field = new LinkedHashMap<>(view);
+        Object val = values.get(key);
+        // 日期物件轉成字串給前端，避免格式問題
+        if (val instanceof Date) {
+            field.put("value", ((Date) val).toInstant().atZone(ZoneId.systemDefault()).format(DATE_ONLY));
+        } else {
+            field.put("value", val);
+        }
+        return field;
+    }
+
+    // CSV 等純文字來源的值轉成引擎變數型別；無法轉換時原樣回傳，交給 validate 報錯
+    Object coerce(Object value) {
+        if (!(value instanceof String)) {
+            return value;
+        }
+        String text = ((String) value).trim();
+        if (text.isEmpty()) {
+            return null;
+        }
+        switch (activitiType) {
+            case "long":
+                try {
+                    return Long.parseLong(text);
+                } catch (NumberFormatException e) {
+                    return value;
+                }
+            case "boolean":
+                if ("true".equalsIgnoreCase(text) || "false".equalsIgnoreCase(text)) {
+                    return Boolean.parseBoolean(text);
+                }
+                return value;
+            default:
+                // 多選 (會簽名單) 以分號分隔
+                if ("checkbox-group".equals(type)) {
+                    return Arrays.stream(text.split(";")).map(String::trim).filter(v -> !v.isEmpty()).collect(Collectors.toList());
+                }
+                return text;
+        }
+    }
+
+    // 回傳錯誤訊息；驗證通過則回傳 null
+    String validate(Map<String, Object> formData) {
+        if (!writable) {
+            return null;
+        }
+        Object value = formData != null ? formData.get(key) : null;
+        if (value == null || (value instanceof String && ((String) value).isBlank())) {
+            return required ? label + " 為必填" : null;
+        }
+
+        switch (activitiType) {
+            case "long":
+                if (value instanceof Number) {
+                    return null;
+                }
+                try {
+                    Long.parseLong(value.toString().trim());
+                    return null;
+                } catch (NumberFormatException e) {
+                    return label + " 必須為整數";
+                }
+            case "boolean":
+                if (value instanceof Boolean || "true".equalsIgnoreCase(value.toString()) || "false".equalsIgnoreCase(value.toString())) {
+                    return null;
+                }
+                return label + " 必須為 true / false";
+            case "enum":
+                if (options.isEmpty()) {
+                    return null;
+                }
+                Collection<?> selected = value instanceof Collection ? (Collection<?>) value : List.of(value);
+                for (Object item : selected) {
+                    if (options.stream().noneMatch(o -> o.getValue().equals(String.valueOf(item)))) {
+                        return label + " 不接受的選項：" + item;
+                    }
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    private static String mapFormPropertyType(String activitiType) {
+        switch (activitiType) {
+            case "string": return "text";
+            case "long": return "number";
+            case "date": return "date";
+            case "enum": return "select";
+            case "boolean": return "switch";
+            default: return "text";
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.taskmanager.process.form;
+
+public final class FormOption {
+
+    private final String label;
+    private final String value;
+
+    public FormOption(String label, String value) {
+        this.label = label;
+        this.value = value;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
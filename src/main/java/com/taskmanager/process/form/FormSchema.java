@@ -0,0 +1,101 @@
+package com.taskmanager.process.form;
+
+import org.activiti.bpmn.model.FormProperty;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 一個節點 (發起事件或 UserTask) 的表單結構，隨流程定義版本快取，執行期只合併變數值。
+ */
+public final class FormSchema {
+
+    public static final FormSchema EMPTY = new FormSchema(Collections.emptyList());
+
+    private final List<FormFieldSchema> fields;
+    private final Set<String> fieldKeys;
+
+    private FormSchema(List<FormFieldSchema> fields) {
+        this.fields = Collections.unmodifiableList(fields);
+        Set<String> keys = new LinkedHashSet<>();
+        fields.forEach(f -> keys.add(f.getKey()));
+        this.fieldKeys = Collections.unmodifiableSet(keys);
+    }
+
+    // 任務表單：值來自流程變數，action 欄位以按鈕呈現
+    public static FormSchema forTask(List<FormProperty> formProperties) {
+        return compile(formProperties, true, Collections.emptySet());
+    }
+
+    // 發起 / 節點表單：帶預設值，多實例集合變數以 checkbox-group 呈現
+    public static FormSchema forStart(List<FormProperty> formProperties, Set<String> multiInstanceCollections) {
+        return compile(formProperties, false, multiInstanceCollections);
+    }
+
+    private static FormSchema compile(List<FormProperty> formProperties, boolean taskForm, Set<String> multiInstanceCollections) {
+        if (formProperties == null || formProperties.isEmpty()) {
+            return EMPTY;
+        }
+        List<FormFieldSchema> compiled = new ArrayList<>();
+        for (FormProperty prop : formProperties) {
+            compiled.add(FormFieldSchema.compile(prop, taskForm, multiInstanceCollections));
+        }
+        return new FormSchema(compiled);
+    }
+
+    public List<FormFieldSchema> getFields() {
+        return fields;
+    }
+
+    public Set<String> getFieldKeys() {
+        return fieldKeys;
+    }
+
+    public List<Map<String, Object>> render(Map<String, Object> values) {
+        List<Map<String, Object>> formFields = new ArrayList<>(fields.size());
+        for (FormFieldSchema field : fields) {
+            formFields.add(field.render(values));
+        }
+        return formFields;
+    }
+
+    // 依欄位型別轉換文字值 (CSV 匯入)；表單未宣告的欄位原樣保留
+    public Map<String, Object> coerce(Map<String, Object> values) {
+        Map<String, Object> result = new LinkedHashMap<>(values);
+        for (FormFieldSchema field : fields) {
+            if (result.containsKey(field.getKey())) {
+                result.put(field.getKey(), field.coerce(result.get(field.getKey())));
+            }
+        }
+        return result;
+    }
+
+    // 未填的欄位補上表單宣告的預設值 (與前端發起表單帶出的值相同)
+    public Map<String, Object> applyDefaults(Map<String, Object> values) {
+        for (FormFieldSchema field : fields) {
+            if (field.getDefaultValue() != null && values.get(field.getKey()) == null) {
+                values.put(field.getKey(), field.getDefaultValue());
+            }
+        }
+        return values;
+    }
+
+    // 在開啟引擎交易前先擋掉不合法的表單內容
+    public void validate(Map<String, Object> formData) {
+        List<String> errors = new ArrayList<>();
+        for (FormFieldSchema field : fields) {
+            String error = field.validate(formData);
+            if (error != null) {
+                errors.add(error);
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException("表單驗證失敗：" + String.join("；", errors));
+        }
+    }
+}
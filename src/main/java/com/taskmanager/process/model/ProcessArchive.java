@@ -0,0 +1,75 @@
+package com.taskmanager.process.model;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+/**
+ * 已結束流程實例的快照 — 內容為 {@link com.taskmanager.process.dto.ArchivedProcess} 的 gzip JSON，
+ * 其餘欄位只保留查詢與重建 process_ins 需要的資訊。purged 表示引擎歷史 (ACT_HI_*) 已被保留期限清除。
+ */
+@Entity
+@Table(name = "process_archive", indexes = {
+        @Index(name = "idx_process_archive_ended", columnList = "ended_at"),
+        @Index(name = "idx_process_archive_starter", columnList = "started_by, ended_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class ProcessArchive implements Persistable<String> {
+
+    // 即原本的流程實例 ID
+    @Id
+    private String id;
+
+    @Column(name = "process_definition_id")
+    private String processDefinitionId;
+
+    @Column(name = "definition_key")
+    private String definitionKey;
+
+    @Column(name = "started_by")
+    private String startedBy;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "ended_at")
+    private Instant endedAt;
+
+    @Column(name = "archived_at", nullable = false)
+    private Instant archivedAt;
+
+    @Column(name = "purged", nullable = false)
+    private boolean purged;
+
+    // 壓縮前的 JSON 大小
+    @Column(name = "raw_size")
+    private int rawSize;
+
+    @Lob
+    @Column(name = "payload", nullable = false)
+    private byte[] payload;
+
+    // 快照只新增不覆寫：新建的列直接 persist，同一實例已有快照時由主鍵衝突擋下，不會蓋掉 purged
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean isNew = true;
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+}
@@ -1,30 +1,67 @@
 package com.taskmanager.process.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
-
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 流程實例清單的投影 — 由引擎流程 / 任務事件維護，查詢時不再回查引擎。
+ */
 @Entity
-public class ProcessIns {
+@Table(name = "process_ins", indexes = {
+        @Index(name = "idx_process_ins_started", columnList = "started_at, id"),
+        @Index(name = "idx_process_ins_status_started", columnList = "status, started_at"),
+        @Index(name = "idx_process_ins_starter_started", columnList = "started_by, started_at"),
+        @Index(name = "idx_process_ins_definition_key", columnList = "definition_key, started_at")
+})
+public class ProcessIns implements Persistable<String> {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
     @Id
     private String id;
     private String name;
+
+    @Column(name = "status")
     private String status;
+
+    @Column(name = "process_definition_id")
     private String processDefinitionId;
-    private String startTime;
+
+    @Column(name = "definition_key")
+    private String definitionKey;
+
+    @Column(name = "started_by")
+    private String startedBy;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "ended_at")
+    private Instant endedAt;
+
+    @Column(name = "current_task", length = 1000)
     private String currentTask;
+
+    @Column(length = 1000)
     private String assignee;
 
-    public ProcessIns() {
-    }
+    // ID 由引擎指定：新建的列直接 persist，不必先 SELECT 再 merge，才能走 JDBC 批次寫入
+    @Transient
+    private boolean isNew = true;
 
-    public ProcessIns(String id, String name, String status, String processDefinitionId, String startTime, String currentTask, String assignee) {
-        this.id = id;
-        this.name = name;
-        this.status = status;
-        this.processDefinitionId = processDefinitionId;
-        this.startTime = startTime;
-        this.currentTask = currentTask;
-        this.assignee = assignee;
+    public ProcessIns() {
     }
 
     // Getters and Setters
@@ -60,12 +97,45 @@ public class ProcessIns {
         this.processDefinitionId = processDefinitionId;
     }
 
+    public String getDefinitionKey() {
+        return definitionKey;
+    }
+
+    public void setDefinitionKey(String definitionKey) {
+        this.definitionKey = definitionKey;
+    }
+
+    public String getStartedBy() {
+        return startedBy;
+    }
+
+    public void setStartedBy(String startedBy) {
+        this.startedBy = startedBy;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Instant startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Instant getEndedAt() {
+        return endedAt;
+    }
+
+    public void setEndedAt(Instant endedAt) {
+        this.endedAt = endedAt;
+    }
+
+    // 前端沿用的顯示格式 (yyyy-MM-dd HH:mm)
     public String getStartTime() {
-        return startTime;
+        return format(startedAt);
     }
 
-    public void setStartTime(String startTime) {
-        this.startTime = startTime;
+    public String getEndTime() {
+        return format(endedAt);
     }
 
     public String getCurrentTask() {
@@ -83,4 +153,25 @@ public class ProcessIns {
     public void setAssignee(String assignee) {
         this.assignee = assignee;
     }
-}
\ No newline at end of file
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    @JsonIgnore
+    public boolean isEnded() {
+        return endedAt != null;
+    }
+
+    private static String format(Instant time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).format(FORMATTER) : null;
+    }
+}
@@ -0,0 +1,62 @@
+package com.taskmanager.process.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * 非同步啟動流程的請求紀錄 — 以 (requested_by, idempotency_key) 去重，重送同一個 key 只會啟動一次。
+ */
+@Entity
+@Table(name = "process_start_request",
+        uniqueConstraints = @UniqueConstraint(name = "uk_start_request_key", columnNames = {"requested_by", "idempotency_key"}),
+        indexes = @Index(name = "idx_start_request_status", columnList = "status, created_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class ProcessStartRequest {
+
+    public static final String STATUS_QUEUED = "QUEUED";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_SUCCEEDED = "SUCCEEDED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    // 回給用戶端查詢狀態用的 handle
+    @Id
+    private String id;
+
+    @Column(name = "idempotency_key", nullable = false, length = 100)
+    private String idempotencyKey;
+
+    @Column(name = "requested_by", nullable = false)
+    private String requestedBy;
+
+    @Column(name = "process_definition_id", nullable = false)
+    private String processDefinitionId;
+
+    // 請求內容的 SHA-256，同一個 key 帶不同內容時拒絕
+    @Column(name = "request_hash", length = 64)
+    private String requestHash;
+
+    @Column(name = "status", nullable = false, length = 16)
+    private String status;
+
+    @Column(name = "process_instance_id")
+    private String processInstanceId;
+
+    @Column(name = "error", length = 1000)
+    private String error;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "completed_at")
+    private Instant completedAt;
+
+    public boolean isFinished() {
+        return STATUS_SUCCEEDED.equals(status) || STATUS_FAILED.equals(status);
+    }
+}
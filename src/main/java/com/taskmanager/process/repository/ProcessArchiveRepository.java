@@ -0,0 +1,53 @@
+package com.taskmanager.process.repository;
+
+import com.taskmanager.process.model.ProcessArchive;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface ProcessArchiveRepository extends JpaRepository<ProcessArchive, String> {
+
+    // 重建 process_ins 只需要摘要欄位，不載入封存內容
+    interface Summary {
+        String getId();
+
+        String getProcessDefinitionId();
+
+        String getStartedBy();
+
+        Instant getStartedAt();
+
+        Instant getEndedAt();
+    }
+
+    List<Summary> findAllProjectedBy();
+
+    // 引擎歷史已清除的快照，依 id 往後讀：統計回填改由快照計算這些實例
+    List<ProcessArchive> findByPurgedTrueAndIdGreaterThanOrderByIdAsc(String afterId, Pageable pageable);
+
+    // 稽核匯出：引擎歷史已清除的快照，依 (startedAt, id) 往後讀；afterTime 為 null 代表第一批
+    @Query("SELECT a FROM ProcessArchive a WHERE a.purged = true"
+            + " AND (:definitionKey IS NULL OR a.definitionKey = :definitionKey)"
+            + " AND (:startedFrom IS NULL OR a.startedAt >= :startedFrom)"
+            + " AND (:startedTo IS NULL OR a.startedAt < :startedTo)"
+            + " AND (:afterTime IS NULL OR a.startedAt > :afterTime OR (a.startedAt = :afterTime AND a.id > :afterId))"
+            + " ORDER BY a.startedAt ASC, a.id ASC")
+    List<ProcessArchive> findPurgedForExport(@Param("definitionKey") String definitionKey,
+                                             @Param("startedFrom") Instant startedFrom,
+                                             @Param("startedTo") Instant startedTo,
+                                             @Param("afterTime") Instant afterTime,
+                                             @Param("afterId") String afterId,
+                                             Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ProcessArchive a SET a.purged = true WHERE a.id IN :ids")
+    int markPurged(@Param("ids") Collection<String> ids);
+}
@@ -1,7 +1,15 @@
 package com.taskmanager.process.repository;
 
 import com.taskmanager.process.model.ProcessIns;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
-public interface ProcessInsRepository extends JpaRepository<ProcessIns, String> {
-}
\ No newline at end of file
+import java.util.List;
+
+public interface ProcessInsRepository extends JpaRepository<ProcessIns, String>, ProcessInsRepositoryCustom {
+
+    // 不需要總筆數，回傳 List 以免多一次 COUNT 查詢
+    List<ProcessIns> findAllBy(Pageable pageable);
+
+    List<ProcessIns> findByStartedBy(String startedBy, Pageable pageable);
+}
@@ -0,0 +1,15 @@
+package com.taskmanager.process.repository;
+
+import com.taskmanager.process.dto.InstanceFilter;
+import com.taskmanager.process.model.ProcessIns;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface ProcessInsRepositoryCustom {
+
+    // 依 (startedAt, id) 由新到舊的 keyset 分頁；afterTime 為 null 代表第一頁
+    List<ProcessIns> search(InstanceFilter filter, Instant afterTime, String afterId, int limit);
+
+    long count(InstanceFilter filter);
+}
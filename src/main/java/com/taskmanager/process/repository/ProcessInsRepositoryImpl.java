@@ -0,0 +1,80 @@
+package com.taskmanager.process.repository;
+
+import com.taskmanager.process.dto.InstanceFilter;
+import com.taskmanager.process.model.ProcessIns;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 動態組出只包含有值條件的 JPQL，讓資料庫能使用對應的索引 (不使用 ":x IS NULL OR ..." 寫法)。
+ */
+public class ProcessInsRepositoryImpl implements ProcessInsRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProcessIns> search(InstanceFilter filter, Instant afterTime, String afterId, int limit) {
+        Map<String, Object> params = new HashMap<>();
+        StringBuilder jpql = new StringBuilder("SELECT p FROM ProcessIns p WHERE 1 = 1");
+        appendFilter(jpql, filter, params);
+        if (afterTime != null) {
+            jpql.append(" AND (p.startedAt < :afterTime OR (p.startedAt = :afterTime AND p.id < :afterId))");
+            params.put("afterTime", afterTime);
+            params.put("afterId", afterId);
+        }
+        jpql.append(" ORDER BY p.startedAt DESC, p.id DESC");
+
+        TypedQuery<ProcessIns> query = entityManager.createQuery(jpql.toString(), ProcessIns.class);
+        params.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public long count(InstanceFilter filter) {
+        Map<String, Object> params = new HashMap<>();
+        StringBuilder jpql = new StringBuilder("SELECT COUNT(p) FROM ProcessIns p WHERE 1 = 1");
+        appendFilter(jpql, filter, params);
+
+        TypedQuery<Long> query = entityManager.createQuery(jpql.toString(), Long.class);
+        params.forEach(query::setParameter);
+        return query.getSingleResult();
+    }
+
+    private void appendFilter(StringBuilder jpql, InstanceFilter filter, Map<String, Object> params) {
+        if (filter == null) {
+            return;
+        }
+        if (filter.getStatus() != null) {
+            jpql.append(" AND p.status = :status");
+            params.put("status", filter.getStatus());
+        }
+        if (filter.getDefinitionKey() != null) {
+            jpql.append(" AND p.definitionKey = :definitionKey");
+            params.put("definitionKey", filter.getDefinitionKey());
+        }
+        if (filter.getStartedBy() != null) {
+            jpql.append(" AND p.startedBy = :startedBy");
+            params.put("startedBy", filter.getStartedBy());
+        }
+        if (filter.getStartedFrom() != null) {
+            jpql.append(" AND p.startedAt >= :startedFrom");
+            params.put("startedFrom", filter.getStartedFrom());
+        }
+        if (filter.getStartedTo() != null) {
+            jpql.append(" AND p.startedAt < :startedTo");
+            params.put("startedTo", filter.getStartedTo());
+        }
+        if (filter.getAssignee() != null) {
+            // 目前處理人：以待辦讀取模型判斷，避免比對逗號串接的 assignee 字串
+            jpql.append(" AND EXISTS (SELECT 1 FROM InboxTask t WHERE t.processInstanceId = p.id AND t.assignee = :assignee)");
+            params.put("assignee", filter.getAssignee());
+        }
+    }
+}
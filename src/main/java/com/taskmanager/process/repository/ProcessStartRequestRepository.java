@@ -0,0 +1,24 @@
+package com.taskmanager.process.repository;
+
+import com.taskmanager.process.model.ProcessStartRequest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Optional;
+
+public interface ProcessStartRequestRepository extends JpaRepository<ProcessStartRequest, String> {
+
+    Optional<ProcessStartRequest> findByRequestedByAndIdempotencyKey(String requestedBy, String idempotencyKey);
+
+    // 重新啟動後，記憶體中的排隊工作已遺失
+    @Modifying
+    @Transactional
+    @Query("UPDATE ProcessStartRequest r SET r.status = 'FAILED', r.error = :error, r.completedAt = :now " +
+            "WHERE r.status IN :statuses")
+    int failUnfinished(@Param("statuses") Collection<String> statuses, @Param("error") String error, @Param("now") Instant now);
+}
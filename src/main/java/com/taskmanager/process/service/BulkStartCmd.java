@@ -0,0 +1,61 @@
+package com.taskmanager.process.service;
+
+import com.taskmanager.process.dto.BulkStartResult;
+import org.activiti.engine.ActivitiException;
+import org.activiti.engine.impl.cmd.StartProcessInstanceCmd;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.variable.VariableTypes;
+import org.activiti.engine.runtime.ProcessInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 在同一個引擎交易內啟動一批同定義的流程實例。
+ * 表單已在交易外驗證過，這裡再確認每個變數都有引擎可保存的型別；檢查失敗只記在該筆結果。
+ * 啟動流程本身丟出的任何例外都讓整批回滾，由呼叫端逐筆重試。
+ */
+class BulkStartCmd implements Command<List<BulkStartResult>> {
+
+    private final String processDefinitionId;
+    private final List<Integer> rowNumbers;
+    private final List<Map<String, Object>> rows;
+
+    BulkStartCmd(String processDefinitionId, List<Integer> rowNumbers, List<Map<String, Object>> rows) {
+        this.processDefinitionId = processDefinitionId;
+        this.rowNumbers = rowNumbers;
+        this.rows = rows;
+    }
+
+    @Override
+    public List<BulkStartResult> execute(CommandContext commandContext) {
+        VariableTypes variableTypes = commandContext.getProcessEngineConfiguration().getVariableTypes();
+        List<BulkStartResult> results = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            String error = unsupportedVariable(variableTypes, rows.get(i));
+            if (error != null) {
+                results.add(BulkStartResult.failed(rowNumbers.get(i), error));
+                continue;
+            }
+            // 不在這裡攔截例外：執行個體可能已寫入一半，不能跟著同批其他資料一起提交
+            ProcessInstance instance = new StartProcessInstanceCmd<ProcessInstance>(null, processDefinitionId, null, rows.get(i))
+                    .execute(commandContext);
+            results.add(BulkStartResult.ok(rowNumbers.get(i), instance.getId()));
+        }
+        return results;
+    }
+
+    // 引擎要等建立執行個體之後寫入變數時才發現型別無法保存，所以在啟動前先查一次
+    private static String unsupportedVariable(VariableTypes variableTypes, Map<String, Object> variables) {
+        for (Map.Entry<String, Object> entry : variables.entrySet()) {
+            try {
+                variableTypes.findVariableType(entry.getValue());
+            } catch (ActivitiException e) {
+                return "變數 " + entry.getKey() + " 的型別無法保存：" + entry.getValue().getClass().getSimpleName();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,326 @@
+package com.taskmanager.process.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskmanager.process.dto.ArchivedProcess;
+import com.taskmanager.process.model.ProcessArchive;
+import com.taskmanager.process.repository.ProcessArchiveRepository;
+import org.activiti.engine.HistoryService;
+import org.activiti.engine.history.HistoricActivityInstance;
+import org.activiti.engine.history.HistoricProcessInstance;
+import org.activiti.engine.history.HistoricProcessInstanceQuery;
+import org.activiti.engine.history.HistoricVariableInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * 稽核用的流程歷史匯出：依流程定義與啟動日期範圍，逐批讀取歷史並直接寫到輸出串流。
+ * 每次只持有一批流程實例的資料，匯出筆數再多記憶體用量也不會跟著成長。
+ * 引擎歷史已被封存作業清除的實例改由快照匯出，接在引擎中的實例之後；與封存作業同時執行時，
+ * 正好在這段期間被清除的實例可能重複或遺漏，稽核用途請避開封存排程。
+ */
+@Service
+public class HistoryExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HistoryExportService.class);
+
+    public static final String FORMAT_NDJSON = "ndjson";
+    public static final String FORMAT_CSV = "csv";
+
+    // 每批流程實例數 / 每次 listPage 的筆數上限
+    private static final int INSTANCE_CHUNK_SIZE = 100;
+    private static final int ACTIVITY_PAGE_SIZE = 500;
+    private static final int VARIABLE_PAGE_SIZE = 1000;
+
+    // 一列一筆紀錄：節點 (activity) 或流程變數 (variable)，CSV 與 NDJSON 共用欄位
+    static final List<String> COLUMNS = List.of(
+            "recordType", "processInstanceId", "processDefinitionId", "businessKey", "startUserId",
+            "activityId", "activityName", "activityType", "assignee", "startTime", "endTime",
+            "durationMillis", "deleteReason", "variableName", "variableValue");
+
+    private final HistoryService historyService;
+    private final ProcessArchiveRepository archiveRepository;
+    private final ProcessArchiveStore archiveStore;
+    private final ObjectMapper objectMapper;
+
+    public HistoryExportService(HistoryService historyService, ProcessArchiveRepository archiveRepository,
+                                ProcessArchiveStore archiveStore, ObjectMapper objectMapper) {
+        this.historyService = historyService;
+        this.archiveRepository = archiveRepository;
+        this.archiveStore = archiveStore;
+        this.objectMapper = objectMapper;
+    }
+
+    // 在開始串流前呼叫，讓參數錯誤仍能回 400
+    public void validate(String format, LocalDate from, LocalDate to) {
+        if (!FORMAT_NDJSON.equals(format) && !FORMAT_CSV.equals(format)) {
+            throw new IllegalArgumentException("不支援的匯出格式：" + format + " (ndjson 或 csv)");
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("日期範圍錯誤：from 不可晚於 to");
+        }
+    }
+
+    /**
+     * 匯出啟動日期落在 [from, to] 的流程實例歷史，回傳匯出的流程實例數。
+     */
+    public long export(String definitionKey, LocalDate from, LocalDate to, String format, OutputStream out) throws IOException {
+        validate(format, from, to);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        boolean csv = FORMAT_CSV.equals(format);
+        if (csv) {
+            // BOM 讓 Excel 正確辨識 UTF-8 中文
+            writer.write('\uFEFF');
+            writeCsvLine(writer, COLUMNS);
+        }
+
+        long exported = 0;
+        int offset = 0;
+        while (true) {
+            List<HistoricProcessInstance> instances = instanceQuery(definitionKey, from, to)
+                    .listPage(offset, INSTANCE_CHUNK_SIZE);
+            if (instances.isEmpty()) {
+                break;
+            }
+
+            Map<String, List<HistoricVariableInstance>> variablesByInstance = loadVariables(instances);
+            for (HistoricProcessInstance instance : instances) {
+                writeActivities(writer, instance, csv);
+                for (HistoricVariableInstance variable : variablesByInstance.getOrDefault(instance.getId(), List.of())) {
+                    writeRow(writer, variableRow(instance, variable), csv);
+                }
+            }
+            // 每批寫完就送出，用戶端可以邊收邊處理
+            writer.flush();
+
+            exported += instances.size();
+            offset += instances.size();
+            if (instances.size() < INSTANCE_CHUNK_SIZE) {
+                break;
+            }
+        }
+
+        exported += exportArchived(writer, definitionKey, from, to, csv);
+        writer.flush();
+        logger.info("流程歷史匯出完成：definitionKey={}, {} 筆流程實例", definitionKey, exported);
+        return exported;
+    }
+
+    private long exportArchived(Writer writer, String definitionKey, LocalDate from, LocalDate to, boolean csv) throws IOException {
+        String key = definitionKey != null && !definitionKey.isBlank() ? definitionKey : null;
+        ZoneId zone = ZoneId.systemDefault();
+        Instant startedFrom = from != null ? from.atStartOfDay(zone).toInstant() : null;
+        Instant startedTo = to != null ? to.plusDays(1).atStartOfDay(zone).toInstant() : null;
+
+        long exported = 0;
+        Instant afterTime = null;
+        String afterId = null;
+        while (true) {
+            List<ProcessArchive> archives = archiveRepository.findPurgedForExport(key, startedFrom, startedTo,
+                    afterTime, afterId, PageRequest.of(0, INSTANCE_CHUNK_SIZE));
+            for (ProcessArchive archive : archives) {
+                writeArchived(writer, archiveStore.decode(archive), csv);
+            }
+            writer.flush();
+
+            exported += archives.size();
+            if (archives.size() < INSTANCE_CHUNK_SIZE) {
+                return exported;
+            }
+            ProcessArchive last = archives.get(archives.size() - 1);
+            afterTime = last.getStartedAt();
+            afterId = last.getId();
+        }
+    }
+
+    // 與引擎歷史相同的欄位：節點依開始時間排序，變數依名稱排序
+    private void writeArchived(Writer writer, ArchivedProcess archived, boolean csv) throws IOException {
+        List<ArchivedProcess.ArchivedActivity> activities = new ArrayList<>(archived.getActivities());
+        activities.sort(Comparator.comparing(ArchivedProcess.ArchivedActivity::getStartTime,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+        for (ArchivedProcess.ArchivedActivity activity : activities) {
+            Map<String, Object> row = baseRow("activity", archived);
+            row.put("activityId", activity.getActivityId());
+            row.put("activityName", activity.getActivityName());
+            row.put("activityType", activity.getActivityType());
+            row.put("assignee", activity.getAssignee());
+            row.put("startTime", format(activity.getStartTime()));
+            row.put("endTime", format(activity.getEndTime()));
+            row.put("durationMillis", activity.getDurationMillis());
+            row.put("deleteReason", activity.getDeleteReason());
+            writeRow(writer, row, csv);
+        }
+        for (Map.Entry<String, Object> variable : new TreeMap<>(archived.getVariables()).entrySet()) {
+            Map<String, Object> row = baseRow("variable", archived);
+            row.put("variableName", variable.getKey());
+            row.put("variableValue", exportValue(variable.getValue()));
+            writeRow(writer, row, csv);
+        }
+    }
+
+    private HistoricProcessInstanceQuery instanceQuery(String definitionKey, LocalDate from, LocalDate to) {
+        HistoricProcessInstanceQuery query = historyService.createHistoricProcessInstanceQuery();
+        if (definitionKey != null && !definitionKey.isBlank()) {
+            query.processDefinitionKey(definitionKey);
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        if (from != null) {
+            query.startedAfter(Date.from(from.atStartOfDay(zone).toInstant()));
+        }
+        if (to != null) {
+            query.startedBefore(Date.from(to.plusDays(1).atStartOfDay(zone).toInstant()));
+        }
+        // 穩定排序，listPage 逐批往後讀不會漏筆或重複
+        return query.orderByProcessInstanceStartTime().asc().orderByProcessInstanceId().asc();
+    }
+
+    private void writeActivities(Writer writer, HistoricProcessInstance instance, boolean csv) throws IOException {
+        int offset = 0;
+        while (true) {
+            List<HistoricActivityInstance> page = historyService.createHistoricActivityInstanceQuery()
+                    .processInstanceId(instance.getId())
+                    .orderByHistoricActivityInstanceStartTime().asc()
+                    .orderByHistoricActivityInstanceId().asc()
+                    .listPage(offset, ACTIVITY_PAGE_SIZE);
+            for (HistoricActivityInstance activity : page) {
+                Map<String, Object> row = baseRow("activity", instance);
+                row.put("activityId", activity.getActivityId());
+                row.put("activityName", activity.getActivityName());
+                row.put("activityType", activity.getActivityType());
+                row.put("assignee", activity.getAssignee());
+                row.put("startTime", format(activity.getStartTime()));
+                row.put("endTime", format(activity.getEndTime()));
+                row.put("durationMillis", activity.getDurationInMillis());
+                row.put("deleteReason", activity.getDeleteReason());
+                writeRow(writer, row, csv);
+            }
+            if (page.size() < ACTIVITY_PAGE_SIZE) {
+                return;
+            }
+            offset += page.size();
+        }
+    }
+
+    // 一批流程實例的流程層級變數一起查 (流程實例的 execution ID 即流程實例 ID)
+    private Map<String, List<HistoricVariableInstance>> loadVariables(List<HistoricProcessInstance> instances) {
+        Set<String> ids = instances.stream().map(HistoricProcessInstance::getId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<String, List<HistoricVariableInstance>> result = new HashMap<>();
+        int offset = 0;
+        while (true) {
+            List<HistoricVariableInstance> page = historyService.createHistoricVariableInstanceQuery()
+                    .executionIds(ids)
+                    .orderByProcessInstanceId().asc()
+                    .orderByVariableName().asc()
+                    .listPage(offset, VARIABLE_PAGE_SIZE);
+            for (HistoricVariableInstance variable : page) {
+                result.computeIfAbsent(variable.getProcessInstanceId(), k -> new ArrayList<>()).add(variable);
+            }
+            if (page.size() < VARIABLE_PAGE_SIZE) {
+                return result;
+            }
+            offset += page.size();
+        }
+    }
+
+    private Map<String, Object> variableRow(HistoricProcessInstance instance, HistoricVariableInstance variable) {
+        Map<String, Object> row = baseRow("variable", instance);
+        row.put("variableName", variable.getVariableName());
+        row.put("variableValue", exportValue(variable.getValue()));
+        row.put("endTime", format(variable.getLastUpdatedTime()));
+        return row;
+    }
+
+    private Map<String, Object> baseRow(String recordType, HistoricProcessInstance instance) {
+        return baseRow(recordType, instance.getId(), instance.getProcessDefinitionId(),
+                instance.getBusinessKey(), instance.getStartUserId());
+    }
+
+    private Map<String, Object> baseRow(String recordType, ArchivedProcess archived) {
+        return baseRow(recordType, archived.getProcessInstanceId(), archived.getProcessDefinitionId(),
+                archived.getBusinessKey(), archived.getStartUserId());
+    }
+
+    private Map<String, Object> baseRow(String recordType, String processInstanceId, String processDefinitionId,
+                                        String businessKey, String startUserId) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String column : COLUMNS) {
+            row.put(column, null);
+        }
+        row.put("recordType", recordType);
+        row.put("processInstanceId", processInstanceId);
+        row.put("processDefinitionId", processDefinitionId);
+        row.put("businessKey", businessKey);
+        row.put("startUserId", startUserId);
+        return row;
+    }
+
+    // 稽核只需要可讀的值：基本型別原樣輸出，其餘 (序列化物件等) 轉成字串
+    private Object exportValue(Object value) {
+        if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof Date) {
+            return format((Date) value);
+        }
+        return String.valueOf(value);
+    }
+
+    private String format(Date date) {
+        return date != null ? date.toInstant().toString() : null;
+    }
+
+    private String format(Instant instant) {
+        return instant != null ? instant.toString() : null;
+    }
+
+    private void writeRow(Writer writer, Map<String, Object> row, boolean csv) throws IOException {
+        if (csv) {
+            writeCsvLine(writer, row.values().stream()
+                    .map(value -> value != null ? String.valueOf(value) : "")
+                    .collect(Collectors.toList()));
+        } else {
+            writer.write(objectMapper.writeValueAsString(row));
+            writer.write('\n');
+        }
+    }
+
+    private void writeCsvLine(Writer writer, List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csvEscape(values.get(i)));
+        }
+        writer.write("\r\n");
+    }
+
+    static String csvEscape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,95 @@
+package com.taskmanager.process.service;
+
+import org.activiti.bpmn.model.FlowElement;
+import org.activiti.bpmn.model.Process;
+import org.activiti.engine.impl.cmd.SetProcessDefinitionVersionCmd;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
+import org.activiti.engine.impl.persistence.entity.ExecutionEntityManager;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.activiti.engine.impl.util.ProcessDefinitionUtil;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 在同一個引擎交易內把一批流程實例移到同 key 的另一個版本；有節點對應時先把執行中的節點與任務改到新節點。
+ * 每個實例先檢查完才修改：可預期的單筆問題只記在回傳結果 (實例 ID -> 原因)，其他例外讓整批回滾，由呼叫端逐筆重試。
+ */
+class MigrateInstancesCmd implements Command<Map<String, String>> {
+
+    private final List<String> processInstanceIds;
+    private final String sourceProcessDefinitionId;
+    private final String targetProcessDefinitionId;
+    private final int targetVersion;
+    private final Map<String, String> nodeMapping;
+
+    MigrateInstancesCmd(List<String> processInstanceIds, String sourceProcessDefinitionId,
+                        String targetProcessDefinitionId, int targetVersion, Map<String, String> nodeMapping) {
+        this.processInstanceIds = processInstanceIds;
+        this.sourceProcessDefinitionId = sourceProcessDefinitionId;
+        this.targetProcessDefinitionId = targetProcessDefinitionId;
+        this.targetVersion = targetVersion;
+        this.nodeMapping = nodeMapping;
+    }
+
+    @Override
+    public Map<String, String> execute(CommandContext commandContext) {
+        Process target = ProcessDefinitionUtil.getProcess(targetProcessDefinitionId);
+        ExecutionEntityManager executionManager = commandContext.getExecutionEntityManager();
+
+        Map<String, String> failures = new LinkedHashMap<>();
+        for (String processInstanceId : processInstanceIds) {
+            ExecutionEntity instance = executionManager.findById(processInstanceId);
+            if (instance == null) {
+                failures.put(processInstanceId, "流程實例已結束");
+                continue;
+            }
+            if (!sourceProcessDefinitionId.equals(instance.getProcessDefinitionId())) {
+                failures.put(processInstanceId, "流程實例已不在來源版本");
+                continue;
+            }
+            if (instance.isSuspended()) {
+                failures.put(processInstanceId, "流程實例已暫停");
+                continue;
+            }
+
+            // 驗證後到執行前實例可能又往下走了，這裡以交易內的狀態再檢查一次
+            List<ExecutionEntity> executions = executionManager.findChildExecutionsByProcessInstanceId(processInstanceId);
+            String missing = null;
+            for (ExecutionEntity execution : executions) {
+                String activityId = execution.getActivityId();
+                if (activityId != null && target.getFlowElement(nodeMapping.getOrDefault(activityId, activityId), true) == null) {
+                    missing = activityId;
+                    break;
+                }
+            }
+            if (missing != null) {
+                failures.put(processInstanceId, "新版本沒有對應的節點：" + missing);
+                continue;
+            }
+
+            if (!nodeMapping.isEmpty()) {
+                for (ExecutionEntity execution : executions) {
+                    String mapped = execution.getActivityId() != null ? nodeMapping.get(execution.getActivityId()) : null;
+                    if (mapped != null) {
+                        FlowElement element = target.getFlowElement(mapped, true);
+                        execution.setCurrentFlowElement(element);
+                    }
+                }
+                for (TaskEntity task : commandContext.getTaskEntityManager().findTasksByProcessInstanceId(processInstanceId)) {
+                    String mapped = nodeMapping.get(task.getTaskDefinitionKey());
+                    if (mapped != null) {
+                        task.setTaskDefinitionKey(mapped);
+                    }
+                }
+            }
+
+            // 引擎內建的版本切換：更新執行、任務與歷史流程實例的定義 ID
+            new SetProcessDefinitionVersionCmd(processInstanceId, targetVersion).execute(commandContext);
+        }
+        return failures;
+    }
+}
@@ -0,0 +1,170 @@
+package com.taskmanager.process.service;
+
+import com.taskmanager.process.dto.ArchiveRunResult;
+import com.taskmanager.process.dto.ArchivedProcess;
+import com.taskmanager.process.repository.ProcessArchiveRepository;
+import org.activiti.engine.HistoryService;
+import org.activiti.engine.ManagementService;
+import org.activiti.engine.history.HistoricProcessInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 歷史保留期限：結束超過 N 天的流程實例確認已有快照 (process_archive) 後清除 ACT_HI_*，
+ * 讓歷史查詢只面對保留期內的資料。每批一個引擎交易，失敗的實例留到下次重試。
+ */
+@Service
+public class ProcessArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessArchiveService.class);
+
+    private final HistoryService historyService;
+    private final ManagementService managementService;
+    private final ProcessSnapshotService snapshotService;
+    private final ProcessArchiveStore archiveStore;
+    private final ProcessArchiveRepository archiveRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+    private final int retentionDays;
+    private final int chunkSize;
+    private final int maxPerRun;
+
+    public ProcessArchiveService(HistoryService historyService, ManagementService managementService,
+                                 ProcessSnapshotService snapshotService, ProcessArchiveStore archiveStore,
+                                 ProcessArchiveRepository archiveRepository, TransactionTemplate transactionTemplate,
+                                 @Value("${process.archive.enabled:true}") boolean enabled,
+                                 @Value("${process.archive.retention-days:180}") int retentionDays,
+                                 @Value("${process.archive.chunk-size:50}") int chunkSize,
+                                 @Value("${process.archive.max-per-run:5000}") int maxPerRun) {
+        this.historyService = historyService;
+        this.managementService = managementService;
+        this.snapshotService = snapshotService;
+        this.archiveStore = archiveStore;
+        this.archiveRepository = archiveRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.retentionDays = retentionDays;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxPerRun = Math.max(1, maxPerRun);
+    }
+
+    @Scheduled(cron = "${process.archive.cron:0 30 2 * * *}")
+    public void scheduledArchive() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            ArchiveRunResult result = archive(null);
+            logger.info("歷史封存完成：封存 {} 筆，失敗 {} 筆，耗時 {} ms",
+                    result.getArchived(), result.getFailed(), result.getElapsedMillis());
+        } catch (Exception e) {
+            logger.error("歷史封存失敗: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 封存結束超過 days 天 (未指定時用設定值) 的流程實例；單次最多處理 max-per-run 筆。
+     */
+    public synchronized ArchiveRunResult archive(Integer days) {
+        int keepDays = days != null ? days : retentionDays;
+        if (keepDays < 1) {
+            throw new IllegalArgumentException("保留天數至少為 1 天");
+        }
+        long begin = System.currentTimeMillis();
+        Instant cutoff = Instant.now().minus(keepDays, ChronoUnit.DAYS);
+        ArchiveRunResult result = new ArchiveRunResult(cutoff);
+
+        while (result.getArchived() + result.getFailed() < maxPerRun) {
+            int limit = Math.min(chunkSize, maxPerRun - result.getArchived() - result.getFailed());
+            // 成功的已從歷史表刪除；失敗的仍在，且 ID 必定排在尚未處理的實例之前，以失敗筆數當作位移即可
+            List<HistoricProcessInstance> chunk = historyService.createHistoricProcessInstanceQuery()
+                    .finished()
+                    .finishedBefore(Date.from(cutoff))
+                    .orderByProcessInstanceId().asc()
+                    .listPage(result.getFailed(), limit);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            archiveChunk(chunk, result);
+            if (chunk.size() < limit) {
+                break;
+            }
+        }
+        result.setElapsedMillis(System.currentTimeMillis() - begin);
+        return result;
+    }
+
+    public ArchivedProcess getArchived(String processInstanceId) {
+        ArchivedProcess archived = archiveStore.find(processInstanceId);
+        if (archived == null) {
+            throw new IllegalArgumentException("封存紀錄不存在：" + processInstanceId);
+        }
+        return archived;
+    }
+
+    private void archiveChunk(List<HistoricProcessInstance> chunk, ArchiveRunResult result) {
+        // 多數實例在結束時已有快照，只補建缺少的
+        List<String> ids = new ArrayList<>(chunk.size());
+        List<ArchivedProcess> missing = new ArrayList<>();
+        for (HistoricProcessInstance hPi : chunk) {
+            try {
+                if (!archiveStore.exists(hPi.getId())) {
+                    missing.add(snapshotService.capture(hPi));
+                }
+                ids.add(hPi.getId());
+            } catch (RuntimeException e) {
+                logger.warn("流程實例 {} 封存失敗：{}", hPi.getId(), e.getMessage());
+                result.setFailed(result.getFailed() + 1);
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        // 先寫快照 (JPA 資料庫) 再清除引擎歷史：清除失敗時歷史仍在，下次重跑即可，不會遺失資料
+        if (!missing.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        archiveRepository.saveAll(missing.stream().map(archiveStore::encode).toList()));
+            } catch (DataIntegrityViolationException e) {
+                // 檢查之後結束事件或首次讀取已先寫入其中幾筆：整批回滾，改為逐筆新增並略過已存在的
+                missing.forEach(archiveStore::save);
+            }
+        }
+
+        List<String> purged = new ArrayList<>(ids.size());
+        try {
+            result.setTransactions(result.getTransactions() + 1);
+            managementService.executeCommand(new PurgeHistoryCmd(ids));
+            purged.addAll(ids);
+        } catch (RuntimeException e) {
+            logger.warn("批次清除歷史失敗，改為逐筆重試：{}", e.getMessage());
+            for (String id : ids) {
+                try {
+                    result.setTransactions(result.getTransactions() + 1);
+                    managementService.executeCommand(new PurgeHistoryCmd(List.of(id)));
+                    purged.add(id);
+                } catch (RuntimeException itemError) {
+                    logger.warn("流程實例 {} 歷史清除失敗：{}", id, itemError.getMessage());
+                    result.setFailed(result.getFailed() + 1);
+                }
+            }
+        }
+        if (!purged.isEmpty()) {
+            archiveRepository.markPurged(purged);
+            result.setArchived(result.getArchived() + purged.size());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.taskmanager.process.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskmanager.process.dto.ArchivedProcess;
+import com.taskmanager.process.model.ProcessArchive;
+import com.taskmanager.process.repository.ProcessArchiveRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 流程快照的讀寫：ArchivedProcess 與 process_archive 列之間的 gzip JSON 轉換。
+ */
+@Component
+public class ProcessArchiveStore {
+
+    private final ProcessArchiveRepository archiveRepository;
+    private final ObjectMapper objectMapper;
+
+    public ProcessArchiveStore(ProcessArchiveRepository archiveRepository, ObjectMapper objectMapper) {
+        this.archiveRepository = archiveRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 依流程實例 ID 讀取封存內容；未封存時回傳 null。
+     */
+    public ArchivedProcess find(String processInstanceId) {
+        if (processInstanceId == null) {
+            return null;
+        }
+        return archiveRepository.findById(processInstanceId).map(this::decode).orElse(null);
+    }
+
+    public boolean exists(String processInstanceId) {
+        return archiveRepository.existsById(processInstanceId);
+    }
+
+    /**
+     * 寫入快照；同一實例可能同時被結束事件與首次讀取建立，兩份內容相同，先寫入的留下。
+     */
+    public void save(ArchivedProcess archived) {
+        insert(encode(archived));
+    }
+
+    /**
+     * 只新增不覆寫，已有快照時保留原列 (包含 purged 標記)。回傳是否由這次寫入。
+     */
+    public boolean insert(ProcessArchive archive) {
+        try {
+            archiveRepository.save(archive);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // ProcessArchive 為 Persistable，save 是 persist 而非 merge；主鍵衝突表示另一方已先寫入
+            return false;
+        }
+    }
+
+    public ProcessArchive encode(ArchivedProcess archived) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(archived);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (OutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(json);
+            }
+
+            ProcessArchive archive = new ProcessArchive();
+            archive.setId(archived.getProcessInstanceId());
+            archive.setProcessDefinitionId(archived.getProcessDefinitionId());
+            archive.setDefinitionKey(archived.getProcessDefinitionKey());
+            archive.setStartedBy(archived.getStartUserId());
+            archive.setStartedAt(archived.getStartTime());
+            archive.setEndedAt(archived.getEndTime());
+            archive.setArchivedAt(archived.getArchivedAt());
+            archive.setRawSize(json.length);
+            archive.setPayload(compressed.toByteArray());
+            return archive;
+        } catch (IOException e) {
+            throw new IllegalStateException("封存內容序列化失敗：" + archived.getProcessInstanceId(), e);
+        }
+    }
+
+    public ArchivedProcess decode(ProcessArchive archive) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(archive.getPayload()))) {
+            return objectMapper.readValue(in, ArchivedProcess.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("封存內容讀取失敗：" + archive.getId(), e);
+        }
+    }
+}
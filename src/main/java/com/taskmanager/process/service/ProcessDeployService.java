@@ -0,0 +1,256 @@
+package com.taskmanager.process.service;
+
+import com.taskmanager.process.cache.BpmnXmlCache;
+import com.taskmanager.process.cache.BpmnXmlResource;
+import com.taskmanager.process.cache.CachedProcessDefinition;
+import com.taskmanager.process.cache.ProcessDefinitionCache;
+import com.taskmanager.process.dto.DeployReport;
+import com.taskmanager.process.model.ProcessDef;
+import com.taskmanager.process.repository.ProcessDefRepository;
+import org.activiti.engine.RepositoryService;
+import org.activiti.engine.repository.Deployment;
+import org.activiti.engine.repository.DeploymentBuilder;
+import org.activiti.engine.repository.ProcessDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 流程部署：單一 BPMN 或 zip 套件 (多個 BPMN 同一個 deployment)。
+ * 每個檔案以 SHA-256 與同名資源的最新版本比對，內容相同就略過，不再每次部署都產生新版本。
+ */
+@Service
+public class ProcessDeployService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessDeployService.class);
+
+    // zip 套件上限，避免解壓縮炸彈
+    private static final int MAX_BUNDLE_ENTRIES = 100;
+    private static final int MAX_RESOURCE_BYTES = 5 * 1024 * 1024;
+
+    // 只檢查檔案開頭即可判斷 XML 宣告是否位於最前面
+    private static final int PROLOGUE_SCAN_BYTES = 256;
+
+    private final RepositoryService repositoryService;
+    private final ProcessDefRepository definitionRepository;
+    private final ProcessDefinitionCache definitionCache;
+    private final BpmnXmlCache bpmnXmlCache;
+
+    public ProcessDeployService(RepositoryService repositoryService, ProcessDefRepository definitionRepository,
+                                ProcessDefinitionCache definitionCache, BpmnXmlCache bpmnXmlCache) {
+        this.repositoryService = repositoryService;
+        this.definitionRepository = definitionRepository;
+        this.definitionCache = definitionCache;
+        this.bpmnXmlCache = bpmnXmlCache;
+    }
+
+    public ProcessDef deployProcess(String name, MultipartFile file) {
+        try {
+            if (file == null || file.isEmpty()) {
+                throw new IllegalArgumentException("BPMN 文件不能為空");
+            }
+            String filename = file.getOriginalFilename();
+            if (filename == null || !isBpmn(filename)) {
+                throw new IllegalArgumentException("檔案格式必須為 .bpmn 或 .xml");
+            }
+
+            // 只讀一次：同一份位元組用於檢查、雜湊與部署
+            byte[] bytes;
+            try (InputStream in = file.getInputStream()) {
+                bytes = readLimited(in, filename);
+            }
+            checkPrologue(filename, bytes);
+
+            DeployReport report = deploy(name, List.of(new Upload(filename, bytes)), name);
+            List<DeployReport.Entry> entries = report.getResources();
+            if (entries.size() != 1 || entries.get(0).getProcessDefinitionId() == null) {
+                throw new IllegalStateException("無法獲取流程定義，可能部署失敗");
+            }
+            DeployReport.Entry entry = entries.get(0);
+            return definitionRepository.findById(entry.getProcessDefinitionId())
+                    .orElseGet(() -> saveProcessDef(entry.getProcessDefinitionId(), name, entry.getVersion()));
+        } catch (Exception e) {
+            throw new IllegalStateException("流程部署失敗：" + e.getMessage(), e);
+        }
+    }
+
+    // ★★★ zip 套件：直接由上傳串流逐一讀取項目，不落地、不整包載入 ★★★
+    public DeployReport deployBundle(String name, MultipartFile file) {
+        try {
+            if (file == null || file.isEmpty()) {
+                throw new IllegalArgumentException("部署套件不能為空");
+            }
+            if (name == null || name.isBlank()) {
+                name = file.getOriginalFilename();
+            }
+
+            List<Upload> uploads = new ArrayList<>();
+            List<String> ignored = new ArrayList<>();
+            Set<String> names = new HashSet<>();
+            int entries = 0;
+            try (ZipInputStream zip = new ZipInputStream(file.getInputStream(), StandardCharsets.UTF_8)) {
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    if (entry.isDirectory()) {
+                        continue;
+                    }
+                    if (++entries > MAX_BUNDLE_ENTRIES) {
+                        throw new IllegalArgumentException("部署套件檔案數超過上限 " + MAX_BUNDLE_ENTRIES);
+                    }
+                    String resourceName = baseName(entry.getName());
+                    if (entry.getName().startsWith("__MACOSX/") || resourceName.startsWith(".") || !isBpmn(resourceName)) {
+                        ignored.add(entry.getName());
+                        continue;
+                    }
+                    if (!names.add(resourceName)) {
+                        throw new IllegalArgumentException("部署套件內有重複的檔名：" + resourceName);
+                    }
+                    byte[] bytes = readLimited(zip, resourceName);
+                    checkPrologue(resourceName, bytes);
+                    uploads.add(new Upload(resourceName, bytes));
+                }
+            }
+            if (uploads.isEmpty()) {
+                throw new IllegalArgumentException("部署套件內沒有 BPMN 檔案");
+            }
+
+            DeployReport report = deploy(name, uploads, null);
+            report.setIgnored(ignored);
+            return report;
+        } catch (Exception e) {
+            throw new IllegalStateException("流程部署失敗：" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 比對內容雜湊後只部署有變動的檔案；全部未變動時不建立 deployment。
+     * displayName 為 null 時，ProcessDef 名稱使用 BPMN 內的流程名稱。
+     */
+    private DeployReport deploy(String deploymentName, List<Upload> uploads, String displayName) {
+        DeployReport report = new DeployReport();
+        List<Upload> changed = new ArrayList<>();
+
+        for (Upload upload : uploads) {
+            ProcessDefinition previous = latestByResourceName(upload.resourceName);
+            if (previous != null && bpmnXmlCache.get(previous.getId()).getDigest().equals(upload.digest)) {
+                DeployReport.Entry entry = new DeployReport.Entry(upload.resourceName, DeployReport.UNCHANGED, upload.digest);
+                entry.setProcessDefinitionId(previous.getId());
+                entry.setProcessDefinitionKey(previous.getKey());
+                entry.setVersion(previous.getVersion());
+                report.getResources().add(entry);
+            } else {
+                changed.add(upload);
+            }
+        }
+        if (changed.isEmpty()) {
+            logger.info("部署 {}：{} 個檔案內容皆未變動，略過", deploymentName, uploads.size());
+            return report;
+        }
+
+        DeploymentBuilder builder = repositoryService.createDeployment().name(deploymentName);
+        for (Upload upload : changed) {
+            builder.addBytes(upload.resourceName, upload.bytes);
+        }
+        Deployment deployment = builder.deploy();
+        report.setDeploymentId(deployment.getId());
+
+        // 部署即載入快取 (同 key 的最新版本也一併更新)
+        List<CachedProcessDefinition> deployed = definitionCache.warmDeployment(deployment.getId());
+        for (Upload upload : changed) {
+            for (CachedProcessDefinition definition : deployed) {
+                if (!upload.resourceName.equals(definition.getResourceName())) {
+                    continue;
+                }
+                DeployReport.Entry entry = new DeployReport.Entry(upload.resourceName, DeployReport.DEPLOYED, upload.digest);
+                entry.setProcessDefinitionId(definition.getId());
+                entry.setProcessDefinitionKey(definition.getKey());
+                entry.setVersion(definition.getVersion());
+                report.getResources().add(entry);
+
+                String name = displayName != null ? displayName
+                        : definition.getName() != null ? definition.getName() : definition.getKey();
+                saveProcessDef(definition.getId(), name, definition.getVersion());
+            }
+        }
+        logger.info("部署 {} 完成：{} 個檔案有變動，{} 個略過", deploymentName, changed.size(), uploads.size() - changed.size());
+        return report;
+    }
+
+    private ProcessDefinition latestByResourceName(String resourceName) {
+        List<ProcessDefinition> latest = repositoryService.createProcessDefinitionQuery()
+                .processDefinitionResourceName(resourceName)
+                .orderByProcessDefinitionVersion().desc()
+                .listPage(0, 1);
+        return latest.isEmpty() ? null : latest.get(0);
+    }
+
+    private ProcessDef saveProcessDef(String processDefinitionId, String name, Integer version) {
+        ProcessDef processDef = new ProcessDef();
+        processDef.setId(processDefinitionId);
+        processDef.setName(name);
+        processDef.setVersion(version + ".0");
+        processDef.setStatus("active");
+        processDef.setDeploymentTime(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
+        processDef.setProcessDefinitionId(processDefinitionId);
+        return definitionRepository.save(processDef);
+    }
+
+    private static boolean isBpmn(String filename) {
+        return filename.endsWith(".bpmn") || filename.endsWith(".xml");
+    }
+
+    private static String baseName(String entryName) {
+        int slash = Math.max(entryName.lastIndexOf('/'), entryName.lastIndexOf('\\'));
+        return slash >= 0 ? entryName.substring(slash + 1) : entryName;
+    }
+
+    // XML 宣告前不可有任何內容 (含 BOM、空白)，否則引擎解析失敗
+    static void checkPrologue(String resourceName, byte[] bytes) {
+        String head = new String(bytes, 0, Math.min(bytes.length, PROLOGUE_SCAN_BYTES), StandardCharsets.UTF_8);
+        int declaration = head.indexOf("<?xml");
+        if (declaration > 0) {
+            throw new IllegalArgumentException("BPMN 文件格式錯誤：XML 處理指令必須位於文件開頭 (" + resourceName + ")");
+        }
+    }
+
+    private static byte[] readLimited(InputStream in, String resourceName) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            total += read;
+            if (total > MAX_RESOURCE_BYTES) {
+                throw new IllegalArgumentException("檔案過大 (上限 5 MB)：" + resourceName);
+            }
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static final class Upload {
+        private final String resourceName;
+        private final byte[] bytes;
+        private final String digest;
+
+        private Upload(String resourceName, byte[] bytes) {
+            this.resourceName = resourceName;
+            this.bytes = bytes;
+            this.digest = BpmnXmlResource.sha256(bytes);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.taskmanager.process.service;
+
+import com.taskmanager.process.diagram.DiagramHighlight;
+import com.taskmanager.process.diagram.DiagramImage;
+import com.taskmanager.process.diagram.ProcessDiagramCache;
+import com.taskmanager.process.diagram.RenderedDiagram;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 伺服器端產生的流程圖 (SVG / PNG)。底圖依流程定義版本快取，實例圖只另外計算標示後疊上。
+ */
+@Service
+public class ProcessDiagramService {
+
+    private static final String SVG = "image/svg+xml";
+    private static final String PNG = "image/png";
+
+    private final ProcessService processService;
+    private final ProcessDiagramCache diagramCache;
+
+    public ProcessDiagramService(ProcessService processService, ProcessDiagramCache diagramCache) {
+        this.processService = processService;
+        this.diagramCache = diagramCache;
+    }
+
+    public DiagramImage renderDefinition(String processDefinitionId, String format) {
+        RenderedDiagram diagram = diagramCache.get(processDefinitionId);
+        return isPng(format)
+                ? new DiagramImage(diagram.getPngBytes(), PNG, diagram.getPngEtag())
+                : new DiagramImage(diagram.getSvgBytes(), SVG, diagram.getSvgEtag());
+    }
+
+    /**
+     * 實例圖的 ETag 跟著流程實例列表的版本走 (與 highlights 相同)，再依格式區分。
+     */
+    public String getInstanceEtag(String format) {
+        String etag = processService.getInstanceHighlightsEtag();
+        return etag.substring(0, etag.length() - 1) + (isPng(format) ? "-png\"" : "-svg\"");
+    }
+
+    @SuppressWarnings("unchecked")
+    public DiagramImage renderInstance(String instanceId, String format) {
+        boolean png = isPng(format);
+        Map<String, Object> highlights = processService.getInstanceHighlights(instanceId);
+        RenderedDiagram diagram = diagramCache.get((String) highlights.get("processDefinitionId"));
+
+        Collection<String> active = (Collection<String>) highlights.get("activeNodeIds");
+        Collection<String> completed = (Collection<String>) highlights.get("completedNodeIds");
+        DiagramHighlight highlight = new DiagramHighlight(active, completed,
+                diagram.getLayout().completedFlows(completed, active));
+
+        String etag = getInstanceEtag(format);
+        return png
+                ? new DiagramImage(diagram.renderPng(highlight), PNG, etag)
+                : new DiagramImage(diagram.renderSvg(highlight), SVG, etag);
+    }
+
+    private static boolean isPng(String format) {
+        if (format == null || format.equalsIgnoreCase("svg")) {
+            return false;
+        }
+        if (format.equalsIgnoreCase("png")) {
+            return true;
+        }
+        throw new IllegalArgumentException("不支援的圖檔格式：" + format + " (只支援 svg / png)");
+    }
+}
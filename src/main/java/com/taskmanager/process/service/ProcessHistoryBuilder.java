@@ -0,0 +1,177 @@
+package com.taskmanager.process.service;
+
+import com.taskmanager.process.dto.HistoryLog;
+import org.activiti.engine.HistoryService;
+import org.activiti.engine.TaskService;
+import org.activiti.engine.history.HistoricActivityInstance;
+import org.activiti.engine.history.HistoricDetail;
+import org.activiti.engine.history.HistoricVariableUpdate;
+import org.activiti.engine.task.Task;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 由引擎歷史表組出流程歷程 (節點、處理人、耗時與各節點異動的變數)。
+ * 進行中的流程每次即時查詢；已結束的流程只在建立快照時查一次。
+ */
+@Component
+public class ProcessHistoryBuilder {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final HistoryService historyService;
+    private final TaskService taskService;
+
+    public ProcessHistoryBuilder(HistoryService historyService, TaskService taskService) {
+        this.historyService = historyService;
+        this.taskService = taskService;
+    }
+
+    public List<HistoryLog> build(String processInstanceId) {
+        List<HistoricActivityInstance> activities = historyService.createHistoricActivityInstanceQuery()
+                .processInstanceId(processInstanceId)
+                .orderByHistoricActivityInstanceStartTime().asc()
+                .list();
+
+        // ★★★ 只取變數的異動紀錄 (ACT_HI_DETAIL)，再分配到發生異動的節點 ★★★
+        List<HistoricDetail> updates = historyService.createHistoricDetailQuery()
+                .processInstanceId(processInstanceId)
+                .variableUpdates()
+                .orderByTime().asc()
+                .list();
+
+        Set<String> activeTaskIds = taskService.createTaskQuery().processInstanceId(processInstanceId).list().stream()
+                .map(Task::getId)
+                .collect(Collectors.toSet());
+
+        List<HistoryLog> historyLogs = new ArrayList<>();
+        List<HistoricActivityInstance> shown = new ArrayList<>();
+        Map<String, HistoryLog> byActivityInstance = new HashMap<>();
+        Map<String, HistoryLog> byTask = new HashMap<>();
+
+        for (HistoricActivityInstance activity : activities) {
+            if (!"startEvent".equals(activity.getActivityType()) &&
+                    !"endEvent".equals(activity.getActivityType()) &&
+                    !"userTask".equals(activity.getActivityType())) {
+                continue;
+            }
+
+            HistoryLog log = new HistoryLog();
+            String name = activity.getActivityName();
+            if (name == null || name.isEmpty()) {
+                if ("startEvent".equals(activity.getActivityType())) name = "流程發起";
+                else if ("endEvent".equals(activity.getActivityType())) name = "流程結束";
+                else name = "系統節點";
+            }
+            log.setActivityName(name);
+            log.setActivityType(activity.getActivityType());
+            log.setAssignee(activity.getAssignee());
+
+            if (activity.getEndTime() != null) {
+                log.setEndTime(LocalDateTime.ofInstant(activity.getEndTime().toInstant(), java.time.ZoneId.systemDefault()).format(FORMATTER));
+
+                if (activity.getDeleteReason() != null) {
+                    log.setStatus("Skipped");
+                } else {
+                    log.setStatus("Completed");
+                }
+                log.setDuration(formatDuration(activity.getDurationInMillis()));
+            } else {
+                if ("userTask".equals(activity.getActivityType())) {
+                    if (activeTaskIds.contains(activity.getTaskId())) {
+                        log.setStatus("Running");
+                    } else {
+                        log.setStatus("Skipped");
+                        log.setEndTime(LocalDateTime.now().format(FORMATTER));
+                    }
+                } else {
+                    log.setStatus("Running");
+                }
+                log.setDuration("-");
+            }
+
+            historyLogs.add(log);
+            shown.add(activity);
+            byActivityInstance.put(activity.getId(), log);
+            if (activity.getTaskId() != null) {
+                byTask.put(activity.getTaskId(), log);
+            }
+        }
+
+        // 只有同一個變數實例在同一個節點重複寫入相同的值才略過；
+        // 不同節點寫入相同的值 (例如兩位主管都簽 approve) 是各自的簽核紀錄，必須保留
+        Map<String, Object> lastValues = new HashMap<>();
+        Map<String, HistoryLog> lastTargets = new HashMap<>();
+        for (HistoricDetail detail : updates) {
+            HistoricVariableUpdate update = (HistoricVariableUpdate) detail;
+            HistoryLog target = findChangeTarget(detail, shown, historyLogs, byActivityInstance, byTask);
+            if (target == null) {
+                continue;
+            }
+            Object value = update.getValue();
+            String key = variableKey(update);
+            if (lastTargets.get(key) == target && Objects.equals(lastValues.get(key), value)) {
+                continue;
+            }
+            lastValues.put(key, value);
+            lastTargets.put(key, target);
+
+            if (target.getChanges() == null) {
+                target.setChanges(new LinkedHashMap<>());
+            }
+            target.getChanges().put(update.getVariableName(), value);
+        }
+        return historyLogs;
+    }
+
+    // 變數實例以 (execution, 任務區域變數的 taskId, 名稱) 識別，流程變數與同名的任務區域變數分開計算
+    private static String variableKey(HistoricVariableUpdate update) {
+        return update.getExecutionId() + ":" + update.getTaskId() + ":" + update.getVariableName();
+    }
+
+    // 依序以 activityInstanceId、taskId 對應節點；都對不到 (例如在服務節點設定) 時歸到當時最後開始的節點
+    private HistoryLog findChangeTarget(HistoricDetail detail, List<HistoricActivityInstance> shown, List<HistoryLog> logs,
+                                        Map<String, HistoryLog> byActivityInstance, Map<String, HistoryLog> byTask) {
+        if (detail.getActivityInstanceId() != null && byActivityInstance.containsKey(detail.getActivityInstanceId())) {
+            return byActivityInstance.get(detail.getActivityInstanceId());
+        }
+        if (detail.getTaskId() != null && byTask.containsKey(detail.getTaskId())) {
+            return byTask.get(detail.getTaskId());
+        }
+        HistoryLog target = logs.isEmpty() ? null : logs.get(0);
+        for (int i = 0; i < shown.size(); i++) {
+            Date startTime = shown.get(i).getStartTime();
+            if (startTime != null && detail.getTime() != null && startTime.after(detail.getTime())) {
+                break;
+            }
+            target = logs.get(i);
+        }
+        return target;
+    }
+
+    private String formatDuration(Long durationInMillis) {
+        if (durationInMillis == null) return "";
+        Duration duration = Duration.ofMillis(durationInMillis);
+        long days = duration.toDays();
+        long hours = duration.toHours() % 24;
+        long minutes = duration.toMinutes() % 60;
+
+        StringBuilder sb = new StringBuilder();
+        if (days > 0) sb.append(days).append("天 ");
+        if (hours > 0) sb.append(hours).append("時 ");
+        sb.append(minutes).append("分");
+        return sb.toString().isEmpty() ? "1分內" : sb.toString();
+    }
+}
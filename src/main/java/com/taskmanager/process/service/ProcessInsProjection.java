@@ -0,0 +1,260 @@
+package com.taskmanager.process.service;
+
+import com.taskmanager.process.cache.CachedProcessDefinition;
+import com.taskmanager.process.cache.ProcessDefinitionCache;
+import com.taskmanager.process.model.ProcessIns;
+import com.taskmanager.process.repository.ProcessArchiveRepository;
+import com.taskmanager.process.repository.ProcessInsRepository;
+import com.taskmanager.task.model.InboxTask;
+import com.taskmanager.task.repository.InboxTaskRepository;
+import com.taskmanager.workflow.listener.ProcessChange;
+import com.taskmanager.workflow.listener.ProcessChangeHandler;
+import com.taskmanager.workflow.listener.TaskChange;
+import com.taskmanager.workflow.listener.TaskChangeHandler;
+import org.activiti.engine.HistoryService;
+import org.activiti.engine.history.HistoricProcessInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 維護 process_ins 投影：流程啟動 / 結束更新狀態與時間，任務異動時由 inbox_task 重算目前節點與處理人。
+ * 需排在 {@link com.taskmanager.task.service.InboxProjection} 之後執行。
+ */
+@Service
+@Order(10)
+public class ProcessInsProjection implements ProcessChangeHandler, TaskChangeHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessInsProjection.class);
+
+    public static final String STATUS_RUNNING = "Running";
+    public static final String STATUS_COMPLETED = "Completed";
+
+    private static final int REBUILD_CHUNK_SIZE = 500;
+
+    private final ProcessInsRepository instanceRepository;
+    private final InboxTaskRepository inboxTaskRepository;
+    private final HistoryService historyService;
+    private final ProcessDefinitionCache definitionCache;
+    private final TransactionTemplate transactionTemplate;
+    private final ProcessArchiveRepository archiveRepository;
+
+    public ProcessInsProjection(ProcessInsRepository instanceRepository,
+                                InboxTaskRepository inboxTaskRepository,
+                                HistoryService historyService,
+                                ProcessDefinitionCache definitionCache,
+                                TransactionTemplate transactionTemplate,
+                                ProcessArchiveRepository archiveRepository) {
+        this.instanceRepository = instanceRepository;
+        this.inboxTaskRepository = inboxTaskRepository;
+        this.historyService = historyService;
+        this.definitionCache = definitionCache;
+        this.transactionTemplate = transactionTemplate;
+        this.archiveRepository = archiveRepository;
+    }
+
+    @Override
+    public synchronized void onProcessChanges(List<ProcessChange> changes) {
+        Set<String> instanceIds = changes.stream()
+                .map(ProcessChange::getProcessInstanceId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        // 一個交易 (例如批次啟動) 可能帶來上百筆異動：既有列與待辦各查一次，新列以批次寫入
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<String, ProcessIns> rows = new LinkedHashMap<>();
+            instanceRepository.findAllById(instanceIds).forEach(ins -> rows.put(ins.getId(), ins));
+            Map<String, List<InboxTask>> tasksByInstance = tasksByInstance(instanceIds);
+
+            for (ProcessChange change : changes) {
+                ProcessIns ins = rows.get(change.getProcessInstanceId());
+                if (change.getType() == ProcessChange.Type.STARTED) {
+                    if (ins == null) {
+                        ins = new ProcessIns();
+                        ins.setId(change.getProcessInstanceId());
+                        rows.put(ins.getId(), ins);
+                    }
+                    applyDefinition(ins, change.getProcessDefinitionId());
+                    ins.setStartedBy(change.getStartUserId());
+                    ins.setStartedAt(change.getStartTime() != null ? change.getStartTime().toInstant() : change.getTime().toInstant());
+                    ins.setStatus(STATUS_RUNNING);
+                    applyCurrentTasks(ins, tasksByInstance.getOrDefault(ins.getId(), List.of()));
+                } else {
+                    if (ins == null) {
+                        // 投影建立前就啟動的實例，等待重建補齊
+                        continue;
+                    }
+                    markEnded(ins, change.getTime().toInstant());
+                }
+            }
+            instanceRepository.saveAll(rows.values());
+        });
+    }
+
+    @Override
+    public synchronized void onTaskChanges(List<TaskChange> changes) {
+        Set<String> instanceIds = changes.stream()
+                .map(TaskChange::getProcessInstanceId)
+                .filter(id -> id != null)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (instanceIds.isEmpty()) {
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<String, List<InboxTask>> tasksByInstance = tasksByInstance(instanceIds);
+            for (ProcessIns ins : instanceRepository.findAllById(instanceIds)) {
+                // 流程結束時最後一個任務完成的異動可能晚到，不可覆蓋結束狀態
+                if (!ins.isEnded()) {
+                    applyCurrentTasks(ins, tasksByInstance.getOrDefault(ins.getId(), List.of()));
+                }
+            }
+        });
+    }
+
+    /**
+     * 流程實例移轉到其他版本後更新定義相關欄位 (引擎不會為此發出事件)。
+     */
+    public synchronized void onInstancesMigrated(Collection<String> processInstanceIds, String processDefinitionId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<ProcessIns> rows = instanceRepository.findAllById(processInstanceIds);
+            rows.forEach(ins -> applyDefinition(ins, processDefinitionId));
+            instanceRepository.saveAll(rows);
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(10)
+    public void rebuildOnStartup() {
+        try {
+            int count = rebuild();
+            logger.info("流程實例投影重建完成，共 {} 筆", count);
+        } catch (Exception e) {
+            logger.error("流程實例投影重建失敗: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 由 ACT_HI_PROCINST、process_archive 與 inbox_task 重建，回傳重建筆數。
+     */
+    public synchronized int rebuild() {
+        List<ProcessIns> rows = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (int first = 0; ; first += REBUILD_CHUNK_SIZE) {
+            List<HistoricProcessInstance> chunk = historyService.createHistoricProcessInstanceQuery()
+                    .orderByProcessInstanceId().asc()
+                    .listPage(first, REBUILD_CHUNK_SIZE);
+            for (HistoricProcessInstance hPi : chunk) {
+                rows.add(fromHistory(hPi));
+                seen.add(hPi.getId());
+            }
+            if (chunk.size() < REBUILD_CHUNK_SIZE) {
+                break;
+            }
+        }
+        // 已封存的實例歷史已清除，仍要留在清單上
+        for (ProcessArchiveRepository.Summary archived : archiveRepository.findAllProjectedBy()) {
+            if (seen.add(archived.getId())) {
+                rows.add(fromArchive(archived));
+            }
+        }
+
+        Map<String, List<InboxTask>> tasksByInstance = new HashMap<>();
+        for (InboxTask task : inboxTaskRepository.findAll()) {
+            tasksByInstance.computeIfAbsent(task.getProcessInstanceId(), k -> new ArrayList<>()).add(task);
+        }
+        for (ProcessIns ins : rows) {
+            if (!ins.isEnded()) {
+                applyCurrentTasks(ins, tasksByInstance.getOrDefault(ins.getId(), List.of()));
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            instanceRepository.deleteAll();
+            instanceRepository.flush();
+            instanceRepository.saveAll(rows);
+        });
+        return rows.size();
+    }
+
+    private Map<String, List<InboxTask>> tasksByInstance(Set<String> instanceIds) {
+        Map<String, List<InboxTask>> result = new HashMap<>();
+        for (InboxTask task : inboxTaskRepository.findByProcessInstanceIdIn(instanceIds)) {
+            result.computeIfAbsent(task.getProcessInstanceId(), k -> new ArrayList<>()).add(task);
+        }
+        return result;
+    }
+
+    private ProcessIns fromHistory(HistoricProcessInstance hPi) {
+        ProcessIns ins = new ProcessIns();
+        ins.setId(hPi.getId());
+        applyDefinition(ins, hPi.getProcessDefinitionId());
+        if (hPi.getProcessDefinitionName() != null) {
+            ins.setName(hPi.getProcessDefinitionName());
+        }
+        ins.setStartedBy(hPi.getStartUserId());
+        ins.setStartedAt(hPi.getStartTime() != null ? hPi.getStartTime().toInstant() : null);
+        if (hPi.getEndTime() != null) {
+            markEnded(ins, hPi.getEndTime().toInstant());
+        } else {
+            ins.setStatus(STATUS_RUNNING);
+        }
+        return ins;
+    }
+
+    private ProcessIns fromArchive(ProcessArchiveRepository.Summary archived) {
+        ProcessIns ins = new ProcessIns();
+        ins.setId(archived.getId());
+        applyDefinition(ins, archived.getProcessDefinitionId());
+        ins.setStartedBy(archived.getStartedBy());
+        ins.setStartedAt(archived.getStartedAt());
+        markEnded(ins, archived.getEndedAt());
+        return ins;
+    }
+
+    private void applyDefinition(ProcessIns ins, String processDefinitionId) {
+        ins.setProcessDefinitionId(processDefinitionId);
+        CachedProcessDefinition definition = definitionCache.get(processDefinitionId);
+        if (definition != null) {
+            ins.setName(definition.getName());
+            ins.setDefinitionKey(definition.getKey());
+        }
+    }
+
+    private void markEnded(ProcessIns ins, Instant endedAt) {
+        ins.setStatus(STATUS_COMPLETED);
+        ins.setEndedAt(endedAt);
+        ins.setCurrentTask("Completed");
+        ins.setAssignee("-");
+    }
+
+    // 與原本清單相同的顯示規則：任務依 ID 排序，未指派顯示「待認領」
+    private void applyCurrentTasks(ProcessIns ins, List<InboxTask> tasks) {
+        if (tasks.isEmpty()) {
+            ins.setCurrentTask("系統處理中");
+            ins.setAssignee(null);
+            return;
+        }
+        List<InboxTask> sorted = tasks.stream().sorted(Comparator.comparing(InboxTask::getId)).collect(Collectors.toList());
+        ins.setCurrentTask(sorted.stream().map(InboxTask::getName).collect(Collectors.joining(", ")));
+        ins.setAssignee(sorted.stream()
+                .map(t -> t.getAssignee() == null ? "待認領" : t.getAssignee())
+                .collect(Collectors.joining(", ")));
+    }
+}
@@ -0,0 +1,320 @@
+package com.taskmanager.process.service;
+
+import com.taskmanager.process.cache.CachedProcessDefinition;
+import com.taskmanager.process.cache.ProcessDefinitionCache;
+import com.taskmanager.process.dto.MigrationRequest;
+import com.taskmanager.process.dto.MigrationStatus;
+import com.taskmanager.task.model.InboxTask;
+import com.taskmanager.task.service.InboxProjection;
+import com.taskmanager.workflow.listener.ListVersionTracker;
+import org.activiti.bpmn.model.FlowElement;
+import org.activiti.bpmn.model.UserTask;
+import org.activiti.engine.ManagementService;
+import org.activiti.engine.RuntimeService;
+import org.activiti.engine.runtime.Execution;
+import org.activiti.engine.runtime.ProcessInstance;
+import org.activiti.engine.runtime.ProcessInstanceQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 把執行中的流程實例批次移到同 key 的另一個版本，讓舊版本不必一直留在定義快取裡。
+ * 送出時先驗證節點對應與每個停留節點在新版本是否存在，之後在背景每批一個引擎交易執行，可查詢進度。
+ */
+@Service
+public class ProcessMigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessMigrationService.class);
+
+    private static final int PAGE_SIZE = 500;
+    private static final int MAX_ERRORS = 100;
+    private static final int MAX_JOBS = 50;
+
+    private final RuntimeService runtimeService;
+    private final ManagementService managementService;
+    private final ProcessDefinitionCache definitionCache;
+    private final InboxProjection inboxProjection;
+    private final ProcessInsProjection instanceProjection;
+    private final ListVersionTracker versionTracker;
+    private final TaskExecutor executor;
+
+    private final int chunkSize;
+    private final int maxInstances;
+
+    // 作業狀態只保留在記憶體，保留最近 MAX_JOBS 筆
+    private final Map<String, MigrationStatus> jobs = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, MigrationStatus> eldest) {
+            return size() > MAX_JOBS;
+        }
+    });
+
+    public ProcessMigrationService(RuntimeService runtimeService, ManagementService managementService,
+                                   ProcessDefinitionCache definitionCache, InboxProjection inboxProjection,
+                                   ProcessInsProjection instanceProjection, ListVersionTracker versionTracker,
+                                   @Qualifier("processMigrationExecutor") TaskExecutor executor,
+                                   @Value("${process.migration.chunk-size:50}") int chunkSize,
+                                   @Value("${process.migration.max-instances:10000}") int maxInstances) {
+        this.runtimeService = runtimeService;
+        this.managementService = managementService;
+        this.definitionCache = definitionCache;
+        this.inboxProjection = inboxProjection;
+        this.instanceProjection = instanceProjection;
+        this.versionTracker = versionTracker;
+        this.executor = executor;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxInstances = Math.max(1, maxInstances);
+    }
+
+    /**
+     * 驗證並排入背景執行；dryRun 時只回傳驗證結果。驗證不通過時拋出 IllegalArgumentException 並列出所有問題。
+     */
+    public MigrationStatus submit(MigrationRequest request) {
+        if (request == null || request.getSourceProcessDefinitionId() == null || request.getSourceProcessDefinitionId().isBlank()) {
+            throw new IllegalArgumentException("來源流程定義 ID 不能為空");
+        }
+        CachedProcessDefinition source = definitionCache.get(request.getSourceProcessDefinitionId());
+        if (source == null) {
+            throw new IllegalArgumentException("流程定義不存在：" + request.getSourceProcessDefinitionId());
+        }
+        CachedProcessDefinition target = request.getTargetProcessDefinitionId() != null
+                ? definitionCache.get(request.getTargetProcessDefinitionId())
+                : definitionCache.getLatestByKey(source.getKey());
+        if (target == null) {
+            throw new IllegalArgumentException("流程定義不存在：" + request.getTargetProcessDefinitionId());
+        }
+        if (!source.getKey().equals(target.getKey())) {
+            throw new IllegalArgumentException("只能移轉到同一流程 (" + source.getKey() + ") 的其他版本");
+        }
+        if (source.getId().equals(target.getId())) {
+            throw new IllegalArgumentException("來源與目標是同一個版本 (v" + source.getVersion() + ")");
+        }
+        if (target.isSuspended()) {
+            throw new IllegalArgumentException("目標版本已暫停：" + target.getId());
+        }
+
+        Map<String, String> nodeMapping = request.getNodeMapping() != null
+                ? new LinkedHashMap<>(request.getNodeMapping()) : new LinkedHashMap<>();
+        List<String> problems = validateMapping(source, target, nodeMapping);
+
+        List<String> instanceIds = selectInstances(request);
+        Map<String, Long> activeNodes = countActiveNodes(source.getId(), new HashSet<>(instanceIds));
+        activeNodes.forEach((activityId, count) -> {
+            String mapped = nodeMapping.getOrDefault(activityId, activityId);
+            if (target.getFlowElement(mapped) == null) {
+                problems.add("新版本沒有節點 " + activityId + " (" + count + " 筆實例停在此節點)，請提供節點對應");
+            }
+        });
+        if (!problems.isEmpty()) {
+            throw new IllegalArgumentException("無法移轉：" + String.join("；", problems));
+        }
+
+        MigrationStatus status = new MigrationStatus();
+        status.setJobId(UUID.randomUUID().toString());
+        status.setSourceProcessDefinitionId(source.getId());
+        status.setTargetProcessDefinitionId(target.getId());
+        status.setNodeMapping(nodeMapping);
+        status.setActiveNodes(activeNodes);
+        status.setTotal(instanceIds.size());
+        status.setCreatedAt(Instant.now());
+        if (request.isDryRun()) {
+            status.setStatus(MigrationStatus.STATUS_VALIDATED);
+            return status;
+        }
+
+        status.setStatus(MigrationStatus.STATUS_QUEUED);
+        jobs.put(status.getJobId(), status);
+        try {
+            executor.execute(() -> run(instanceIds, source.getId(), target, nodeMapping, status));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(status.getJobId());
+            throw e;
+        }
+        return status;
+    }
+
+    public MigrationStatus getStatus(String jobId) {
+        MigrationStatus status = jobs.get(jobId);
+        if (status == null) {
+            throw new IllegalArgumentException("移轉作業不存在：" + jobId);
+        }
+        return status;
+    }
+
+    // 最新的在前
+    public List<MigrationStatus> listJobs() {
+        List<MigrationStatus> result;
+        synchronized (jobs) {
+            result = new ArrayList<>(jobs.values());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    void run(List<String> instanceIds, String sourceId, CachedProcessDefinition target,
+             Map<String, String> nodeMapping, MigrationStatus status) {
+        status.setStatus(MigrationStatus.STATUS_RUNNING);
+        status.setStartedAt(Instant.now());
+        try {
+            for (int from = 0; from < instanceIds.size(); from += chunkSize) {
+                List<String> chunk = instanceIds.subList(from, Math.min(from + chunkSize, instanceIds.size()));
+                migrateChunk(chunk, sourceId, target, nodeMapping, status);
+            }
+            status.setRemaining(runtimeService.createProcessInstanceQuery().processDefinitionId(sourceId).count());
+            status.setStatus(MigrationStatus.STATUS_SUCCEEDED);
+            logger.info("流程實例移轉完成 {} -> {}：成功 {} 筆，失敗 {} 筆",
+                    sourceId, target.getId(), status.getMigrated(), status.getFailed());
+        } catch (Exception e) {
+            status.setError(e.getMessage());
+            status.setStatus(MigrationStatus.STATUS_FAILED);
+            logger.error("流程實例移轉失敗 {} -> {}: {}", sourceId, target.getId(), e.getMessage(), e);
+        }
+        status.setFinishedAt(Instant.now());
+    }
+
+    private void migrateChunk(List<String> chunk, String sourceId, CachedProcessDefinition target,
+                              Map<String, String> nodeMapping, MigrationStatus status) {
+        List<String> migrated = new ArrayList<>(chunk.size());
+        try {
+            status.setTransactions(status.getTransactions() + 1);
+            Map<String, String> failures = managementService.executeCommand(
+                    new MigrateInstancesCmd(chunk, sourceId, target.getId(), target.getVersion(), nodeMapping));
+            for (String id : chunk) {
+                if (failures.containsKey(id)) {
+                    recordFailure(status, id, failures.get(id));
+                } else {
+                    migrated.add(id);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("批次移轉失敗，改為逐筆重試：{}", e.getMessage());
+            for (String id : chunk) {
+                try {
+                    status.setTransactions(status.getTransactions() + 1);
+                    Map<String, String> failures = managementService.executeCommand(
+                            new MigrateInstancesCmd(List.of(id), sourceId, target.getId(), target.getVersion(), nodeMapping));
+                    if (failures.isEmpty()) {
+                        migrated.add(id);
+                    } else {
+                        recordFailure(status, id, failures.get(id));
+                    }
+                } catch (RuntimeException itemError) {
+                    recordFailure(status, id, itemError.getMessage());
+                }
+            }
+        }
+        if (migrated.isEmpty()) {
+            return;
+        }
+        status.setMigrated(status.getMigrated() + migrated.size());
+
+        // 讀取模型可重建，更新失敗不影響已完成的移轉
+        try {
+            List<InboxTask> tasks = inboxProjection.onInstancesMigrated(migrated, target.getId(), nodeMapping);
+            instanceProjection.onInstancesMigrated(migrated, target.getId());
+            for (InboxTask task : tasks) {
+                if (task.getAssignee() != null) {
+                    versionTracker.bumpUser(task.getAssignee());
+                }
+                task.getCandidateUsers().forEach(versionTracker::bumpUser);
+                task.getCandidateGroups().forEach(versionTracker::bumpGroup);
+            }
+            versionTracker.bump(ListVersionTracker.INSTANCES);
+        } catch (Exception e) {
+            logger.warn("移轉後更新讀取模型失敗，待下次重建時修正：{}", e.getMessage());
+        }
+    }
+
+    private void recordFailure(MigrationStatus status, String processInstanceId, String message) {
+        status.setFailed(status.getFailed() + 1);
+        if (status.getErrors().size() < MAX_ERRORS) {
+            status.getErrors().add(processInstanceId + "：" + message);
+        }
+    }
+
+    // 只允許使用者任務之間的對應：其他節點類型牽涉計時器、訊息訂閱等執行狀態，無法只改節點 ID
+    private List<String> validateMapping(CachedProcessDefinition source, CachedProcessDefinition target,
+                                         Map<String, String> nodeMapping) {
+        List<String> problems = new ArrayList<>();
+        nodeMapping.forEach((from, to) -> {
+            FlowElement fromElement = source.getFlowElement(from);
+            FlowElement toElement = to != null ? target.getFlowElement(to) : null;
+            if (fromElement == null) {
+                problems.add("來源版本沒有節點 " + from);
+            } else if (toElement == null) {
+                problems.add("目標版本沒有節點 " + to);
+            } else if (!(fromElement instanceof UserTask) || !(toElement instanceof UserTask)) {
+                problems.add("只能對應使用者任務節點：" + from + " -> " + to);
+            }
+        });
+        return problems;
+    }
+
+    private List<String> selectInstances(MigrationRequest request) {
+        ProcessInstanceQuery query = runtimeService.createProcessInstanceQuery()
+                .processDefinitionId(request.getSourceProcessDefinitionId());
+        if (request.getProcessInstanceIds() != null && !request.getProcessInstanceIds().isEmpty()) {
+            query.processInstanceIds(new HashSet<>(request.getProcessInstanceIds()));
+        }
+        if (request.getStartedBy() != null && !request.getStartedBy().isBlank()) {
+            query.startedBy(request.getStartedBy());
+        }
+        if (request.getStartedBefore() != null) {
+            query.startedBefore(Date.from(request.getStartedBefore()));
+        }
+
+        long count = query.count();
+        if (count == 0) {
+            throw new IllegalArgumentException("沒有符合條件的執行中流程實例");
+        }
+        if (count > maxInstances) {
+            throw new IllegalArgumentException("符合條件的流程實例有 " + count + " 筆，超過單次上限 " + maxInstances + " 筆，請縮小範圍");
+        }
+
+        List<String> ids = new ArrayList<>((int) count);
+        query.orderByProcessInstanceId().asc();
+        for (int first = 0; ; first += PAGE_SIZE) {
+            List<ProcessInstance> page = query.listPage(first, PAGE_SIZE);
+            page.forEach(instance -> ids.add(instance.getId()));
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+        }
+        return ids;
+    }
+
+    private Map<String, Long> countActiveNodes(String processDefinitionId, Set<String> instanceIds) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int first = 0; ; first += PAGE_SIZE) {
+            List<Execution> page = runtimeService.createExecutionQuery()
+                    .processDefinitionId(processDefinitionId)
+                    .orderByProcessInstanceId().asc()
+                    .listPage(first, PAGE_SIZE);
+            for (Execution execution : page) {
+                if (execution.getActivityId() != null && instanceIds.contains(execution.getProcessInstanceId())) {
+                    counts.merge(execution.getActivityId(), 1L, Long::sum);
+                }
+            }
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+        }
+        return counts;
+    }
+}
@@ -1,59 +1,68 @@
 package com.taskmanager.process.service;
 
+import com.taskmanager.process.cache.BpmnXmlCache;
+import com.taskmanager.process.cache.BpmnXmlResource;
+import com.taskmanager.process.cache.CachedProcessDefinition;
+import com.taskmanager.process.cache.ProcessDefinitionCache;
+import com.taskmanager.process.dto.ArchivedProcess;
+import com.taskmanager.process.dto.BulkStartResponse;
+import com.taskmanager.process.dto.BulkStartResult;
 import com.taskmanager.process.dto.HistoryLog;
+import com.taskmanager.process.dto.HistoryTimeline;
+import com.taskmanager.process.dto.InstanceFilter;
+import com.taskmanager.process.form.FormSchema;
 import com.taskmanager.process.model.ProcessDef;
 import com.taskmanager.process.model.ProcessIns;
 import com.taskmanager.process.repository.ProcessDefRepository;
 import com.taskmanager.process.repository.ProcessInsRepository;
+import com.taskmanager.task.dto.CursorPage;
 import com.taskmanager.task.dto.TaskFormRequest; // 確保 import 存在
-import org.activiti.bpmn.model.BpmnModel;
-import org.activiti.bpmn.model.FormProperty;
-import org.activiti.bpmn.model.FormValue;
-import org.activiti.bpmn.model.ServiceTask;
-import org.activiti.bpmn.model.StartEvent;
-import org.activiti.bpmn.model.UserTask;
+import com.taskmanager.util.CsvReader;
+import com.taskmanager.util.KeysetCursor;
+import com.taskmanager.workflow.listener.ListVersionTracker;
 import org.activiti.engine.HistoryService;
 import org.activiti.engine.ManagementService;
 import org.activiti.engine.RepositoryService;
 import org.activiti.engine.RuntimeService;
 import org.activiti.engine.TaskService;
 import org.activiti.engine.history.HistoricActivityInstance;
-import org.activiti.engine.history.HistoricProcessInstance;
-import org.activiti.engine.history.HistoricVariableInstance;
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
 import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
 import org.activiti.engine.impl.persistence.entity.TaskEntity;
 import org.activiti.engine.impl.util.ProcessDefinitionUtil;
-import org.activiti.engine.repository.Deployment;
 import org.activiti.engine.repository.ProcessDefinition;
 import org.activiti.engine.runtime.ProcessInstance;
 import org.activiti.engine.task.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.core.context.SecurityContextHolder; // 確保 import 存在
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.FileNotFoundException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
-import java.time.Duration;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
-import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class ProcessService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ProcessService.class);
+
     private final ProcessDefRepository definitionRepository;
     private final ProcessInsRepository instanceRepository;
     private final RepositoryService repositoryService;
@@ -61,12 +70,26 @@ public class ProcessService {
     private final TaskService taskService;
     private final HistoryService historyService;
     private final ManagementService managementService;
+    private final ProcessDefinitionCache definitionCache;
+    private final BpmnXmlCache bpmnXmlCache;
+    private final ListVersionTracker versionTracker;
+    private final ProcessInsProjection instanceProjection;
+    private final ProcessHistoryBuilder historyBuilder;
+    private final ProcessSnapshotService snapshotService;
+
+    // 分頁 API 單頁上限
+    private static final int MAX_PAGE_SIZE = 100;
 
-    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    // 批次啟動：每個引擎交易的筆數 / 單次請求上限
+    private static final int BULK_START_CHUNK_SIZE = 50;
+    private static final int MAX_BULK_START_ROWS = 2000;
 
     public ProcessService(ProcessDefRepository definitionRepository, ProcessInsRepository instanceRepository,
                           RepositoryService repositoryService, RuntimeService runtimeService, TaskService taskService,
-                          HistoryService historyService, ManagementService managementService) {
+                          HistoryService historyService, ManagementService managementService,
+                          ProcessDefinitionCache definitionCache, BpmnXmlCache bpmnXmlCache, ListVersionTracker versionTracker,
+                          ProcessInsProjection instanceProjection, ProcessHistoryBuilder historyBuilder,
+                          ProcessSnapshotService snapshotService) {
         this.definitionRepository = definitionRepository;
         this.instanceRepository = instanceRepository;
         this.repositoryService = repositoryService;
@@ -74,57 +97,28 @@ public class ProcessService {
         this.taskService = taskService;
         this.historyService = historyService;
         this.managementService = managementService;
+        this.definitionCache = definitionCache;
+        this.bpmnXmlCache = bpmnXmlCache;
+        this.versionTracker = versionTracker;
+        this.instanceProjection = instanceProjection;
+        this.historyBuilder = historyBuilder;
+        this.snapshotService = snapshotService;
     }
 
-    public List<ProcessDef> getAllDefinitions() {
-        return definitionRepository.findAll();
-    }
-
-    public ProcessDef deployProcess(String name, MultipartFile file) {
+    // 改用 SecurityContextHolder 取得當前使用者
+    private String getCurrentUserId() {
         try {
-            if (file == null || file.isEmpty()) {
-                throw new IllegalArgumentException("BPMN 文件不能為空");
+            if (SecurityContextHolder.getContext().getAuthentication() != null) {
+                return SecurityContextHolder.getContext().getAuthentication().getName();
             }
-            if (!file.getOriginalFilename().endsWith(".bpmn") && !file.getOriginalFilename().endsWith(".xml")) {
-                throw new IllegalArgumentException("檔案格式必須為 .bpmn 或 .xml");
-            }
-
-            String bpmnContent;
-            try (InputStream inputStream = file.getInputStream();
-                 Scanner scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name())) {
-                bpmnContent = scanner.useDelimiter("\\A").hasNext() ? scanner.next() : "";
-            }
-
-            if (bpmnContent.contains("<?xml") && !bpmnContent.startsWith("<?xml")) {
-                throw new IllegalArgumentException("BPMN 文件格式錯誤：XML 處理指令必須位於文件開頭");
-            }
-
-            Deployment deployment = repositoryService.createDeployment()
-                    .name(name)
-                    .addInputStream(file.getOriginalFilename(), file.getInputStream())
-                    .deploy();
-
-            org.activiti.engine.repository.ProcessDefinition activitiDef = repositoryService
-                    .createProcessDefinitionQuery()
-                    .deploymentId(deployment.getId())
-                    .singleResult();
-
-            if (activitiDef == null) {
-                throw new IllegalStateException("無法獲取流程定義，可能部署失敗");
-            }
-
-            ProcessDef processDef = new ProcessDef();
-            processDef.setId(activitiDef.getId());
-            processDef.setName(name);
-            processDef.setVersion(activitiDef.getVersion() + ".0");
-            processDef.setStatus("active");
-            processDef.setDeploymentTime(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
-            processDef.setProcessDefinitionId(activitiDef.getId());
-
-            return definitionRepository.save(processDef);
         } catch (Exception e) {
-            throw new IllegalStateException("流程部署失敗：" + e.getMessage(), e);
+            // ignore
         }
+        return "user";
+    }
+
+    public List<ProcessDef> getAllDefinitions() {
+        return definitionRepository.findAll();
     }
 
     public ProcessDef toggleProcessStatus(String id) {
@@ -139,6 +133,7 @@ public class ProcessService {
                 repositoryService.activateProcessDefinitionById(id);
                 processDef.setStatus("active");
             }
+            definitionCache.invalidate(id);
             return definitionRepository.save(processDef);
         } catch (Exception e) {
             throw new IllegalStateException("狀態切換失敗：" + e.getMessage(), e);
@@ -146,160 +141,217 @@ public class ProcessService {
     }
 
     public ProcessIns startProcess(String processDefinitionId, Map<String, Object> variables) {
-        try {
-            // 改用 SecurityContextHolder 取得當前使用者
-            String currentUserId = "user";
-            try {
-                if (SecurityContextHolder.getContext().getAuthentication() != null) {
-                    currentUserId = SecurityContextHolder.getContext().getAuthentication().getName();
-                }
-            } catch (Exception e) {
-                // ignore
-            }
+        return startProcess(processDefinitionId, variables, getCurrentUserId());
+    }
 
+    // 非同步啟動時在背景執行緒呼叫，沒有 SecurityContext，啟動人由呼叫端帶入
+    public ProcessIns startProcess(String processDefinitionId, Map<String, Object> variables, String currentUserId) {
+        try {
             if (variables == null) {
                 variables = new HashMap<>();
             }
             // 這裡不需要額外處理 assigneeList，因為前端如果是 checkbox-group，
             // 傳過來的已經是 List<String>，Activiti 可以直接處理 Collection 變數。
+            applyStartDefaults(variables);
 
-            variables.putIfAbsent("managerAssignee", "admin");
-            variables.putIfAbsent("financeAssignee", "admin");
-            variables.putIfAbsent("itemName", "POC測試項目");
-            variables.putIfAbsent("amount", 10000L);
-
-            if (!variables.containsKey("nextAssignee")) {
-                variables.put("nextAssignee", "admin");
-            }
-
+            ProcessInstance instance;
             org.activiti.engine.impl.identity.Authentication.setAuthenticatedUserId(currentUserId);
-            ProcessInstance instance = runtimeService.startProcessInstanceById(processDefinitionId, variables);
-            org.activiti.engine.impl.identity.Authentication.setAuthenticatedUserId(null);
+            try {
+                instance = runtimeService.startProcessInstanceById(processDefinitionId, variables);
+            } finally {
+                // 執行緒會被重複使用 (執行緒池)，失敗時也要清掉
+                org.activiti.engine.impl.identity.Authentication.setAuthenticatedUserId(null);
+            }
 
             // ★★★ 修正點：移除了原本自動 setAssignee 的迴圈，讓任務可以停留在 Group 狀態 ★★★
 
-            List<Task> tasks = taskService.createTaskQuery().processInstanceId(instance.getId()).list();
-
-            ProcessIns processIns = new ProcessIns();
-            processIns.setId(instance.getId());
-            processIns.setName(instance.getProcessDefinitionName());
-            processIns.setStatus("running");
-            processIns.setProcessDefinitionId(processDefinitionId);
-            processIns.setStartTime(LocalDateTime.now().format(FORMATTER));
-
-            if (tasks.isEmpty()) {
-                processIns.setCurrentTask("Completed");
-                processIns.setAssignee(null);
-            } else {
-                String taskNames = tasks.stream().map(Task::getName).collect(Collectors.joining(", "));
-                // 若 assignee 為空，顯示待認領
-                String assignees = tasks.stream().map(t -> t.getAssignee() == null ? "待認領" : t.getAssignee()).collect(Collectors.joining(", "));
-                processIns.setCurrentTask(taskNames);
-                processIns.setAssignee(assignees);
-            }
-
-            return instanceRepository.save(processIns);
+            // 引擎交易提交時投影已同步更新，直接回傳投影資料
+            return instanceRepository.findById(instance.getId()).orElseGet(() -> {
+                ProcessIns processIns = new ProcessIns();
+                processIns.setId(instance.getId());
+                processIns.setName(instance.getProcessDefinitionName());
+                processIns.setStatus(ProcessInsProjection.STATUS_RUNNING);
+                processIns.setProcessDefinitionId(processDefinitionId);
+                processIns.setStartedBy(currentUserId);
+                processIns.setStartedAt(Instant.now());
+                return processIns;
+            });
         } catch (Exception e) {
             throw new IllegalStateException("流程啟動失敗：" + e.getMessage(), e);
         }
     }
 
-    public List<ProcessIns> getAllInstances() {
-        try {
-            List<HistoricProcessInstance> instances = historyService.createHistoricProcessInstanceQuery()
-                    .orderByProcessInstanceStartTime().desc()
-                    .list();
-
-            List<ProcessIns> processInsList = new ArrayList<>();
-            for (HistoricProcessInstance hPi : instances) {
-                ProcessIns ins = new ProcessIns();
-                ins.setId(hPi.getId());
-                ins.setName(hPi.getProcessDefinitionName());
-                ins.setProcessDefinitionId(hPi.getProcessDefinitionId());
-
-                if (hPi.getStartTime() != null) {
-                    ins.setStartTime(LocalDateTime.ofInstant(hPi.getStartTime().toInstant(),
-                            java.time.ZoneId.systemDefault()).format(FORMATTER));
-                }
+    private void applyStartDefaults(Map<String, Object> variables) {
+        variables.putIfAbsent("managerAssignee", "admin");
+        variables.putIfAbsent("financeAssignee", "admin");
+        variables.putIfAbsent("itemName", "POC測試項目");
+        variables.putIfAbsent("amount", 10000L);
+
+        if (!variables.containsKey("nextAssignee")) {
+            variables.put("nextAssignee", "admin");
+        }
+    }
+
+    // ★★★ 批次啟動 (夜間匯入)：先以快取的發起表單驗證，再每 BULK_START_CHUNK_SIZE 筆一個引擎交易 ★★★
+    public BulkStartResponse startBulk(String processDefinitionId, List<Map<String, Object>> rows) {
+        if (rows == null || rows.isEmpty()) {
+            throw new IllegalArgumentException("批次啟動資料不可為空");
+        }
+        if (rows.size() > MAX_BULK_START_ROWS) {
+            throw new IllegalArgumentException("單次批次啟動上限為 " + MAX_BULK_START_ROWS + " 筆");
+        }
+        CachedProcessDefinition definition = processDefinitionId != null ? definitionCache.get(processDefinitionId) : null;
+        if (definition == null) {
+            throw new IllegalArgumentException("流程定義不存在：" + processDefinitionId);
+        }
+        if (definition.isSuspended()) {
+            throw new IllegalArgumentException("流程定義已暫停：" + processDefinitionId);
+        }
 
-                if (hPi.getEndTime() != null) {
-                    ins.setStatus("Completed");
-                    ins.setCurrentTask("Completed");
-                    ins.setAssignee("-");
-                } else {
-                    ins.setStatus("Running");
-                    List<Task> tasks = taskService.createTaskQuery().processInstanceId(hPi.getId()).list();
-                    if (!tasks.isEmpty()) {
-                        String taskNames = tasks.stream().map(Task::getName).collect(Collectors.joining(", "));
-                        String assignees = tasks.stream().map(t -> t.getAssignee() == null ? "待認領" : t.getAssignee())
-                                .collect(Collectors.joining(", "));
-                        ins.setCurrentTask(taskNames);
-                        ins.setAssignee(assignees);
-                    } else {
-                        ins.setCurrentTask("系統處理中");
+        long startedAt = System.currentTimeMillis();
+        FormSchema startForm = definition.getStartForm();
+        List<BulkStartResult> results = new ArrayList<>(rows.size());
+        List<Integer> validRowNumbers = new ArrayList<>();
+        List<Map<String, Object>> validRows = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            Map<String, Object> variables = startForm.coerce(rows.get(i) != null ? rows.get(i) : Map.of());
+            try {
+                // 與單筆 /start 相同先補預設值，再補表單宣告的 default，最後才驗證必填
+                applyStartDefaults(variables);
+                startForm.applyDefaults(variables);
+                startForm.validate(variables);
+                validRowNumbers.add(i + 1);
+                validRows.add(variables);
+            } catch (IllegalArgumentException e) {
+                results.add(BulkStartResult.failed(i + 1, e.getMessage()));
+            }
+        }
+
+        String userId = getCurrentUserId();
+        int transactions = 0;
+        org.activiti.engine.impl.identity.Authentication.setAuthenticatedUserId(userId);
+        try {
+            for (int from = 0; from < validRows.size(); from += BULK_START_CHUNK_SIZE) {
+                int to = Math.min(from + BULK_START_CHUNK_SIZE, validRows.size());
+                List<Integer> chunkRows = validRowNumbers.subList(from, to);
+                List<Map<String, Object>> chunk = validRows.subList(from, to);
+                try {
+                    transactions++;
+                    results.addAll(managementService.executeCommand(new BulkStartCmd(processDefinitionId, chunkRows, chunk)));
+                } catch (RuntimeException e) {
+                    // 整批已回滾：改為逐筆啟動，避免一筆異常拖累同批其他資料
+                    logger.warn("批次啟動流程失敗，改為逐筆重試：{}", e.getMessage());
+                    for (int i = 0; i < chunk.size(); i++) {
+                        try {
+                            transactions++;
+                            results.addAll(managementService.executeCommand(
+                                    new BulkStartCmd(processDefinitionId, List.of(chunkRows.get(i)), List.of(chunk.get(i)))));
+                        } catch (RuntimeException rowError) {
+                            results.add(BulkStartResult.failed(chunkRows.get(i), rowError.getMessage()));
+                        }
                     }
                 }
-                processInsList.add(ins);
             }
-            return processInsList;
-        } catch (Exception e) {
-            throw new IllegalStateException("獲取流程實例失敗：" + e.getMessage(), e);
+        } finally {
+            org.activiti.engine.impl.identity.Authentication.setAuthenticatedUserId(null);
         }
+
+        results.sort(Comparator.comparingInt(BulkStartResult::getRow));
+        return new BulkStartResponse(results, transactions, System.currentTimeMillis() - startedAt);
     }
 
-    public List<ProcessIns> getMyProcessInstances() {
+    // CSV：第一列為變數名稱，逐列讀取串流，超過上限即停止
+    public BulkStartResponse startBulkCsv(String processDefinitionId, Reader csv) {
+        List<Map<String, Object>> rows = new ArrayList<>();
         try {
-            // 改用 SecurityContextHolder 取得當前使用者
-            String currentUserId = "user";
-            try {
-                if (SecurityContextHolder.getContext().getAuthentication() != null) {
-                    currentUserId = SecurityContextHolder.getContext().getAuthentication().getName();
+            CsvReader reader = new CsvReader(csv);
+            Map<String, String> row;
+            while ((row = reader.next()) != null) {
+                if (rows.size() >= MAX_BULK_START_ROWS) {
+                    throw new IllegalArgumentException("單次批次啟動上限為 " + MAX_BULK_START_ROWS + " 筆");
                 }
-            } catch (Exception e) {
-                // ignore
+                rows.add(new LinkedHashMap<>(row));
             }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("無法讀取 CSV：" + e.getMessage());
+        }
+        return startBulk(processDefinitionId, rows);
+    }
+
+    public String getInstancesEtag() {
+        return versionTracker.listEtag(ListVersionTracker.INSTANCES, null);
+    }
+
+    public String getMyInstancesEtag() {
+        return versionTracker.listEtag(ListVersionTracker.INSTANCES, getCurrentUserId());
+    }
 
-            List<HistoricProcessInstance> historicInstances = historyService.createHistoricProcessInstanceQuery()
-                    .startedBy(currentUserId)
-                    .orderByProcessInstanceStartTime().desc()
-                    .list();
+    public List<ProcessIns> getAllInstances() {
+        return getAllInstances(null, null);
+    }
 
-            List<ProcessIns> resultList = new ArrayList<>();
+    // ★★★ 只讀取 process_ins 投影，不再回查引擎；page / size 為空時回傳全部 (相容舊版前端) ★★★
+    public List<ProcessIns> getAllInstances(Integer page, Integer size) {
+        return instanceRepository.findAllBy(instancePage(page, size));
+    }
 
-            for (HistoricProcessInstance hPi : historicInstances) {
-                ProcessIns ins = new ProcessIns();
-                ins.setId(hPi.getId());
-                ins.setName(hPi.getProcessDefinitionName());
-                ins.setProcessDefinitionId(hPi.getProcessDefinitionId());
+    public List<ProcessIns> getMyProcessInstances() {
+        return getMyProcessInstances(null, null);
+    }
 
-                if (hPi.getStartTime() != null) {
-                    ins.setStartTime(LocalDateTime.ofInstant(hPi.getStartTime().toInstant(),
-                            java.time.ZoneId.systemDefault()).format(FORMATTER));
-                }
+    public List<ProcessIns> getMyProcessInstances(Integer page, Integer size) {
+        return instanceRepository.findByStartedBy(getCurrentUserId(), instancePage(page, size));
+    }
 
-                if (hPi.getEndTime() != null) {
-                    ins.setStatus("Completed");
-                    ins.setCurrentTask("Completed");
-                    ins.setAssignee("-");
-                } else {
-                    ins.setStatus("Running");
-                    List<Task> tasks = taskService.createTaskQuery().processInstanceId(hPi.getId()).list();
-                    if (!tasks.isEmpty()) {
-                        String taskNames = tasks.stream().map(Task::getName).collect(Collectors.joining(", "));
-                        String assignees = tasks.stream().map(t -> t.getAssignee() == null ? "待認領" : t.getAssignee())
-                                .collect(Collectors.joining(", "));
-                        ins.setCurrentTask(taskNames);
-                        ins.setAssignee(assignees);
-                    } else {
-                        ins.setCurrentTask("系統處理中");
-                    }
-                }
-                resultList.add(ins);
-            }
-            return resultList;
-        } catch (Exception e) {
-            throw new IllegalStateException("獲取我的申請紀錄失敗：" + e.getMessage(), e);
+    private Pageable instancePage(Integer page, Integer size) {
+        Sort sort = Sort.by(Sort.Order.desc("startedAt"), Sort.Order.desc("id"));
+        if (page == null && size == null) {
+            return Pageable.unpaged(sort);
+        }
+        int pageSize = size != null ? size : 20;
+        int pageIndex = page != null ? page : 0;
+        if (pageIndex < 0 || pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("分頁參數錯誤：page >= 0，1 <= size <= " + MAX_PAGE_SIZE);
         }
+        return PageRequest.of(pageIndex, pageSize, sort);
+    }
+
+    // ★★★ 條件篩選 + Keyset 分頁：依 (startedAt, id) 由新到舊 ★★★
+    public CursorPage<ProcessIns> getInstancesPage(InstanceFilter filter, String cursor, int size, boolean withTotal) {
+        return searchInstances(filter, cursor, size, withTotal);
+    }
+
+    // 我的申請紀錄：強制以目前使用者為啟動人
+    public CursorPage<ProcessIns> getMyInstancesPage(InstanceFilter filter, String cursor, int size, boolean withTotal) {
+        filter.setStartedBy(getCurrentUserId());
+        return searchInstances(filter, cursor, size, withTotal);
+    }
+
+    private CursorPage<ProcessIns> searchInstances(InstanceFilter filter, String cursor, int size, boolean withTotal) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        KeysetCursor after = KeysetCursor.decode(cursor);
+
+        // 多查一筆用來判斷是否還有下一頁
+        List<ProcessIns> rows = instanceRepository.search(filter,
+                after != null ? Instant.ofEpochMilli(after.getTimeMillis()) : null,
+                after != null ? after.getId() : null,
+                pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        List<ProcessIns> page = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            ProcessIns last = page.get(page.size() - 1);
+            nextCursor = new KeysetCursor(last.getStartedAt().toEpochMilli(), last.getId()).encode();
+        }
+        Long total = withTotal ? instanceRepository.count(filter) : null;
+        return new CursorPage<>(page, nextCursor, total);
+    }
+
+    /**
+     * 由引擎歷史資料重建流程實例投影，回傳重建筆數。
+     */
+    public int rebuildInstances() {
+        return instanceProjection.rebuild();
     }
 
     public Map<String, Object> getProcessInstanceDiagram(String instanceId) {
@@ -307,46 +359,29 @@ public class ProcessService {
             String processDefinitionId;
             List<String> activeActivityIds = new ArrayList<>();
 
-            ProcessInstance instance = runtimeService.createProcessInstanceQuery()
-                    .processInstanceId(instanceId)
-                    .singleResult();
-
-            if (instance != null) {
-                processDefinitionId = instance.getProcessDefinitionId();
-                List<Task> tasks = taskService.createTaskQuery().processInstanceId(instanceId).list();
-                activeActivityIds = tasks.stream()
-                        .map(Task::getTaskDefinitionKey)
-                        .collect(Collectors.toList());
+            // 已結束的流程：快照裡已記下定義與結束節點
+            ArchivedProcess snapshot = snapshotService.findEnded(instanceId);
+            if (snapshot != null) {
+                processDefinitionId = snapshot.getProcessDefinitionId();
+                if (snapshot.getEndActivityId() != null) {
+                    activeActivityIds.add(snapshot.getEndActivityId());
+                }
             } else {
-                HistoricProcessInstance historicInstance = historyService.createHistoricProcessInstanceQuery()
+                ProcessInstance instance = runtimeService.createProcessInstanceQuery()
                         .processInstanceId(instanceId)
                         .singleResult();
-
-                if (historicInstance == null) {
+                if (instance == null) {
                     throw new IllegalArgumentException("流程實例不存在：" + instanceId);
                 }
-                processDefinitionId = historicInstance.getProcessDefinitionId();
-
-                List<HistoricActivityInstance> endActivities = historyService.createHistoricActivityInstanceQuery()
-                        .processInstanceId(instanceId)
-                        .activityType("endEvent")
-                        .finished()
-                        .orderByHistoricActivityInstanceEndTime().desc()
-                        .list();
-
-                if (!endActivities.isEmpty()) {
-                    activeActivityIds.add(endActivities.get(0).getActivityId());
-                }
-            }
-
-            String bpmnXml;
-            try (InputStream inputStream = repositoryService.getProcessModel(processDefinitionId);
-                 Scanner scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name())) {
-                bpmnXml = scanner.useDelimiter("\\A").hasNext() ? scanner.next() : "";
+                processDefinitionId = instance.getProcessDefinitionId();
+                List<Task> tasks = taskService.createTaskQuery().processInstanceId(instanceId).list();
+                activeActivityIds = tasks.stream()
+                        .map(Task::getTaskDefinitionKey)
+                        .collect(Collectors.toList());
             }
 
             Map<String, Object> response = new HashMap<>();
-            response.put("bpmnXml", bpmnXml);
+            response.put("bpmnXml", bpmnXmlCache.getXml(processDefinitionId));
             response.put("currentTask", activeActivityIds);
             return response;
         } catch (Exception e) {
@@ -356,13 +391,8 @@ public class ProcessService {
 
     public Map<String, Object> getProcessDefinitionDiagram(String processDefinitionId) {
         try {
-            String bpmnXml;
-            try (InputStream inputStream = repositoryService.getProcessModel(processDefinitionId);
-                 Scanner scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name())) {
-                bpmnXml = scanner.useDelimiter("\\A").hasNext() ? scanner.next() : "";
-            }
             Map<String, Object> response = new HashMap<>();
-            response.put("bpmnXml", bpmnXml);
+            response.put("bpmnXml", bpmnXmlCache.getXml(processDefinitionId));
             response.put("currentTask", null);
             return response;
         } catch (Exception e) {
@@ -370,6 +400,54 @@ public class ProcessService {
         }
     }
 
+    // ★★★ 原始 BPMN XML (已快取、預先壓縮)，由 Controller 以強 ETag 回應 ★★★
+    public BpmnXmlResource getBpmnXml(String processDefinitionId) {
+        return bpmnXmlCache.get(processDefinitionId);
+    }
+
+    public String getInstanceHighlightsEtag() {
+        return versionTracker.listEtag(ListVersionTracker.INSTANCES, null);
+    }
+
+    /**
+     * 只回傳流程圖上需要標示的節點，XML 本身改由 /definitions/{id}/bpmn 取得並由瀏覽器快取。
+     */
+    public Map<String, Object> getInstanceHighlights(String instanceId) {
+        ArchivedProcess snapshot = snapshotService.findEnded(instanceId);
+        if (snapshot != null) {
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("processDefinitionId", snapshot.getProcessDefinitionId());
+            response.put("ended", true);
+            response.put("activeNodeIds", Collections.emptyList());
+            response.put("completedNodeIds", snapshot.getCompletedNodeIds());
+            return response;
+        }
+
+        ProcessInstance instance = runtimeService.createProcessInstanceQuery()
+                .processInstanceId(instanceId)
+                .singleResult();
+        if (instance == null) {
+            throw new IllegalArgumentException("流程實例不存在：" + instanceId);
+        }
+
+        // 依結束時間排序，保留走過的先後順序並去除重複 (退回 / 跳關會重複經過)
+        LinkedHashSet<String> completedNodeIds = new LinkedHashSet<>();
+        for (HistoricActivityInstance activity : historyService.createHistoricActivityInstanceQuery()
+                .processInstanceId(instanceId)
+                .finished()
+                .orderByHistoricActivityInstanceEndTime().asc()
+                .list()) {
+            completedNodeIds.add(activity.getActivityId());
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("processDefinitionId", instance.getProcessDefinitionId());
+        response.put("ended", false);
+        response.put("activeNodeIds", runtimeService.getActiveActivityIds(instanceId));
+        response.put("completedNodeIds", new ArrayList<>(completedNodeIds));
+        return response;
+    }
+
     public List<Map<String, Object>> getNodeFormFields(String processInstanceId, String nodeId) {
         try {
             ProcessInstance instance = runtimeService.createProcessInstanceQuery()
@@ -380,14 +458,11 @@ public class ProcessService {
                 throw new IllegalArgumentException("流程實例不存在或已結束");
             }
 
-            BpmnModel bpmnModel = repositoryService.getBpmnModel(instance.getProcessDefinitionId());
-            org.activiti.bpmn.model.Process process = bpmnModel.getProcesses().get(0);
-
-            org.activiti.bpmn.model.FlowElement flowElement = process.getFlowElement(nodeId);
+            CachedProcessDefinition definition = definitionCache.get(instance.getProcessDefinitionId());
+            FormSchema schema = definition != null ? definition.getNodeForm(nodeId) : null;
 
-            if (flowElement instanceof UserTask) {
-                UserTask userTask = (UserTask) flowElement;
-                return convertFormProperties(userTask.getFormProperties(), Collections.emptySet());
+            if (schema != null) {
+                return schema.render(null);
             }
 
             return new ArrayList<>();
@@ -399,85 +474,32 @@ public class ProcessService {
 
     public List<Map<String, Object>> getProcessFormFields(String processDefinitionId) {
         try {
-            org.activiti.engine.repository.ProcessDefinition processDefinition = repositoryService
-                    .createProcessDefinitionQuery()
-                    .deploymentId(processDefinitionId)
-                    .singleResult();
+            CachedProcessDefinition definition = resolveDefinition(processDefinitionId);
 
-            if (processDefinition == null) {
-                processDefinition = repositoryService
-                        .createProcessDefinitionQuery()
-                        .processDefinitionId(processDefinitionId)
-                        .singleResult();
-            }
-
-            if (processDefinition == null) {
+            if (definition == null) {
                 throw new IllegalArgumentException("流程定義不存在：" + processDefinitionId);
             }
 
-            BpmnModel bpmnModel = repositoryService.getBpmnModel(processDefinition.getId());
-            org.activiti.bpmn.model.Process process = bpmnModel.getProcesses().get(0);
-
-            Set<String> multiInstanceCollections = new HashSet<>();
-            process.getFlowElements().stream()
-                    .filter(e -> e instanceof UserTask)
-                    .map(e -> (UserTask) e)
-                    .forEach(task -> {
-                        if (task.getLoopCharacteristics() != null && task.getLoopCharacteristics().getInputDataItem() != null) {
-                            multiInstanceCollections.add(task.getLoopCharacteristics().getInputDataItem());
-                        }
-                    });
-
-            StartEvent startEvent = (StartEvent) process.getFlowElements().stream()
-                    .filter(element -> element instanceof StartEvent)
-                    .findFirst()
-                    .orElse(null);
-
-            if (startEvent != null) {
-                return convertFormProperties(startEvent.getFormProperties(), multiInstanceCollections);
-            }
-            return new ArrayList<>();
+            return definition.getStartForm().render(null);
         } catch (Exception e) {
             throw new IllegalStateException("獲取表單字段失敗：" + e.getMessage(), e);
         }
     }
 
-    private List<Map<String, Object>> convertFormProperties(List<FormProperty> formProperties, Set<String> multiInstanceCollections) {
-        List<Map<String, Object>> formFields = new ArrayList<>();
-
-        for (FormProperty prop : formProperties) {
-            Map<String, Object> field = new HashMap<>();
-            field.put("key", prop.getId());
-            field.put("label", prop.getName() != null ? prop.getName() : prop.getId());
-
-            String type = prop.getType() != null ? prop.getType() : "string";
-
-            if ("enum".equals(type) && multiInstanceCollections.contains(prop.getId())) {
-                type = "checkbox-group";
-            }
-
-            field.put("type", "checkbox-group".equals(type) ? "checkbox-group" : mapFormPropertyType(type));
-
-            field.put("required", prop.isRequired());
-            field.put("disabled", !prop.isWriteable());
-
-            if (prop.getDefaultExpression() != null) {
-                field.put("value", prop.getDefaultExpression());
-            }
-
-            if ("enum".equals(prop.getType()) || "checkbox-group".equals(type)) {
-                List<Map<String, String>> options = new ArrayList<>();
-                for (FormValue val : prop.getFormValues()) {
-                    Map<String, String> option = new HashMap<>();
-                    option.put("label", val.getName());
-                    option.put("value", val.getId());
-                    options.add(option);
-                }
-                field.put("options", options);
-            }
-            formFields.add(field);
+    // 前端可能傳入 deploymentId 或 processDefinitionId，兩者都支援
+    private CachedProcessDefinition resolveDefinition(String idOrDeploymentId) {
+        CachedProcessDefinition definition = definitionCache.get(idOrDeploymentId);
+        if (definition != null) {
+            return definition;
         }
-        return formFields;
+        ProcessDefinition byDeployment = repositoryService.createProcessDefinitionQuery()
+                .deploymentId(idOrDeploymentId)
+                .singleResult();
+        return byDeployment != null ? definitionCache.get(byDeployment.getId()) : null;
+    }
+
+    public Map<String, Object> getDefinitionCacheStats() {
+        return definitionCache.getStats();
     }
 
     public List<Map<String, String>> getUsers() {
@@ -504,18 +526,8 @@ public class ProcessService {
                 throw new IllegalArgumentException("流程實例不存在或已結束：" + processInstanceId);
             }
 
-            BpmnModel bpmnModel = repositoryService.getBpmnModel(instance.getProcessDefinitionId());
-            org.activiti.bpmn.model.Process process = bpmnModel.getProcesses().get(0);
-
-            List<Map<String, String>> nodes = process.getFlowElements().stream()
-                    .filter(element -> element instanceof UserTask || element instanceof ServiceTask)
-                    .map(element -> {
-                        Map<String, String> node = new HashMap<>();
-                        node.put("id", element.getId());
-                        node.put("name", element.getName() != null ? element.getName() : element.getId());
-                        return node;
-                    })
-                    .collect(Collectors.toList());
+            CachedProcessDefinition definition = definitionCache.get(instance.getProcessDefinitionId());
+            List<Map<String, String>> nodes = definition != null ? definition.getFlowNodes() : Collections.emptyList();
 
             if (nodes.isEmpty()) {
                 throw new IllegalArgumentException("流程中無可用節點：" + processInstanceId);
@@ -535,12 +547,8 @@ public class ProcessService {
                 throw new IllegalArgumentException("當前流程實例無活動任務：" + processInstanceId);
             }
 
+            // 流程實例清單的處理人由 ProcessInsProjection 依任務事件更新
             taskService.setAssignee(task.getId(), newAssignee);
-
-            ProcessIns processIns = instanceRepository.findById(processInstanceId)
-                    .orElseThrow(() -> new IllegalArgumentException("流程實例不存在：" + processInstanceId));
-            processIns.setAssignee(newAssignee);
-            instanceRepository.save(processIns);
         } catch (IllegalArgumentException e) {
             throw e;
         } catch (Exception e) {
@@ -555,25 +563,6 @@ public class ProcessService {
             }
 
             managementService.executeCommand(new JumpCmd(processInstanceId, targetNodeId));
-
-            ProcessInstance instance = runtimeService.createProcessInstanceQuery().processInstanceId(processInstanceId).singleResult();
-            List<Task> newTasks = taskService.createTaskQuery().processInstanceId(processInstanceId).list();
-            ProcessIns processIns = instanceRepository.findById(processInstanceId).orElse(new ProcessIns());
-            processIns.setId(processInstanceId);
-            if (instance != null) {
-                processIns.setName(instance.getProcessDefinitionName());
-                processIns.setProcessDefinitionId(instance.getProcessDefinitionId());
-                processIns.setStatus("Running");
-            }
-
-            if (!newTasks.isEmpty()) {
-                String taskNames = newTasks.stream().map(Task::getName).collect(Collectors.joining(", "));
-                String assignees = newTasks.stream().map(t -> t.getAssignee() == null ? "待認領" : t.getAssignee()).collect(Collectors.joining(", "));
-                processIns.setCurrentTask(taskNames);
-                processIns.setAssignee(assignees);
-            }
-            instanceRepository.save(processIns);
-
         } catch (Exception e) {
             throw new IllegalStateException(e.getMessage());
         }
@@ -640,100 +629,64 @@ public class ProcessService {
         }
     }
 
-    private String mapFormPropertyType(String activitiType) {
-        switch (activitiType) {
-            case "string": return "text";
-            case "long": return "number";
-            case "date": return "date";
-            case "enum": return "select";
-            case "boolean": return "switch";
-            default: return "text";
+    public List<HistoryLog> getProcessHistory(String processInstanceId) {
+        try {
+            List<HistoryLog> steps = loadHistory(processInstanceId);
+            // 舊欄位 variables 照舊放在每個 userTask 節點 (流程變數的最終值)，由各節點異動依序合併，不另外查詢；
+            // 所有節點共用同一份 Map，新前端請改用 /history/changes
+            Map<String, Object> variables = new LinkedHashMap<>();
+            for (HistoryLog step : steps) {
+                if (step.getChanges() != null) {
+                    variables.putAll(step.getChanges());
+                }
+            }
+            Map<String, Object> shared = Collections.unmodifiableMap(variables);
+            for (HistoryLog step : steps) {
+                if ("userTask".equals(step.getActivityType())) {
+                    step.setVariables(shared);
+                }
+            }
+            return steps;
+        } catch (Exception e) {
+            throw new IllegalStateException("獲取歷史紀錄失敗：" + e.getMessage(), e);
         }
     }
 
-    public List<HistoryLog> getProcessHistory(String processInstanceId) {
+    /**
+     * 與 getProcessHistory 相同的節點清單，但變數值集中放在 values 並去除重複，
+     * 各節點只以索引引用自己異動的變數，長流程的回應大小不再是「節點數 × 變數數」。
+     */
+    public HistoryTimeline getProcessHistoryTimeline(String processInstanceId) {
         try {
-            List<HistoricActivityInstance> activities = historyService.createHistoricActivityInstanceQuery()
-                    .processInstanceId(processInstanceId)
-                    .orderByHistoricActivityInstanceStartTime().asc()
-                    .list();
-
-            List<HistoricVariableInstance> historyVariables = historyService.createHistoricVariableInstanceQuery()
-                    .processInstanceId(processInstanceId)
-                    .list();
-
-            Map<String, Object> globalVars = historyVariables.stream()
-                    .collect(Collectors.toMap(HistoricVariableInstance::getVariableName, HistoricVariableInstance::getValue, (v1, v2) -> v2));
-
-            List<Task> activeTasks = taskService.createTaskQuery().processInstanceId(processInstanceId).list();
-            List<String> activeTaskIds = activeTasks.stream().map(Task::getId).collect(Collectors.toList());
-
-            List<HistoryLog> historyLogs = new ArrayList<>();
-
-            for (HistoricActivityInstance activity : activities) {
-                if (!"startEvent".equals(activity.getActivityType()) &&
-                        !"endEvent".equals(activity.getActivityType()) &&
-                        !"userTask".equals(activity.getActivityType())) {
+            List<HistoryLog> steps = loadHistory(processInstanceId);
+            Map<Object, Integer> valueIndex = new LinkedHashMap<>();
+            List<Object> values = new ArrayList<>();
+            for (HistoryLog step : steps) {
+                if (step.getChanges() == null) {
                     continue;
                 }
-
-                HistoryLog log = new HistoryLog();
-                String name = activity.getActivityName();
-                if (name == null || name.isEmpty()) {
-                    if ("startEvent".equals(activity.getActivityType())) name = "流程發起";
-                    else if ("endEvent".equals(activity.getActivityType())) name = "流程結束";
-                    else name = "系統節點";
-                }
-                log.setActivityName(name);
-                log.setActivityType(activity.getActivityType());
-                log.setAssignee(activity.getAssignee());
-
-                if (activity.getEndTime() != null) {
-                    log.setEndTime(LocalDateTime.ofInstant(activity.getEndTime().toInstant(), java.time.ZoneId.systemDefault()).format(FORMATTER));
-
-                    if (activity.getDeleteReason() != null) {
-                        log.setStatus("Skipped");
-                    } else {
-                        log.setStatus("Completed");
+                Map<String, Integer> refs = new LinkedHashMap<>();
+                for (Map.Entry<String, Object> change : step.getChanges().entrySet()) {
+                    Integer index = valueIndex.get(change.getValue());
+                    if (index == null) {
+                        index = values.size();
+                        values.add(change.getValue());
+                        valueIndex.put(change.getValue(), index);
                     }
-                    log.setDuration(formatDuration(activity.getDurationInMillis()));
-                } else {
-                    if ("userTask".equals(activity.getActivityType())) {
-                        if (activeTaskIds.contains(activity.getTaskId())) {
-                            log.setStatus("Running");
-                        } else {
-                            log.setStatus("Skipped");
-                            log.setEndTime(LocalDateTime.now().format(FORMATTER));
-                        }
-                    } else {
-                        log.setStatus("Running");
-                    }
-                    log.setDuration("-");
-                }
-
-                if ("userTask".equals(activity.getActivityType())) {
-                    log.setVariables(globalVars);
+                    refs.put(change.getKey(), index);
                 }
-
-                historyLogs.add(log);
+                step.setChangeRefs(refs);
+                step.setChanges(null);
             }
-            return historyLogs;
+            return new HistoryTimeline(steps, values);
         } catch (Exception e) {
             throw new IllegalStateException("獲取歷史紀錄失敗：" + e.getMessage(), e);
         }
     }
 
-    private String formatDuration(Long durationInMillis) {
-        if (durationInMillis == null) return "";
-        Duration duration = Duration.ofMillis(durationInMillis);
-        long days = duration.toDays();
-        long hours = duration.toHours() % 24;
-        long minutes = duration.toMinutes() % 60;
-
-        StringBuilder sb = new StringBuilder();
-        if (days > 0) sb.append(days).append("天 ");
-        if (hours > 0) sb.append(hours).append("時 ");
-        sb.append(minutes).append("分");
-        return sb.toString().isEmpty() ? "1分內" : sb.toString();
+    // 已結束的流程讀快照 (一次主鍵查詢)，進行中的才即時查引擎歷史
+    private List<HistoryLog> loadHistory(String processInstanceId) {
+        ArchivedProcess snapshot = snapshotService.findEnded(processInstanceId);
+        return snapshot != null ? snapshot.getHistory() : historyBuilder.build(processInstanceId);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,173 @@
+package com.taskmanager.process.service;
+
+import com.taskmanager.process.cache.ProcessDefinitionCache;
+import com.taskmanager.process.dto.ArchivedProcess;
+import com.taskmanager.workflow.listener.ProcessChange;
+import com.taskmanager.workflow.listener.ProcessChangeHandler;
+import org.activiti.engine.HistoryService;
+import org.activiti.engine.history.HistoricActivityInstance;
+import org.activiti.engine.history.HistoricProcessInstance;
+import org.activiti.engine.history.HistoricTaskInstance;
+import org.activiti.engine.history.HistoricVariableInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 流程結束時在背景建立快照 (歷程、耗時、最終變數與結束節點)，之後已結束實例的歷程 / 流程圖查詢
+ * 只需以主鍵讀一列。舊資料沒有快照時，在第一次讀取時補建。
+ */
+@Service
+@Order(30)
+public class ProcessSnapshotService implements ProcessChangeHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessSnapshotService.class);
+
+    private final HistoryService historyService;
+    private final ProcessHistoryBuilder historyBuilder;
+    private final ProcessArchiveStore archiveStore;
+    private final ProcessDefinitionCache definitionCache;
+    private final TaskExecutor executor;
+
+    public ProcessSnapshotService(HistoryService historyService, ProcessHistoryBuilder historyBuilder,
+                                  ProcessArchiveStore archiveStore, ProcessDefinitionCache definitionCache,
+                                  @Qualifier("processSnapshotExecutor") TaskExecutor executor) {
+        this.historyService = historyService;
+        this.historyBuilder = historyBuilder;
+        this.archiveStore = archiveStore;
+        this.definitionCache = definitionCache;
+        this.executor = executor;
+    }
+
+    @Override
+    public void onProcessChanges(List<ProcessChange> changes) {
+        for (ProcessChange change : changes) {
+            if (!change.isEnded()) {
+                continue;
+            }
+            String processInstanceId = change.getProcessInstanceId();
+            try {
+                executor.execute(() -> captureQuietly(processInstanceId));
+            } catch (RejectedExecutionException e) {
+                // 佇列滿了不影響正確性，第一次讀取時會補建
+                logger.debug("流程快照佇列已滿，{} 延後至首次讀取時建立", processInstanceId);
+            }
+        }
+    }
+
+    /**
+     * 已結束流程實例的快照；還沒有快照時當場建立。流程仍在進行或不存在時回傳 null。
+     */
+    public ArchivedProcess findEnded(String processInstanceId) {
+        ArchivedProcess snapshot = archiveStore.find(processInstanceId);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        HistoricProcessInstance hPi = historyService.createHistoricProcessInstanceQuery()
+                .processInstanceId(processInstanceId)
+                .finished()
+                .singleResult();
+        if (hPi == null) {
+            return null;
+        }
+        snapshot = capture(hPi);
+        archiveStore.save(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * 由引擎歷史組出快照 (不寫入)。
+     */
+    public ArchivedProcess capture(HistoricProcessInstance hPi) {
+        ArchivedProcess snapshot = new ArchivedProcess();
+        snapshot.setProcessInstanceId(hPi.getId());
+        snapshot.setProcessDefinitionId(hPi.getProcessDefinitionId());
+        snapshot.setProcessDefinitionKey(hPi.getProcessDefinitionKey());
+        snapshot.setProcessName(hPi.getProcessDefinitionName() != null
+                ? hPi.getProcessDefinitionName()
+                : definitionCache.getProcessName(hPi.getProcessDefinitionId()));
+        snapshot.setBusinessKey(hPi.getBusinessKey());
+        snapshot.setStartUserId(hPi.getStartUserId());
+        snapshot.setStartTime(toInstant(hPi.getStartTime()));
+        snapshot.setEndTime(toInstant(hPi.getEndTime()));
+        snapshot.setDeleteReason(hPi.getDeleteReason());
+        snapshot.setArchivedAt(Instant.now());
+
+        // 依結束時間排序，保留走過的先後順序並去除重複 (退回 / 跳關會重複經過)
+        LinkedHashSet<String> completedNodeIds = new LinkedHashSet<>();
+        String endActivityId = null;
+        for (HistoricActivityInstance activity : historyService.createHistoricActivityInstanceQuery()
+                .processInstanceId(hPi.getId())
+                .finished()
+                .orderByHistoricActivityInstanceEndTime().asc()
+                .list()) {
+            completedNodeIds.add(activity.getActivityId());
+            if ("endEvent".equals(activity.getActivityType())) {
+                endActivityId = activity.getActivityId();
+            }
+            ArchivedProcess.ArchivedActivity archivedActivity = new ArchivedProcess.ArchivedActivity();
+            archivedActivity.setActivityId(activity.getActivityId());
+            archivedActivity.setActivityName(activity.getActivityName());
+            archivedActivity.setActivityType(activity.getActivityType());
+            archivedActivity.setAssignee(activity.getAssignee());
+            archivedActivity.setStartTime(toInstant(activity.getStartTime()));
+            archivedActivity.setEndTime(toInstant(activity.getEndTime()));
+            archivedActivity.setDurationMillis(activity.getDurationInMillis());
+            archivedActivity.setDeleteReason(activity.getDeleteReason());
+            snapshot.getActivities().add(archivedActivity);
+        }
+        snapshot.setCompletedNodeIds(new ArrayList<>(completedNodeIds));
+        snapshot.setEndActivityId(endActivityId);
+
+        // 只保留流程層級的變數 (任務區域變數已反映在各節點的 changes)
+        for (HistoricVariableInstance variable : historyService.createHistoricVariableInstanceQuery()
+                .processInstanceId(hPi.getId())
+                .list()) {
+            if (variable.getTaskId() == null) {
+                snapshot.getVariables().put(variable.getVariableName(), variable.getValue());
+            }
+        }
+
+        for (HistoricTaskInstance task : historyService.createHistoricTaskInstanceQuery()
+                .processInstanceId(hPi.getId())
+                .orderByHistoricTaskInstanceStartTime().asc()
+                .list()) {
+            ArchivedProcess.ArchivedTask archivedTask = new ArchivedProcess.ArchivedTask();
+            archivedTask.setId(task.getId());
+            archivedTask.setName(task.getName());
+            archivedTask.setTaskDefinitionKey(task.getTaskDefinitionKey());
+            archivedTask.setAssignee(task.getAssignee());
+            archivedTask.setCreateTime(toInstant(task.getCreateTime()));
+            archivedTask.setEndTime(toInstant(task.getEndTime()));
+            archivedTask.setDeleteReason(task.getDeleteReason());
+            snapshot.getTasks().add(archivedTask);
+        }
+
+        snapshot.setHistory(historyBuilder.build(hPi.getId()));
+        return snapshot;
+    }
+
+    void captureQuietly(String processInstanceId) {
+        try {
+            if (!archiveStore.exists(processInstanceId)) {
+                findEnded(processInstanceId);
+            }
+        } catch (Exception e) {
+            logger.warn("流程實例 {} 快照建立失敗：{}", processInstanceId, e.getMessage());
+        }
+    }
+
+    private static Instant toInstant(Date date) {
+        return date != null ? date.toInstant() : null;
+    }
+}
@@ -0,0 +1,213 @@
+package com.taskmanager.process.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.taskmanager.process.dto.ProcessStartStatus;
+import com.taskmanager.process.model.ProcessIns;
+import com.taskmanager.process.model.ProcessStartRequest;
+import com.taskmanager.process.repository.ProcessInsRepository;
+import com.taskmanager.process.repository.ProcessStartRequestRepository;
+import com.taskmanager.task.model.InboxTask;
+import com.taskmanager.task.repository.InboxTaskRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 非同步啟動流程：請求先落地成 ProcessStartRequest，再交給有上限的執行緒池啟動。
+ * 用戶端逾時重送同一個 Idempotency-Key 時回傳原本的 handle，不會重複建立流程實例。
+ */
+@Service
+public class ProcessStartService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessStartService.class);
+
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final ProcessService processService;
+    private final ProcessStartRequestRepository requestRepository;
+    private final ProcessInsRepository instanceRepository;
+    private final InboxTaskRepository inboxTaskRepository;
+    private final TaskExecutor executor;
+    private final ObjectMapper hashMapper;
+
+    public ProcessStartService(ProcessService processService, ProcessStartRequestRepository requestRepository,
+                               ProcessInsRepository instanceRepository, InboxTaskRepository inboxTaskRepository,
+                               @Qualifier("processStartExecutor") TaskExecutor executor, ObjectMapper objectMapper) {
+        this.processService = processService;
+        this.requestRepository = requestRepository;
+        this.instanceRepository = instanceRepository;
+        this.inboxTaskRepository = inboxTaskRepository;
+        this.executor = executor;
+        // Map 依 key 排序，相同內容算出相同的雜湊
+        this.hashMapper = objectMapper.copy().enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+    }
+
+    // 排隊中的工作只存在記憶體，服務重啟後標記為失敗，讓用戶端換新的 key 重送
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedRequests() {
+        int failed = requestRepository.failUnfinished(
+                List.of(ProcessStartRequest.STATUS_QUEUED, ProcessStartRequest.STATUS_RUNNING),
+                "服務重新啟動，請求未完成", Instant.now());
+        if (failed > 0) {
+            logger.warn("{} 筆未完成的非同步啟動請求已標記為失敗", failed);
+        }
+    }
+
+    public ProcessStartStatus submit(String idempotencyKey, String processDefinitionId, Map<String, Object> variables) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            throw new IllegalArgumentException("缺少 Idempotency-Key");
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key 長度不可超過 " + MAX_KEY_LENGTH);
+        }
+        if (processDefinitionId == null || processDefinitionId.isBlank()) {
+            throw new IllegalArgumentException("流程定義 ID 不能為空");
+        }
+
+        String userId = getCurrentUserId();
+        String requestHash = hash(processDefinitionId, variables);
+
+        ProcessStartRequest existing = requestRepository.findByRequestedByAndIdempotencyKey(userId, idempotencyKey).orElse(null);
+        if (existing != null) {
+            return duplicate(existing, requestHash);
+        }
+
+        ProcessStartRequest request = new ProcessStartRequest();
+        request.setId(UUID.randomUUID().toString());
+        request.setIdempotencyKey(idempotencyKey);
+        request.setRequestedBy(userId);
+        request.setProcessDefinitionId(processDefinitionId);
+        request.setRequestHash(requestHash);
+        request.setStatus(ProcessStartRequest.STATUS_QUEUED);
+        request.setCreatedAt(Instant.now());
+        try {
+            request = requestRepository.saveAndFlush(request);
+        } catch (DataIntegrityViolationException e) {
+            // 同一個 key 的兩個請求同時到達：唯一索引擋下後者
+            return duplicate(requestRepository.findByRequestedByAndIdempotencyKey(userId, idempotencyKey)
+                    .orElseThrow(() -> e), requestHash);
+        }
+
+        String requestId = request.getId();
+        Map<String, Object> startVariables = variables != null ? new HashMap<>(variables) : new HashMap<>();
+        try {
+            executor.execute(() -> run(requestId, processDefinitionId, startVariables, userId));
+        } catch (RejectedExecutionException e) {
+            // 佇列已滿：移除紀錄，讓用戶端稍後以同一個 key 重試
+            requestRepository.deleteById(requestId);
+            throw e;
+        }
+        return toStatus(request, false);
+    }
+
+    public ProcessStartStatus getStatus(String requestId) {
+        ProcessStartRequest request = requestRepository.findById(requestId)
+                .filter(r -> r.getRequestedBy().equals(getCurrentUserId()))
+                .orElseThrow(() -> new IllegalArgumentException("啟動請求不存在：" + requestId));
+        return toStatus(request, false);
+    }
+
+    void run(String requestId, String processDefinitionId, Map<String, Object> variables, String userId) {
+        ProcessStartRequest request = requestRepository.findById(requestId).orElse(null);
+        if (request == null) {
+            return;
+        }
+        request.setStatus(ProcessStartRequest.STATUS_RUNNING);
+        request = requestRepository.save(request);
+        try {
+            ProcessIns instance = processService.startProcess(processDefinitionId, variables, userId);
+            request.setProcessInstanceId(instance.getId());
+            request.setStatus(ProcessStartRequest.STATUS_SUCCEEDED);
+        } catch (Exception e) {
+            logger.warn("非同步啟動流程失敗 (request {}): {}", requestId, e.getMessage());
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            request.setError(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+            request.setStatus(ProcessStartRequest.STATUS_FAILED);
+        }
+        request.setCompletedAt(Instant.now());
+        requestRepository.save(request);
+    }
+
+    private ProcessStartStatus duplicate(ProcessStartRequest existing, String requestHash) {
+        if (existing.getRequestHash() != null && !existing.getRequestHash().equals(requestHash)) {
+            throw new IllegalStateException("Idempotency-Key 已用於內容不同的啟動請求");
+        }
+        return toStatus(existing, true);
+    }
+
+    private ProcessStartStatus toStatus(ProcessStartRequest request, boolean duplicate) {
+        ProcessStartStatus status = new ProcessStartStatus();
+        status.setRequestId(request.getId());
+        status.setIdempotencyKey(request.getIdempotencyKey());
+        status.setStatus(request.getStatus());
+        status.setDuplicate(duplicate);
+        status.setProcessInstanceId(request.getProcessInstanceId());
+        status.setError(request.getError());
+        status.setCreatedAt(request.getCreatedAt());
+        status.setCompletedAt(request.getCompletedAt());
+
+        if (request.getProcessInstanceId() != null) {
+            status.setInstance(instanceRepository.findById(request.getProcessInstanceId()).orElse(null));
+            // 第一批待辦由待辦讀取模型提供，不回查引擎
+            List<Map<String, Object>> tasks = new ArrayList<>();
+            inboxTaskRepository.findByProcessInstanceId(request.getProcessInstanceId()).stream()
+                    .sorted(Comparator.comparing(InboxTask::getId))
+                    .forEach(task -> {
+                        Map<String, Object> item = new LinkedHashMap<>();
+                        item.put("id", task.getId());
+                        item.put("name", task.getName());
+                        item.put("taskDefinitionKey", task.getTaskDefinitionKey());
+                        item.put("assignee", task.getAssignee());
+                        tasks.add(item);
+                    });
+            status.setTasks(tasks);
+        }
+        return status;
+    }
+
+    private String hash(String processDefinitionId, Map<String, Object> variables) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(processDefinitionId.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(hashMapper.writeValueAsBytes(variables != null ? variables : Map.of()));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalArgumentException("無法處理啟動參數：" + e.getMessage());
+        }
+    }
+
+    private String getCurrentUserId() {
+        try {
+            if (SecurityContextHolder.getContext().getAuthentication() != null) {
+                return SecurityContextHolder.getContext().getAuthentication().getName();
+            }
+        } catch (Exception e) {
+            // ignore
+        }
+        return "user";
+    }
+}
@@ -0,0 +1,28 @@
+package com.taskmanager.process.service;
+
+import org.activiti.engine.impl.cmd.DeleteHistoricProcessInstanceCmd;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+
+import java.util.List;
+
+/**
+ * 在同一個引擎交易內清除一批已結束流程實例的 ACT_HI_* 紀錄 (活動、任務、變數、明細、身分連結)。
+ * 任一筆失敗整批回滾，由呼叫端逐筆重試。
+ */
+class PurgeHistoryCmd implements Command<Void> {
+
+    private final List<String> processInstanceIds;
+
+    PurgeHistoryCmd(List<String> processInstanceIds) {
+        this.processInstanceIds = processInstanceIds;
+    }
+
+    @Override
+    public Void execute(CommandContext commandContext) {
+        for (String processInstanceId : processInstanceIds) {
+            new DeleteHistoricProcessInstanceCmd(processInstanceId).execute(commandContext);
+        }
+        return null;
+    }
+}
@@ -1,18 +1,25 @@
 package com.taskmanager.task.controller;
 
+import com.taskmanager.task.dto.BulkTaskRequest;
+import com.taskmanager.task.dto.BulkTaskResponse;
+import com.taskmanager.task.dto.CursorPage;
 import com.taskmanager.task.dto.TaskDto;
 import com.taskmanager.task.dto.TaskFormRequest;
 import com.taskmanager.task.dto.TaskReassignRequest;
 import com.taskmanager.task.service.TaskManagerService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -32,10 +39,15 @@ public class TaskController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Success",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = TaskDto.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified since the given ETag", content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
     })
-    public ResponseEntity<List<TaskDto>> getMyTasks() {
-        return ResponseEntity.ok(taskManagerService.getMyTasks());
+    public ResponseEntity<List<TaskDto>> getMyTasks(WebRequest webRequest) {
+        String etag = taskManagerService.getMyTasksEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(taskManagerService.getMyTasks());
     }
 
     // ★★★ 新增：取得群組可認領任務 ★★★
@@ -44,10 +56,53 @@ public class TaskController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Success",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = TaskDto.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified since the given ETag", content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
     })
-    public ResponseEntity<List<TaskDto>> getGroupTasks() {
-        return ResponseEntity.ok(taskManagerService.getGroupTasks());
+    public ResponseEntity<List<TaskDto>> getGroupTasks(
+            @Parameter(description = "Optional maximum number of rows") @RequestParam(required = false) Integer limit,
+            WebRequest webRequest) {
+        String etag = taskManagerService.getGroupTasksEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(taskManagerService.getGroupTasks(limit));
+    }
+
+    // ★★★ Keyset 分頁版本 (原本的 list API 保留相容) ★★★
+    @GetMapping("/my-tasks/page")
+    @Operation(summary = "Get user's tasks (paged)", description = "Keyset-paginated tasks assigned to the current user, newest first")
+    public ResponseEntity<CursorPage<TaskDto>> getMyTasksPage(
+            @Parameter(description = "Opaque cursor from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (max 100)") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Also return the total count") @RequestParam(defaultValue = "false") boolean withTotal) {
+        return ResponseEntity.ok(taskManagerService.getMyTasksPage(cursor, size, withTotal));
+    }
+
+    @GetMapping("/group-tasks/page")
+    @Operation(summary = "Get group tasks (paged)", description = "Keyset-paginated unassigned candidate tasks, newest first")
+    public ResponseEntity<CursorPage<TaskDto>> getGroupTasksPage(
+            @Parameter(description = "Opaque cursor from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (max 100)") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Also return the total count") @RequestParam(defaultValue = "false") boolean withTotal) {
+        return ResponseEntity.ok(taskManagerService.getGroupTasksPage(cursor, size, withTotal));
+    }
+
+    @GetMapping("/history-tasks/page")
+    @Operation(summary = "Get user's history tasks (paged)", description = "Keyset-paginated completed tasks, most recently finished first")
+    public ResponseEntity<CursorPage<TaskDto>> getHistoryTasksPage(
+            @Parameter(description = "Opaque cursor from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (max 100)") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Also return the total count") @RequestParam(defaultValue = "false") boolean withTotal) {
+        return ResponseEntity.ok(taskManagerService.getHistoryTasksPage(cursor, size, withTotal));
+    }
+
+    @PostMapping("/inbox/rebuild")
+    @Operation(summary = "Rebuild inbox read model", description = "Backfills the inbox table from the engine's runtime tasks")
+    public ResponseEntity<Map<String, Object>> rebuildInbox() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("rebuilt", taskManagerService.rebuildInbox());
+        return ResponseEntity.ok(response);
     }
 
     // ★★★ 新增：簽收任務 ★★★
@@ -85,8 +140,24 @@ public class TaskController {
             @ApiResponse(responseCode = "404", description = "Task not found", content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
     })
-    public ResponseEntity<List<Map<String, Object>>> getTaskForm(@PathVariable String id) {
-        return ResponseEntity.ok(taskManagerService.getTaskForm(id));
+    public ResponseEntity<List<Map<String, Object>>> getTaskForm(
+            @PathVariable String id,
+            @Parameter(description = "Return references instead of values for large or binary variables")
+            @RequestParam(defaultValue = "false") boolean lazy) {
+        return ResponseEntity.ok(taskManagerService.getTaskForm(id, lazy));
+    }
+
+    @GetMapping("/{id}/variables/{name}")
+    @Operation(summary = "Get task form variable", description = "Loads the value of a single form variable, e.g. a lazy reference from the form API")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "400", description = "Task not found or variable not in form", content = @Content)
+    })
+    public ResponseEntity<Map<String, Object>> getTaskFormVariable(@PathVariable String id, @PathVariable String name) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("name", name);
+        response.put("value", taskManagerService.getTaskFormVariable(id, name));
+        return ResponseEntity.ok(response);
     }
 
     @PostMapping("/{id}/submit")
@@ -114,4 +185,23 @@ public class TaskController {
         taskManagerService.reassignTask(id, request.getAssignee());
         return ResponseEntity.ok().build();
     }
+
+    // ★★★ 批次操作：一次送出多筆簽收 / 送出 / 轉派 ★★★
+    @PostMapping("/bulk")
+    @Operation(summary = "Bulk task operations", description = "Claims, unclaims, completes or reassigns many tasks, one engine transaction per chunk, with per-item outcomes")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Processed; check each result for success",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkTaskResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Empty or oversized request", content = @Content)
+    })
+    public ResponseEntity<BulkTaskResponse> bulkOperate(@RequestBody BulkTaskRequest request) {
+        return ResponseEntity.ok(taskManagerService.executeBulk(request.toItems()));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleIllegalArgumentException(IllegalArgumentException ex) {
+        Map<String, String> errorResponse = new HashMap<>();
+        errorResponse.put("message", ex.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.taskmanager.task.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.Map;
+
+@Schema(description = "Single operation in a bulk task request")
+public class BulkTaskItem {
+
+    @Schema(description = "Task ID", example = "2501", required = true)
+    private String taskId;
+
+    @Schema(description = "claim / unclaim / complete / reassign; defaults to the request-level operation", example = "complete")
+    private String operation;
+
+    @Schema(description = "New assignee (reassign only)", example = "john_doe")
+    private String assignee;
+
+    @Schema(description = "Form data (complete only)")
+    private Map<String, Object> formData;
+
+    public BulkTaskItem() {
+    }
+
+    public BulkTaskItem(String taskId, String operation, String assignee, Map<String, Object> formData) {
+        this.taskId = taskId;
+        this.operation = operation;
+        this.assignee = assignee;
+        this.formData = formData;
+    }
+
+    public String getTaskId() { return taskId; }
+    public void setTaskId(String taskId) { this.taskId = taskId; }
+
+    public String getOperation() { return operation; }
+    public void setOperation(String operation) { this.operation = operation; }
+
+    public String getAssignee() { return assignee; }
+    public void setAssignee(String assignee) { this.assignee = assignee; }
+
+    public Map<String, Object> getFormData() { return formData; }
+    public void setFormData(Map<String, Object> formData) { this.formData = formData; }
+}
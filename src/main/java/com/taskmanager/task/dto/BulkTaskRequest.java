@@ -0,0 +1,60 @@
+package com.taskmanager.task.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Schema(description = "Request object for bulk task operations. Either list taskIds with one shared operation, or list items with their own operation.")
+public class BulkTaskRequest {
+
+    @Schema(description = "Shared operation for taskIds: claim / unclaim / complete / reassign", example = "claim")
+    private String operation;
+
+    @Schema(description = "Task IDs that use the shared operation")
+    private List<String> taskIds;
+
+    @Schema(description = "Shared assignee for reassign", example = "john_doe")
+    private String assignee;
+
+    @Schema(description = "Shared form data for complete")
+    private Map<String, Object> formData;
+
+    @Schema(description = "Per-task operations")
+    private List<BulkTaskItem> items;
+
+    // 將共用設定展開成逐筆操作
+    public List<BulkTaskItem> toItems() {
+        List<BulkTaskItem> result = new ArrayList<>();
+        if (taskIds != null) {
+            for (String taskId : taskIds) {
+                result.add(new BulkTaskItem(taskId, operation, assignee, formData));
+            }
+        }
+        if (items != null) {
+            for (BulkTaskItem item : items) {
+                result.add(new BulkTaskItem(item.getTaskId(),
+                        item.getOperation() != null ? item.getOperation() : operation,
+                        item.getAssignee() != null ? item.getAssignee() : assignee,
+                        item.getFormData() != null ? item.getFormData() : formData));
+            }
+        }
+        return result;
+    }
+
+    public String getOperation() { return operation; }
+    public void setOperation(String operation) { this.operation = operation; }
+
+    public List<String> getTaskIds() { return taskIds; }
+    public void setTaskIds(List<String> taskIds) { this.taskIds = taskIds; }
+
+    public String getAssignee() { return assignee; }
+    public void setAssignee(String assignee) { this.assignee = assignee; }
+
+    public Map<String, Object> getFormData() { return formData; }
+    public void setFormData(Map<String, Object> formData) { this.formData = formData; }
+
+    public List<BulkTaskItem> getItems() { return items; }
+    public void setItems(List<BulkTaskItem> items) { this.items = items; }
+}
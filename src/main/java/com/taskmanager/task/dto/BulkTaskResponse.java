@@ -0,0 +1,44 @@
+package com.taskmanager.task.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Per-item outcomes of a bulk task request")
+public class BulkTaskResponse {
+
+    private int succeeded;
+    private int failed;
+    private int skipped;
+
+    // 實際開啟的引擎交易數 (每個批次一個)
+    private int transactions;
+
+    private List<BulkTaskResult> results;
+
+    public BulkTaskResponse() {
+    }
+
+    public BulkTaskResponse(List<BulkTaskResult> results, int transactions) {
+        this.results = results;
+        this.transactions = transactions;
+        this.succeeded = (int) results.stream().filter(BulkTaskResult::isSuccess).count();
+        this.skipped = (int) results.stream().filter(BulkTaskResult::isSkipped).count();
+        this.failed = results.size() - succeeded - skipped;
+    }
+
+    public int getSucceeded() { return succeeded; }
+    public void setSucceeded(int succeeded) { this.succeeded = succeeded; }
+
+    public int getFailed() { return failed; }
+    public void setFailed(int failed) { this.failed = failed; }
+
+    public int getSkipped() { return skipped; }
+    public void setSkipped(int skipped) { this.skipped = skipped; }
+
+    public int getTransactions() { return transactions; }
+    public void setTransactions(int transactions) { this.transactions = transactions; }
+
+    public List<BulkTaskResult> getResults() { return results; }
+    public void setResults(List<BulkTaskResult> results) { this.results = results; }
+}
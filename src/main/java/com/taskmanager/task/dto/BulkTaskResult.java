@@ -0,0 +1,56 @@
+package com.taskmanager.task.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Outcome of one task in a bulk request")
+public class BulkTaskResult {
+
+    private String taskId;
+    private String operation;
+    private boolean success;
+
+    // 任務已不需處理 (例如會簽已提前結束而被引擎移除)，不算失敗
+    private boolean skipped;
+
+    // 失敗或略過的原因，成功時為 null
+    private String message;
+
+    public BulkTaskResult() {
+    }
+
+    public BulkTaskResult(String taskId, String operation, boolean success, String message) {
+        this.taskId = taskId;
+        this.operation = operation;
+        this.success = success;
+        this.message = message;
+    }
+
+    public static BulkTaskResult ok(BulkTaskItem item) {
+        return new BulkTaskResult(item.getTaskId(), item.getOperation(), true, null);
+    }
+
+    public static BulkTaskResult failed(BulkTaskItem item, String message) {
+        return new BulkTaskResult(item.getTaskId(), item.getOperation(), false, message);
+    }
+
+    public static BulkTaskResult skipped(BulkTaskResult result, String message) {
+        BulkTaskResult skipped = new BulkTaskResult(result.getTaskId(), result.getOperation(), false, message);
+        skipped.setSkipped(true);
+        return skipped;
+    }
+
+    public String getTaskId() { return taskId; }
+    public void setTaskId(String taskId) { this.taskId = taskId; }
+
+    public String getOperation() { return operation; }
+    public void setOperation(String operation) { this.operation = operation; }
+
+    public boolean isSuccess() { return success; }
+    public void setSuccess(boolean success) { this.success = success; }
+
+    public boolean isSkipped() { return skipped; }
+    public void setSkipped(boolean skipped) { this.skipped = skipped; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+}
@@ -0,0 +1,50 @@
+package com.taskmanager.task.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Keyset 分頁結果")
+public class CursorPage<T> {
+
+    private List<T> items;
+
+    // 下一頁游標，為 null 表示已是最後一頁
+    private String nextCursor;
+
+    // 僅在 withTotal=true 時計算
+    private Long total;
+
+    public CursorPage() {
+    }
+
+    public CursorPage(List<T> items, String nextCursor, Long total) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.total = total;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public Long getTotal() {
+        return total;
+    }
+
+    public void setTotal(Long total) {
+        this.total = total;
+    }
+}
@@ -0,0 +1,64 @@
+package com.taskmanager.task.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 待辦清單讀取模型 — 由引擎任務事件維護，查詢待辦時不再經過 Activiti Query API。
+ */
+@Entity
+@Table(name = "inbox_task", indexes = {
+        @Index(name = "idx_inbox_assignee_created", columnList = "assignee, create_time, id"),
+        @Index(name = "idx_inbox_unassigned_created", columnList = "create_time, id"),
+        @Index(name = "idx_inbox_process_instance", columnList = "process_instance_id"),
+        @Index(name = "idx_inbox_assignee_instance", columnList = "assignee, process_instance_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class InboxTask {
+
+    // 即 ACT_RU_TASK.ID_
+    @Id
+    private String id;
+
+    private String name;
+
+    @Column(name = "process_name")
+    private String processName;
+
+    @Column(name = "process_definition_id")
+    private String processDefinitionId;
+
+    @Column(name = "task_definition_key")
+    private String taskDefinitionKey;
+
+    @Column(name = "assignee")
+    private String assignee;
+
+    @Column(name = "create_time")
+    private Instant createTime;
+
+    private int priority;
+
+    @Column(name = "process_instance_id")
+    private String processInstanceId;
+
+    @ElementCollection
+    @CollectionTable(name = "inbox_task_candidate_group", joinColumns = @JoinColumn(name = "task_id"),
+            indexes = @Index(name = "idx_inbox_candidate_group", columnList = "group_id, task_id"))
+    @Column(name = "group_id")
+    private Set<String> candidateGroups = new HashSet<>();
+
+    @ElementCollection
+    @CollectionTable(name = "inbox_task_candidate_user", joinColumns = @JoinColumn(name = "task_id"),
+            indexes = @Index(name = "idx_inbox_candidate_user", columnList = "user_id, task_id"))
+    @Column(name = "user_id")
+    private Set<String> candidateUsers = new HashSet<>();
+}
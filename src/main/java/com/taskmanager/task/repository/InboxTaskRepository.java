@@ -0,0 +1,46 @@
+package com.taskmanager.task.repository;
+
+import com.taskmanager.task.model.InboxTask;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface InboxTaskRepository extends JpaRepository<InboxTask, String> {
+
+    // 我的待辦：依 (createTime, id) 由新到舊；afterTime 為 null 代表第一頁
+    @Query("SELECT t FROM InboxTask t WHERE t.assignee = :assignee"
+            + " AND (:afterTime IS NULL OR t.createTime < :afterTime OR (t.createTime = :afterTime AND t.id < :afterId))"
+            + " ORDER BY t.createTime DESC, t.id DESC")
+    List<InboxTask> findAssigned(@Param("assignee") String assignee,
+                                 @Param("afterTime") Instant afterTime,
+                                 @Param("afterId") String afterId,
+                                 Pageable pageable);
+
+    long countByAssignee(String assignee);
+
+    // 群組待辦：未指派且 (候選人為本人 或 候選群組屬於本人角色)
+    @Query("SELECT t FROM InboxTask t WHERE t.assignee IS NULL"
+            + " AND (:userId MEMBER OF t.candidateUsers"
+            + " OR EXISTS (SELECT 1 FROM InboxTask c JOIN c.candidateGroups g WHERE c = t AND g IN :groups))"
+            + " AND (:afterTime IS NULL OR t.createTime < :afterTime OR (t.createTime = :afterTime AND t.id < :afterId))"
+            + " ORDER BY t.createTime DESC, t.id DESC")
+    List<InboxTask> findCandidate(@Param("userId") String userId,
+                                  @Param("groups") Collection<String> groups,
+                                  @Param("afterTime") Instant afterTime,
+                                  @Param("afterId") String afterId,
+                                  Pageable pageable);
+
+    @Query("SELECT COUNT(t) FROM InboxTask t WHERE t.assignee IS NULL"
+            + " AND (:userId MEMBER OF t.candidateUsers"
+            + " OR EXISTS (SELECT 1 FROM InboxTask c JOIN c.candidateGroups g WHERE c = t AND g IN :groups))")
+    long countCandidate(@Param("userId") String userId, @Param("groups") Collection<String> groups);
+
+    List<InboxTask> findByProcessInstanceId(String processInstanceId);
+
+    List<InboxTask> findByProcessInstanceIdIn(Collection<String> processInstanceIds);
+}
@@ -0,0 +1,119 @@
+package com.taskmanager.task.service;
+
+import com.taskmanager.process.cache.CachedProcessDefinition;
+import com.taskmanager.process.cache.ProcessDefinitionCache;
+import com.taskmanager.process.form.FormSchema;
+import com.taskmanager.task.dto.BulkTaskItem;
+import com.taskmanager.task.dto.BulkTaskResult;
+import org.activiti.engine.impl.cmd.AddIdentityLinkCmd;
+import org.activiti.engine.impl.cmd.ClaimTaskCmd;
+import org.activiti.engine.impl.cmd.CompleteTaskCmd;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.activiti.engine.task.IdentityLinkType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 在同一個引擎交易內依序執行一批任務操作。
+ * 每筆先做完所有檢查 (任務不存在、已暫停、已被簽收、表單不合法) 才異動，檢查失敗只記在該筆結果；
+ * 開始異動後的任何例外 (監聽器、運算式、委派類別) 都會讓整批交易回滾，由呼叫端逐筆重試。
+ */
+class BulkTaskCmd implements Command<List<BulkTaskResult>> {
+
+    private final List<BulkTaskItem> items;
+    private final String currentUserId;
+    private final ProcessDefinitionCache definitionCache;
+
+    BulkTaskCmd(List<BulkTaskItem> items, String currentUserId, ProcessDefinitionCache definitionCache) {
+        this.items = items;
+        this.currentUserId = currentUserId;
+        this.definitionCache = definitionCache;
+    }
+
+    @Override
+    public List<BulkTaskResult> execute(CommandContext commandContext) {
+        List<BulkTaskResult> results = new ArrayList<>(items.size());
+        for (BulkTaskItem item : items) {
+            String operation;
+            try {
+                operation = validate(commandContext, item);
+            } catch (IllegalArgumentException e) {
+                results.add(BulkTaskResult.failed(item, e.getMessage()));
+                continue;
+            }
+            // 不在這裡攔截例外：已寫入一半的異動不能跟著同批其他任務一起提交
+            apply(commandContext, item, operation);
+            results.add(BulkTaskResult.ok(item));
+        }
+        return results;
+    }
+
+    // 只讀取不寫入，回傳正規化後的操作名稱
+    private String validate(CommandContext commandContext, BulkTaskItem item) {
+        String taskId = item.getTaskId();
+        if (taskId == null || taskId.isBlank()) {
+            throw new IllegalArgumentException("任務 ID 不可為空");
+        }
+        TaskEntity task = commandContext.getTaskEntityManager().findById(taskId);
+        if (task == null) {
+            throw new IllegalArgumentException("任務不存在：" + taskId);
+        }
+        if (task.isSuspended()) {
+            throw new IllegalArgumentException("任務已暫停：" + taskId);
+        }
+
+        String operation = item.getOperation() != null ? item.getOperation().toLowerCase() : "";
+        switch (operation) {
+            case "claim":
+                if (task.getAssignee() != null && !task.getAssignee().equals(currentUserId)) {
+                    throw new IllegalArgumentException("任務已被 " + task.getAssignee() + " 簽收：" + taskId);
+                }
+                break;
+            case "unclaim":
+                break;
+            case "reassign":
+                if (item.getAssignee() == null || item.getAssignee().isBlank()) {
+                    throw new IllegalArgumentException("重新指派需要 assignee");
+                }
+                break;
+            case "complete":
+                validateForm(task, item);
+                break;
+            default:
+                throw new IllegalArgumentException("不支援的操作：" + item.getOperation());
+        }
+        return operation;
+    }
+
+    private void apply(CommandContext commandContext, BulkTaskItem item, String operation) {
+        String taskId = item.getTaskId();
+        switch (operation) {
+            case "claim":
+                new ClaimTaskCmd(taskId, currentUserId).execute(commandContext);
+                break;
+            case "unclaim":
+                new ClaimTaskCmd(taskId, null).execute(commandContext);
+                break;
+            case "reassign":
+                new AddIdentityLinkCmd(taskId, item.getAssignee(), AddIdentityLinkCmd.IDENTITY_USER, IdentityLinkType.ASSIGNEE)
+                        .execute(commandContext);
+                break;
+            case "complete":
+                new CompleteTaskCmd(taskId, item.getFormData()).execute(commandContext);
+                break;
+            default:
+                throw new IllegalStateException("未驗證的操作：" + operation);
+        }
+    }
+
+    private void validateForm(TaskEntity task, BulkTaskItem item) {
+        CachedProcessDefinition definition = definitionCache.get(task.getProcessDefinitionId());
+        FormSchema schema = definition != null ? definition.getTaskForm(task.getTaskDefinitionKey()) : null;
+        if (schema != null) {
+            schema.validate(item.getFormData());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.taskmanager.task.service;
+
+import com.taskmanager.process.cache.ProcessDefinitionCache;
+import com.taskmanager.task.model.InboxTask;
+import com.taskmanager.task.repository.InboxTaskRepository;
+import com.taskmanager.workflow.listener.TaskChange;
+import com.taskmanager.workflow.listener.TaskChangeHandler;
+import org.activiti.engine.ManagementService;
+import org.activiti.engine.TaskService;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.activiti.engine.task.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 維護 inbox_task 讀取模型：引擎交易提交後套用任務異動，並可由 ACT_RU_TASK 全量重建。
+ * 引擎與 JPA 使用不同資料庫，無法共用交易，因此以「提交後套用 + 可重建」保持一致。
+ */
+@Service
+@Order(0)
+public class InboxProjection implements TaskChangeHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(InboxProjection.class);
+
+    private static final int REBUILD_CHUNK_SIZE = 500;
+
+    private final InboxTaskRepository inboxTaskRepository;
+    private final TaskService taskService;
+    private final ManagementService managementService;
+    private final ProcessDefinitionCache definitionCache;
+    private final TransactionTemplate transactionTemplate;
+
+    public InboxProjection(InboxTaskRepository inboxTaskRepository,
+                           TaskService taskService,
+                           ManagementService managementService,
+                           ProcessDefinitionCache definitionCache,
+                           TransactionTemplate transactionTemplate) {
+        this.inboxTaskRepository = inboxTaskRepository;
+        this.taskService = taskService;
+        this.managementService = managementService;
+        this.definitionCache = definitionCache;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    // 與重建互斥，避免重建讀到的舊快照覆蓋較新的事件
+    @Override
+    public synchronized void onTaskChanges(List<TaskChange> changes) {
+        // 同一交易內同一任務可能有多筆異動，只保留最後狀態
+        Map<String, TaskChange> latest = new LinkedHashMap<>();
+        for (TaskChange change : changes) {
+            latest.put(change.getTaskId(), change);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<String, InboxTask> existing = new HashMap<>();
+            inboxTaskRepository.findAllById(latest.keySet()).forEach(row -> existing.put(row.getId(), row));
+
+            List<InboxTask> toSave = new ArrayList<>();
+            List<InboxTask> toDelete = new ArrayList<>();
+            for (TaskChange change : latest.values()) {
+                InboxTask row = existing.get(change.getTaskId());
+                if (change.isRemoval()) {
+                    if (row != null) {
+                        toDelete.add(row);
+                    }
+                } else {
+                    toSave.add(apply(row != null ? row : new InboxTask(), change));
+                }
+            }
+            inboxTaskRepository.saveAll(toSave);
+            inboxTaskRepository.deleteAll(toDelete);
+        });
+    }
+
+    /**
+     * 流程實例移轉到其他版本後更新待辦的定義欄位 (引擎不會為此發出任務事件)，回傳更新過的列。
+     */
+    public synchronized List<InboxTask> onInstancesMigrated(Collection<String> processInstanceIds, String processDefinitionId,
+                                                            Map<String, String> nodeMapping) {
+        return transactionTemplate.execute(status -> {
+            List<InboxTask> rows = inboxTaskRepository.findByProcessInstanceIdIn(processInstanceIds);
+            String processName = definitionCache.getProcessName(processDefinitionId);
+            for (InboxTask row : rows) {
+                row.setProcessDefinitionId(processDefinitionId);
+                row.setProcessName(processName);
+                row.setTaskDefinitionKey(nodeMapping.getOrDefault(row.getTaskDefinitionKey(), row.getTaskDefinitionKey()));
+            }
+            return inboxTaskRepository.saveAll(rows);
+        });
+    }
+
+    // 需早於流程實例投影的重建 (它依賴 inbox_task)
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void rebuildOnStartup() {
+        try {
+            int count = rebuild();
+            logger.info("待辦讀取模型重建完成，共 {} 筆任務", count);
+        } catch (Exception e) {
+            logger.error("待辦讀取模型重建失敗: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 由 ACT_RU_TASK 全量重建，回傳重建筆數。
+     */
+    public synchronized int rebuild() {
+        List<TaskChange> snapshots = new ArrayList<>();
+        for (int first = 0; ; first += REBUILD_CHUNK_SIZE) {
+            final int offset = first;
+            // 在引擎 Command 內讀取，才能一併載入每個任務的候選人 / 群組
+            List<TaskChange> chunk = managementService.executeCommand(commandContext -> {
+                List<TaskChange> result = new ArrayList<>();
+                for (Task task : taskService.createTaskQuery().orderByTaskId().asc().listPage(offset, REBUILD_CHUNK_SIZE)) {
+                    result.add(TaskChange.of(TaskChange.Type.CREATED, (TaskEntity) task));
+                }
+                return result;
+            });
+            snapshots.addAll(chunk);
+            if (chunk.size() < REBUILD_CHUNK_SIZE) {
+                break;
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            inboxTaskRepository.deleteAll();
+            inboxTaskRepository.flush();
+            List<InboxTask> rows = new ArrayList<>(snapshots.size());
+            for (TaskChange snapshot : snapshots) {
+                rows.add(apply(new InboxTask(), snapshot));
+            }
+            inboxTaskRepository.saveAll(rows);
+        });
+        return snapshots.size();
+    }
+
+    private InboxTask apply(InboxTask row, TaskChange change) {
+        row.setId(change.getTaskId());
+        row.setName(change.getName());
+        row.setProcessDefinitionId(change.getProcessDefinitionId());
+        row.setProcessName(definitionCache.getProcessName(change.getProcessDefinitionId()));
+        row.setTaskDefinitionKey(change.getTaskDefinitionKey());
+        row.setAssignee(change.getAssignee());
+        row.setCreateTime(change.getCreateTime() != null ? change.getCreateTime().toInstant() : null);
+        row.setPriority(change.getPriority());
+        row.setProcessInstanceId(change.getProcessInstanceId());
+        row.getCandidateGroups().clear();
+        row.getCandidateGroups().addAll(change.getCandidateGroups());
+        row.getCandidateUsers().clear();
+        row.getCandidateUsers().addAll(change.getCandidateUsers());
+        return row;
+    }
+}
@@ -1,19 +1,33 @@
 package com.taskmanager.task.service;
 
+import com.taskmanager.process.cache.CachedProcessDefinition;
+import com.taskmanager.process.cache.ProcessDefinitionCache;
+import com.taskmanager.process.form.FormSchema;
+import com.taskmanager.task.dto.BulkTaskItem;
+import com.taskmanager.task.dto.BulkTaskResponse;
+import com.taskmanager.task.dto.BulkTaskResult;
+import com.taskmanager.task.dto.CursorPage;
 import com.taskmanager.task.dto.TaskDto;
-import org.activiti.bpmn.model.*;
+import com.taskmanager.task.model.InboxTask;
+import com.taskmanager.task.repository.InboxTaskRepository;
+import com.taskmanager.util.KeysetCursor;
+import com.taskmanager.workflow.listener.ListVersionTracker;
 import org.activiti.engine.HistoryService;
-import org.activiti.engine.RepositoryService;
-import org.activiti.engine.RuntimeService;
+import org.activiti.engine.ManagementService;
 import org.activiti.engine.TaskService;
 import org.activiti.engine.history.HistoricTaskInstance;
-import org.activiti.engine.runtime.ProcessInstance;
+import org.activiti.engine.history.NativeHistoricTaskInstanceQuery;
 import org.activiti.engine.task.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -22,21 +36,45 @@ import java.util.stream.Collectors;
 @Service
 public class TaskManagerService {
 
+    private static final Logger logger = LoggerFactory.getLogger(TaskManagerService.class);
+
     private final TaskService taskService;
-    private final RuntimeService runtimeService;
-    private final RepositoryService repositoryService;
     private final HistoryService historyService;
+    private final ManagementService managementService;
+    private final ProcessDefinitionCache definitionCache;
+    private final ListVersionTracker versionTracker;
+    private final InboxTaskRepository inboxTaskRepository;
+    private final InboxProjection inboxProjection;
+
+    // 這些型別存放在 ACT_GE_BYTEARRAY，讀值需要額外查詢並反序列化；json 存在文字欄位，直接讀取
+    private static final Set<String> LAZY_VARIABLE_TYPES = Set.of("serializable", "bytes", "longJson", "longString");
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
+    // IN 清單每批的上限，避免超過資料庫參數數量限制
+    private static final int IN_CLAUSE_CHUNK_SIZE = 500;
+
+    // 批次操作：每個引擎交易處理的筆數與單次請求上限
+    private static final int BULK_CHUNK_SIZE = 100;
+    private static final int MAX_BULK_ITEMS = 2000;
+
+    // 分頁 API 單頁上限
+    private static final int MAX_PAGE_SIZE = 100;
+
     public TaskManagerService(TaskService taskService,
-                              RuntimeService runtimeService,
-                              RepositoryService repositoryService,
-                              HistoryService historyService) {
+                              HistoryService historyService,
+                              ManagementService managementService,
+                              ProcessDefinitionCache definitionCache,
+                              ListVersionTracker versionTracker,
+                              InboxTaskRepository inboxTaskRepository,
+                              InboxProjection inboxProjection) {
         this.taskService = taskService;
-        this.runtimeService = runtimeService;
-        this.repositoryService = repositoryService;
         this.historyService = historyService;
+        this.managementService = managementService;
+        this.definitionCache = definitionCache;
+        this.versionTracker = versionTracker;
+        this.inboxTaskRepository = inboxTaskRepository;
+        this.inboxProjection = inboxProjection;
     }
 
     private String getCurrentUserId() {
@@ -65,45 +103,135 @@ public class TaskManagerService {
         return Collections.emptyList();
     }
 
-    public List<TaskDto> getMyTasks() {
-        String assignee = getCurrentUserId();
+    // ETag：清單內容沒變時 Controller 直接回 304，不查詢引擎
+    public String getMyTasksEtag() {
+        return versionTracker.userListEtag("my-tasks", getCurrentUserId());
+    }
 
-        List<Task> activitiTasks = taskService.createTaskQuery()
-                .taskAssignee(assignee)
-                .orderByTaskCreateTime().desc()
-                .list();
+    public String getGroupTasksEtag() {
+        return versionTracker.groupListEtag("group-tasks", getCurrentUserId(), getUserRoles());
+    }
 
-        return convertTasks(activitiTasks, null);
+    public List<TaskDto> getMyTasks() {
+        List<InboxTask> rows = inboxTaskRepository.findAssigned(getCurrentUserId(), null, null, Pageable.unpaged());
+        return convertInboxTasks(rows, null);
     }
 
     public List<TaskDto> getGroupTasks() {
+        return getGroupTasks(null);
+    }
+
+    // ★★★ 由待辦讀取模型查詢：候選人 OR 候選群組、去重、排序與筆數限制都交給資料庫處理 ★★★
+    public List<TaskDto> getGroupTasks(Integer limit) {
+        if (limit != null && limit <= 0) {
+            return new ArrayList<>();
+        }
+        Pageable pageable = limit != null ? PageRequest.of(0, limit) : Pageable.unpaged();
+        List<InboxTask> rows = inboxTaskRepository.findCandidate(getCurrentUserId(), candidateGroups(), null, null, pageable);
+        return convertInboxTasks(rows, "待認領");
+    }
+
+    // ★★★ Keyset 分頁版本：依 (createTime, id) 由新到舊，舊的 list API 保留相容 ★★★
+    public CursorPage<TaskDto> getMyTasksPage(String cursor, int size, boolean withTotal) {
+        String assignee = getCurrentUserId();
+        int pageSize = normalizePageSize(size);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+
+        List<InboxTask> rows = inboxTaskRepository.findAssigned(assignee, afterTime(after), afterId(after),
+                PageRequest.of(0, pageSize + 1));
+        Long total = withTotal ? inboxTaskRepository.countByAssignee(assignee) : null;
+        return toInboxPage(rows, pageSize, total, null);
+    }
+
+    public CursorPage<TaskDto> getGroupTasksPage(String cursor, int size, boolean withTotal) {
         String userId = getCurrentUserId();
-        List<String> groups = getUserRoles();
+        List<String> groups = candidateGroups();
+        int pageSize = normalizePageSize(size);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+
+        List<InboxTask> rows = inboxTaskRepository.findCandidate(userId, groups, afterTime(after), afterId(after),
+                PageRequest.of(0, pageSize + 1));
+        Long total = withTotal ? inboxTaskRepository.countCandidate(userId, groups) : null;
+        return toInboxPage(rows, pageSize, total, "待認領");
+    }
 
-        Map<String, Task> taskMap = new HashMap<>();
+    /**
+     * 由 ACT_RU_TASK 重建待辦讀取模型，回傳重建筆數。
+     */
+    public int rebuildInbox() {
+        return inboxProjection.rebuild();
+    }
 
-        List<Task> userTasks = taskService.createTaskQuery()
-                .taskCandidateUser(userId)
-                .taskUnassigned()
-                .list();
-        for (Task t : userTasks) {
-            taskMap.put(t.getId(), t);
+    public CursorPage<TaskDto> getHistoryTasksPage(String cursor, int size, boolean withTotal) {
+        int pageSize = normalizePageSize(size);
+        String from = managementService.getTableName(HistoricTaskInstance.class) + " RES";
+        String where = "RES.ASSIGNEE_ = #{assignee} AND RES.END_TIME_ IS NOT NULL";
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("assignee", getCurrentUserId());
+        Map<String, Object> pageParams = new HashMap<>(params);
+        String pageWhere = where + keysetCondition("RES.END_TIME_", KeysetCursor.decode(cursor), pageParams);
+
+        NativeHistoricTaskInstanceQuery query = historyService.createNativeHistoricTaskInstanceQuery()
+                .sql("SELECT RES.* FROM " + from + " WHERE " + pageWhere + " ORDER BY RES.END_TIME_ DESC, RES.ID_ DESC");
+        pageParams.forEach(query::parameter);
+        List<HistoricTaskInstance> rows = query.listPage(0, pageSize + 1);
+
+        boolean hasMore = rows.size() > pageSize;
+        List<HistoricTaskInstance> page = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            HistoricTaskInstance last = page.get(page.size() - 1);
+            nextCursor = new KeysetCursor(last.getEndTime(), last.getId()).encode();
         }
 
-        if (!groups.isEmpty()) {
-            List<Task> groupTasks = taskService.createTaskQuery()
-                    .taskCandidateGroupIn(groups)
-                    .taskUnassigned()
-                    .list();
-            for (Task t : groupTasks) {
-                taskMap.put(t.getId(), t);
-            }
+        Long total = null;
+        if (withTotal) {
+            NativeHistoricTaskInstanceQuery countQuery = historyService.createNativeHistoricTaskInstanceQuery()
+                    .sql("SELECT COUNT(*) FROM " + from + " WHERE " + where);
+            params.forEach(countQuery::parameter);
+            total = countQuery.count();
         }
+        return new CursorPage<>(convertHistoricTasks(page), nextCursor, total);
+    }
+
+    // 多查一筆用來判斷是否還有下一頁
+    private CursorPage<TaskDto> toInboxPage(List<InboxTask> rows, int pageSize, Long total, String defaultAssignee) {
+        boolean hasMore = rows.size() > pageSize;
+        List<InboxTask> page = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            InboxTask last = page.get(page.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreateTime().toEpochMilli(), last.getId()).encode();
+        }
+        return new CursorPage<>(convertInboxTasks(page, defaultAssignee), nextCursor, total);
+    }
+
+    // IN 清單不可為空：沒有任何角色時放入不會命中的群組
+    private List<String> candidateGroups() {
+        List<String> roles = getUserRoles();
+        return roles.isEmpty() ? List.of("") : roles;
+    }
+
+    private static Instant afterTime(KeysetCursor after) {
+        return after != null ? Instant.ofEpochMilli(after.getTimeMillis()) : null;
+    }
+
+    private static String afterId(KeysetCursor after) {
+        return after != null ? after.getId() : null;
+    }
 
-        List<Task> finalTasks = new ArrayList<>(taskMap.values());
-        finalTasks.sort((t1, t2) -> t2.getCreateTime().compareTo(t1.getCreateTime()));
+    private String keysetCondition(String timeColumn, KeysetCursor after, Map<String, Object> params) {
+        if (after == null) {
+            return "";
+        }
+        params.put("cursorTime", after.getTime());
+        params.put("cursorId", after.getId());
+        return " AND (" + timeColumn + " < #{cursorTime} OR (" + timeColumn + " = #{cursorTime} AND RES.ID_ < #{cursorId}))";
+    }
 
-        return convertTasks(finalTasks, "待認領");
+    private int normalizePageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
     }
 
     public void claimTask(String taskId) {
@@ -115,6 +243,42 @@ public class TaskManagerService {
         taskService.unclaim(taskId);
     }
 
+    /**
+     * 批次任務操作：每 BULK_CHUNK_SIZE 筆一個引擎交易，回傳逐筆結果。
+     */
+    public BulkTaskResponse executeBulk(List<BulkTaskItem> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("批次操作不可為空");
+        }
+        if (items.size() > MAX_BULK_ITEMS) {
+            throw new IllegalArgumentException("單次批次操作上限為 " + MAX_BULK_ITEMS + " 筆");
+        }
+
+        String userId = getCurrentUserId();
+        List<BulkTaskResult> results = new ArrayList<>(items.size());
+        int transactions = 0;
+
+        for (int from = 0; from < items.size(); from += BULK_CHUNK_SIZE) {
+            List<BulkTaskItem> chunk = items.subList(from, Math.min(from + BULK_CHUNK_SIZE, items.size()));
+            try {
+                transactions++;
+                results.addAll(managementService.executeCommand(new BulkTaskCmd(chunk, userId, definitionCache)));
+            } catch (RuntimeException e) {
+                // 整批已回滾：改為逐筆執行，避免一筆異常拖累同批其他任務
+                logger.warn("批次任務操作失敗，改為逐筆重試：{}", e.getMessage());
+                for (BulkTaskItem item : chunk) {
+                    try {
+                        transactions++;
+                        results.addAll(managementService.executeCommand(new BulkTaskCmd(List.of(item), userId, definitionCache)));
+                    } catch (RuntimeException itemError) {
+                        results.add(BulkTaskResult.failed(item, itemError.getMessage()));
+                    }
+                }
+            }
+        }
+        return new BulkTaskResponse(results, transactions);
+    }
+
     public List<TaskDto> getHistoryTasks() {
         String assignee = getCurrentUserId();
 
@@ -124,27 +288,21 @@ public class TaskManagerService {
                 .orderByHistoricTaskInstanceEndTime().desc()
                 .list();
 
+        return convertHistoricTasks(historicTasks);
+    }
+
+    private List<TaskDto> convertHistoricTasks(List<HistoricTaskInstance> historicTasks) {
+        Set<String> processInstanceIds = historicTasks.stream()
+                .map(HistoricTaskInstance::getProcessInstanceId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<String, String> currentAssignees = findCurrentAssignees(processInstanceIds);
+
         List<TaskDto> tasks = new ArrayList<>();
         for (HistoricTaskInstance ht : historicTasks) {
             String processName = getProcessName(ht.getProcessDefinitionId());
-            String currentAssignee = "流程已結束";
-
-            ProcessInstance pi = runtimeService.createProcessInstanceQuery()
-                    .processInstanceId(ht.getProcessInstanceId())
-                    .singleResult();
-
-            if (pi != null) {
-                List<Task> activeTasks = taskService.createTaskQuery()
-                        .processInstanceId(ht.getProcessInstanceId())
-                        .list();
-
-                if (!activeTasks.isEmpty()) {
-                    currentAssignee = activeTasks.stream()
-                            .map(t -> t.getAssignee() == null ? "待認領" : t.getAssignee())
-                            .distinct()
-                            .collect(Collectors.joining(", "));
-                }
-            }
+            // 沒有進行中任務 (含流程已結束) 時維持原本的顯示文字
+            String currentAssignee = currentAssignees.getOrDefault(ht.getProcessInstanceId(), "流程已結束");
 
             tasks.add(new TaskDto(
                     ht.getId(),
@@ -159,64 +317,90 @@ public class TaskManagerService {
         return tasks;
     }
 
+    // ★★★ 批次查詢：以 IN 清單一次取回所有相關流程實例的進行中任務，取代逐筆 2N+1 查詢 ★★★
+    private Map<String, String> findCurrentAssignees(Collection<String> processInstanceIds) {
+        Map<String, Set<String>> assigneesByInstance = new HashMap<>();
+        List<String> ids = new ArrayList<>(processInstanceIds);
+
+        for (int from = 0; from < ids.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<String> chunk = ids.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, ids.size()));
+            List<Task> activeTasks = taskService.createTaskQuery()
+                    .processInstanceIdIn(new ArrayList<>(chunk))
+                    .list();
+            for (Task t : activeTasks) {
+                assigneesByInstance
+                        .computeIfAbsent(t.getProcessInstanceId(), k -> new LinkedHashSet<>())
+                        .add(t.getAssignee() == null ? "待認領" : t.getAssignee());
+            }
+        }
+
+        Map<String, String> result = new HashMap<>();
+        assigneesByInstance.forEach((instanceId, assignees) -> result.put(instanceId, String.join(", ", assignees)));
+        return result;
+    }
+
     public List<Map<String, Object>> getTaskForm(String taskId) {
+        return getTaskForm(taskId, false);
+    }
+
+    /**
+     * 只載入表單宣告的變數；lazy=true 時大型 / 二進位變數以參照回傳，不反序列化內容。
+     */
+    public List<Map<String, Object>> getTaskForm(String taskId, boolean lazy) {
         Task task = taskService.createTaskQuery().taskId(taskId).singleResult();
         if (task == null) {
             throw new IllegalArgumentException("任務不存在：" + taskId);
         }
 
-        BpmnModel bpmnModel = repositoryService.getBpmnModel(task.getProcessDefinitionId());
-        FlowElement flowElement = bpmnModel.getMainProcess().getFlowElement(task.getTaskDefinitionKey());
-
-        if (!(flowElement instanceof UserTask)) {
+        FormSchema schema = resolveTaskForm(task);
+        if (schema == null) {
             return new ArrayList<>();
         }
+        if (schema.getFieldKeys().isEmpty()) {
+            return schema.render(null);
+        }
 
-        // 取得目前流程的所有變數
-        Map<String, Object> variables = taskService.getVariables(taskId);
-
-        UserTask userTask = (UserTask) flowElement;
-        List<Map<String, Object>> formFields = new ArrayList<>();
-
-        for (FormProperty prop : userTask.getFormProperties()) {
-            Map<String, Object> field = new HashMap<>();
-            field.put("key", prop.getId());
-            field.put("label", prop.getName() != null ? prop.getName() : prop.getId());
-
-            String type = prop.getType() != null ? prop.getType() : "string";
-            field.put("type", mapFormPropertyType(type));
-            field.put("required", prop.isRequired());
-            field.put("disabled", !prop.isWriteable()); // 用於前端判斷唯讀欄位
-
-            // ★★★ 修正：將變數值填入 value，並處理日期格式 ★★★
-            if (variables.containsKey(prop.getId())) {
-                Object val = variables.get(prop.getId());
-                // 如果是日期物件，轉成字串給前端，避免格式問題
-                if (val instanceof Date) {
-                    java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("yyyy-MM-dd");
-                    field.put("value", sdf.format((Date) val));
-                } else {
-                    field.put("value", val);
-                }
-            }
-
-            if ("enum".equals(type)) {
-                List<Map<String, String>> options = new ArrayList<>();
-                for (FormValue val : prop.getFormValues()) {
-                    Map<String, String> option = new HashMap<>();
-                    option.put("label", val.getName());
-                    option.put("value", val.getId());
-                    options.add(option);
-                }
-                field.put("options", options);
+        if (!lazy) {
+            // 只取表單欄位對應的變數，不再載入 assigneeList 等整包流程變數
+            return schema.render(taskService.getVariables(taskId, schema.getFieldKeys()));
+        }
 
-                if ("action".equalsIgnoreCase(prop.getId())) {
-                    field.put("uiComponent", "buttons");
-                }
+        // 先只查型別 (getVariableInstances 會逐一 getValue，大型變數仍會被讀出並反序列化)，再只載入非 lazy 的變數
+        Map<String, String> types = managementService.executeCommand(new TaskVariableTypesCmd(taskId, schema.getFieldKeys()));
+        Map<String, Object> values = new HashMap<>();
+        Set<String> eagerNames = new HashSet<>();
+        types.forEach((name, typeName) -> {
+            if (LAZY_VARIABLE_TYPES.contains(typeName)) {
+                values.put(name, variableReference(taskId, name, typeName));
+            } else {
+                eagerNames.add(name);
             }
-            formFields.add(field);
+        });
+        if (!eagerNames.isEmpty()) {
+            values.putAll(taskService.getVariables(taskId, eagerNames));
         }
-        return formFields;
+        return schema.render(values);
+    }
+
+    // 取得單一表單變數的實際內容 (lazy 模式下的參照由此載入)
+    public Object getTaskFormVariable(String taskId, String variableName) {
+        Task task = taskService.createTaskQuery().taskId(taskId).singleResult();
+        if (task == null) {
+            throw new IllegalArgumentException("任務不存在：" + taskId);
+        }
+        FormSchema schema = resolveTaskForm(task);
+        if (schema == null || !schema.getFieldKeys().contains(variableName)) {
+            throw new IllegalArgumentException("變數不屬於此任務表單：" + variableName);
+        }
+        return taskService.getVariable(taskId, variableName);
+    }
+
+    private Map<String, Object> variableReference(String taskId, String name, String typeName) {
+        Map<String, Object> reference = new LinkedHashMap<>();
+        reference.put("lazy", true);
+        reference.put("type", typeName);
+        reference.put("href", "/api/task/" + taskId + "/variables/" + name);
+        return reference;
     }
 
     public void submitTaskForm(String taskId, Map<String, Object> formData) {
@@ -224,9 +408,19 @@ public class TaskManagerService {
         if (task == null) {
             throw new IllegalArgumentException("任務不存在：" + taskId);
         }
+        // 送出前先以同一份表單結構驗證，不合法的內容不進入引擎交易
+        FormSchema schema = resolveTaskForm(task);
+        if (schema != null) {
+            schema.validate(formData);
+        }
         taskService.complete(taskId, formData);
     }
 
+    private FormSchema resolveTaskForm(Task task) {
+        CachedProcessDefinition definition = definitionCache.get(task.getProcessDefinitionId());
+        return definition != null ? definition.getTaskForm(task.getTaskDefinitionKey()) : null;
+    }
+
     public void reassignTask(String taskId, String assignee) {
         Task task = taskService.createTaskQuery().taskId(taskId).singleResult();
         if (task == null) {
@@ -235,17 +429,16 @@ public class TaskManagerService {
         taskService.setAssignee(taskId, assignee);
     }
 
-    private List<TaskDto> convertTasks(List<Task> tasks, String defaultAssignee) {
-        List<TaskDto> result = new ArrayList<>();
-        for (Task t : tasks) {
-            String processName = getProcessName(t.getProcessDefinitionId());
+    private List<TaskDto> convertInboxTasks(List<InboxTask> rows, String defaultAssignee) {
+        List<TaskDto> result = new ArrayList<>(rows.size());
+        for (InboxTask t : rows) {
             String assignee = t.getAssignee() != null ? t.getAssignee() : defaultAssignee;
             result.add(new TaskDto(
                     t.getId(),
                     t.getName(),
-                    processName,
+                    t.getProcessName(),
                     assignee,
-                    t.getCreateTime().toInstant().atZone(ZoneId.systemDefault()).format(DATE_FORMATTER),
+                    t.getCreateTime().atZone(ZoneId.systemDefault()).format(DATE_FORMATTER),
                     t.getProcessInstanceId(),
                     null
             ));
@@ -254,24 +447,6 @@ public class TaskManagerService {
     }
 
     private String getProcessName(String processDefinitionId) {
-        try {
-            return repositoryService.createProcessDefinitionQuery()
-                    .processDefinitionId(processDefinitionId)
-                    .singleResult()
-                    .getName();
-        } catch (Exception e) {
-            return "Unknown Process";
-        }
-    }
-
-    private String mapFormPropertyType(String activitiType) {
-        switch (activitiType) {
-            case "string": return "text";
-            case "long": return "number";
-            case "date": return "date";
-            case "enum": return "select";
-            case "boolean": return "switch";
-            default: return "text";
-        }
+        return definitionCache.getProcessName(processDefinitionId);
     }
-}
\ No newline at end of file
+}
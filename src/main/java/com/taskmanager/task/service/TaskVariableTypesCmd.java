@@ -0,0 +1,59 @@
+package com.taskmanager.task.service;
+
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.activiti.engine.impl.persistence.entity.VariableInstanceEntity;
+import org.activiti.engine.impl.persistence.entity.VariableInstanceEntityManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 依任務可見範圍 (任務本身 -> 所屬執行緒 -> 上層執行緒) 查出指定變數的型別名稱，不讀取變數內容。
+ * 只查 ACT_RU_VARIABLE 的列，不會載入 ACT_GE_BYTEARRAY 也不會反序列化；同名變數以最內層為準。
+ */
+class TaskVariableTypesCmd implements Command<Map<String, String>> {
+
+    private final String taskId;
+    private final Collection<String> variableNames;
+
+    TaskVariableTypesCmd(String taskId, Collection<String> variableNames) {
+        this.taskId = taskId;
+        this.variableNames = variableNames;
+    }
+
+    @Override
+    public Map<String, String> execute(CommandContext commandContext) {
+        TaskEntity task = commandContext.getTaskEntityManager().findById(taskId);
+        if (task == null) {
+            throw new IllegalArgumentException("任務不存在：" + taskId);
+        }
+
+        VariableInstanceEntityManager variables = commandContext.getVariableInstanceEntityManager();
+        Map<String, String> types = new HashMap<>();
+        Set<String> remaining = new LinkedHashSet<>(variableNames);
+        collect(variables.findVariableInstancesByTaskAndNames(taskId, remaining), types, remaining);
+
+        ExecutionEntity execution = task.getExecutionId() != null
+                ? commandContext.getExecutionEntityManager().findById(task.getExecutionId()) : null;
+        while (execution != null && !remaining.isEmpty()) {
+            collect(variables.findVariableInstancesByExecutionAndNames(execution.getId(), remaining), types, remaining);
+            execution = execution.getParent();
+        }
+        return types;
+    }
+
+    private void collect(List<VariableInstanceEntity> found, Map<String, String> types, Set<String> remaining) {
+        for (VariableInstanceEntity variable : found) {
+            if (remaining.remove(variable.getName())) {
+                types.put(variable.getName(), variable.getTypeName());
+            }
+        }
+    }
+}
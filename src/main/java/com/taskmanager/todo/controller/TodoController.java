@@ -13,6 +13,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
@@ -33,11 +34,16 @@ public class TodoController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved todo list",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = Todo.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified since the given ETag", content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
     })
-    public ResponseEntity<List<Todo>> getAllTodos() {
+    public ResponseEntity<List<Todo>> getAllTodos(WebRequest webRequest) {
+        String etag = todoService.getTodosEtag();
+        if (etag != null && webRequest.checkNotModified(etag)) {
+            return null;
+        }
         List<Todo> todos = todoService.getAllTodos();
-        return ResponseEntity.ok(todos);
+        return ResponseEntity.ok().eTag(etag).body(todos);
     }
 
     @PostMapping("/addTodo")
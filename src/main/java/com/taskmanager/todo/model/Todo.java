@@ -7,6 +7,7 @@ import lombok.Setter;
 
 @Entity
 @Table(name = "todos")
+@EntityListeners(TodoChangeListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
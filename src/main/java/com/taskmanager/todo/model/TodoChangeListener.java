@@ -0,0 +1,25 @@
+package com.taskmanager.todo.model;
+
+import com.taskmanager.workflow.listener.ListVersionTracker;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.stereotype.Component;
+
+// Todo 寫入後讓 /api/todos 的 ETag 失效
+@Component
+public class TodoChangeListener {
+
+    private final ListVersionTracker versionTracker;
+
+    public TodoChangeListener(ListVersionTracker versionTracker) {
+        this.versionTracker = versionTracker;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Todo todo) {
+        versionTracker.bumpAfterCommit(ListVersionTracker.TODOS);
+    }
+}
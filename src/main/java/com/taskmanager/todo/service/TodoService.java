@@ -1,32 +1,40 @@
 package com.taskmanager.todo.service;
 
+import com.taskmanager.process.cache.BpmnXmlCache;
+import com.taskmanager.process.cache.CachedProcessDefinition;
+import com.taskmanager.process.cache.ProcessDefinitionCache;
 import com.taskmanager.todo.dto.TodoRequest;
 import com.taskmanager.todo.model.Todo;
 import com.taskmanager.todo.repository.TodoRepository;
+import com.taskmanager.workflow.listener.ListVersionTracker;
 import com.taskmanager.workflow.service.WorkflowService;
-import org.activiti.engine.RepositoryService;
-import org.activiti.engine.repository.ProcessDefinition;
 import org.activiti.engine.task.Task;
 import org.springframework.stereotype.Service;
 
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 
 @Service
 public class TodoService {
 
     private final TodoRepository todoRepository;
     private final WorkflowService workflowService;
-    private final RepositoryService repositoryService;
+    private final BpmnXmlCache bpmnXmlCache;
+    private final ProcessDefinitionCache definitionCache;
+    private final ListVersionTracker versionTracker;
 
-    public TodoService(TodoRepository todoRepository, WorkflowService workflowService, RepositoryService repositoryService) {
+    public TodoService(TodoRepository todoRepository, WorkflowService workflowService, BpmnXmlCache bpmnXmlCache,
+                       ProcessDefinitionCache definitionCache, ListVersionTracker versionTracker) {
         this.todoRepository = todoRepository;
         this.workflowService = workflowService;
-        this.repositoryService = repositoryService;
+        this.bpmnXmlCache = bpmnXmlCache;
+        this.definitionCache = definitionCache;
+        this.versionTracker = versionTracker;
+    }
+
+    public String getTodosEtag() {
+        return versionTracker.listEtag(ListVersionTracker.TODOS, null);
     }
 
     public List<Todo> getAllTodos() {
@@ -81,17 +89,14 @@ public class TodoService {
             throw new RuntimeException("該 Todo 沒有對應的流程定義 ID");
         }
 
-        ProcessDefinition processDefinition = repositoryService.createProcessDefinitionQuery()
-                .processDefinitionId(processDefinitionId)
-                .singleResult();
+        CachedProcessDefinition processDefinition = definitionCache.get(processDefinitionId);
         if (processDefinition == null) {
             throw new RuntimeException("找不到對應的流程定義");
         }
 
         String bpmnXml;
-        try (InputStream inputStream = repositoryService.getProcessModel(processDefinition.getId());
-             Scanner scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name())) {
-            bpmnXml = scanner.useDelimiter("\\A").hasNext() ? scanner.next() : "";
+        try {
+            bpmnXml = bpmnXmlCache.getXml(processDefinition.getId());
         } catch (Exception e) {
             throw new RuntimeException("無法讀取 BPMN XML: " + e.getMessage());
         }
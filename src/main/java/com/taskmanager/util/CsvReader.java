@@ -0,0 +1,118 @@
+package com.taskmanager.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 簡易 RFC 4180 CSV 讀取器：逐字元讀取串流，支援雙引號欄位 (含逗號、換行與 "" 跳脫)。
+ * 第一列為欄位名稱，之後每列轉成 欄位名稱 -> 字串值。
+ */
+public final class CsvReader {
+
+    private final Reader reader;
+    private List<String> header;
+    private int pending = -2;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    public List<String> getHeader() throws IOException {
+        if (header == null) {
+            List<String> first = readRecord();
+            if (first == null) {
+                throw new IllegalArgumentException("CSV 內容為空");
+            }
+            // Excel 另存的 UTF-8 CSV 會帶 BOM
+            if (!first.isEmpty() && first.get(0).startsWith("\uFEFF")) {
+                first.set(0, first.get(0).substring(1));
+            }
+            header = first;
+        }
+        return header;
+    }
+
+    // 讀取下一列；已到結尾回傳 null，空白列略過
+    public Map<String, String> next() throws IOException {
+        List<String> columns = getHeader();
+        List<String> record;
+        do {
+            record = readRecord();
+            if (record == null) {
+                return null;
+            }
+        } while (record.size() == 1 && record.get(0).isEmpty());
+
+        if (record.size() > columns.size()) {
+            throw new IllegalArgumentException("CSV 欄位數超過標題列：" + record);
+        }
+        Map<String, String> row = new LinkedHashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            row.put(columns.get(i), i < record.size() ? record.get(i) : "");
+        }
+        return row;
+    }
+
+    private List<String> readRecord() throws IOException {
+        int c = read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IllegalArgumentException("CSV 格式錯誤：引號未結束");
+                }
+                if (c == '"') {
+                    int nextChar = read();
+                    if (nextChar == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = nextChar;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int nextChar = read();
+                    if (nextChar != '\n') {
+                        unread(nextChar);
+                    }
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (pending != -2) {
+            int c = pending;
+            pending = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private void unread(int c) {
+        pending = c;
+    }
+}
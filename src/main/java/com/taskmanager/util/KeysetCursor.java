@@ -0,0 +1,57 @@
+package com.taskmanager.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Keyset 分頁游標 — 以 (時間, id) 作為排序鍵，對前端來說是不透明字串。
+ */
+public final class KeysetCursor {
+
+    private final long timeMillis;
+    private final String id;
+
+    public KeysetCursor(Date time, String id) {
+        this(time.getTime(), id);
+    }
+
+    public KeysetCursor(long timeMillis, String id) {
+        this.timeMillis = timeMillis;
+        this.id = id;
+    }
+
+    public Date getTime() {
+        return new Date(timeMillis);
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String encode() {
+        String raw = timeMillis + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // 空字串代表第一頁
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            if (separator <= 0 || separator == raw.length() - 1) {
+                throw new IllegalArgumentException("分頁游標格式錯誤");
+            }
+            return new KeysetCursor(Long.parseLong(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("分頁游標格式錯誤：" + cursor, e);
+        }
+    }
+}
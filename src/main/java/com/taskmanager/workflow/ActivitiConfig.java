@@ -1,5 +1,6 @@
 package com.taskmanager.workflow;
 
+import com.taskmanager.countersign.service.CountersignVoteService;
 import org.activiti.engine.*;
 import org.activiti.engine.impl.cfg.StandaloneProcessEngineConfiguration;
 import org.activiti.engine.impl.cfg.ProcessEngineConfigurationImpl;
@@ -7,6 +8,9 @@ import org.activiti.engine.repository.Deployment;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Configuration
 public class ActivitiConfig {
 
@@ -19,7 +23,7 @@ public class ActivitiConfig {
     }
 
     @Bean
-    public ProcessEngineConfigurationImpl processEngineConfiguration() {
+    public ProcessEngineConfigurationImpl processEngineConfiguration(CountersignVoteService countersignVotes) {
         StandaloneProcessEngineConfiguration config = new StandaloneProcessEngineConfiguration();
         // 請注意：這裡使用 H2 記憶體資料庫，每次重啟資料都會消失
         config.setJdbcUrl("jdbc:h2:mem:activiti-db;DB_CLOSE_DELAY=-1");
@@ -31,6 +35,11 @@ public class ActivitiConfig {
         // ★★★ 關鍵：確保歷史層級被設定 ★★★
         config.setHistory("full");
 
+        // 引擎不是透過 Spring 建立，BPMN 運算式只能使用這裡列出的 Bean
+        Map<Object, Object> beans = new HashMap<>();
+        beans.put(CountersignVoteService.BEAN_NAME, countersignVotes);
+        config.setBeans(beans);
+
         return config;
     }
 
@@ -0,0 +1,39 @@
+package com.taskmanager.workflow.listener;
+
+import org.activiti.engine.impl.cfg.TransactionContext;
+import org.activiti.engine.impl.cfg.TransactionState;
+import org.activiti.engine.impl.context.Context;
+import org.activiti.engine.impl.interceptor.CommandContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 將引擎事件快照累積在目前的 CommandContext，交易提交後一次送出；沒有交易時立即送出。
+ */
+final class AfterCommitBuffer {
+
+    private AfterCommitBuffer() {
+    }
+
+    static <T> void add(String attribute, T item, Consumer<List<T>> onCommit) {
+        CommandContext commandContext = Context.getCommandContext();
+        TransactionContext transactionContext = commandContext != null ? Context.getTransactionContext() : null;
+        if (transactionContext == null) {
+            onCommit.accept(List.of(item));
+            return;
+        }
+
+        // 同一交易只註冊一次提交監聽器
+        @SuppressWarnings("unchecked")
+        List<T> buffer = (List<T>) commandContext.getAttribute(attribute);
+        if (buffer == null) {
+            List<T> items = new ArrayList<>();
+            commandContext.addAttribute(attribute, items);
+            transactionContext.addTransactionListener(TransactionState.COMMITTED, ctx -> onCommit.accept(items));
+            buffer = items;
+        }
+        buffer.add(item);
+    }
+}
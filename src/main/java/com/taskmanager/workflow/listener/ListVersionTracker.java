@@ -0,0 +1,112 @@
+package com.taskmanager.workflow.listener;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 清單版本水位 — 引擎事件與 Todo 寫入會遞增對應的版本，Controller 以此產生 ETag 回應 304。
+ * 排在所有 Handler 之後執行，確保讀取端 (例如投影表) 已更新完成才讓 ETag 失效。
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class ListVersionTracker implements TaskChangeHandler, ProcessChangeHandler {
+
+    public static final String INSTANCES = "instances";
+    public static final String TODOS = "todos";
+
+    // 重啟後版本歸零，以啟動時間區隔避免舊 ETag 誤判
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final ConcurrentHashMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    @Override
+    public void onTaskChanges(List<TaskChange> changes) {
+        for (TaskChange change : changes) {
+            if (change.getAssignee() != null) {
+                bumpUser(change.getAssignee());
+            }
+            change.getCandidateUsers().forEach(this::bumpUser);
+            change.getParticipants().forEach(this::bumpUser);
+            change.getCandidateGroups().forEach(this::bumpGroup);
+        }
+        // 實例清單的「目前節點 / 處理人」欄位也隨任務變動
+        bump(INSTANCES);
+    }
+
+    @Override
+    public void onProcessChanges(List<ProcessChange> changes) {
+        bump(INSTANCES);
+    }
+
+    public void bump(String key) {
+        versions.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    // 沒有經過任務事件的異動 (例如流程實例移轉) 由呼叫端直接通知受影響的待辦清單
+    public void bumpUser(String userId) {
+        bump(userKey(userId));
+    }
+
+    public void bumpGroup(String group) {
+        bump(groupKey(group));
+    }
+
+    // 在 JPA 交易提交後才遞增，避免用戶端在提交前讀到舊資料卻拿到新 ETag
+    public void bumpAfterCommit(String key) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(key);
+                }
+            });
+        } else {
+            bump(key);
+        }
+    }
+
+    public long version(String key) {
+        AtomicLong version = versions.get(key);
+        return version != null ? version.get() : 0L;
+    }
+
+    // 個人待辦清單
+    public String userListEtag(String list, String userId) {
+        return etag(list + "-" + Integer.toHexString(userId.hashCode()) + "-" + version(userKey(userId)));
+    }
+
+    // 群組待辦：本人版本 + 所屬每個群組的版本
+    public String groupListEtag(String list, String userId, Collection<String> groups) {
+        StringBuilder value = new StringBuilder(list)
+                .append('-').append(Integer.toHexString(userId.hashCode()))
+                .append('-').append(version(userKey(userId)));
+        groups.stream().sorted().forEach(group -> value.append('.').append(version(groupKey(group))));
+        return etag(value.toString());
+    }
+
+    // 全域清單 (例如流程實例、Todo)；若內容依使用者而異則帶入 userId
+    public String listEtag(String key, String userId) {
+        String owner = userId != null ? "-" + Integer.toHexString(userId.hashCode()) : "";
+        return etag(key + owner + "-" + version(key));
+    }
+
+    private String etag(String value) {
+        return "W/\"" + epoch + "-" + value + "\"";
+    }
+
+    private static String userKey(String userId) {
+        return "user:" + userId;
+    }
+
+    private static String groupKey(String group) {
+        return "group:" + group;
+    }
+}
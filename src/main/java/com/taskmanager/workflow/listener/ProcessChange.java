@@ -0,0 +1,60 @@
+package com.taskmanager.workflow.listener;
+
+import java.util.Date;
+
+/**
+ * 流程實例狀態異動的不可變快照 (啟動 / 完成 / 取消)。
+ */
+public final class ProcessChange {
+
+    public enum Type {
+        STARTED, COMPLETED, CANCELLED
+    }
+
+    private final Type type;
+    private final String processInstanceId;
+    private final String processDefinitionId;
+    private final String startUserId;
+    private final Date startTime;
+
+    // 事件發生時間 (完成 / 取消時即為結束時間)
+    private final Date time;
+
+    public ProcessChange(Type type, String processInstanceId, String processDefinitionId,
+                         String startUserId, Date startTime, Date time) {
+        this.type = type;
+        this.processInstanceId = processInstanceId;
+        this.processDefinitionId = processDefinitionId;
+        this.startUserId = startUserId;
+        this.startTime = startTime;
+        this.time = time;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getProcessInstanceId() {
+        return processInstanceId;
+    }
+
+    public String getProcessDefinitionId() {
+        return processDefinitionId;
+    }
+
+    public String getStartUserId() {
+        return startUserId;
+    }
+
+    public Date getStartTime() {
+        return startTime;
+    }
+
+    public Date getTime() {
+        return time;
+    }
+
+    public boolean isEnded() {
+        return type != Type.STARTED;
+    }
+}
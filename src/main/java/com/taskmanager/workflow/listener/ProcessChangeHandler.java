@@ -0,0 +1,11 @@
+package com.taskmanager.workflow.listener;
+
+import java.util.List;
+
+/**
+ * 接收流程實例異動的 Spring Bean；在引擎交易提交後呼叫。
+ */
+public interface ProcessChangeHandler {
+
+    void onProcessChanges(List<ProcessChange> changes);
+}
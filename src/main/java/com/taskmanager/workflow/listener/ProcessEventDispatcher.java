@@ -0,0 +1,83 @@
+package com.taskmanager.workflow.listener;
+
+import jakarta.annotation.PostConstruct;
+import org.activiti.engine.RuntimeService;
+import org.activiti.engine.delegate.event.ActivitiCancelledEvent;
+import org.activiti.engine.delegate.event.ActivitiEntityEvent;
+import org.activiti.engine.delegate.event.ActivitiEvent;
+import org.activiti.engine.delegate.event.ActivitiEventListener;
+import org.activiti.engine.delegate.event.ActivitiEventType;
+import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 流程實例啟動 / 完成 / 取消事件的單一入口，交易提交後分送給所有 {@link ProcessChangeHandler}。
+ */
+@Component
+public class ProcessEventDispatcher implements ActivitiEventListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessEventDispatcher.class);
+
+    private static final String BUFFER_ATTRIBUTE = ProcessEventDispatcher.class.getName() + ".changes";
+
+    private final RuntimeService runtimeService;
+    private final List<ProcessChangeHandler> handlers;
+
+    public ProcessEventDispatcher(RuntimeService runtimeService, List<ProcessChangeHandler> handlers) {
+        this.runtimeService = runtimeService;
+        this.handlers = handlers;
+    }
+
+    @PostConstruct
+    public void register() {
+        runtimeService.addEventListener(this,
+                ActivitiEventType.PROCESS_STARTED,
+                ActivitiEventType.PROCESS_COMPLETED,
+                ActivitiEventType.PROCESS_CANCELLED);
+    }
+
+    @Override
+    public void onEvent(ActivitiEvent event) {
+        ProcessChange change = toChange(event);
+        if (change != null) {
+            AfterCommitBuffer.add(BUFFER_ATTRIBUTE, change, this::publish);
+        }
+    }
+
+    @Override
+    public boolean isFailOnException() {
+        return false;
+    }
+
+    private ProcessChange toChange(ActivitiEvent event) {
+        Date now = new Date();
+        if (event.getType() == ActivitiEventType.PROCESS_CANCELLED && event instanceof ActivitiCancelledEvent) {
+            return new ProcessChange(ProcessChange.Type.CANCELLED, event.getProcessInstanceId(),
+                    event.getProcessDefinitionId(), null, null, now);
+        }
+        if (!(event instanceof ActivitiEntityEvent) || !(((ActivitiEntityEvent) event).getEntity() instanceof ExecutionEntity)) {
+            return null;
+        }
+        ExecutionEntity instance = (ExecutionEntity) ((ActivitiEntityEvent) event).getEntity();
+        ProcessChange.Type type = event.getType() == ActivitiEventType.PROCESS_STARTED
+                ? ProcessChange.Type.STARTED
+                : ProcessChange.Type.COMPLETED;
+        return new ProcessChange(type, instance.getProcessInstanceId(), instance.getProcessDefinitionId(),
+                instance.getStartUserId(), instance.getStartTime(), now);
+    }
+
+    private void publish(List<ProcessChange> changes) {
+        for (ProcessChangeHandler handler : handlers) {
+            try {
+                handler.onProcessChanges(changes);
+            } catch (Exception e) {
+                logger.error("流程異動處理失敗 ({}): {}", handler.getClass().getSimpleName(), e.getMessage(), e);
+            }
+        }
+    }
+}
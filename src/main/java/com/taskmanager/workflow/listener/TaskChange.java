@@ -0,0 +1,123 @@
+package com.taskmanager.workflow.listener;
+
+import org.activiti.engine.impl.persistence.entity.IdentityLinkEntity;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.activiti.engine.task.IdentityLinkType;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 任務異動的不可變快照 — 在引擎交易內擷取，交易提交後才交給各 Handler。
+ */
+public final class TaskChange {
+
+    public enum Type {
+        CREATED, ASSIGNED, COMPLETED, DELETED
+    }
+
+    private final Type type;
+    private final String taskId;
+    private final String name;
+    private final String assignee;
+    private final Date createTime;
+    private final int priority;
+    private final String processInstanceId;
+    private final String processDefinitionId;
+    private final String taskDefinitionKey;
+    private final Set<String> candidateGroups;
+    private final Set<String> candidateUsers;
+
+    // 曾經是處理人 / 擁有者的使用者 (participant 連結)，用來通知被轉派走的人
+    private final Set<String> participants;
+
+    private TaskChange(Type type, TaskEntity task) {
+        this.type = type;
+        this.taskId = task.getId();
+        this.name = task.getName();
+        this.assignee = task.getAssignee();
+        this.createTime = task.getCreateTime();
+        this.priority = task.getPriority();
+        this.processInstanceId = task.getProcessInstanceId();
+        this.processDefinitionId = task.getProcessDefinitionId();
+        this.taskDefinitionKey = task.getTaskDefinitionKey();
+
+        Set<String> groups = new LinkedHashSet<>();
+        Set<String> users = new LinkedHashSet<>();
+        Set<String> others = new LinkedHashSet<>();
+        for (IdentityLinkEntity link : task.getIdentityLinks()) {
+            if (IdentityLinkType.CANDIDATE.equals(link.getType())) {
+                if (link.getGroupId() != null) {
+                    groups.add(link.getGroupId());
+                }
+                if (link.getUserId() != null) {
+                    users.add(link.getUserId());
+                }
+            } else if (link.getUserId() != null) {
+                others.add(link.getUserId());
+            }
+        }
+        this.candidateGroups = Collections.unmodifiableSet(groups);
+        this.candidateUsers = Collections.unmodifiableSet(users);
+        this.participants = Collections.unmodifiableSet(others);
+    }
+
+    public static TaskChange of(Type type, TaskEntity task) {
+        return new TaskChange(type, task);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getAssignee() {
+        return assignee;
+    }
+
+    public Date getCreateTime() {
+        return createTime;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public String getProcessInstanceId() {
+        return processInstanceId;
+    }
+
+    public String getProcessDefinitionId() {
+        return processDefinitionId;
+    }
+
+    public String getTaskDefinitionKey() {
+        return taskDefinitionKey;
+    }
+
+    public Set<String> getCandidateGroups() {
+        return candidateGroups;
+    }
+
+    public Set<String> getCandidateUsers() {
+        return candidateUsers;
+    }
+
+    public Set<String> getParticipants() {
+        return participants;
+    }
+
+    // 任務已離開待辦清單
+    public boolean isRemoval() {
+        return type == Type.COMPLETED || type == Type.DELETED;
+    }
+}
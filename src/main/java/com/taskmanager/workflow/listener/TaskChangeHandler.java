@@ -0,0 +1,11 @@
+package com.taskmanager.workflow.listener;
+
+import java.util.List;
+
+/**
+ * 接收任務異動的 Spring Bean；在引擎交易提交後呼叫，一次帶入同一交易內的所有異動。
+ */
+public interface TaskChangeHandler {
+
+    void onTaskChanges(List<TaskChange> changes);
+}
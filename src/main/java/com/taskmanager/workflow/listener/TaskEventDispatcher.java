@@ -0,0 +1,101 @@
+package com.taskmanager.workflow.listener;
+
+import jakarta.annotation.PostConstruct;
+import org.activiti.engine.RuntimeService;
+import org.activiti.engine.delegate.event.ActivitiEntityEvent;
+import org.activiti.engine.delegate.event.ActivitiEvent;
+import org.activiti.engine.delegate.event.ActivitiEventListener;
+import org.activiti.engine.delegate.event.ActivitiEventType;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 引擎任務事件的單一入口：在交易內擷取快照，提交成功後再分送給所有 {@link TaskChangeHandler}。
+ * 交易回滾時不會送出任何異動。
+ */
+@Component
+public class TaskEventDispatcher implements ActivitiEventListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskEventDispatcher.class);
+
+    private static final String BUFFER_ATTRIBUTE = TaskEventDispatcher.class.getName() + ".changes";
+
+    private final RuntimeService runtimeService;
+    private final List<TaskChangeHandler> handlers;
+
+    public TaskEventDispatcher(RuntimeService runtimeService, List<TaskChangeHandler> handlers) {
+        this.runtimeService = runtimeService;
+        this.handlers = handlers;
+    }
+
+    @PostConstruct
+    public void register() {
+        runtimeService.addEventListener(this,
+                ActivitiEventType.TASK_CREATED,
+                ActivitiEventType.TASK_ASSIGNED,
+                ActivitiEventType.TASK_COMPLETED,
+                ActivitiEventType.ENTITY_DELETED);
+    }
+
+    @Override
+    public void onEvent(ActivitiEvent event) {
+        if (!(event instanceof ActivitiEntityEvent) || !(((ActivitiEntityEvent) event).getEntity() instanceof TaskEntity)) {
+            return;
+        }
+        TaskChange change = TaskChange.of(toChangeType(event.getType()), (TaskEntity) ((ActivitiEntityEvent) event).getEntity());
+
+        AfterCommitBuffer.add(BUFFER_ATTRIBUTE, change, changes -> publish(collapse(changes)));
+    }
+
+    @Override
+    public boolean isFailOnException() {
+        // 推播 / 投影失敗不可影響流程本身
+        return false;
+    }
+
+    private TaskChange.Type toChangeType(ActivitiEventType type) {
+        switch (type) {
+            case TASK_CREATED: return TaskChange.Type.CREATED;
+            case TASK_ASSIGNED: return TaskChange.Type.ASSIGNED;
+            case TASK_COMPLETED: return TaskChange.Type.COMPLETED;
+            default: return TaskChange.Type.DELETED;
+        }
+    }
+
+    // 完成任務時引擎會接著刪除任務，同一任務只保留 COMPLETED
+    private List<TaskChange> collapse(List<TaskChange> changes) {
+        Set<String> completed = new HashSet<>();
+        for (TaskChange change : changes) {
+            if (change.getType() == TaskChange.Type.COMPLETED) {
+                completed.add(change.getTaskId());
+            }
+        }
+        List<TaskChange> result = new ArrayList<>(changes.size());
+        for (TaskChange change : changes) {
+            if (change.getType() != TaskChange.Type.DELETED || !completed.contains(change.getTaskId())) {
+                result.add(change);
+            }
+        }
+        return result;
+    }
+
+    private void publish(List<TaskChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        for (TaskChangeHandler handler : handlers) {
+            try {
+                handler.onTaskChanges(changes);
+            } catch (Exception e) {
+                logger.error("任務異動處理失敗 ({}): {}", handler.getClass().getSimpleName(), e.getMessage(), e);
+            }
+        }
+    }
+}
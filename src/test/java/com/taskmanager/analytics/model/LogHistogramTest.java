@@ -0,0 +1,38 @@
+package com.taskmanager.analytics.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogHistogramTest {
+
+    @Test
+    void testPercentilesStayWithinBucketError() {
+        LogHistogram histogram = new LogHistogram();
+        // 1 ~ 1000 秒各一筆
+        for (long seconds = 1; seconds <= 1000; seconds++) {
+            histogram.record(seconds * 1000);
+        }
+
+        assertEquals(1000, histogram.getTotal());
+        assertEquals(500_000, histogram.percentile(0.50), 500_000 * 0.05);
+        assertEquals(900_000, histogram.percentile(0.90), 900_000 * 0.05);
+        assertEquals(990_000, histogram.percentile(0.99), 990_000 * 0.05);
+        assertNull(new LogHistogram().percentile(0.5));
+    }
+
+    @Test
+    void testEncodeDecodeAndMerge() {
+        LogHistogram a = new LogHistogram();
+        a.record(0);
+        a.record(60_000);
+        LogHistogram b = LogHistogram.decode(a.encode());
+        b.record(3_600_000);
+        a.merge(b);
+
+        assertEquals(5, a.getTotal());
+        assertEquals(a.encode(), LogHistogram.decode(a.encode()).encode());
+        assertEquals(0, LogHistogram.decode("").getTotal());
+        assertThrows(IllegalArgumentException.class, () -> LogHistogram.decode("12"));
+    }
+}
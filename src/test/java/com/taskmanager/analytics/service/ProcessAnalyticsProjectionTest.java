@@ -0,0 +1,207 @@
+package com.taskmanager.analytics.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskmanager.analytics.dto.BackfillStatus;
+import com.taskmanager.analytics.model.DurationHistogram;
+import com.taskmanager.analytics.model.UserDailyThroughput;
+import com.taskmanager.analytics.repository.DurationHistogramRepository;
+import com.taskmanager.analytics.repository.UserDailyThroughputRepository;
+import com.taskmanager.process.cache.CachedProcessDefinition;
+import com.taskmanager.process.cache.ProcessDefinitionCache;
+import com.taskmanager.process.dto.ArchivedProcess;
+import com.taskmanager.process.repository.ProcessArchiveRepository;
+import com.taskmanager.process.service.ProcessArchiveStore;
+import com.taskmanager.workflow.listener.ProcessChange;
+import com.taskmanager.workflow.listener.TaskChange;
+import org.activiti.engine.HistoryService;
+import org.activiti.engine.history.HistoricProcessInstance;
+import org.activiti.engine.history.HistoricProcessInstanceQuery;
+import org.activiti.engine.history.HistoricTaskInstance;
+import org.activiti.engine.history.HistoricTaskInstanceQuery;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProcessAnalyticsProjectionTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    private HistoryService historyService;
+    private ProcessArchiveRepository archiveRepository;
+    private ProcessArchiveStore archiveStore;
+    private Map<String, DurationHistogram> histograms;
+    private Map<String, UserDailyThroughput> throughput;
+    private ProcessAnalyticsProjection projection;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        // 以 Map 模擬彙總表
+        histograms = new HashMap<>();
+        throughput = new HashMap<>();
+        DurationHistogramRepository histogramRepository = mock(DurationHistogramRepository.class);
+        when(histogramRepository.findAllById(any())).thenAnswer(invocation -> lookup(histograms, invocation.getArgument(0)));
+        when(histogramRepository.saveAll(any())).thenAnswer(invocation -> {
+            ((Iterable<DurationHistogram>) invocation.getArgument(0)).forEach(row -> histograms.put(row.getId(), row));
+            return List.of();
+        });
+        doAnswer(invocation -> { histograms.clear(); return null; }).when(histogramRepository).deleteAllInBatch();
+        UserDailyThroughputRepository throughputRepository = mock(UserDailyThroughputRepository.class);
+        when(throughputRepository.findAllById(any())).thenAnswer(invocation -> lookup(throughput, invocation.getArgument(0)));
+        when(throughputRepository.saveAll(any())).thenAnswer(invocation -> {
+            ((Iterable<UserDailyThroughput>) invocation.getArgument(0)).forEach(row -> throughput.put(row.getId(), row));
+            return List.of();
+        });
+        doAnswer(invocation -> { throughput.clear(); return null; }).when(throughputRepository).deleteAllInBatch();
+
+        ProcessDefinitionCache definitionCache = mock(ProcessDefinitionCache.class);
+        CachedProcessDefinition leave = mock(CachedProcessDefinition.class);
+        when(leave.getKey()).thenReturn("leaveProcess");
+        when(definitionCache.get(startsWith("leaveProcess:"))).thenReturn(leave);
+
+        historyService = mock(HistoryService.class);
+        archiveRepository = mock(ProcessArchiveRepository.class);
+        archiveStore = new ProcessArchiveStore(archiveRepository, new ObjectMapper().findAndRegisterModules());
+        projection = new ProcessAnalyticsProjection(histogramRepository, throughputRepository, historyService,
+                archiveRepository, archiveStore, definitionCache, new TransactionTemplate(mock(PlatformTransactionManager.class)), Runnable::run);
+    }
+
+    @Test
+    void testCompletionsAccumulateAcrossVersions() {
+        projection.onTaskChanges(List.of(
+                completed("leaveProcess:1:5", "managerApproval", "manager", 2 * HOUR),
+                completed("leaveProcess:2:9", "managerApproval", "manager", 4 * HOUR),
+                completed("leaveProcess:2:9", "hrApproval", null, HOUR)));
+        Date now = new Date();
+        projection.onProcessChanges(List.of(
+                new ProcessChange(ProcessChange.Type.COMPLETED, "pi-1", "leaveProcess:2:9", "user", new Date(now.getTime() - 24 * HOUR), now),
+                new ProcessChange(ProcessChange.Type.CANCELLED, "pi-2", "leaveProcess:2:9", null, null, now)));
+
+        DurationHistogram node = histograms.get("NODE|leaveProcess|managerApproval");
+        assertEquals(2, node.getSampleCount());
+        assertEquals(4 * HOUR, node.getMaxMillis(), 1000);
+        assertEquals(1, histograms.get("PROCESS|leaveProcess").getSampleCount());
+
+        // 只有已指派的任務計入個人完成數
+        assertEquals(1, throughput.size());
+        UserDailyThroughput manager = throughput.get("manager|" + LocalDate.now());
+        assertEquals(2, manager.getCompleted());
+    }
+
+    @Test
+    void testBackfillReplacesRollupsFromHistory() {
+        projection.onTaskChanges(List.of(completed("leaveProcess:1:5", "managerApproval", "manager", HOUR)));
+
+        Date end = new Date();
+        HistoricTaskInstance done = historicTask("managerApproval", "boss", new Date(end.getTime() - 3 * HOUR), end, null);
+        HistoricTaskInstance removed = historicTask("managerApproval", "boss", new Date(end.getTime() - HOUR), end, "deleted");
+        HistoricTaskInstanceQuery taskQuery = mock(HistoricTaskInstanceQuery.class, RETURNS_SELF);
+        when(taskQuery.listPage(anyInt(), anyInt())).thenReturn(List.of(done, removed));
+        when(historyService.createHistoricTaskInstanceQuery()).thenReturn(taskQuery);
+
+        HistoricProcessInstance hPi = mock(HistoricProcessInstance.class);
+        when(hPi.getProcessDefinitionKey()).thenReturn("leaveProcess");
+        when(hPi.getStartTime()).thenReturn(new Date(end.getTime() - 5 * HOUR));
+        when(hPi.getEndTime()).thenReturn(end);
+        HistoricProcessInstanceQuery processQuery = mock(HistoricProcessInstanceQuery.class, RETURNS_SELF);
+        when(processQuery.listPage(anyInt(), anyInt())).thenReturn(List.of(hPi));
+        when(historyService.createHistoricProcessInstanceQuery()).thenReturn(processQuery);
+
+        BackfillStatus status = projection.startBackfill();
+
+        assertEquals(BackfillStatus.STATUS_SUCCEEDED, status.getStatus());
+        assertEquals(2, status.getTasks());
+        DurationHistogram node = histograms.get("NODE|leaveProcess|managerApproval");
+        assertEquals(1, node.getSampleCount());
+        assertEquals(3 * HOUR, node.getMaxMillis());
+        assertEquals(5 * HOUR, histograms.get("PROCESS|leaveProcess").getSumMillis());
+        assertNull(throughput.get("manager|" + LocalDate.now()));
+        assertEquals(1, throughput.get("boss|" + LocalDate.now()).getCompleted());
+    }
+
+    @Test
+    void testBackfillCountsPurgedInstancesFromSnapshotsOnce() {
+        Instant end = Instant.now().minusSeconds(60);
+        ArchivedProcess archived = new ArchivedProcess();
+        archived.setProcessInstanceId("pi-old");
+        archived.setProcessDefinitionId("leaveProcess:1:5");
+        archived.setProcessDefinitionKey("leaveProcess");
+        archived.setStartTime(end.minusMillis(10 * HOUR));
+        archived.setEndTime(end);
+        archived.setArchivedAt(end);
+        ArchivedProcess.ArchivedTask task = new ArchivedProcess.ArchivedTask();
+        task.setTaskDefinitionKey("managerApproval");
+        task.setAssignee("boss");
+        task.setCreateTime(end.minusMillis(2 * HOUR));
+        task.setEndTime(end);
+        archived.getTasks().add(task);
+        when(archiveRepository.findByPurgedTrueAndIdGreaterThanOrderByIdAsc(eq(""), any()))
+                .thenReturn(List.of(archiveStore.encode(archived)));
+
+        // 清除與標記之間的競爭：同一實例若仍在 ACT_HI 也只算一次
+        HistoricTaskInstance leftover = historicTask("managerApproval", "boss", new Date(end.toEpochMilli() - 2 * HOUR),
+                Date.from(end), null);
+        when(leftover.getProcessInstanceId()).thenReturn("pi-old");
+        HistoricTaskInstanceQuery taskQuery = mock(HistoricTaskInstanceQuery.class, RETURNS_SELF);
+        when(taskQuery.listPage(anyInt(), anyInt())).thenReturn(List.of(leftover));
+        when(historyService.createHistoricTaskInstanceQuery()).thenReturn(taskQuery);
+        HistoricProcessInstanceQuery processQuery = mock(HistoricProcessInstanceQuery.class, RETURNS_SELF);
+        when(processQuery.listPage(anyInt(), anyInt())).thenReturn(List.of());
+        when(historyService.createHistoricProcessInstanceQuery()).thenReturn(processQuery);
+
+        BackfillStatus status = projection.startBackfill();
+
+        assertEquals(BackfillStatus.STATUS_SUCCEEDED, status.getStatus());
+        assertEquals(1, histograms.get("NODE|leaveProcess|managerApproval").getSampleCount());
+        assertEquals(10 * HOUR, histograms.get("PROCESS|leaveProcess").getSumMillis());
+        assertEquals(1, throughput.get("boss|" + LocalDate.ofInstant(end, ZoneId.systemDefault())).getCompleted());
+    }
+
+    private TaskChange completed(String processDefinitionId, String taskDefinitionKey, String assignee, long age) {
+        TaskEntity task = mock(TaskEntity.class);
+        when(task.getId()).thenReturn(taskDefinitionKey + "-" + age);
+        when(task.getName()).thenReturn(taskDefinitionKey);
+        when(task.getAssignee()).thenReturn(assignee);
+        when(task.getCreateTime()).thenReturn(new Date(System.currentTimeMillis() - age));
+        when(task.getProcessDefinitionId()).thenReturn(processDefinitionId);
+        when(task.getTaskDefinitionKey()).thenReturn(taskDefinitionKey);
+        when(task.getIdentityLinks()).thenReturn(List.of());
+        return TaskChange.of(TaskChange.Type.COMPLETED, task);
+    }
+
+    private HistoricTaskInstance historicTask(String taskDefinitionKey, String assignee, Date start, Date end, String deleteReason) {
+        HistoricTaskInstance task = mock(HistoricTaskInstance.class);
+        when(task.getProcessDefinitionId()).thenReturn("leaveProcess:1:5");
+        when(task.getTaskDefinitionKey()).thenReturn(taskDefinitionKey);
+        when(task.getAssignee()).thenReturn(assignee);
+        when(task.getCreateTime()).thenReturn(start);
+        when(task.getEndTime()).thenReturn(end);
+        when(task.getDeleteReason()).thenReturn(deleteReason);
+        return task;
+    }
+
+    private static <T> List<T> lookup(Map<String, T> table, Iterable<String> ids) {
+        List<T> rows = new ArrayList<>();
+        for (String id : ids) {
+            if (table.containsKey(id)) {
+                rows.add(table.get(id));
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,72 @@
+package com.taskmanager.countersign.service;
+
+import com.taskmanager.countersign.dto.CountersignApproveRequest;
+import com.taskmanager.task.dto.BulkTaskResponse;
+import com.taskmanager.task.dto.BulkTaskResult;
+import com.taskmanager.task.service.TaskManagerService;
+import org.activiti.engine.HistoryService;
+import org.activiti.engine.TaskService;
+import org.activiti.engine.history.HistoricTaskInstance;
+import org.activiti.engine.history.HistoricTaskInstanceQuery;
+import org.activiti.engine.task.Task;
+import org.activiti.engine.task.TaskQuery;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CountersignApprovalServiceTest {
+
+    @Test
+    void tasksRemovedByEarlyCompletionAreSkippedNotFailed() {
+        TaskService taskService = mock(TaskService.class);
+        HistoryService historyService = mock(HistoryService.class);
+        TaskManagerService taskManagerService = mock(TaskManagerService.class);
+        CountersignApprovalService service = new CountersignApprovalService(taskService, historyService, taskManagerService);
+
+        TaskQuery query = mock(TaskQuery.class, RETURNS_SELF);
+        when(taskService.createTaskQuery()).thenReturn(query);
+        Task t1 = task("t-1");
+        Task t2 = task("t-2");
+        Task t3 = task("t-3");
+        doReturn(List.of(t1, t2, t3)).when(query).list();
+
+        // t-2 被前一票讓會簽結束而移除；t-3 是真的失敗
+        when(taskManagerService.executeBulk(anyList())).thenReturn(new BulkTaskResponse(List.of(
+                new BulkTaskResult("t-1", "complete", true, null),
+                new BulkTaskResult("t-2", "complete", false, "任務不存在"),
+                new BulkTaskResult("t-3", "complete", false, "表單驗證失敗")), 1));
+
+        HistoricTaskInstanceQuery historyQuery = mock(HistoricTaskInstanceQuery.class, RETURNS_SELF);
+        when(historyService.createHistoricTaskInstanceQuery()).thenReturn(historyQuery);
+        HistoricTaskInstance completed = historicTask("t-1", null);
+        HistoricTaskInstance removed = historicTask("t-2", "MI_END");
+        doReturn(List.of(completed, removed)).when(historyQuery).list();
+
+        BulkTaskResponse response = service.approveAll(new CountersignApproveRequest());
+
+        assertEquals(1, response.getSucceeded());
+        assertEquals(1, response.getSkipped());
+        assertEquals(1, response.getFailed());
+        assertTrue(response.getResults().get(1).isSkipped());
+        assertFalse(response.getResults().get(2).isSkipped());
+        assertEquals(1, response.getTransactions());
+    }
+
+    private Task task(String id) {
+        Task task = mock(Task.class);
+        when(task.getId()).thenReturn(id);
+        when(task.getProcessInstanceId()).thenReturn("pi-1");
+        return task;
+    }
+
+    private HistoricTaskInstance historicTask(String id, String deleteReason) {
+        HistoricTaskInstance task = mock(HistoricTaskInstance.class);
+        when(task.getId()).thenReturn(id);
+        when(task.getDeleteReason()).thenReturn(deleteReason);
+        return task;
+    }
+}
@@ -0,0 +1,101 @@
+package com.taskmanager.countersign.service;
+
+import org.activiti.engine.delegate.DelegateExecution;
+import org.activiti.engine.delegate.DelegateTask;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CountersignVoteServiceTest {
+
+    private CountersignVoteService service;
+    private DelegateExecution execution;
+    private Map<String, Object> variables;
+
+    @BeforeEach
+    void setUp() {
+        service = new CountersignVoteService(true);
+        execution = mock(DelegateExecution.class);
+        variables = new HashMap<>();
+        variables.put("assigneeList", List.of("a", "b", "c", "d", "e"));
+        variables.put("nrOfCompletedInstances", 3);
+        when(execution.getVariables()).thenReturn(variables);
+    }
+
+    private void votes(long approvals, long rejections) {
+        int n = 0;
+        for (int i = 0; i < approvals; i++) {
+            variables.put(CountersignVoteService.voteVariable("countersignTask", "t-" + n++), true);
+        }
+        for (int i = 0; i < rejections; i++) {
+            variables.put(CountersignVoteService.voteVariable("countersignTask", "t-" + n++), false);
+        }
+    }
+
+    @Test
+    void majorityOfApprovalsPassesAndDecides() {
+        votes(3, 0);
+
+        assertTrue(service.passed(execution, "countersignTask", 5));
+        assertTrue(service.decided(execution, "countersignTask", 5));
+    }
+
+    @Test
+    void majorityOfRejectionsDecidesWithoutPassing() {
+        votes(1, 3);
+
+        assertFalse(service.passed(execution, "countersignTask", 5));
+        assertTrue(service.decided(execution, "countersignTask", 5));
+    }
+
+    @Test
+    void undecidedWhileOutcomeStillOpen() {
+        votes(2, 2);
+
+        assertFalse(service.decided(execution, "countersignTask", 5));
+    }
+
+    @Test
+    void tieIsNotAPass() {
+        votes(2, 2);
+
+        assertFalse(service.passed(execution, "countersignTask", 4));
+        assertTrue(service.decided(execution, "countersignTask", 4));
+    }
+
+    @Test
+    void votesOfOtherActivitiesAreNotCounted() {
+        votes(1, 0);
+        variables.put(CountersignVoteService.voteVariable("reviewTask", "t-9"), true);
+
+        assertEquals(1, service.approvals(execution, "countersignTask"));
+    }
+
+    @Test
+    void earlyCompletionIsOffUnlessConfigured() {
+        votes(3, 0);
+
+        assertTrue(service.completed(execution, "countersignTask", 5));
+        assertFalse(new CountersignVoteService(false).completed(execution, "countersignTask", 5));
+    }
+
+    @Test
+    void recordAddsOneVariablePerTaskWithoutFetchingOthers() {
+        DelegateTask task = mock(DelegateTask.class);
+        when(task.getId()).thenReturn("t-1");
+        when(task.getTaskDefinitionKey()).thenReturn("countersignTask");
+
+        service.record(task, "pass");
+        service.record(task, "reject");
+
+        verify(task).setVariable("countersignVote:countersignTask:t-1", true, false);
+        verify(task).setVariable("countersignVote:countersignTask:t-1", false, false);
+        verify(task, never()).getVariables();
+    }
+}
@@ -0,0 +1,57 @@
+package com.taskmanager.notification.service;
+
+import com.taskmanager.notification.dto.TaskDelta;
+import com.taskmanager.process.cache.ProcessDefinitionCache;
+import com.taskmanager.workflow.listener.TaskChange;
+import org.activiti.engine.impl.persistence.entity.IdentityLinkEntity;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.activiti.engine.task.IdentityLinkType;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TaskPushServiceTest {
+
+    @Test
+    void testDeltaIsRoutedToUsersAndCandidateGroups() {
+        SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+        ProcessDefinitionCache definitionCache = mock(ProcessDefinitionCache.class);
+        when(definitionCache.getProcessName("leaveProcess:1:5")).thenReturn("請假流程");
+
+        TaskEntity task = mock(TaskEntity.class);
+        when(task.getId()).thenReturn("2501");
+        when(task.getName()).thenReturn("直屬主管簽核");
+        when(task.getAssignee()).thenReturn("manager");
+        when(task.getCreateTime()).thenReturn(new Date());
+        when(task.getProcessDefinitionId()).thenReturn("leaveProcess:1:5");
+        when(task.getIdentityLinks()).thenReturn(List.of(
+                link(IdentityLinkType.CANDIDATE, null, "ROLE_MANAGER"),
+                link(IdentityLinkType.PARTICIPANT, "user", null)));
+
+        new TaskPushService(messagingTemplate, definitionCache)
+                .onTaskChanges(List.of(TaskChange.of(TaskChange.Type.ASSIGNED, task)));
+
+        ArgumentCaptor<TaskDelta> delta = ArgumentCaptor.forClass(TaskDelta.class);
+        verify(messagingTemplate).convertAndSendToUser(eq("manager"), eq("/queue/tasks"), delta.capture());
+        // 原本的處理人也會收到，前端據此把任務從清單移除
+        verify(messagingTemplate).convertAndSendToUser(eq("user"), eq("/queue/tasks"), any(TaskDelta.class));
+        verify(messagingTemplate).convertAndSend(eq("/topic/tasks.group.ROLE_MANAGER"), any(TaskDelta.class));
+        assertEquals("ASSIGNED", delta.getValue().getType());
+        assertEquals("請假流程", delta.getValue().getProcessName());
+    }
+
+    private IdentityLinkEntity link(String type, String userId, String groupId) {
+        IdentityLinkEntity link = mock(IdentityLinkEntity.class);
+        when(link.getType()).thenReturn(type);
+        when(link.getUserId()).thenReturn(userId);
+        when(link.getGroupId()).thenReturn(groupId);
+        return link;
+    }
+}
@@ -0,0 +1,47 @@
+package com.taskmanager.process.cache;
+
+import org.activiti.engine.RepositoryService;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BpmnXmlCacheTest {
+
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><definitions>請假流程</definitions>";
+
+    @Test
+    void testXmlIsReadOnceAndPrecompressed() throws IOException {
+        RepositoryService repositoryService = mock(RepositoryService.class);
+        when(repositoryService.getProcessModel("leaveProcess:1:5"))
+                .thenAnswer(invocation -> new ByteArrayInputStream(XML.getBytes(StandardCharsets.UTF_8)));
+        BpmnXmlCache cache = new BpmnXmlCache(repositoryService);
+
+        BpmnXmlResource first = cache.get("leaveProcess:1:5");
+        BpmnXmlResource second = cache.get("leaveProcess:1:5");
+
+        assertSame(first, second);
+        verify(repositoryService, times(1)).getProcessModel("leaveProcess:1:5");
+        assertEquals(XML, first.getXml());
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(first.getGzipBytes()))) {
+            assertEquals(XML, new String(gzip.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testStrongEtagDependsOnContentAndEncoding() {
+        BpmnXmlResource a = new BpmnXmlResource("p:1:1", XML.getBytes(StandardCharsets.UTF_8));
+        BpmnXmlResource b = new BpmnXmlResource("p:2:9", XML.getBytes(StandardCharsets.UTF_8));
+        BpmnXmlResource c = new BpmnXmlResource("p:3:12", "<definitions/>".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(a.getEtag(), b.getEtag());
+        assertNotEquals(a.getEtag(), c.getEtag());
+        assertNotEquals(a.getEtag(), a.getGzipEtag());
+        assertFalse(a.getEtag().startsWith("W/"));
+    }
+}
@@ -0,0 +1,86 @@
+package com.taskmanager.process.cache;
+
+import org.activiti.bpmn.model.BpmnModel;
+import org.activiti.bpmn.model.Process;
+import org.activiti.bpmn.model.UserTask;
+import org.activiti.engine.RepositoryService;
+import org.activiti.engine.repository.ProcessDefinition;
+import org.activiti.engine.repository.ProcessDefinitionQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProcessDefinitionCacheTest {
+
+    private RepositoryService repositoryService;
+    private ProcessDefinitionQuery query;
+    private ProcessDefinitionCache cache;
+
+    @BeforeEach
+    void setUp() {
+        repositoryService = mock(RepositoryService.class);
+        query = mock(ProcessDefinitionQuery.class);
+        when(repositoryService.createProcessDefinitionQuery()).thenReturn(query);
+        when(query.processDefinitionId(anyString())).thenReturn(query);
+
+        ProcessDefinition definition = mock(ProcessDefinition.class);
+        when(definition.getId()).thenReturn("leaveProcess:1:5");
+        when(definition.getKey()).thenReturn("leaveProcess");
+        when(definition.getName()).thenReturn("請假流程");
+        when(definition.getVersion()).thenReturn(1);
+        when(query.singleResult()).thenReturn(definition);
+
+        UserTask task = new UserTask();
+        task.setId("SupervisorTask");
+        task.setName("直屬主管簽核");
+        Process process = new Process();
+        process.setId("leaveProcess");
+        process.addFlowElement(task);
+        BpmnModel model = new BpmnModel();
+        model.addProcess(process);
+        when(repositoryService.getBpmnModel("leaveProcess:1:5")).thenReturn(model);
+
+        cache = new ProcessDefinitionCache(repositoryService);
+    }
+
+    @Test
+    void testSecondLookupIsServedFromCache() {
+        assertEquals("請假流程", cache.getProcessName("leaveProcess:1:5"));
+        assertEquals("請假流程", cache.getProcessName("leaveProcess:1:5"));
+
+        // 只查一次 ACT_RE_PROCDEF 與 BpmnModel
+        verify(query, times(1)).singleResult();
+        verify(repositoryService, times(1)).getBpmnModel("leaveProcess:1:5");
+        assertEquals(1L, cache.getStats().get("hits"));
+        assertEquals(1L, cache.getStats().get("misses"));
+    }
+
+    @Test
+    void testFlowMetadataIsPrecomputed() {
+        CachedProcessDefinition definition = cache.get("leaveProcess:1:5");
+
+        assertNotNull(definition.getUserTask("SupervisorTask"));
+        assertEquals(1, definition.getFlowNodes().size());
+        assertEquals("直屬主管簽核", definition.getFlowNodes().get(0).get("name"));
+    }
+
+    @Test
+    void testInvalidateForcesReload() {
+        cache.get("leaveProcess:1:5");
+        cache.invalidate("leaveProcess:1:5");
+        cache.get("leaveProcess:1:5");
+
+        verify(query, times(2)).singleResult();
+        assertEquals(2L, cache.getStats().get("misses"));
+    }
+
+    @Test
+    void testUnknownDefinition() {
+        when(query.singleResult()).thenReturn(null);
+
+        assertNull(cache.get("missing:1:1"));
+        assertEquals("Unknown Process", cache.getProcessName("missing:1:1"));
+    }
+}
@@ -0,0 +1,112 @@
+package com.taskmanager.process.diagram;
+
+import com.taskmanager.process.cache.CachedProcessDefinition;
+import com.taskmanager.process.cache.ProcessDefinitionCache;
+import org.activiti.bpmn.model.BpmnModel;
+import org.activiti.bpmn.model.EndEvent;
+import org.activiti.bpmn.model.ExclusiveGateway;
+import org.activiti.bpmn.model.FlowElement;
+import org.activiti.bpmn.model.GraphicInfo;
+import org.activiti.bpmn.model.SequenceFlow;
+import org.activiti.bpmn.model.StartEvent;
+import org.activiti.bpmn.model.UserTask;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProcessDiagramCacheTest {
+
+    @Test
+    void testBaseDiagramIsRenderedOncePerDefinition() {
+        ProcessDefinitionCache definitionCache = mock(ProcessDefinitionCache.class);
+        CachedProcessDefinition definition = mock(CachedProcessDefinition.class);
+        when(definition.getBpmnModel()).thenReturn(leaveModel());
+        when(definitionCache.get("leaveProcess:1:5")).thenReturn(definition);
+        ProcessDiagramCache cache = new ProcessDiagramCache(definitionCache);
+
+        RenderedDiagram first = cache.get("leaveProcess:1:5");
+        RenderedDiagram second = cache.get("leaveProcess:1:5");
+
+        assertSame(first, second);
+        verify(definitionCache, times(1)).get("leaveProcess:1:5");
+        String svg = new String(first.getSvgBytes(), StandardCharsets.UTF_8);
+        assertTrue(svg.startsWith("<svg"));
+        assertTrue(svg.contains("主管簽核"));
+        assertTrue(svg.contains("&lt;3天"));
+        assertFalse(first.getSvgEtag().startsWith("W/"));
+        assertNotEquals(first.getSvgEtag(), first.getPngEtag());
+
+        when(definitionCache.get("missing:1:1")).thenReturn(null);
+        assertThrows(IllegalArgumentException.class, () -> cache.get("missing:1:1"));
+    }
+
+    @Test
+    void testOverlayMarksActiveNodeAndTakenFlows() {
+        DiagramLayout layout = DiagramLayout.from(leaveModel());
+
+        Set<String> flows = layout.completedFlows(List.of("start"), List.of("approve"));
+        assertEquals(Set.of("toApprove"), flows);
+
+        RenderedDiagram diagram = new RenderedDiagram("leaveProcess:1:5", layout);
+        String svg = new String(diagram.renderSvg(new DiagramHighlight(List.of("approve"), List.of("start"), flows)),
+                StandardCharsets.UTF_8);
+        assertTrue(svg.contains("class=\"active\" data-id=\"approve\""));
+        assertTrue(svg.contains("class=\"done\" data-id=\"start\""));
+        assertTrue(svg.contains("class=\"done-flow\" data-id=\"toApprove\""));
+        assertFalse(svg.contains("data-id=\"toEnd\" marker-end=\"url(#arrow-done)\""));
+        assertTrue(svg.endsWith("</svg>\n"));
+    }
+
+    @Test
+    void testWrapBreaksLongTaskNames() {
+        assertEquals(List.of("直屬主管簽核"), DiagramRenderer.wrap("直屬主管簽核", 92));
+        assertEquals(2, DiagramRenderer.wrap("直屬主管與部門經理共同簽核", 92).size());
+    }
+
+    private static BpmnModel leaveModel() {
+        BpmnModel model = new BpmnModel();
+        org.activiti.bpmn.model.Process process = new org.activiti.bpmn.model.Process();
+        process.setId("leaveProcess");
+        model.addProcess(process);
+
+        node(model, process, new StartEvent(), "start", null, 100, 100, 36, 36);
+        node(model, process, new UserTask(), "approve", "主管簽核", 180, 78, 100, 80);
+        node(model, process, new ExclusiveGateway(), "decide", null, 330, 93, 50, 50);
+        node(model, process, new EndEvent(), "end", "結束", 430, 100, 36, 36);
+        flow(model, process, "toApprove", null, "start", "approve", 136, 118, 180, 118);
+        flow(model, process, "toDecide", null, "approve", "decide", 280, 118, 330, 118);
+        flow(model, process, "toEnd", "<3天", "decide", "end", 380, 118, 430, 118);
+        return model;
+    }
+
+    private static void node(BpmnModel model, org.activiti.bpmn.model.Process process, FlowElement element,
+                             String id, String name, double x, double y, double width, double height) {
+        element.setId(id);
+        element.setName(name);
+        process.addFlowElement(element);
+        model.addGraphicInfo(id, graphic(x, y, width, height));
+    }
+
+    private static void flow(BpmnModel model, org.activiti.bpmn.model.Process process, String id, String name,
+                             String source, String target, double x1, double y1, double x2, double y2) {
+        SequenceFlow flow = new SequenceFlow(source, target);
+        flow.setId(id);
+        flow.setName(name);
+        process.addFlowElement(flow);
+        model.addFlowGraphicInfoList(id, List.of(graphic(x1, y1, 0, 0), graphic(x2, y2, 0, 0)));
+    }
+
+    private static GraphicInfo graphic(double x, double y, double width, double height) {
+        GraphicInfo info = new GraphicInfo();
+        info.setX(x);
+        info.setY(y);
+        info.setWidth(width);
+        info.setHeight(height);
+        return info;
+    }
+}
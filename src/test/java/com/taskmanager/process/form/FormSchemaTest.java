@@ -0,0 +1,89 @@
+package com.taskmanager.process.form;
+
+import org.activiti.bpmn.model.FormProperty;
+import org.activiti.bpmn.model.FormValue;
+import org.junit.jupiter.api.Test;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FormSchemaTest {
+
+    @Test
+    void testTaskFormMergesVariableValues() {
+        FormSchema schema = FormSchema.forTask(List.of(
+                property("startDate", "開始日期", "date", true),
+                actionProperty()));
+
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2024, Calendar.MARCH, 5);
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("startDate", calendar.getTime());
+
+        List<Map<String, Object>> fields = schema.render(variables);
+
+        assertEquals("2024-03-05", fields.get(0).get("value"));
+        assertEquals("date", fields.get(0).get("type"));
+        assertEquals("buttons", fields.get(1).get("uiComponent"));
+        assertEquals(2, ((List<?>) fields.get(1).get("options")).size());
+        // 沒有變數值的欄位直接共用編譯好的描述
+        assertSame(schema.render(null).get(1), fields.get(1));
+    }
+
+    @Test
+    void testStartFormUsesCheckboxGroupForMultiInstanceCollection() {
+        FormProperty reviewers = actionProperty();
+        reviewers.setId("reviewers");
+
+        FormSchema schema = FormSchema.forStart(List.of(reviewers), Set.of("reviewers"));
+
+        assertEquals("checkbox-group", schema.render(null).get(0).get("type"));
+    }
+
+    @Test
+    void testValidateRejectsInvalidPayload() {
+        FormSchema schema = FormSchema.forTask(List.of(
+                property("days", "天數", "long", true),
+                actionProperty()));
+
+        Map<String, Object> formData = new HashMap<>();
+        formData.put("days", "abc");
+        formData.put("action", "maybe");
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> schema.validate(formData));
+        assertTrue(e.getMessage().contains("天數"));
+        assertTrue(e.getMessage().contains("maybe"));
+
+        formData.put("days", "3");
+        formData.put("action", "approve");
+        assertDoesNotThrow(() -> schema.validate(formData));
+    }
+
+    private FormProperty property(String id, String name, String type, boolean required) {
+        FormProperty prop = new FormProperty();
+        prop.setId(id);
+        prop.setName(name);
+        prop.setType(type);
+        prop.setRequired(required);
+        prop.setWriteable(true);
+        return prop;
+    }
+
+    private FormProperty actionProperty() {
+        FormProperty prop = property("action", "審核結果", "enum", true);
+        prop.setFormValues(List.of(formValue("approve", "同意"), formValue("reject", "駁回")));
+        return prop;
+    }
+
+    private FormValue formValue(String id, String name) {
+        FormValue value = new FormValue();
+        value.setId(id);
+        value.setName(name);
+        return value;
+    }
+}
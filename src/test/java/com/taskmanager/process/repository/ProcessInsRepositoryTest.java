@@ -0,0 +1,177 @@
+package com.taskmanager.process.repository;
+
+import com.taskmanager.process.dto.InstanceFilter;
+import com.taskmanager.process.model.ProcessIns;
+import com.taskmanager.task.model.InboxTask;
+import com.taskmanager.task.repository.InboxTaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class ProcessInsRepositoryTest {
+
+    // 應用程式主類別的啟動程序需要引擎與安全設定，這裡只載入流程實例與待辦兩個讀取模型
+    @SpringBootConfiguration
+    @EntityScan(basePackageClasses = {ProcessIns.class, InboxTask.class})
+    @EnableJpaRepositories(basePackageClasses = {ProcessInsRepository.class, InboxTaskRepository.class})
+    static class Config {
+    }
+
+    private static final Instant T1 = Instant.parse("2024-05-01T08:00:00Z");
+    private static final Instant T2 = Instant.parse("2024-05-02T08:00:00Z");
+    private static final Instant T3 = Instant.parse("2024-05-03T08:00:00Z");
+
+    @Autowired
+    private ProcessInsRepository repository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        // pi-4 與 pi-3 同一時間啟動，以 id 區分先後
+        instance("pi-1", "leaveProcess", "user", "Running", T1);
+        instance("pi-2", "purchaseProcess", "admin", "Completed", T2);
+        instance("pi-3", "leaveProcess", "user", "Running", T3);
+        instance("pi-4", "leaveProcess", "admin", "Running", T3);
+
+        task("t1", "pi-1", "manager");
+        task("t2", "pi-1", "manager");
+        // pi-3 的任務只有 manager 為候選人，尚未認領
+        task("t3", "pi-3", null);
+        task("t4", "pi-4", "hr");
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void testOrderIsNewestFirstWithIdTieBreak() {
+        assertEquals(List.of("pi-4", "pi-3", "pi-2", "pi-1"), ids(repository.search(null, null, null, 10)));
+        assertEquals(List.of("pi-4", "pi-3", "pi-2", "pi-1"), ids(repository.search(new InstanceFilter(), null, null, 10)));
+        assertEquals(4, repository.count(new InstanceFilter()));
+    }
+
+    @Test
+    void testKeysetPagesCoverEveryRowOnceAcrossTies() {
+        List<String> seen = new ArrayList<>();
+        Instant afterTime = null;
+        String afterId = null;
+        int pages = 0;
+        while (true) {
+            List<ProcessIns> page = repository.search(null, afterTime, afterId, 1);
+            if (page.isEmpty()) {
+                break;
+            }
+            pages++;
+            seen.addAll(ids(page));
+            ProcessIns last = page.get(page.size() - 1);
+            afterTime = last.getStartedAt();
+            afterId = last.getId();
+        }
+
+        assertEquals(4, pages);
+        assertEquals(List.of("pi-4", "pi-3", "pi-2", "pi-1"), seen);
+        // 游標落在同時間的 pi-4 之後，下一筆是同時間的 pi-3
+        assertEquals(List.of("pi-3", "pi-2"), ids(repository.search(null, T3, "pi-4", 2)));
+    }
+
+    @Test
+    void testStatusDefinitionAndStarterFiltersCombine() {
+        InstanceFilter filter = new InstanceFilter();
+        filter.setStatus("Running");
+        filter.setDefinitionKey("leaveProcess");
+        assertEquals(List.of("pi-4", "pi-3", "pi-1"), ids(repository.search(filter, null, null, 10)));
+        assertEquals(3, repository.count(filter));
+
+        filter.setStartedBy("user");
+        assertEquals(List.of("pi-3", "pi-1"), ids(repository.search(filter, null, null, 10)));
+        assertEquals(2, repository.count(filter));
+
+        filter.setStatus("Completed");
+        assertTrue(repository.search(filter, null, null, 10).isEmpty());
+        assertEquals(0, repository.count(filter));
+    }
+
+    @Test
+    void testDateRangeIsHalfOpen() {
+        InstanceFilter filter = new InstanceFilter();
+        filter.setStartedFrom(T2);
+        filter.setStartedTo(T3);
+
+        // [T2, T3)：包含 T2，不包含 T3
+        assertEquals(List.of("pi-2"), ids(repository.search(filter, null, null, 10)));
+        assertEquals(1, repository.count(filter));
+    }
+
+    @Test
+    void testAssigneeFilterMatchesCurrentTasksOnce() {
+        InstanceFilter filter = new InstanceFilter();
+        filter.setAssignee("manager");
+
+        // pi-1 有兩個 manager 的任務，只回傳一次
+        assertEquals(List.of("pi-1"), ids(repository.search(filter, null, null, 10)));
+        assertEquals(1, repository.count(filter));
+
+        // 只是候選人的 pi-3 不算；未指派的任務不屬於任何處理人
+        filter.setAssignee("hr");
+        assertEquals(List.of("pi-4"), ids(repository.search(filter, null, null, 10)));
+        filter.setAssignee("nobody");
+        assertEquals(0, repository.count(filter));
+    }
+
+    @Test
+    void testFilterCombinesWithCursor() {
+        InstanceFilter filter = new InstanceFilter();
+        filter.setDefinitionKey("leaveProcess");
+
+        List<ProcessIns> first = repository.search(filter, null, null, 2);
+        assertEquals(List.of("pi-4", "pi-3"), ids(first));
+
+        ProcessIns last = first.get(1);
+        assertEquals(List.of("pi-1"), ids(repository.search(filter, last.getStartedAt(), last.getId(), 2)));
+    }
+
+    private void instance(String id, String definitionKey, String startedBy, String status, Instant startedAt) {
+        ProcessIns ins = new ProcessIns();
+        ins.setId(id);
+        ins.setName(definitionKey);
+        ins.setProcessDefinitionId(definitionKey + ":1:1");
+        ins.setDefinitionKey(definitionKey);
+        ins.setStartedBy(startedBy);
+        ins.setStatus(status);
+        ins.setStartedAt(startedAt);
+        if ("Completed".equals(status)) {
+            ins.setEndedAt(startedAt.plusSeconds(3600));
+        }
+        entityManager.persist(ins);
+    }
+
+    private void task(String id, String processInstanceId, String assignee) {
+        InboxTask task = new InboxTask();
+        task.setId(id);
+        task.setName("簽核");
+        task.setProcessInstanceId(processInstanceId);
+        task.setAssignee(assignee);
+        task.setCreateTime(T1);
+        if (assignee == null) {
+            task.getCandidateUsers().add("manager");
+        }
+        entityManager.persist(task);
+    }
+
+    private static List<String> ids(List<ProcessIns> rows) {
+        return rows.stream().map(ProcessIns::getId).toList();
+    }
+}
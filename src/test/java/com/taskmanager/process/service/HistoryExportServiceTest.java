@@ -0,0 +1,150 @@
+package com.taskmanager.process.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskmanager.process.dto.ArchivedProcess;
+import com.taskmanager.process.repository.ProcessArchiveRepository;
+import org.activiti.engine.HistoryService;
+import org.activiti.engine.history.HistoricActivityInstance;
+import org.activiti.engine.history.HistoricActivityInstanceQuery;
+import org.activiti.engine.history.HistoricProcessInstance;
+import org.activiti.engine.history.HistoricProcessInstanceQuery;
+import org.activiti.engine.history.HistoricVariableInstance;
+import org.activiti.engine.history.HistoricVariableInstanceQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class HistoryExportServiceTest {
+
+    private HistoricProcessInstanceQuery instanceQuery;
+    private HistoricActivityInstanceQuery activityQuery;
+    private HistoricVariableInstanceQuery variableQuery;
+    private ProcessArchiveRepository archiveRepository;
+    private ProcessArchiveStore archiveStore;
+    private HistoryExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        HistoryService historyService = mock(HistoryService.class);
+        instanceQuery = mock(HistoricProcessInstanceQuery.class, RETURNS_SELF);
+        activityQuery = mock(HistoricActivityInstanceQuery.class, RETURNS_SELF);
+        variableQuery = mock(HistoricVariableInstanceQuery.class, RETURNS_SELF);
+        when(historyService.createHistoricProcessInstanceQuery()).thenReturn(instanceQuery);
+        when(historyService.createHistoricActivityInstanceQuery()).thenReturn(activityQuery);
+        when(historyService.createHistoricVariableInstanceQuery()).thenReturn(variableQuery);
+        when(activityQuery.listPage(anyInt(), anyInt())).thenReturn(List.of());
+        when(variableQuery.listPage(anyInt(), anyInt())).thenReturn(List.of());
+
+        archiveRepository = mock(ProcessArchiveRepository.class);
+        archiveStore = new ProcessArchiveStore(archiveRepository, new ObjectMapper().findAndRegisterModules());
+        exportService = new HistoryExportService(historyService, archiveRepository, archiveStore, new ObjectMapper());
+    }
+
+    @Test
+    void testInstancesAreReadInBoundedChunks() throws Exception {
+        List<HistoricProcessInstance> firstChunk = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            firstChunk.add(instance("pi-" + i));
+        }
+        when(instanceQuery.listPage(0, 100)).thenReturn(firstChunk);
+        when(instanceQuery.listPage(100, 100)).thenReturn(List.of(instance("pi-100")));
+
+        long exported = exportService.export("leaveProcess", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31),
+                HistoryExportService.FORMAT_NDJSON, new ByteArrayOutputStream());
+
+        assertEquals(101, exported);
+        verify(instanceQuery, never()).list();
+        verify(instanceQuery).processDefinitionKey("leaveProcess");
+        // 變數每批流程實例只查一次，不是每個實例各查一次
+        verify(variableQuery, times(2)).listPage(anyInt(), anyInt());
+    }
+
+    @Test
+    void testCsvRowsAreEscaped() throws Exception {
+        HistoricProcessInstance instance = instance("pi-1");
+        when(instanceQuery.listPage(0, 100)).thenReturn(List.of(instance));
+
+        HistoricActivityInstance activity = mock(HistoricActivityInstance.class);
+        when(activity.getActivityId()).thenReturn("SupervisorTask");
+        when(activity.getActivityName()).thenReturn("主管簽核, 第一關");
+        when(activity.getActivityType()).thenReturn("userTask");
+        when(activityQuery.listPage(0, 500)).thenReturn(List.of(activity));
+
+        HistoricVariableInstance variable = mock(HistoricVariableInstance.class);
+        when(variable.getProcessInstanceId()).thenReturn("pi-1");
+        when(variable.getVariableName()).thenReturn("reason");
+        when(variable.getValue()).thenReturn("說 \"好\"");
+        when(variableQuery.listPage(0, 1000)).thenReturn(List.of(variable));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(null, null, null, HistoryExportService.FORMAT_CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[1].contains("\"主管簽核, 第一關\""));
+        assertTrue(lines[2].endsWith(",reason,\"說 \"\"好\"\"\""));
+    }
+
+    @Test
+    void testPurgedInstancesAreExportedFromSnapshots() throws Exception {
+        when(instanceQuery.listPage(0, 100)).thenReturn(List.of());
+
+        ArchivedProcess archived = new ArchivedProcess();
+        archived.setProcessInstanceId("pi-9");
+        archived.setProcessDefinitionId("leaveProcess:1:5");
+        archived.setStartUserId("user");
+        archived.setArchivedAt(Instant.now());
+        ArchivedProcess.ArchivedActivity activity = new ArchivedProcess.ArchivedActivity();
+        activity.setActivityId("SupervisorTask");
+        activity.setActivityType("userTask");
+        activity.setAssignee("manager");
+        activity.setDurationMillis(60_000L);
+        archived.getActivities().add(activity);
+        archived.getVariables().put("days", 3);
+        when(archiveRepository.findPurgedForExport(any(), any(), any(), any(), any(), any()))
+                .thenReturn(List.of(archiveStore.encode(archived)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = exportService.export("leaveProcess", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31),
+                HistoryExportService.FORMAT_NDJSON, out);
+
+        // 引擎歷史已清除的實例仍要出現在稽核匯出中
+        assertEquals(1, exported);
+        ZoneId zone = ZoneId.systemDefault();
+        verify(archiveRepository).findPurgedForExport("leaveProcess",
+                LocalDate.of(2024, 1, 1).atStartOfDay(zone).toInstant(), LocalDate.of(2024, 2, 1).atStartOfDay(zone).toInstant(),
+                null, null, PageRequest.of(0, 100));
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"activityId\":\"SupervisorTask\""));
+        assertTrue(lines[0].contains("\"durationMillis\":60000"));
+        assertTrue(lines[1].contains("\"variableName\":\"days\""));
+        assertTrue(lines[1].contains("\"processInstanceId\":\"pi-9\""));
+    }
+
+    @Test
+    void testUnsupportedFormatIsRejectedBeforeStreaming() {
+        assertThrows(IllegalArgumentException.class, () -> exportService.validate("xlsx", null, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> exportService.validate("csv", LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1)));
+    }
+
+    private HistoricProcessInstance instance(String id) {
+        HistoricProcessInstance instance = mock(HistoricProcessInstance.class);
+        when(instance.getId()).thenReturn(id);
+        when(instance.getProcessDefinitionId()).thenReturn("leaveProcess:1:5");
+        return instance;
+    }
+}
@@ -0,0 +1,134 @@
+package com.taskmanager.process.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskmanager.process.cache.ProcessDefinitionCache;
+import com.taskmanager.process.dto.ArchiveRunResult;
+import com.taskmanager.process.dto.ArchivedProcess;
+import com.taskmanager.process.dto.HistoryLog;
+import com.taskmanager.process.model.ProcessArchive;
+import com.taskmanager.process.repository.ProcessArchiveRepository;
+import org.activiti.engine.HistoryService;
+import org.activiti.engine.ManagementService;
+import org.activiti.engine.history.HistoricActivityInstance;
+import org.activiti.engine.history.HistoricActivityInstanceQuery;
+import org.activiti.engine.history.HistoricProcessInstance;
+import org.activiti.engine.history.HistoricProcessInstanceQuery;
+import org.activiti.engine.history.HistoricTaskInstanceQuery;
+import org.activiti.engine.history.HistoricVariableInstance;
+import org.activiti.engine.history.HistoricVariableInstanceQuery;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProcessArchiveServiceTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSnapshotsBeforePurgingAndRetriesFailedChunkOneByOne() {
+        HistoryService historyService = mock(HistoryService.class);
+        HistoricProcessInstanceQuery processQuery = mock(HistoricProcessInstanceQuery.class, RETURNS_SELF);
+        when(processQuery.listPage(anyInt(), anyInt())).thenReturn(List.of(ended("pi-1"), ended("pi-2")));
+        when(historyService.createHistoricProcessInstanceQuery()).thenReturn(processQuery);
+
+        HistoricVariableInstance days = mock(HistoricVariableInstance.class);
+        when(days.getVariableName()).thenReturn("days");
+        when(days.getValue()).thenReturn(3);
+        HistoricVariableInstanceQuery variableQuery = mock(HistoricVariableInstanceQuery.class, RETURNS_SELF);
+        when(variableQuery.list()).thenReturn(List.of(days));
+        when(historyService.createHistoricVariableInstanceQuery()).thenReturn(variableQuery);
+        HistoricTaskInstanceQuery taskQuery = mock(HistoricTaskInstanceQuery.class, RETURNS_SELF);
+        when(taskQuery.list()).thenReturn(List.of());
+        when(historyService.createHistoricTaskInstanceQuery()).thenReturn(taskQuery);
+
+        HistoricActivityInstance endEvent = mock(HistoricActivityInstance.class);
+        when(endEvent.getActivityId()).thenReturn("end");
+        when(endEvent.getActivityType()).thenReturn("endEvent");
+        HistoricActivityInstanceQuery activityQuery = mock(HistoricActivityInstanceQuery.class, RETURNS_SELF);
+        when(activityQuery.list()).thenReturn(List.of(endEvent));
+        when(historyService.createHistoricActivityInstanceQuery()).thenReturn(activityQuery);
+
+        HistoryLog step = new HistoryLog();
+        step.setActivityName("主管審核");
+        step.setStatus("Completed");
+        ProcessHistoryBuilder historyBuilder = mock(ProcessHistoryBuilder.class);
+        when(historyBuilder.build(anyString())).thenReturn(List.of(step));
+
+        ProcessArchiveRepository archiveRepository = mock(ProcessArchiveRepository.class);
+        List<ProcessArchive> saved = new ArrayList<>();
+        when(archiveRepository.saveAll(any())).thenAnswer(invocation -> {
+            ((Iterable<ProcessArchive>) invocation.getArgument(0)).forEach(saved::add);
+            return saved;
+        });
+        ProcessArchiveStore store = new ProcessArchiveStore(archiveRepository, new ObjectMapper().findAndRegisterModules());
+        ProcessSnapshotService snapshotService = new ProcessSnapshotService(historyService, historyBuilder, store,
+                mock(ProcessDefinitionCache.class), Runnable::run);
+
+        // 整批清除失敗 → 逐筆重試：pi-1 成功、pi-2 失敗
+        ManagementService managementService = mock(ManagementService.class);
+        when(managementService.executeCommand(any()))
+                .thenThrow(new IllegalStateException("lock"))
+                .thenReturn(null)
+                .thenThrow(new IllegalStateException("lock"));
+
+        ProcessArchiveService service = new ProcessArchiveService(historyService, managementService, snapshotService, store,
+                archiveRepository, new TransactionTemplate(mock(PlatformTransactionManager.class)), true, 180, 50, 5000);
+
+        ArchiveRunResult result = service.archive(30);
+
+        assertEquals(1, result.getArchived());
+        assertEquals(1, result.getFailed());
+        assertEquals(3, result.getTransactions());
+        assertEquals(2, saved.size());
+        verify(archiveRepository).saveAll(any());
+        verify(archiveRepository).markPurged(List.of("pi-1"));
+
+        ArchivedProcess archived = store.decode(saved.get(0));
+        assertEquals("pi-1", archived.getProcessInstanceId());
+        assertEquals("leaveProcess", archived.getProcessDefinitionKey());
+        assertEquals(3, archived.getVariables().get("days"));
+        assertEquals("主管審核", archived.getHistory().get(0).getActivityName());
+        assertEquals("end", archived.getEndActivityId());
+        assertTrue(saved.get(0).getPayload().length > 0);
+
+        assertThrows(IllegalArgumentException.class, () -> service.archive(0));
+    }
+
+    @Test
+    void testSnapshotInsertNeverOverwritesExistingRow() {
+        ProcessArchiveRepository archiveRepository = mock(ProcessArchiveRepository.class);
+        when(archiveRepository.save(any())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        ProcessArchiveStore store = new ProcessArchiveStore(archiveRepository, new ObjectMapper().findAndRegisterModules());
+        ArchivedProcess archived = new ArchivedProcess();
+        archived.setProcessInstanceId("pi-1");
+        archived.setArchivedAt(Instant.now());
+
+        // 新建的列走 persist：已有快照時是主鍵衝突，不會 merge 蓋掉 purged
+        ProcessArchive row = store.encode(archived);
+        assertTrue(row.isNew());
+        assertFalse(store.insert(row));
+        store.save(archived);
+        verify(archiveRepository, times(2)).save(any());
+    }
+
+    private HistoricProcessInstance ended(String id) {
+        HistoricProcessInstance hPi = mock(HistoricProcessInstance.class);
+        when(hPi.getId()).thenReturn(id);
+        when(hPi.getProcessDefinitionId()).thenReturn("leaveProcess:1:5");
+        when(hPi.getProcessDefinitionKey()).thenReturn("leaveProcess");
+        when(hPi.getProcessDefinitionName()).thenReturn("請假流程");
+        when(hPi.getStartUserId()).thenReturn("user");
+        when(hPi.getStartTime()).thenReturn(new Date(System.currentTimeMillis() - 400L * 24 * 3_600_000));
+        when(hPi.getEndTime()).thenReturn(new Date(System.currentTimeMillis() - 300L * 24 * 3_600_000));
+        return hPi;
+    }
+}
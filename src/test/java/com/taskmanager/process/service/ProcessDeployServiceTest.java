@@ -0,0 +1,102 @@
+package com.taskmanager.process.service;
+
+import com.taskmanager.process.cache.BpmnXmlCache;
+import com.taskmanager.process.cache.BpmnXmlResource;
+import com.taskmanager.process.cache.CachedProcessDefinition;
+import com.taskmanager.process.cache.ProcessDefinitionCache;
+import com.taskmanager.process.dto.DeployReport;
+import com.taskmanager.process.repository.ProcessDefRepository;
+import org.activiti.engine.RepositoryService;
+import org.activiti.engine.repository.Deployment;
+import org.activiti.engine.repository.DeploymentBuilder;
+import org.activiti.engine.repository.ProcessDefinition;
+import org.activiti.engine.repository.ProcessDefinitionQuery;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProcessDeployServiceTest {
+
+    private static final byte[] LEAVE = "<?xml version=\"1.0\"?><definitions id=\"leave\"/>".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] REPAIR = "<?xml version=\"1.0\"?><definitions id=\"repair\"/>".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void testBundleDeploysOnlyChangedResources() throws IOException {
+        RepositoryService repositoryService = mock(RepositoryService.class);
+        ProcessDefinitionCache definitionCache = mock(ProcessDefinitionCache.class);
+        BpmnXmlCache bpmnXmlCache = mock(BpmnXmlCache.class);
+
+        // leave.bpmn 與已部署的最新版本內容相同；repair.bpmn 從未部署過
+        ProcessDefinition previous = mock(ProcessDefinition.class);
+        when(previous.getId()).thenReturn("leaveProcess:3:30");
+        when(previous.getKey()).thenReturn("leaveProcess");
+        when(previous.getVersion()).thenReturn(3);
+        ProcessDefinitionQuery leaveQuery = mock(ProcessDefinitionQuery.class, RETURNS_SELF);
+        when(leaveQuery.listPage(0, 1)).thenReturn(List.of(previous));
+        ProcessDefinitionQuery repairQuery = mock(ProcessDefinitionQuery.class, RETURNS_SELF);
+        when(repairQuery.listPage(0, 1)).thenReturn(List.of());
+        when(repositoryService.createProcessDefinitionQuery()).thenReturn(leaveQuery, repairQuery);
+        when(bpmnXmlCache.get("leaveProcess:3:30")).thenReturn(new BpmnXmlResource("leaveProcess:3:30", LEAVE));
+
+        DeploymentBuilder builder = mock(DeploymentBuilder.class, RETURNS_SELF);
+        Deployment deployment = mock(Deployment.class);
+        when(deployment.getId()).thenReturn("d-1");
+        when(builder.deploy()).thenReturn(deployment);
+        when(repositoryService.createDeployment()).thenReturn(builder);
+
+        CachedProcessDefinition repair = mock(CachedProcessDefinition.class);
+        when(repair.getId()).thenReturn("itRepairProcess:1:40");
+        when(repair.getKey()).thenReturn("itRepairProcess");
+        when(repair.getName()).thenReturn("IT 報修流程");
+        when(repair.getVersion()).thenReturn(1);
+        when(repair.getResourceName()).thenReturn("repair.bpmn");
+        when(definitionCache.warmDeployment("d-1")).thenReturn(List.of(repair));
+
+        ProcessDefRepository definitionRepository = mock(ProcessDefRepository.class);
+        ProcessDeployService service = new ProcessDeployService(repositoryService, definitionRepository, definitionCache, bpmnXmlCache);
+
+        MockMultipartFile bundle = new MockMultipartFile("file", "bundle.zip", "application/zip",
+                zip("processes/leave.bpmn", LEAVE, "processes/repair.bpmn", REPAIR, "README.md", "說明".getBytes(StandardCharsets.UTF_8)));
+
+        DeployReport report = service.deployBundle("nightly", bundle);
+
+        assertEquals("d-1", report.getDeploymentId());
+        assertEquals(1, report.getChangedCount());
+        assertEquals(List.of("README.md"), report.getIgnored());
+        assertEquals(DeployReport.UNCHANGED, report.getResources().get(0).getStatus());
+        assertEquals("leaveProcess:3:30", report.getResources().get(0).getProcessDefinitionId());
+        assertEquals("itRepairProcess:1:40", report.getResources().get(1).getProcessDefinitionId());
+        verify(builder).addBytes(eq("repair.bpmn"), any());
+        verify(builder, never()).addBytes(eq("leave.bpmn"), any());
+        verify(definitionRepository).save(any());
+    }
+
+    @Test
+    void testXmlDeclarationMustComeFirst() {
+        assertThrows(IllegalArgumentException.class, () ->
+                ProcessDeployService.checkPrologue("a.bpmn", " \n<?xml version=\"1.0\"?><definitions/>".getBytes(StandardCharsets.UTF_8)));
+        assertDoesNotThrow(() -> ProcessDeployService.checkPrologue("a.bpmn", LEAVE));
+    }
+
+    private byte[] zip(Object... entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (int i = 0; i < entries.length; i += 2) {
+                zip.putNextEntry(new ZipEntry((String) entries[i]));
+                zip.write((byte[]) entries[i + 1]);
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,207 @@
+package com.taskmanager.process.service;
+
+import com.taskmanager.process.cache.CachedProcessDefinition;
+import com.taskmanager.process.cache.ProcessDefinitionCache;
+import com.taskmanager.process.model.ProcessIns;
+import com.taskmanager.process.repository.ProcessArchiveRepository;
+import com.taskmanager.process.repository.ProcessInsRepository;
+import com.taskmanager.task.model.InboxTask;
+import com.taskmanager.task.repository.InboxTaskRepository;
+import com.taskmanager.workflow.listener.ProcessChange;
+import com.taskmanager.workflow.listener.TaskChange;
+import org.activiti.engine.HistoryService;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProcessInsProjectionTest {
+
+    // process_ins / inbox_task 以記憶體 Map 模擬
+    private final Map<String, ProcessIns> instances = new LinkedHashMap<>();
+    private final List<InboxTask> inbox = new ArrayList<>();
+
+    private ProcessInsRepository instanceRepository;
+    private ProcessDefinitionCache definitionCache;
+    private ProcessInsProjection projection;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        instanceRepository = mock(ProcessInsRepository.class);
+        when(instanceRepository.findAllById(anyIterable())).thenAnswer(inv -> {
+            List<ProcessIns> rows = new ArrayList<>();
+            for (String id : (Iterable<String>) inv.getArgument(0)) {
+                if (instances.containsKey(id)) {
+                    rows.add(instances.get(id));
+                }
+            }
+            return rows;
+        });
+        when(instanceRepository.saveAll(anyIterable())).thenAnswer(inv -> {
+            List<ProcessIns> rows = new ArrayList<>();
+            for (ProcessIns row : (Iterable<ProcessIns>) inv.getArgument(0)) {
+                instances.put(row.getId(), row);
+                rows.add(row);
+            }
+            return rows;
+        });
+
+        InboxTaskRepository inboxTaskRepository = mock(InboxTaskRepository.class);
+        when(inboxTaskRepository.findByProcessInstanceIdIn(anyCollection())).thenAnswer(inv -> {
+            Collection<String> ids = inv.getArgument(0);
+            return inbox.stream().filter(task -> ids.contains(task.getProcessInstanceId())).toList();
+        });
+
+        CachedProcessDefinition leave = mock(CachedProcessDefinition.class);
+        when(leave.getName()).thenReturn("請假流程");
+        when(leave.getKey()).thenReturn("leaveProcess");
+        definitionCache = mock(ProcessDefinitionCache.class);
+        when(definitionCache.get("leaveProcess:1:5")).thenReturn(leave);
+
+        projection = new ProcessInsProjection(instanceRepository, inboxTaskRepository, mock(HistoryService.class),
+                definitionCache, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                mock(ProcessArchiveRepository.class));
+    }
+
+    @Test
+    void testStartInsertsRunningRowWithCurrentTasks() {
+        inbox.add(inboxTask("t2", "pi-1", "經理簽核", null));
+        inbox.add(inboxTask("t1", "pi-1", "主管簽核", "manager"));
+
+        projection.onProcessChanges(List.of(started("pi-1", 1000)));
+
+        ProcessIns ins = instances.get("pi-1");
+        assertEquals(ProcessInsProjection.STATUS_RUNNING, ins.getStatus());
+        assertEquals("請假流程", ins.getName());
+        assertEquals("leaveProcess", ins.getDefinitionKey());
+        assertEquals("user", ins.getStartedBy());
+        assertEquals(Instant.ofEpochMilli(1000), ins.getStartedAt());
+        assertNull(ins.getEndedAt());
+        // 任務依 ID 排序，未指派顯示「待認領」
+        assertEquals("主管簽核, 經理簽核", ins.getCurrentTask());
+        assertEquals("manager, 待認領", ins.getAssignee());
+        assertTrue(ins.isNew());
+    }
+
+    @Test
+    void testStartWithoutTasksShowsSystemStep() {
+        projection.onProcessChanges(List.of(started("pi-1", 1000)));
+
+        assertEquals("系統處理中", instances.get("pi-1").getCurrentTask());
+        assertNull(instances.get("pi-1").getAssignee());
+    }
+
+    @Test
+    void testEndMarksRowCompleted() {
+        projection.onProcessChanges(List.of(started("pi-1", 1000)));
+
+        projection.onProcessChanges(List.of(ended(ProcessChange.Type.COMPLETED, "pi-1", 5000)));
+
+        ProcessIns ins = instances.get("pi-1");
+        assertEquals(ProcessInsProjection.STATUS_COMPLETED, ins.getStatus());
+        assertEquals(Instant.ofEpochMilli(5000), ins.getEndedAt());
+        assertEquals("Completed", ins.getCurrentTask());
+        assertEquals("-", ins.getAssignee());
+        assertTrue(ins.isEnded());
+    }
+
+    @Test
+    void testStartAndEndInOneTransactionEndsRow() {
+        // 沒有使用者任務的流程：啟動與結束在同一個交易
+        projection.onProcessChanges(List.of(
+                started("pi-1", 1000),
+                ended(ProcessChange.Type.CANCELLED, "pi-1", 1000)));
+
+        assertEquals(ProcessInsProjection.STATUS_COMPLETED, instances.get("pi-1").getStatus());
+        assertEquals(Instant.ofEpochMilli(1000), instances.get("pi-1").getStartedAt());
+    }
+
+    @Test
+    void testEndOfUnknownInstanceWaitsForRebuild() {
+        projection.onProcessChanges(List.of(ended(ProcessChange.Type.COMPLETED, "pi-old", 5000)));
+
+        assertTrue(instances.isEmpty());
+    }
+
+    @Test
+    void testTaskChangesRecomputeCurrentTasksButKeepEndedRows() {
+        projection.onProcessChanges(List.of(started("pi-1", 1000), started("pi-2", 2000)));
+        projection.onProcessChanges(List.of(ended(ProcessChange.Type.COMPLETED, "pi-2", 3000)));
+
+        inbox.add(inboxTask("t3", "pi-1", "人資確認", "hr"));
+        inbox.add(inboxTask("t4", "pi-2", "晚到的任務", "late"));
+        projection.onTaskChanges(List.of(
+                taskChange("t3", "pi-1"),
+                taskChange("t4", "pi-2"),
+                taskChange("standalone", null)));
+
+        assertEquals("人資確認", instances.get("pi-1").getCurrentTask());
+        assertEquals("hr", instances.get("pi-1").getAssignee());
+        // 流程結束後才到的任務異動不可覆蓋結束狀態
+        assertEquals("Completed", instances.get("pi-2").getCurrentTask());
+        assertEquals("-", instances.get("pi-2").getAssignee());
+    }
+
+    @Test
+    void testTaskChangesWithoutProcessInstanceSkipQueries() {
+        projection.onTaskChanges(List.of(taskChange("standalone", null)));
+
+        verify(instanceRepository, never()).findAllById(anyIterable());
+    }
+
+    @Test
+    void testMigrationRewritesDefinitionColumns() {
+        projection.onProcessChanges(List.of(started("pi-1", 1000)));
+        CachedProcessDefinition v2 = mock(CachedProcessDefinition.class);
+        when(v2.getName()).thenReturn("請假流程 v2");
+        when(v2.getKey()).thenReturn("leaveProcess");
+        when(definitionCache.get("leaveProcess:2:9")).thenReturn(v2);
+
+        projection.onInstancesMigrated(List.of("pi-1", "pi-missing"), "leaveProcess:2:9");
+
+        assertEquals("leaveProcess:2:9", instances.get("pi-1").getProcessDefinitionId());
+        assertEquals("請假流程 v2", instances.get("pi-1").getName());
+        assertEquals(ProcessInsProjection.STATUS_RUNNING, instances.get("pi-1").getStatus());
+        assertEquals(1, instances.size());
+    }
+
+    private ProcessChange started(String processInstanceId, long startMillis) {
+        return new ProcessChange(ProcessChange.Type.STARTED, processInstanceId, "leaveProcess:1:5", "user",
+                new Date(startMillis), new Date(startMillis));
+    }
+
+    private ProcessChange ended(ProcessChange.Type type, String processInstanceId, long endMillis) {
+        return new ProcessChange(type, processInstanceId, "leaveProcess:1:5", "user", null, new Date(endMillis));
+    }
+
+    private TaskChange taskChange(String taskId, String processInstanceId) {
+        TaskEntity task = mock(TaskEntity.class);
+        when(task.getId()).thenReturn(taskId);
+        when(task.getProcessInstanceId()).thenReturn(processInstanceId);
+        when(task.getIdentityLinks()).thenReturn(new ArrayList<>());
+        return TaskChange.of(TaskChange.Type.CREATED, task);
+    }
+
+    private InboxTask inboxTask(String id, String processInstanceId, String name, String assignee) {
+        InboxTask task = new InboxTask();
+        task.setId(id);
+        task.setProcessInstanceId(processInstanceId);
+        task.setName(name);
+        task.setAssignee(assignee);
+        return task;
+    }
+}
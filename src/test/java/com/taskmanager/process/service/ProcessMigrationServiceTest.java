@@ -0,0 +1,148 @@
+package com.taskmanager.process.service;
+
+import com.taskmanager.process.cache.CachedProcessDefinition;
+import com.taskmanager.process.cache.ProcessDefinitionCache;
+import com.taskmanager.process.dto.MigrationRequest;
+import com.taskmanager.process.dto.MigrationStatus;
+import com.taskmanager.task.model.InboxTask;
+import com.taskmanager.task.service.InboxProjection;
+import com.taskmanager.workflow.listener.ListVersionTracker;
+import org.activiti.bpmn.model.UserTask;
+import org.activiti.engine.ManagementService;
+import org.activiti.engine.RuntimeService;
+import org.activiti.engine.runtime.Execution;
+import org.activiti.engine.runtime.ExecutionQuery;
+import org.activiti.engine.runtime.ProcessInstance;
+import org.activiti.engine.runtime.ProcessInstanceQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProcessMigrationServiceTest {
+
+    private RuntimeService runtimeService;
+    private ManagementService managementService;
+    private InboxProjection inboxProjection;
+    private ProcessInsProjection instanceProjection;
+    private ListVersionTracker versionTracker;
+    private ProcessMigrationService service;
+
+    @BeforeEach
+    void setUp() {
+        CachedProcessDefinition v1 = definition("leaveProcess:1:5", 1, "SupervisorTask", "ManagerTask");
+        CachedProcessDefinition v2 = definition("leaveProcess:2:9", 2, "SupervisorTask", "ManagerApproval");
+        ProcessDefinitionCache definitionCache = mock(ProcessDefinitionCache.class);
+        when(definitionCache.get("leaveProcess:1:5")).thenReturn(v1);
+        when(definitionCache.getLatestByKey("leaveProcess")).thenReturn(v2);
+
+        runtimeService = mock(RuntimeService.class);
+        ProcessInstanceQuery instanceQuery = mock(ProcessInstanceQuery.class, RETURNS_SELF);
+        when(instanceQuery.count()).thenReturn(3L);
+        List<ProcessInstance> instances = List.of(instance("pi-1"), instance("pi-2"), instance("pi-3"));
+        when(instanceQuery.listPage(anyInt(), anyInt())).thenReturn(instances);
+        when(runtimeService.createProcessInstanceQuery()).thenReturn(instanceQuery);
+        ExecutionQuery executionQuery = mock(ExecutionQuery.class, RETURNS_SELF);
+        List<Execution> executions = List.of(execution("pi-1", null), execution("pi-1", "SupervisorTask"),
+                execution("pi-2", "ManagerTask"), execution("pi-3", "ManagerTask"));
+        when(executionQuery.listPage(anyInt(), anyInt())).thenReturn(executions);
+        when(runtimeService.createExecutionQuery()).thenReturn(executionQuery);
+
+        managementService = mock(ManagementService.class);
+        inboxProjection = mock(InboxProjection.class);
+        instanceProjection = mock(ProcessInsProjection.class);
+        versionTracker = mock(ListVersionTracker.class);
+        service = new ProcessMigrationService(runtimeService, managementService, definitionCache, inboxProjection,
+                instanceProjection, versionTracker, Runnable::run, 10, 100);
+    }
+
+    @Test
+    void testRejectsNodesMissingFromTargetUpFront() {
+        MigrationRequest request = new MigrationRequest();
+        request.setSourceProcessDefinitionId("leaveProcess:1:5");
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> service.submit(request));
+        assertTrue(error.getMessage().contains("ManagerTask (2 筆實例停在此節點)"));
+
+        request.setNodeMapping(Map.of("ManagerTask", "Nope"));
+        error = assertThrows(IllegalArgumentException.class, () -> service.submit(request));
+        assertTrue(error.getMessage().contains("目標版本沒有節點 Nope"));
+        verifyNoInteractions(managementService);
+    }
+
+    @Test
+    void testDryRunReportsPlanWithoutMigrating() {
+        MigrationRequest request = new MigrationRequest();
+        request.setSourceProcessDefinitionId("leaveProcess:1:5");
+        request.setNodeMapping(Map.of("ManagerTask", "ManagerApproval"));
+        request.setDryRun(true);
+
+        MigrationStatus status = service.submit(request);
+
+        assertEquals(MigrationStatus.STATUS_VALIDATED, status.getStatus());
+        assertEquals("leaveProcess:2:9", status.getTargetProcessDefinitionId());
+        assertEquals(3, status.getTotal());
+        assertEquals(Map.of("SupervisorTask", 1L, "ManagerTask", 2L), status.getActiveNodes());
+        verifyNoInteractions(managementService);
+        assertTrue(service.listJobs().isEmpty());
+    }
+
+    @Test
+    void testFailedChunkIsRetriedOneByOneAndReadModelsFollow() {
+        // 整批失敗 → 逐筆：pi-1 成功、pi-2 回報已結束、pi-3 成功
+        when(managementService.executeCommand(any()))
+                .thenThrow(new IllegalStateException("lock"))
+                .thenReturn(Map.of())
+                .thenReturn(Map.of("pi-2", "流程實例已結束"))
+                .thenReturn(Map.of());
+        InboxTask task = new InboxTask();
+        task.setAssignee("admin");
+        when(inboxProjection.onInstancesMigrated(anyCollection(), anyString(), anyMap())).thenReturn(List.of(task));
+
+        MigrationRequest request = new MigrationRequest();
+        request.setSourceProcessDefinitionId("leaveProcess:1:5");
+        request.setNodeMapping(Map.of("ManagerTask", "ManagerApproval"));
+        MigrationStatus status = service.submit(request);
+
+        assertEquals(MigrationStatus.STATUS_SUCCEEDED, status.getStatus());
+        assertEquals(2, status.getMigrated());
+        assertEquals(1, status.getFailed());
+        assertEquals(4, status.getTransactions());
+        assertEquals(List.of("pi-2：流程實例已結束"), status.getErrors());
+        verify(inboxProjection).onInstancesMigrated(List.of("pi-1", "pi-3"), "leaveProcess:2:9", Map.of("ManagerTask", "ManagerApproval"));
+        verify(instanceProjection).onInstancesMigrated(List.of("pi-1", "pi-3"), "leaveProcess:2:9");
+        verify(versionTracker).bumpUser("admin");
+        assertSame(status, service.getStatus(status.getJobId()));
+    }
+
+    private static CachedProcessDefinition definition(String id, int version, String... userTasks) {
+        CachedProcessDefinition definition = mock(CachedProcessDefinition.class);
+        when(definition.getId()).thenReturn(id);
+        when(definition.getKey()).thenReturn("leaveProcess");
+        when(definition.getVersion()).thenReturn(version);
+        for (String taskId : userTasks) {
+            UserTask task = new UserTask();
+            task.setId(taskId);
+            when(definition.getFlowElement(taskId)).thenReturn(task);
+        }
+        return definition;
+    }
+
+    private static ProcessInstance instance(String id) {
+        ProcessInstance instance = mock(ProcessInstance.class);
+        when(instance.getId()).thenReturn(id);
+        return instance;
+    }
+
+    private static Execution execution(String processInstanceId, String activityId) {
+        Execution execution = mock(Execution.class);
+        when(execution.getProcessInstanceId()).thenReturn(processInstanceId);
+        when(execution.getActivityId()).thenReturn(activityId);
+        return execution;
+    }
+}
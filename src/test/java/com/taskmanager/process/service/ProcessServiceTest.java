@@ -0,0 +1,324 @@
+package com.taskmanager.process.service;
+
+import com.taskmanager.process.cache.BpmnXmlCache;
+import com.taskmanager.process.cache.CachedProcessDefinition;
+import com.taskmanager.process.cache.ProcessDefinitionCache;
+import com.taskmanager.process.dto.ArchivedProcess;
+import com.taskmanager.process.dto.BulkStartResponse;
+import com.taskmanager.process.dto.BulkStartResult;
+import com.taskmanager.process.dto.HistoryLog;
+import com.taskmanager.process.dto.HistoryTimeline;
+import com.taskmanager.process.dto.InstanceFilter;
+import com.taskmanager.process.form.FormSchema;
+import com.taskmanager.process.model.ProcessIns;
+import com.taskmanager.process.repository.ProcessDefRepository;
+import com.taskmanager.process.repository.ProcessInsRepository;
+import com.taskmanager.task.dto.CursorPage;
+import com.taskmanager.util.KeysetCursor;
+import com.taskmanager.workflow.listener.ListVersionTracker;
+import org.activiti.bpmn.model.FormProperty;
+import org.activiti.engine.ActivitiException;
+import org.activiti.engine.HistoryService;
+import org.activiti.engine.ManagementService;
+import org.activiti.engine.RepositoryService;
+import org.activiti.engine.RuntimeService;
+import org.activiti.engine.TaskService;
+import org.activiti.engine.history.HistoricActivityInstance;
+import org.activiti.engine.history.HistoricActivityInstanceQuery;
+import org.activiti.engine.history.HistoricDetail;
+import org.activiti.engine.history.HistoricDetailQuery;
+import org.activiti.engine.history.HistoricVariableUpdate;
+import org.activiti.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.variable.VariableTypes;
+import org.activiti.engine.task.TaskQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+
+import java.io.StringReader;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProcessServiceTest {
+
+    private TaskService taskService;
+    private HistoryService historyService;
+    private ProcessInsRepository instanceRepository;
+    private ProcessSnapshotService snapshotService;
+    private ProcessService processService;
+
+    @BeforeEach
+    void setUp() {
+        taskService = mock(TaskService.class);
+        historyService = mock(HistoryService.class);
+        instanceRepository = mock(ProcessInsRepository.class);
+        snapshotService = mock(ProcessSnapshotService.class);
+
+        processService = new ProcessService(mock(ProcessDefRepository.class), instanceRepository,
+                mock(RepositoryService.class), mock(RuntimeService.class), taskService, historyService,
+                mock(ManagementService.class), mock(ProcessDefinitionCache.class), mock(BpmnXmlCache.class), new ListVersionTracker(),
+                mock(ProcessInsProjection.class), new ProcessHistoryBuilder(historyService, taskService), snapshotService);
+    }
+
+    @Test
+    void testInstanceListIsServedFromProjectionOnly() {
+        ProcessIns ins = new ProcessIns();
+        ins.setId("pi-1");
+        when(instanceRepository.findAllBy(any(Pageable.class))).thenReturn(List.of(ins));
+
+        assertEquals(1, processService.getAllInstances().size());
+        verifyNoInteractions(taskService, historyService);
+    }
+
+    @Test
+    void testPagedInstanceList() {
+        when(instanceRepository.findAllBy(any(Pageable.class))).thenReturn(List.of());
+
+        processService.getAllInstances(2, 20);
+
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(instanceRepository).findAllBy(pageable.capture());
+        assertEquals(40, pageable.getValue().getOffset());
+        assertEquals(20, pageable.getValue().getPageSize());
+        assertThrows(IllegalArgumentException.class, () -> processService.getAllInstances(0, 1000));
+    }
+
+    @Test
+    void testFilteredInstancePageUsesKeysetCursor() {
+        Instant startedAt = Instant.parse("2024-05-01T08:00:00Z");
+        when(instanceRepository.search(any(), any(), any(), eq(3)))
+                .thenReturn(List.of(instance("pi-3", startedAt), instance("pi-2", startedAt), instance("pi-1", startedAt)));
+
+        InstanceFilter filter = InstanceFilter.of("Running", " ", null, null, null, null);
+        CursorPage<ProcessIns> page = processService.getInstancesPage(filter, null, 2, false);
+
+        // 多查一筆判斷下一頁，游標指向本頁最後一筆
+        assertEquals(2, page.getItems().size());
+        assertNull(page.getTotal());
+        KeysetCursor next = KeysetCursor.decode(page.getNextCursor());
+        assertEquals("pi-2", next.getId());
+        assertEquals(startedAt.toEpochMilli(), next.getTimeMillis());
+        assertNull(filter.getDefinitionKey());
+
+        when(instanceRepository.search(any(), any(), any(), anyInt())).thenReturn(List.of());
+        processService.getInstancesPage(filter, page.getNextCursor(), 2, false);
+        verify(instanceRepository).search(filter, startedAt, "pi-2", 3);
+        verify(instanceRepository, never()).count(any());
+    }
+
+    @Test
+    void testFilterDateRangeIncludesWholeLastDay() {
+        InstanceFilter filter = InstanceFilter.of(null, null, null, null,
+                LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 1));
+
+        assertEquals(86400, filter.getStartedTo().getEpochSecond() - filter.getStartedFrom().getEpochSecond());
+        assertThrows(IllegalArgumentException.class, () -> InstanceFilter.of(null, null, null, null,
+                LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 1)));
+    }
+
+    private ProcessIns instance(String id, Instant startedAt) {
+        ProcessIns ins = new ProcessIns();
+        ins.setId(id);
+        ins.setStartedAt(startedAt);
+        return ins;
+    }
+
+    @Test
+    void testHistoryReturnsPerStepVariableChanges() {
+        HistoricActivityInstanceQuery activityQuery = mock(HistoricActivityInstanceQuery.class, RETURNS_SELF);
+        HistoricDetailQuery detailQuery = mock(HistoricDetailQuery.class, RETURNS_SELF);
+        TaskQuery taskQuery = mock(TaskQuery.class, RETURNS_SELF);
+        when(historyService.createHistoricActivityInstanceQuery()).thenReturn(activityQuery);
+        when(historyService.createHistoricDetailQuery()).thenReturn(detailQuery);
+        when(taskService.createTaskQuery()).thenReturn(taskQuery);
+        when(taskQuery.list()).thenReturn(List.of());
+
+        HistoricActivityInstance start = activity("a1", "startEvent", null, 1000);
+        HistoricActivityInstance approve = activity("a2", "userTask", "t1", 2000);
+        HistoricActivityInstance secondApprove = activity("a3", "userTask", "t2", 4000);
+        when(activityQuery.list()).thenReturn(List.of(start, approve, secondApprove));
+
+        List<HistoricDetail> updates = List.of(
+                update("a1", null, "reason", "家中有事", 1000),
+                update("a1", null, "applicant", "user", 1000),
+                update(null, "t1", "action", "approve", 3000),
+                update(null, "t1", "comment", "approve", 3000),
+                update(null, "t1", "comment", "approve", 3000),
+                update(null, "t2", "action", "approve", 5000),
+                update(null, "t2", "comment", "approve", 5000));
+        when(detailQuery.list()).thenReturn(updates);
+
+        List<HistoryLog> history = processService.getProcessHistory("pi-1");
+
+        assertEquals(2, history.get(0).getChanges().size());
+        // 同一節點重複寫入相同的值只算一次
+        assertEquals(List.of("action", "comment"), List.copyOf(history.get(1).getChanges().keySet()));
+        // 既有前端仍讀 userTask 節點的 variables：整份流程變數的最終值
+        assertEquals(Map.of("reason", "家中有事", "applicant", "user", "action", "approve", "comment", "approve"),
+                history.get(1).getVariables());
+        assertSame(history.get(1).getVariables(), history.get(2).getVariables());
+        assertNull(history.get(0).getVariables());
+        // 第二位主管寫入與前一位相同的值，仍是這一關的異動
+        assertEquals(Map.of("action", "approve", "comment", "approve"), history.get(2).getChanges());
+
+        HistoryTimeline timeline = processService.getProcessHistoryTimeline("pi-1");
+        assertEquals(List.of("家中有事", "user", "approve"), timeline.getValues());
+        assertEquals(2, timeline.getSteps().get(1).getChangeRefs().get("comment"));
+        assertEquals(2, timeline.getSteps().get(2).getChangeRefs().get("action"));
+        assertNull(timeline.getSteps().get(1).getChanges());
+        assertNull(timeline.getSteps().get(1).getVariables());
+    }
+
+    @Test
+    void testEndedInstanceIsServedFromSnapshot() {
+        HistoryLog end = new HistoryLog();
+        end.setActivityName("流程結束");
+        ArchivedProcess snapshot = new ArchivedProcess();
+        snapshot.setProcessDefinitionId("leaveProcess:1:5");
+        snapshot.setEndActivityId("endEvent");
+        snapshot.setCompletedNodeIds(List.of("startEvent", "managerApproval", "endEvent"));
+        snapshot.setHistory(List.of(end));
+        when(snapshotService.findEnded("pi-9")).thenReturn(snapshot);
+
+        assertEquals("流程結束", processService.getProcessHistory("pi-9").get(0).getActivityName());
+        Map<String, Object> highlights = processService.getInstanceHighlights("pi-9");
+        assertEquals(true, highlights.get("ended"));
+        assertEquals(snapshot.getCompletedNodeIds(), highlights.get("completedNodeIds"));
+        verifyNoInteractions(historyService, taskService);
+    }
+
+    @Test
+    void testBulkStartValidatesRowsAndChunksTransactions() {
+        FormProperty days = new FormProperty();
+        days.setId("days");
+        days.setName("請假天數");
+        days.setType("long");
+        days.setRequired(true);
+        CachedProcessDefinition definition = mock(CachedProcessDefinition.class);
+        when(definition.getStartForm()).thenReturn(FormSchema.forStart(List.of(days), Set.of()));
+        ProcessDefinitionCache definitionCache = mock(ProcessDefinitionCache.class);
+        when(definitionCache.get("leaveProcess:1:5")).thenReturn(definition);
+        ManagementService managementService = mock(ManagementService.class);
+        when(managementService.executeCommand(any())).thenReturn(List.of());
+
+        ProcessService service = new ProcessService(mock(ProcessDefRepository.class), instanceRepository,
+                mock(RepositoryService.class), mock(RuntimeService.class), taskService, historyService,
+                managementService, definitionCache, mock(BpmnXmlCache.class), new ListVersionTracker(),
+                mock(ProcessInsProjection.class), new ProcessHistoryBuilder(historyService, taskService), snapshotService);
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            rows.add(Map.of("days", String.valueOf(i + 1)));
+        }
+        rows.add(Map.of("days", "兩天"));
+
+        BulkStartResponse response = service.startBulk("leaveProcess:1:5", rows);
+
+        // 120 筆合法資料分成 3 個引擎交易，不合法的一筆在交易外就被擋下
+        assertEquals(3, response.getTransactions());
+        assertEquals(1, response.getFailed());
+        assertEquals(121, response.getResults().get(0).getRow());
+        verify(managementService, times(3)).executeCommand(any());
+
+        BulkStartResponse csv = service.startBulkCsv("leaveProcess:1:5", new StringReader("days\n3\n"));
+        assertEquals(1, csv.getTransactions());
+        assertThrows(IllegalArgumentException.class, () -> service.startBulk("missing:1:1", rows));
+    }
+
+    @Test
+    void testBulkStartFillsDefaultsBeforeRequiredCheck() {
+        // 與 purchaseProcess 相同：審核人為必填但有預設值；priority 只有表單宣告的 default
+        FormSchema startForm = FormSchema.forStart(List.of(
+                requiredProperty("itemName", "string", null),
+                requiredProperty("amount", "long", null),
+                requiredProperty("managerAssignee", "string", "admin"),
+                requiredProperty("financeAssignee", "string", "user"),
+                requiredProperty("priority", "string", "normal")), Set.of());
+        CachedProcessDefinition definition = mock(CachedProcessDefinition.class);
+        when(definition.getStartForm()).thenReturn(startForm);
+        ProcessDefinitionCache definitionCache = mock(ProcessDefinitionCache.class);
+        when(definitionCache.get("purchaseProcess:1:7")).thenReturn(definition);
+        ManagementService managementService = mock(ManagementService.class);
+        when(managementService.executeCommand(any())).thenReturn(List.of());
+
+        ProcessService service = new ProcessService(mock(ProcessDefRepository.class), instanceRepository,
+                mock(RepositoryService.class), mock(RuntimeService.class), taskService, historyService,
+                managementService, definitionCache, mock(BpmnXmlCache.class), new ListVersionTracker(),
+                mock(ProcessInsProjection.class), new ProcessHistoryBuilder(historyService, taskService), snapshotService);
+
+        // 與 /start 接受的內容相同：沒有帶審核人
+        BulkStartResponse response = service.startBulk("purchaseProcess:1:7",
+                List.of(Map.of("itemName", "筆電", "amount", "30000")));
+
+        assertEquals(0, response.getFailed());
+        assertEquals(1, response.getTransactions());
+        verify(managementService).executeCommand(any());
+
+        Map<String, Object> row = startForm.applyDefaults(new HashMap<>(Map.of("priority", "high")));
+        assertEquals("high", row.get("priority"));
+        assertEquals("user", row.get("financeAssignee"));
+    }
+
+    private FormProperty requiredProperty(String id, String type, String defaultExpression) {
+        FormProperty property = new FormProperty();
+        property.setId(id);
+        property.setName(id);
+        property.setType(type);
+        property.setRequired(true);
+        property.setDefaultExpression(defaultExpression);
+        return property;
+    }
+
+    @Test
+    void testBulkStartCmdOnlyRecordsPreValidationFailuresPerRow() {
+        VariableTypes variableTypes = mock(VariableTypes.class);
+        Object unsupported = new Object();
+        when(variableTypes.findVariableType(unsupported)).thenThrow(new ActivitiException("no variable type"));
+        ProcessEngineConfigurationImpl configuration = mock(ProcessEngineConfigurationImpl.class);
+        when(configuration.getVariableTypes()).thenReturn(variableTypes);
+        CommandContext commandContext = mock(CommandContext.class);
+        when(commandContext.getProcessEngineConfiguration()).thenReturn(configuration);
+
+        // 型別無法保存的資料在呼叫引擎前就被擋下，只記在該筆結果
+        List<BulkStartResult> results = new BulkStartCmd("leaveProcess:1:5", List.of(7),
+                List.of(Map.of("attachment", unsupported))).execute(commandContext);
+        assertEquals(1, results.size());
+        assertFalse(results.get(0).isSuccess());
+        assertEquals(7, results.get(0).getRow());
+
+        // 啟動途中的例外不可被當成單筆失敗，必須讓整批回滾
+        BulkStartCmd startFails = new BulkStartCmd("leaveProcess:1:5", List.of(1), List.of(Map.of("days", 3L)));
+        assertThrows(RuntimeException.class, () -> startFails.execute(commandContext));
+    }
+
+    private HistoricActivityInstance activity(String id, String type, String taskId, long startMillis) {
+        HistoricActivityInstance activity = mock(HistoricActivityInstance.class);
+        when(activity.getId()).thenReturn(id);
+        when(activity.getActivityType()).thenReturn(type);
+        when(activity.getTaskId()).thenReturn(taskId);
+        when(activity.getStartTime()).thenReturn(new Date(startMillis));
+        return activity;
+    }
+
+    private HistoricDetail update(String activityInstanceId, String taskId, String name, Object value, long timeMillis) {
+        HistoricVariableUpdate update = mock(HistoricVariableUpdate.class);
+        when(update.getActivityInstanceId()).thenReturn(activityInstanceId);
+        when(update.getTaskId()).thenReturn(taskId);
+        when(update.getVariableName()).thenReturn(name);
+        when(update.getValue()).thenReturn(value);
+        when(update.getTime()).thenReturn(new Date(timeMillis));
+        return update;
+    }
+}
@@ -0,0 +1,101 @@
+package com.taskmanager.process.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskmanager.process.dto.ProcessStartStatus;
+import com.taskmanager.process.model.ProcessIns;
+import com.taskmanager.process.model.ProcessStartRequest;
+import com.taskmanager.process.repository.ProcessInsRepository;
+import com.taskmanager.process.repository.ProcessStartRequestRepository;
+import com.taskmanager.task.repository.InboxTaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProcessStartServiceTest {
+
+    private ProcessService processService;
+    private ProcessStartRequestRepository requestRepository;
+    private Map<String, ProcessStartRequest> store;
+    private ProcessStartService startService;
+
+    @BeforeEach
+    void setUp() {
+        processService = mock(ProcessService.class);
+        requestRepository = mock(ProcessStartRequestRepository.class);
+        InboxTaskRepository inboxTaskRepository = mock(InboxTaskRepository.class);
+        when(inboxTaskRepository.findByProcessInstanceId(anyString())).thenReturn(List.of());
+
+        // 以 Map 模擬資料表
+        store = new HashMap<>();
+        when(requestRepository.saveAndFlush(any())).thenAnswer(invocation -> save(invocation.getArgument(0)));
+        when(requestRepository.save(any())).thenAnswer(invocation -> save(invocation.getArgument(0)));
+        when(requestRepository.findById(anyString())).thenAnswer(invocation -> Optional.ofNullable(store.get(invocation.<String>getArgument(0))));
+        when(requestRepository.findByRequestedByAndIdempotencyKey(anyString(), anyString())).thenAnswer(invocation ->
+                store.values().stream().filter(r -> r.getIdempotencyKey().equals(invocation.getArgument(1))).findFirst());
+
+        ProcessIns instance = new ProcessIns();
+        instance.setId("pi-1");
+        when(processService.startProcess(anyString(), anyMap(), anyString())).thenReturn(instance);
+
+        // 同步執行，方便驗證結果
+        startService = new ProcessStartService(processService, requestRepository, mock(ProcessInsRepository.class),
+                inboxTaskRepository, Runnable::run, new ObjectMapper());
+    }
+
+    @Test
+    void testRepeatedKeyStartsOnlyOnce() {
+        ProcessStartStatus first = startService.submit("key-1", "leaveProcess:1:5", Map.of("days", 2, "reason", "休假"));
+        ProcessStartStatus second = startService.submit("key-1", "leaveProcess:1:5", Map.of("reason", "休假", "days", 2));
+
+        assertEquals(first.getRequestId(), second.getRequestId());
+        assertFalse(first.isDuplicate());
+        assertTrue(second.isDuplicate());
+        assertEquals(ProcessStartRequest.STATUS_SUCCEEDED, second.getStatus());
+        assertEquals("pi-1", second.getProcessInstanceId());
+        verify(processService, times(1)).startProcess(anyString(), anyMap(), anyString());
+    }
+
+    @Test
+    void testKeyReusedWithDifferentPayloadIsRejected() {
+        startService.submit("key-1", "leaveProcess:1:5", Map.of("days", 2));
+
+        assertThrows(IllegalStateException.class, () -> startService.submit("key-1", "leaveProcess:1:5", Map.of("days", 3)));
+        assertThrows(IllegalArgumentException.class, () -> startService.submit(" ", "leaveProcess:1:5", Map.of()));
+    }
+
+    @Test
+    void testFailedStartIsRecorded() {
+        when(processService.startProcess(anyString(), anyMap(), anyString()))
+                .thenThrow(new IllegalStateException("流程啟動失敗：定義已暫停"));
+
+        ProcessStartStatus status = startService.submit("key-2", "leaveProcess:1:5", null);
+
+        assertEquals(ProcessStartRequest.STATUS_FAILED, store.get(status.getRequestId()).getStatus());
+        assertEquals("流程啟動失敗：定義已暫停", store.get(status.getRequestId()).getError());
+    }
+
+    @Test
+    void testFullQueueReleasesTheKey() {
+        ProcessStartService busy = new ProcessStartService(processService, requestRepository, mock(ProcessInsRepository.class),
+                mock(InboxTaskRepository.class), task -> {
+            throw new RejectedExecutionException("queue full");
+        }, new ObjectMapper());
+
+        assertThrows(RejectedExecutionException.class, () -> busy.submit("key-3", "leaveProcess:1:5", Map.of()));
+        verify(requestRepository).deleteById(anyString());
+    }
+
+    private ProcessStartRequest save(ProcessStartRequest request) {
+        store.put(request.getId(), request);
+        return request;
+    }
+}
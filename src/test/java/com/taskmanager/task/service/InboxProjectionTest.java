@@ -0,0 +1,242 @@
+package com.taskmanager.task.service;
+
+import com.taskmanager.process.cache.ProcessDefinitionCache;
+import com.taskmanager.task.model.InboxTask;
+import com.taskmanager.task.repository.InboxTaskRepository;
+import com.taskmanager.workflow.listener.TaskChange;
+import org.activiti.engine.ManagementService;
+import org.activiti.engine.TaskService;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.persistence.entity.IdentityLinkEntity;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.activiti.engine.task.IdentityLinkType;
+import org.activiti.engine.task.Task;
+import org.activiti.engine.task.TaskQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class InboxProjectionTest {
+
+    // inbox_task 以記憶體 Map 模擬
+    private final Map<String, InboxTask> table = new LinkedHashMap<>();
+
+    private InboxTaskRepository repository;
+    private TaskService taskService;
+    private ManagementService managementService;
+    private InboxProjection projection;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        repository = mock(InboxTaskRepository.class);
+        when(repository.findAllById(anyIterable())).thenAnswer(inv -> {
+            List<InboxTask> rows = new ArrayList<>();
+            for (String id : (Iterable<String>) inv.getArgument(0)) {
+                if (table.containsKey(id)) {
+                    rows.add(table.get(id));
+                }
+            }
+            return rows;
+        });
+        when(repository.saveAll(anyIterable())).thenAnswer(inv -> {
+            List<InboxTask> rows = new ArrayList<>();
+            for (InboxTask row : (Iterable<InboxTask>) inv.getArgument(0)) {
+                table.put(row.getId(), row);
+                rows.add(row);
+            }
+            return rows;
+        });
+        doAnswer(inv -> {
+            for (InboxTask row : (Iterable<InboxTask>) inv.getArgument(0)) {
+                table.remove(row.getId());
+            }
+            return null;
+        }).when(repository).deleteAll(anyIterable());
+        doAnswer(inv -> {
+            table.clear();
+            return null;
+        }).when(repository).deleteAll();
+        when(repository.findByProcessInstanceIdIn(anyCollection())).thenAnswer(inv -> {
+            Collection<String> ids = inv.getArgument(0);
+            return table.values().stream().filter(row -> ids.contains(row.getProcessInstanceId())).toList();
+        });
+
+        ProcessDefinitionCache definitionCache = mock(ProcessDefinitionCache.class);
+        when(definitionCache.getProcessName("leaveProcess:1:5")).thenReturn("請假流程");
+        when(definitionCache.getProcessName("leaveProcess:2:9")).thenReturn("請假流程 v2");
+
+        taskService = mock(TaskService.class);
+        managementService = mock(ManagementService.class);
+        // 重建在引擎 Command 內讀取，這裡直接執行
+        when(managementService.executeCommand(any())).thenAnswer(inv -> ((Command<?>) inv.getArgument(0)).execute(null));
+
+        projection = new InboxProjection(repository, taskService, managementService, definitionCache,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+    }
+
+    @Test
+    void testCreatedTaskIsInsertedWithCandidates() {
+        projection.onTaskChanges(List.of(change(TaskChange.Type.CREATED, task("t1", "pi-1", null, "ROLE_MANAGER"))));
+
+        InboxTask row = table.get("t1");
+        assertNotNull(row);
+        assertEquals("請假流程", row.getProcessName());
+        assertEquals("pi-1", row.getProcessInstanceId());
+        assertNull(row.getAssignee());
+        assertEquals(Set.of("ROLE_MANAGER"), row.getCandidateGroups());
+        assertEquals(new Date(1000).toInstant(), row.getCreateTime());
+    }
+
+    @Test
+    void testAssignmentUpdatesExistingRow() {
+        projection.onTaskChanges(List.of(change(TaskChange.Type.CREATED, task("t1", "pi-1", null, "ROLE_MANAGER"))));
+        InboxTask created = table.get("t1");
+
+        projection.onTaskChanges(List.of(change(TaskChange.Type.ASSIGNED, task("t1", "pi-1", "manager", null))));
+
+        assertSame(created, table.get("t1"));
+        assertEquals("manager", table.get("t1").getAssignee());
+        assertTrue(table.get("t1").getCandidateGroups().isEmpty());
+    }
+
+    @Test
+    void testCompletedAndDeletedTasksAreRemoved() {
+        projection.onTaskChanges(List.of(
+                change(TaskChange.Type.CREATED, task("t1", "pi-1", "user", null)),
+                change(TaskChange.Type.CREATED, task("t2", "pi-2", "user", null))));
+
+        projection.onTaskChanges(List.of(change(TaskChange.Type.COMPLETED, task("t1", "pi-1", "user", null))));
+        projection.onTaskChanges(List.of(change(TaskChange.Type.DELETED, task("t2", "pi-2", "user", null))));
+
+        assertTrue(table.isEmpty());
+        // 已不存在的任務再收到移除事件不會出錯
+        projection.onTaskChanges(List.of(change(TaskChange.Type.DELETED, task("t2", "pi-2", "user", null))));
+        assertTrue(table.isEmpty());
+    }
+
+    @Test
+    void testChangesOfOneTransactionCollapseToLastState() {
+        projection.onTaskChanges(List.of(change(TaskChange.Type.CREATED, task("t1", "pi-1", "user", null))));
+
+        // 同一交易：t1 完成後又被刪除 (多實例提前結束)；t2 建立後隨即完成；t3 建立後被指派
+        projection.onTaskChanges(List.of(
+                change(TaskChange.Type.COMPLETED, task("t1", "pi-1", "user", null)),
+                change(TaskChange.Type.DELETED, task("t1", "pi-1", "user", null)),
+                change(TaskChange.Type.CREATED, task("t2", "pi-1", null, "ROLE_USER")),
+                change(TaskChange.Type.COMPLETED, task("t2", "pi-1", "user", null)),
+                change(TaskChange.Type.CREATED, task("t3", "pi-1", null, "ROLE_USER")),
+                change(TaskChange.Type.ASSIGNED, task("t3", "pi-1", "admin", null))));
+
+        assertEquals(Set.of("t3"), table.keySet());
+        assertEquals("admin", table.get("t3").getAssignee());
+        // 一次查詢、一次寫入、一次刪除；t2 從未寫入
+        verify(repository, times(2)).findAllById(anyIterable());
+        verify(repository, times(2)).saveAll(anyIterable());
+        verify(repository, times(2)).deleteAll(anyIterable());
+    }
+
+    @Test
+    void testRebuildReadsRuntimeTasksInChunksAcrossBoundary() {
+        table.put("stale", new InboxTask());
+        table.get("stale").setId("stale");
+
+        List<Task> runtime = new ArrayList<>();
+        for (int i = 0; i < 1001; i++) {
+            runtime.add(task(String.format("t%04d", i), "pi-" + i, i % 2 == 0 ? "user" : null, "ROLE_USER"));
+        }
+        TaskQuery query = mock(TaskQuery.class, RETURNS_SELF);
+        when(taskService.createTaskQuery()).thenReturn(query);
+        when(query.listPage(anyInt(), anyInt())).thenAnswer(inv -> {
+            int first = inv.getArgument(0);
+            int max = inv.getArgument(1);
+            return runtime.subList(Math.min(first, runtime.size()), Math.min(first + max, runtime.size()));
+        });
+
+        int count = projection.rebuild();
+
+        // 500 + 500 + 1：讀到不足一頁才停
+        assertEquals(1001, count);
+        verify(query).listPage(0, 500);
+        verify(query).listPage(500, 500);
+        verify(query).listPage(1000, 500);
+        verify(query, times(3)).listPage(anyInt(), anyInt());
+        verify(managementService, times(3)).executeCommand(any());
+        assertEquals(1001, table.size());
+        assertFalse(table.containsKey("stale"));
+        assertEquals("user", table.get("t1000").getAssignee());
+        assertEquals(Set.of("ROLE_USER"), table.get("t0999").getCandidateGroups());
+    }
+
+    @Test
+    void testRebuildStopsAfterEmptyPageOnExactMultiple() {
+        List<Task> runtime = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            runtime.add(task("t" + i, "pi-1", "user", null));
+        }
+        TaskQuery query = mock(TaskQuery.class, RETURNS_SELF);
+        when(taskService.createTaskQuery()).thenReturn(query);
+        when(query.listPage(anyInt(), anyInt())).thenAnswer(inv -> {
+            int first = inv.getArgument(0);
+            return first == 0 ? runtime : List.of();
+        });
+
+        assertEquals(500, projection.rebuild());
+        verify(query).listPage(500, 500);
+        assertEquals(500, table.size());
+    }
+
+    @Test
+    void testMigrationRewritesDefinitionAndNodeOfAffectedRows() {
+        projection.onTaskChanges(List.of(
+                change(TaskChange.Type.CREATED, task("t1", "pi-1", "user", null)),
+                change(TaskChange.Type.CREATED, task("t2", "pi-2", "user", null))));
+
+        List<InboxTask> updated = projection.onInstancesMigrated(List.of("pi-1"), "leaveProcess:2:9",
+                Map.of("SupervisorTask", "ManagerTask"));
+
+        assertEquals(1, updated.size());
+        assertEquals("leaveProcess:2:9", table.get("t1").getProcessDefinitionId());
+        assertEquals("請假流程 v2", table.get("t1").getProcessName());
+        assertEquals("ManagerTask", table.get("t1").getTaskDefinitionKey());
+        assertEquals("leaveProcess:1:5", table.get("t2").getProcessDefinitionId());
+        assertEquals("SupervisorTask", table.get("t2").getTaskDefinitionKey());
+    }
+
+    private TaskChange change(TaskChange.Type type, TaskEntity task) {
+        return TaskChange.of(type, task);
+    }
+
+    private TaskEntity task(String id, String processInstanceId, String assignee, String candidateGroup) {
+        TaskEntity task = mock(TaskEntity.class);
+        when(task.getId()).thenReturn(id);
+        when(task.getName()).thenReturn("直屬主管簽核");
+        when(task.getAssignee()).thenReturn(assignee);
+        when(task.getCreateTime()).thenReturn(new Date(1000));
+        when(task.getProcessInstanceId()).thenReturn(processInstanceId);
+        when(task.getProcessDefinitionId()).thenReturn("leaveProcess:1:5");
+        when(task.getTaskDefinitionKey()).thenReturn("SupervisorTask");
+        List<IdentityLinkEntity> links = new ArrayList<>();
+        if (candidateGroup != null) {
+            IdentityLinkEntity link = mock(IdentityLinkEntity.class);
+            when(link.getType()).thenReturn(IdentityLinkType.CANDIDATE);
+            when(link.getGroupId()).thenReturn(candidateGroup);
+            links.add(link);
+        }
+        when(task.getIdentityLinks()).thenReturn(links);
+        return task;
+    }
+}
@@ -0,0 +1,390 @@
+package com.taskmanager.task.service;
+
+import com.taskmanager.process.cache.CachedProcessDefinition;
+import com.taskmanager.process.cache.ProcessDefinitionCache;
+import com.taskmanager.process.form.FormSchema;
+import com.taskmanager.task.dto.BulkTaskItem;
+import com.taskmanager.task.dto.BulkTaskResponse;
+import com.taskmanager.task.dto.CursorPage;
+import com.taskmanager.task.dto.TaskDto;
+import com.taskmanager.task.model.InboxTask;
+import com.taskmanager.task.repository.InboxTaskRepository;
+import com.taskmanager.util.KeysetCursor;
+import com.taskmanager.workflow.listener.ListVersionTracker;
+import org.activiti.bpmn.model.FormProperty;
+import org.activiti.engine.HistoryService;
+import org.activiti.engine.ManagementService;
+import org.activiti.engine.TaskService;
+import org.activiti.engine.history.HistoricTaskInstance;
+import org.activiti.engine.history.HistoricTaskInstanceQuery;
+import org.activiti.engine.history.NativeHistoricTaskInstanceQuery;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
+import org.activiti.engine.impl.persistence.entity.ExecutionEntityManager;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.activiti.engine.impl.persistence.entity.TaskEntityManager;
+import org.activiti.engine.impl.persistence.entity.VariableInstanceEntity;
+import org.activiti.engine.impl.persistence.entity.VariableInstanceEntityManager;
+import org.activiti.engine.task.Task;
+import org.activiti.engine.task.TaskQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TaskManagerServiceTest {
+
+    private TaskService taskService;
+    private HistoryService historyService;
+    private ProcessDefinitionCache definitionCache;
+    private HistoricTaskInstanceQuery historicQuery;
+    private TaskQuery taskQuery;
+    private ManagementService managementService;
+    private InboxTaskRepository inboxTaskRepository;
+    private TaskManagerService taskManagerService;
+
+    @BeforeEach
+    void setUp() {
+        taskService = mock(TaskService.class);
+        historyService = mock(HistoryService.class);
+        definitionCache = mock(ProcessDefinitionCache.class);
+
+        historicQuery = mock(HistoricTaskInstanceQuery.class, RETURNS_SELF);
+        when(historyService.createHistoricTaskInstanceQuery()).thenReturn(historicQuery);
+
+        taskQuery = mock(TaskQuery.class, RETURNS_SELF);
+        when(taskService.createTaskQuery()).thenReturn(taskQuery);
+
+        when(definitionCache.getProcessName(anyString())).thenReturn("請假流程");
+
+        managementService = mock(ManagementService.class);
+        inboxTaskRepository = mock(InboxTaskRepository.class);
+        taskManagerService = new TaskManagerService(taskService, historyService, managementService, definitionCache,
+                new ListVersionTracker(), inboxTaskRepository, mock(InboxProjection.class));
+    }
+
+    @Test
+    void testHistoryTasksKeepCurrentAssigneeText() {
+        when(historicQuery.list()).thenReturn(List.of(
+                historicTask("h1", "pi-1"),
+                historicTask("h2", "pi-1"),
+                historicTask("h3", "pi-2"),
+                historicTask("h4", "pi-3")));
+        when(taskQuery.list()).thenReturn(List.of(
+                activeTask("pi-1", "manager"),
+                activeTask("pi-1", null),
+                activeTask("pi-1", "manager"),
+                activeTask("pi-2", null)));
+
+        List<TaskDto> result = taskManagerService.getHistoryTasks();
+
+        assertEquals(4, result.size());
+        assertEquals("manager, 待認領", result.get(0).getCurrentAssignee());
+        assertEquals("manager, 待認領", result.get(1).getCurrentAssignee());
+        assertEquals("待認領", result.get(2).getCurrentAssignee());
+        assertEquals("流程已結束", result.get(3).getCurrentAssignee());
+    }
+
+    @Test
+    void testHistoryTasksUseBoundedNumberOfQueries() {
+        // 1,200 筆歷史任務分屬 1,200 個流程實例：原本需要 2,401 次查詢
+        List<HistoricTaskInstance> history = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            history.add(historicTask("h" + i, "pi-" + i));
+        }
+        when(historicQuery.list()).thenReturn(history);
+        when(taskQuery.list()).thenReturn(List.of());
+
+        List<TaskDto> result = taskManagerService.getHistoryTasks();
+
+        assertEquals(1200, result.size());
+        // 1 次歷史查詢 + ceil(1200 / 500) = 3 次 IN 清單查詢
+        verify(historyService, times(1)).createHistoricTaskInstanceQuery();
+        verify(taskService, times(3)).createTaskQuery();
+        verify(taskQuery, times(3)).processInstanceIdIn(anyList());
+        verify(taskQuery, never()).processInstanceId(anyString());
+    }
+
+    @Test
+    void testTaskFormLoadsOnlyDeclaredVariables() {
+        Task task = mock(Task.class);
+        when(task.getProcessDefinitionId()).thenReturn("leaveProcess:1:5");
+        when(task.getTaskDefinitionKey()).thenReturn("SupervisorTask");
+        when(taskQuery.singleResult()).thenReturn(task);
+
+        FormProperty reason = new FormProperty();
+        reason.setId("reason");
+        reason.setName("請假原因");
+        reason.setType("string");
+        CachedProcessDefinition definition = mock(CachedProcessDefinition.class);
+        when(definition.getTaskForm("SupervisorTask")).thenReturn(FormSchema.forTask(List.of(reason)));
+        when(definitionCache.get("leaveProcess:1:5")).thenReturn(definition);
+        when(taskService.getVariables(eq("t1"), anyCollection())).thenReturn(Map.of("reason", "家中有事"));
+
+        List<Map<String, Object>> form = taskManagerService.getTaskForm("t1");
+
+        assertEquals("家中有事", form.get(0).get("value"));
+        verify(taskService).getVariables("t1", Set.of("reason"));
+        verify(taskService, never()).getVariables("t1");
+    }
+
+    @Test
+    void testLazyTaskFormNeverFetchesLazyTypedValues() {
+        Task task = mock(Task.class);
+        when(task.getProcessDefinitionId()).thenReturn("leaveProcess:1:5");
+        when(task.getTaskDefinitionKey()).thenReturn("SupervisorTask");
+        when(taskQuery.singleResult()).thenReturn(task);
+
+        CachedProcessDefinition definition = mock(CachedProcessDefinition.class);
+        when(definition.getTaskForm("SupervisorTask")).thenReturn(FormSchema.forTask(List.of(
+                formProperty("reason", "string"), formProperty("attachment", "string"), formProperty("note", "string"))));
+        when(definitionCache.get("leaveProcess:1:5")).thenReturn(definition);
+
+        // 型別查詢只讀 ACT_RU_VARIABLE 的 NAME_ / TYPE_，不讀值
+        CommandContext commandContext = mock(CommandContext.class);
+        TaskEntityManager taskEntityManager = mock(TaskEntityManager.class);
+        ExecutionEntityManager executionEntityManager = mock(ExecutionEntityManager.class);
+        VariableInstanceEntityManager variableEntityManager = mock(VariableInstanceEntityManager.class);
+        when(commandContext.getTaskEntityManager()).thenReturn(taskEntityManager);
+        when(commandContext.getExecutionEntityManager()).thenReturn(executionEntityManager);
+        when(commandContext.getVariableInstanceEntityManager()).thenReturn(variableEntityManager);
+        TaskEntity taskEntity = mock(TaskEntity.class);
+        when(taskEntity.getExecutionId()).thenReturn("ex-1");
+        when(taskEntityManager.findById("t1")).thenReturn(taskEntity);
+        ExecutionEntity execution = mock(ExecutionEntity.class);
+        when(execution.getId()).thenReturn("ex-1");
+        when(executionEntityManager.findById("ex-1")).thenReturn(execution);
+        VariableInstanceEntity reason = variableInstance("reason", "string");
+        VariableInstanceEntity attachment = variableInstance("attachment", "bytes");
+        VariableInstanceEntity note = variableInstance("note", "longString");
+        when(variableEntityManager.findVariableInstancesByTaskAndNames(eq("t1"), anyCollection())).thenReturn(List.of());
+        when(variableEntityManager.findVariableInstancesByExecutionAndNames(eq("ex-1"), anyCollection()))
+                .thenReturn(List.of(reason, attachment, note));
+        when(managementService.executeCommand(any())).thenAnswer(invocation -> {
+            TaskVariableTypesCmd cmd = invocation.getArgument(0);
+            return cmd.execute(commandContext);
+        });
+        when(taskService.getVariables(eq("t1"), anyCollection())).thenReturn(Map.of("reason", "家中有事"));
+
+        List<Map<String, Object>> form = taskManagerService.getTaskForm("t1", true);
+
+        Map<String, Object> values = new HashMap<>();
+        form.forEach(field -> values.put((String) field.get("key"), field.get("value")));
+        assertEquals("家中有事", values.get("reason"));
+        assertEquals(true, ((Map<?, ?>) values.get("attachment")).get("lazy"));
+        assertEquals("longString", ((Map<?, ?>) values.get("note")).get("type"));
+        // 只載入非 lazy 的變數，大型 / 二進位變數的值完全不讀
+        verify(taskService).getVariables("t1", Set.of("reason"));
+        verify(taskService, never()).getVariableInstances(anyString(), anyCollection());
+        verify(taskService, never()).getVariable(anyString(), anyString());
+        for (VariableInstanceEntity variable : List.of(reason, attachment, note)) {
+            verify(variable, never()).getValue();
+            verify(variable, never()).getBytes();
+        }
+    }
+
+    private FormProperty formProperty(String id, String type) {
+        FormProperty property = new FormProperty();
+        property.setId(id);
+        property.setName(id);
+        property.setType(type);
+        return property;
+    }
+
+    private VariableInstanceEntity variableInstance(String name, String typeName) {
+        VariableInstanceEntity variable = mock(VariableInstanceEntity.class);
+        when(variable.getName()).thenReturn(name);
+        when(variable.getTypeName()).thenReturn(typeName);
+        return variable;
+    }
+
+    @Test
+    void testBulkOperationsRunOneCommandPerChunk() {
+        when(managementService.executeCommand(any())).thenAnswer(invocation -> {
+            BulkTaskCmd cmd = invocation.getArgument(0);
+            return cmd.execute(null);
+        });
+
+        List<BulkTaskItem> items = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            items.add(new BulkTaskItem(" ", "claim", null, null));
+        }
+
+        BulkTaskResponse response = taskManagerService.executeBulk(items);
+
+        // 250 筆分成 3 個引擎交易，空白任務 ID 只記在該筆結果
+        assertEquals(3, response.getTransactions());
+        assertEquals(250, response.getFailed());
+        verify(managementService, times(3)).executeCommand(any());
+    }
+
+    @Test
+    void testFailureDuringCompletionRollsBackChunkAndRetriesOneByOne() {
+        CommandContext commandContext = mock(CommandContext.class);
+        TaskEntityManager taskEntityManager = mock(TaskEntityManager.class);
+        when(commandContext.getTaskEntityManager()).thenReturn(taskEntityManager);
+        // 驗證階段讀取的欄位正常回傳，之後引擎對任務的任何操作都失敗，模擬監聽器或變數序列化在完成途中出錯
+        TaskEntity task = mock(TaskEntity.class, invocation -> {
+            throw new IllegalArgumentException("變數無法序列化");
+        });
+        doReturn("t1").when(task).getId();
+        doReturn(false).when(task).isSuspended();
+        doReturn("leaveProcess:1:5").when(task).getProcessDefinitionId();
+        doReturn("SupervisorTask").when(task).getTaskDefinitionKey();
+        when(taskEntityManager.findById("t1")).thenReturn(task);
+        when(managementService.executeCommand(any())).thenAnswer(invocation -> {
+            BulkTaskCmd cmd = invocation.getArgument(0);
+            return cmd.execute(commandContext);
+        });
+
+        BulkTaskCmd chunk = new BulkTaskCmd(List.of(
+                new BulkTaskItem(" ", "claim", null, null),
+                new BulkTaskItem("t1", "complete", null, Map.of("reason", "家中有事"))), "user", definitionCache);
+
+        // 完成途中的例外不可被當成單筆失敗，否則寫入一半的異動會隨同批其他任務提交
+        assertThrows(RuntimeException.class, () -> chunk.execute(commandContext));
+
+        BulkTaskResponse response = taskManagerService.executeBulk(List.of(
+                new BulkTaskItem(" ", "claim", null, null),
+                new BulkTaskItem("t1", "complete", null, Map.of("reason", "家中有事"))));
+
+        // 1 次整批 (回滾) + 2 次逐筆重試
+        assertEquals(3, response.getTransactions());
+        assertEquals(0, response.getSucceeded());
+        assertEquals("任務 ID 不可為空", response.getResults().get(0).getMessage());
+        assertEquals("t1", response.getResults().get(1).getTaskId());
+        assertFalse(response.getResults().get(1).isSuccess());
+    }
+
+    @Test
+    void testMyTasksPageFetchesOneExtraRowForNextCursor() {
+        Instant newest = Instant.parse("2024-05-02T08:00:00Z");
+        Instant sameTime = Instant.parse("2024-05-01T08:00:00Z");
+        when(inboxTaskRepository.findAssigned(eq("user"), isNull(), isNull(), any(Pageable.class))).thenReturn(List.of(
+                inboxTask("t-9", newest),
+                inboxTask("t-5", sameTime),
+                inboxTask("t-3", sameTime)));
+
+        CursorPage<TaskDto> page = taskManagerService.getMyTasksPage(null, 2, false);
+
+        // 查 size+1 筆判斷是否還有下一頁，第三筆不回傳
+        verify(inboxTaskRepository).findAssigned("user", null, null, PageRequest.of(0, 3));
+        assertEquals(List.of("t-9", "t-5"), page.getItems().stream().map(TaskDto::getId).toList());
+        // 游標取本頁最後一筆的 (createTime, id)，同時間的 t-3 由 id 區分
+        assertEquals(new KeysetCursor(sameTime.toEpochMilli(), "t-5").encode(), page.getNextCursor());
+        assertNull(page.getTotal());
+        verify(inboxTaskRepository, never()).countByAssignee(anyString());
+    }
+
+    @Test
+    void testMyTasksPageContinuesAfterCursorAndEndsOnShortPage() {
+        Instant sameTime = Instant.parse("2024-05-01T08:00:00Z");
+        String cursor = new KeysetCursor(sameTime.toEpochMilli(), "t-5").encode();
+        when(inboxTaskRepository.findAssigned(eq("user"), eq(sameTime), eq("t-5"), any(Pageable.class)))
+                .thenReturn(List.of(inboxTask("t-3", sameTime)));
+        when(inboxTaskRepository.countByAssignee("user")).thenReturn(3L);
+
+        CursorPage<TaskDto> page = taskManagerService.getMyTasksPage(cursor, 2, true);
+
+        verify(inboxTaskRepository).findAssigned("user", sameTime, "t-5", PageRequest.of(0, 3));
+        assertEquals(List.of("t-3"), page.getItems().stream().map(TaskDto::getId).toList());
+        assertNull(page.getNextCursor());
+        assertEquals(3L, page.getTotal());
+    }
+
+    @Test
+    void testGroupTasksPageShowsUnclaimedAndUsesPlaceholderGroup() {
+        Instant time = Instant.parse("2024-05-01T08:00:00Z");
+        when(inboxTaskRepository.findCandidate(eq("user"), anyCollection(), isNull(), isNull(), any(Pageable.class)))
+                .thenReturn(List.of(inboxTask("t-2", time), inboxTask("t-1", time)));
+
+        CursorPage<TaskDto> page = taskManagerService.getGroupTasksPage("", 5, false);
+
+        // 沒有角色時以不會命中的群組代替空 IN 清單
+        verify(inboxTaskRepository).findCandidate("user", List.of(""), null, null, PageRequest.of(0, 6));
+        assertEquals(2, page.getItems().size());
+        assertEquals("待認領", page.getItems().get(0).getAssignee());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testHistoryTasksPageAppliesTimeAndIdTieBreak() {
+        when(managementService.getTableName(HistoricTaskInstance.class)).thenReturn("ACT_HI_TASKINST");
+        NativeHistoricTaskInstanceQuery pageQuery = mock(NativeHistoricTaskInstanceQuery.class, RETURNS_SELF);
+        NativeHistoricTaskInstanceQuery countQuery = mock(NativeHistoricTaskInstanceQuery.class, RETURNS_SELF);
+        when(historyService.createNativeHistoricTaskInstanceQuery()).thenReturn(pageQuery, countQuery);
+        Date endTime = new Date(1714550400000L);
+        HistoricTaskInstance first = historicTask("h-8", "pi-1");
+        when(first.getEndTime()).thenReturn(endTime);
+        HistoricTaskInstance second = historicTask("h-7", "pi-2");
+        when(second.getEndTime()).thenReturn(endTime);
+        when(pageQuery.listPage(0, 2)).thenReturn(List.of(first, second));
+        when(countQuery.count()).thenReturn(12L);
+        when(taskQuery.list()).thenReturn(List.of());
+
+        String cursor = new KeysetCursor(endTime.getTime(), "h-9").encode();
+        CursorPage<TaskDto> page = taskManagerService.getHistoryTasksPage(cursor, 1, true);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(pageQuery).sql(sql.capture());
+        assertTrue(sql.getValue().contains("RES.END_TIME_ < #{cursorTime} OR (RES.END_TIME_ = #{cursorTime} AND RES.ID_ < #{cursorId})"));
+        assertTrue(sql.getValue().endsWith("ORDER BY RES.END_TIME_ DESC, RES.ID_ DESC"));
+        verify(pageQuery).parameter("cursorTime", endTime);
+        verify(pageQuery).parameter("cursorId", "h-9");
+        verify(pageQuery).parameter("assignee", "user");
+
+        assertEquals(List.of("h-8"), page.getItems().stream().map(TaskDto::getId).toList());
+        assertEquals(new KeysetCursor(endTime, "h-8").encode(), page.getNextCursor());
+        // 總數不受游標條件影響
+        verify(countQuery, never()).parameter(eq("cursorId"), any());
+        assertEquals(12L, page.getTotal());
+    }
+
+    @Test
+    void testPageSizeIsCapped() {
+        taskManagerService.getMyTasksPage(null, 1000, false);
+
+        verify(inboxTaskRepository).findAssigned("user", null, null, PageRequest.of(0, 101));
+    }
+
+    private InboxTask inboxTask(String id, Instant createTime) {
+        InboxTask task = new InboxTask();
+        task.setId(id);
+        task.setName("直屬主管簽核");
+        task.setProcessName("請假流程");
+        task.setCreateTime(createTime);
+        task.setProcessInstanceId("pi-" + id);
+        return task;
+    }
+
+    private HistoricTaskInstance historicTask(String id, String processInstanceId) {
+        HistoricTaskInstance task = mock(HistoricTaskInstance.class);
+        when(task.getId()).thenReturn(id);
+        when(task.getName()).thenReturn("直屬主管簽核");
+        when(task.getAssignee()).thenReturn("user");
+        when(task.getEndTime()).thenReturn(new Date());
+        when(task.getProcessDefinitionId()).thenReturn("leaveProcess:1:5");
+        when(task.getProcessInstanceId()).thenReturn(processInstanceId);
+        return task;
+    }
+
+    private Task activeTask(String processInstanceId, String assignee) {
+        Task task = mock(Task.class);
+        when(task.getProcessInstanceId()).thenReturn(processInstanceId);
+        when(task.getAssignee()).thenReturn(assignee);
+        return task;
+    }
+}
@@ -0,0 +1,42 @@
+package com.taskmanager.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTest {
+
+    @Test
+    void testQuotedFieldsAndLineEndings() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader(
+                "\uFEFFitemName,amount,reason\r\n" +
+                "\"筆電, 14 吋\",32000,\"說明含\"\"引號\"\"\n與換行\"\r\n" +
+                "\r\n" +
+                "螢幕,8000\n"));
+
+        assertEquals(List.of("itemName", "amount", "reason"), reader.getHeader());
+
+        Map<String, String> first = reader.next();
+        assertEquals("筆電, 14 吋", first.get("itemName"));
+        assertEquals("說明含\"引號\"\n與換行", first.get("reason"));
+
+        // 空白列略過，缺少的欄位補空字串
+        Map<String, String> second = reader.next();
+        assertEquals("螢幕", second.get("itemName"));
+        assertEquals("", second.get("reason"));
+
+        assertNull(reader.next());
+    }
+
+    @Test
+    void testMalformedCsv() {
+        assertThrows(IllegalArgumentException.class, () -> new CsvReader(new StringReader("")).getHeader());
+        assertThrows(IllegalArgumentException.class, () -> new CsvReader(new StringReader("a,b\n1,2,3\n")).next());
+        assertThrows(IllegalArgumentException.class, () -> new CsvReader(new StringReader("a\n\"open\n")).next());
+    }
+}
@@ -0,0 +1,40 @@
+package com.taskmanager.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    @Test
+    void testEncodeDecodeRoundTrip() {
+        Date time = new Date(1700000000123L);
+        String encoded = new KeysetCursor(time, "2501").encode();
+
+        KeysetCursor decoded = KeysetCursor.decode(encoded);
+
+        assertEquals(time, decoded.getTime());
+        assertEquals("2501", decoded.getId());
+    }
+
+    @Test
+    void testIdMayContainSeparator() {
+        // 流程定義 ID 等字串本身就含有冒號
+        KeysetCursor decoded = KeysetCursor.decode(new KeysetCursor(1L, "leaveProcess:1:5").encode());
+
+        assertEquals("leaveProcess:1:5", decoded.getId());
+    }
+
+    @Test
+    void testBlankCursorMeansFirstPage() {
+        assertNull(KeysetCursor.decode(null));
+        assertNull(KeysetCursor.decode(""));
+    }
+
+    @Test
+    void testInvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("not-a-cursor!"));
+    }
+}
@@ -0,0 +1,132 @@
+package com.taskmanager.workflow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.taskmanager.countersign.service.CountersignVoteService;
+import org.activiti.engine.HistoryService;
+import org.activiti.engine.ManagementService;
+import org.activiti.engine.RuntimeService;
+import org.activiti.engine.TaskService;
+import org.activiti.engine.impl.cmd.CompleteTaskCmd;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.runtime.ProcessInstance;
+import org.activiti.engine.task.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@SpringBootTest
+@ExtendWith(SpringExtension.class)
+public class CountersignProcessTest {
+
+    @Autowired
+    private RuntimeService runtimeService;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private HistoryService historyService;
+
+    @Autowired
+    private ManagementService managementService;
+
+    /**
+     * 兩票同意、一票不同意 -> 會簽通過
+     */
+    @Test
+    public void testMajorityApprovalTakesPassBranch() {
+        ProcessInstance processInstance = start("admin", "user", "manager");
+
+        vote(processInstance, "admin", "pass");
+        vote(processInstance, "user", "reject");
+        vote(processInstance, "manager", "pass");
+
+        assertEndedAt(processInstance, "endEventPass");
+    }
+
+    /**
+     * 一票同意、兩票不同意 -> 會簽駁回
+     */
+    @Test
+    public void testMajorityRejectionTakesFailBranch() {
+        ProcessInstance processInstance = start("admin", "user", "manager");
+
+        vote(processInstance, "admin", "reject");
+        vote(processInstance, "user", "pass");
+        vote(processInstance, "manager", "reject");
+
+        assertEndedAt(processInstance, "endEventFail");
+    }
+
+    /**
+     * 完成任務後引擎交易回滾：票與任務完成一起回滾，不會留下票，也不影響之後的計票
+     */
+    @Test
+    public void testVoteIsRolledBackWithTheEngineTransaction() {
+        ProcessInstance processInstance = start("admin", "user");
+        Task adminTask = task(processInstance, "admin");
+
+        assertThatThrownBy(() -> managementService.executeCommand((Command<Void>) commandContext -> {
+            new CompleteTaskCmd(adminTask.getId(), form("pass")).execute(commandContext);
+            throw new IllegalStateException("模擬完成後失敗");
+        })).isInstanceOf(IllegalStateException.class);
+
+        // 任務仍在，流程實例上沒有任何票
+        assertThat(task(processInstance, "admin").getId()).isEqualTo(adminTask.getId());
+        assertThat(runtimeService.getVariables(processInstance.getId()).keySet())
+                .noneMatch(name -> name.startsWith(CountersignVoteService.VOTE_PREFIX));
+
+        // 重新投票：admin 不同意、user 同意，1:1 未過半 -> 駁回
+        vote(processInstance, "admin", "reject");
+        vote(processInstance, "user", "pass");
+
+        assertEndedAt(processInstance, "endEventFail");
+        assertThat(historyService.createHistoricVariableInstanceQuery()
+                .processInstanceId(processInstance.getId())
+                .variableNameLike(CountersignVoteService.VOTE_PREFIX + "%")
+                .count()).isEqualTo(2);
+    }
+
+    private ProcessInstance start(String... signers) {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("assigneeList", List.of(signers));
+        vars.put("reason", "測試會簽");
+        return runtimeService.startProcessInstanceByKey("countersignProcess", vars);
+    }
+
+    private Task task(ProcessInstance processInstance, String assignee) {
+        return taskService.createTaskQuery()
+                .processInstanceId(processInstance.getId())
+                .taskAssignee(assignee)
+                .singleResult();
+    }
+
+    private void vote(ProcessInstance processInstance, String assignee, String auditResult) {
+        taskService.complete(task(processInstance, assignee).getId(), form(auditResult));
+    }
+
+    private Map<String, Object> form(String auditResult) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("auditResult", auditResult);
+        variables.put("comment", auditResult);
+        return variables;
+    }
+
+    private void assertEndedAt(ProcessInstance processInstance, String endEventId) {
+        assertThat(runtimeService.createProcessInstanceQuery()
+                .processInstanceId(processInstance.getId())
+                .singleResult()).isNull();
+        assertThat(historyService.createHistoricActivityInstanceQuery()
+                .processInstanceId(processInstance.getId())
+                .activityId(endEventId)
+                .count()).isEqualTo(1);
+    }
+}
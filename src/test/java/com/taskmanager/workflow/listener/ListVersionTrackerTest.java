@@ -0,0 +1,41 @@
+package com.taskmanager.workflow.listener;
+
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ListVersionTrackerTest {
+
+    @Test
+    void testTaskChangeOnlyInvalidatesAffectedLists() {
+        ListVersionTracker tracker = new ListVersionTracker();
+        String managerEtag = tracker.userListEtag("my-tasks", "manager");
+        String userEtag = tracker.userListEtag("my-tasks", "user");
+        String instancesEtag = tracker.listEtag(ListVersionTracker.INSTANCES, null);
+
+        TaskEntity task = mock(TaskEntity.class);
+        when(task.getAssignee()).thenReturn("manager");
+        when(task.getIdentityLinks()).thenReturn(List.of());
+        tracker.onTaskChanges(List.of(TaskChange.of(TaskChange.Type.ASSIGNED, task)));
+
+        assertNotEquals(managerEtag, tracker.userListEtag("my-tasks", "manager"));
+        assertEquals(userEtag, tracker.userListEtag("my-tasks", "user"));
+        assertNotEquals(instancesEtag, tracker.listEtag(ListVersionTracker.INSTANCES, null));
+    }
+
+    @Test
+    void testGroupListEtagDependsOnEveryRole() {
+        ListVersionTracker tracker = new ListVersionTracker();
+        String before = tracker.groupListEtag("group-tasks", "user", List.of("ROLE_USER", "ROLE_IT"));
+
+        tracker.bump("group:ROLE_IT");
+
+        assertNotEquals(before, tracker.groupListEtag("group-tasks", "user", List.of("ROLE_USER", "ROLE_IT")));
+        assertEquals(tracker.groupListEtag("group-tasks", "user", List.of("ROLE_IT", "ROLE_USER")),
+                tracker.groupListEtag("group-tasks", "user", List.of("ROLE_USER", "ROLE_IT")));
+    }
+}